@@ -0,0 +1,80 @@
+package com.mygcc.api;
+
+import com.mygcc.datacollection.RequestAccount;
+
+import javax.annotation.Priority;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import java.lang.reflect.Method;
+
+/**
+ * Counts the requests to myGCC made for each API request.
+ *
+ * <h3>Overview</h3>
+ * <p>Before a resource method runs, a new {@link RequestAccount} is set as
+ * the current account of the thread, where the
+ * {@link com.mygcc.datacollection.Session} created by the resource picks it
+ * up, and removed again by the {@link CurrentRequestListener} once the
+ * method has returned. The account is also kept with the request, and once
+ * the response has been produced it is added to the {@link EndpointCosts}
+ * of the endpoint given by the method's {@link UpstreamEndpoint}.</p>
+ */
+@Provider
+@Priority(AccountingFilter.PRIORITY)
+public class AccountingFilter implements ContainerRequestFilter,
+        ContainerResponseFilter {
+    /**
+     * Priority of the filter, after the {@link AdmissionFilter} so that
+     * requests turned away are not accounted.
+     */
+    static final int PRIORITY = AdmissionFilter.PRIORITY + 1;
+
+    /**
+     * Request property holding the account of the request.
+     */
+    private static final String ACCOUNT = "com.mygcc.api.account";
+
+    /**
+     * Resource method handling the request.
+     */
+    @Context
+    private ResourceInfo resource;
+
+    /**
+     * Start the account of the request.
+     * @param request request
+     */
+    @Override
+    public final void filter(final ContainerRequestContext request) {
+        RequestAccount account = new RequestAccount();
+        RequestAccount.setCurrent(account);
+        request.setProperty(ACCOUNT, account);
+    }
+
+    /**
+     * Add the account of the request to the totals of its endpoint.
+     * @param request request
+     * @param response response
+     */
+    @Override
+    public final void filter(final ContainerRequestContext request,
+                             final ContainerResponseContext response) {
+        RequestAccount.setCurrent(null);
+        Object account = request.getProperty(ACCOUNT);
+        if (!(account instanceof RequestAccount)) {
+            return;
+        }
+        request.setProperty(ACCOUNT, null);
+        Method method = null;
+        if (resource != null) {
+            method = resource.getResourceMethod();
+        }
+        EndpointCosts.getInstance().record(Endpoint.of(method),
+                response.getStatus(), (RequestAccount) account);
+    }
+}
@@ -0,0 +1,118 @@
+package com.mygcc.api;
+
+import javax.annotation.Priority;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Admits API requests to blocking resources through the
+ * {@link AdmissionScheduler}.
+ *
+ * <h3>Overview</h3>
+ * <p>Before a resource method runs, the request waits for the scheduler to
+ * admit it, weighed by the {@link Endpoint#cost()} of the endpoint given by
+ * the method's {@link UpstreamEndpoint}. A request that is turned away is
+ * answered at once with {@link MyGCCResource#overloaded()}. The wait holds
+ * the server thread, which a blocking resource would hold for its work
+ * anyway. Asynchronous resources, which return a {@code CompletionStage},
+ * are passed through and wait with
+ * {@link MyGCCResource#whenAdmitted(Endpoint, java.util.function.Supplier)}
+ * instead, without holding a thread.</p>
+ *
+ * <h3>Release</h3>
+ * <p>The capacity taken by an admitted request is returned once its response
+ * has been produced. A request that fails or whose client goes away before
+ * then returns it when the {@link CurrentRequestListener} sees the request
+ * finish. It is only returned once.</p>
+ *
+ * <p>The filter runs after the {@link DeadlineFilter}, so the wait counts
+ * against the deadline of the request, and before the
+ * {@link AccountingFilter}, so requests turned away are not accounted.</p>
+ */
+@Provider
+@Priority(AdmissionFilter.PRIORITY)
+public class AdmissionFilter implements ContainerRequestFilter,
+        ContainerResponseFilter {
+    /**
+     * Priority of the filter.
+     */
+    static final int PRIORITY = DeadlineFilter.PRIORITY + 1;
+
+    /**
+     * Request property holding the endpoint of an admitted request until
+     * its capacity is returned.
+     */
+    private static final String ADMITTED = "com.mygcc.api.admitted";
+
+    /**
+     * Resource method handling the request.
+     */
+    @Context
+    private ResourceInfo resource;
+
+    /**
+     * Wait for the request to be admitted, or turn it away.
+     * @param request request
+     */
+    @Override
+    public final void filter(final ContainerRequestContext request) {
+        Method method = null;
+        if (resource != null) {
+            method = resource.getResourceMethod();
+        }
+        if (method != null && CompletionStage.class.isAssignableFrom(
+                method.getReturnType())) {
+            return;
+        }
+        Endpoint endpoint = Endpoint.of(method);
+        if (endpoint.cost() == 0) {
+            return;
+        }
+        try {
+            if (AdmissionScheduler.getInstance().admit(endpoint)) {
+                request.setProperty(ADMITTED,
+                        new AtomicReference<>(endpoint));
+            } else {
+                request.abortWith(MyGCCResource.overloaded());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            request.abortWith(MyGCCResource.overloaded());
+        }
+    }
+
+    /**
+     * Return the capacity taken by the request.
+     * @param request request
+     * @param response response
+     */
+    @Override
+    public final void filter(final ContainerRequestContext request,
+                             final ContainerResponseContext response) {
+        release(request);
+    }
+
+    /**
+     * Return the capacity taken by a request, if it was admitted and has not
+     * returned it yet.
+     * @param request request
+     */
+    static void release(final ContainerRequestContext request) {
+        Object held = request.getProperty(ADMITTED);
+        if (!(held instanceof AtomicReference)) {
+            return;
+        }
+        Object endpoint = ((AtomicReference<?>) held).getAndSet(null);
+        if (endpoint instanceof Endpoint) {
+            AdmissionScheduler.getInstance().release((Endpoint) endpoint);
+        }
+    }
+}
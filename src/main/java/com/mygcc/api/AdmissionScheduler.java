@@ -0,0 +1,439 @@
+package com.mygcc.api;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which API requests may start, weighing each by its cost to myGCC.
+ *
+ * <h3>Capacity</h3>
+ * <p>The requests being handled may together cost at most
+ * {@code admissioncapacity} round trips to myGCC (default 64), as given by
+ * {@link Endpoint#cost()}. Endpoints that cost nothing are always admitted.
+ * A request that would go over the capacity waits, for at most
+ * {@code admissionwait} milliseconds (default 5000) and no longer than the
+ * deadline of its endpoint.</p>
+ *
+ * <h3>Fair queuing</h3>
+ * <p>Waiting requests are admitted by weighted fair queuing: each is tagged
+ * with the point at which its endpoint will have used its cost in turn, and
+ * the lowest tag goes first. Every endpoint gets an equal share of myGCC,
+ * so a request to contact information, costing one round trip, does not
+ * wait behind a flood of biography requests costing four each. Once no
+ * request is waiting the tags start over, so an endpoint is not held back
+ * for a flood that has already passed.</p>
+ *
+ * <h3>Shedding</h3>
+ * <p>At most {@code admissionqueue} requests (default 50) wait. A request
+ * to a blocking resource holds a server thread while it waits, so the queue
+ * is kept to at most half of the 200 threads of the server, leaving the
+ * rest to the requests being handled and to endpoints that cost nothing.
+ * Requests to asynchronous resources wait through {@link #admitAsync} and
+ * hold no thread. When the queue is full, the most expensive waiting
+ * request is turned away to make room for a cheaper one; a request no
+ * cheaper than all of those waiting is turned away itself. Turned away
+ * requests are answered with {@link MyGCCResource#overloaded()}.</p>
+ */
+public final class AdmissionScheduler {
+    /**
+     * Default round trips the requests being handled may cost.
+     */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Default number of requests that may wait.
+     */
+    private static final int DEFAULT_QUEUE = 50;
+
+    /**
+     * Largest number of requests that may wait: half the threads of the
+     * server, which is started with Jetty's default pool of 200.
+     */
+    private static final int MAX_QUEUE = 100;
+
+    /**
+     * Default milliseconds a request may wait.
+     */
+    private static final int DEFAULT_WAIT = 5000;
+
+    /**
+     * Thread that turns away requests that have waited too long.
+     */
+    private static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "admission-timeout");
+                t.setDaemon(true);
+                return t;
+            });
+
+    /**
+     * Scheduler shared by all API requests.
+     */
+    private static final AdmissionScheduler INSTANCE = new AdmissionScheduler(
+            envInt("admissioncapacity", DEFAULT_CAPACITY),
+            Math.min(envInt("admissionqueue", DEFAULT_QUEUE), MAX_QUEUE),
+            envInt("admissionwait", DEFAULT_WAIT));
+
+    /**
+     * Round trips the requests being handled may cost.
+     */
+    private final int capacity;
+
+    /**
+     * Number of requests that may wait.
+     */
+    private final int maxQueue;
+
+    /**
+     * Milliseconds a request may wait.
+     */
+    private final long maxWait;
+
+    /**
+     * Requests waiting, lowest finish tag first.
+     */
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>();
+
+    /**
+     * Finish tag of the last request queued for each endpoint.
+     */
+    private final Map<Endpoint, Double> lastFinish =
+            new EnumMap<>(Endpoint.class);
+
+    /**
+     * Start tag of the request admitted last from the queue.
+     */
+    private double virtualTime;
+
+    /**
+     * Number of requests queued, used to keep equal tags in order.
+     */
+    private long queued;
+
+    /**
+     * Round trips of the requests being handled.
+     */
+    private int inUse;
+
+    /**
+     * Requests admitted.
+     */
+    private long admitted;
+
+    /**
+     * Requests turned away because the queue was full.
+     */
+    private long shed;
+
+    /**
+     * Requests turned away because they waited too long.
+     */
+    private long timedOut;
+
+    /**
+     * Create scheduler.
+     * @param roundTrips round trips the requests being handled may cost
+     * @param queueSize number of requests that may wait
+     * @param waitMillis milliseconds a request may wait
+     */
+    public AdmissionScheduler(final int roundTrips, final int queueSize,
+                              final long waitMillis) {
+        this.capacity = roundTrips;
+        this.maxQueue = queueSize;
+        this.maxWait = waitMillis;
+    }
+
+    /**
+     * Get the scheduler shared by all API requests.
+     * @return scheduler
+     */
+    public static AdmissionScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Wait until a request to an endpoint may start. A request that was
+     * admitted must be followed by one call to {@link #release(Endpoint)}.
+     * @param endpoint endpoint of the request
+     * @return whether the request was admitted
+     * @throws InterruptedException thread interrupted while waiting
+     */
+    public boolean admit(final Endpoint endpoint)
+            throws InterruptedException {
+        CompletableFuture<Boolean> result = admitAsync(endpoint);
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            // Leave the queue, or give back what was taken meanwhile
+            result.complete(false);
+            if (result.join()) {
+                release(endpoint);
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Ask for a request to an endpoint to start, without holding a thread
+     * while it waits. A request that was admitted must be followed by one
+     * call to {@link #release(Endpoint)}.
+     * @param endpoint endpoint of the request
+     * @return completed with whether the request was admitted; completing
+     *         it with false first takes the request out of the queue
+     */
+    public CompletableFuture<Boolean> admitAsync(final Endpoint endpoint) {
+        int cost = endpoint.cost();
+        if (cost == 0) {
+            return CompletableFuture.completedFuture(true);
+        }
+        Waiter waiter;
+        Waiter turnedAway = null;
+        synchronized (this) {
+            if (queue.isEmpty() && fits(cost)) {
+                inUse += cost;
+                admitted++;
+                return CompletableFuture.completedFuture(true);
+            }
+            if (queue.size() >= maxQueue) {
+                turnedAway = makeRoom(cost);
+                if (turnedAway == null) {
+                    shed++;
+                    return CompletableFuture.completedFuture(false);
+                }
+            }
+            waiter = enqueue(endpoint);
+        }
+        if (turnedAway != null) {
+            turnedAway.result.complete(false);
+        }
+        ScheduledFuture<?> timeout = TIMER.schedule(() -> giveUp(waiter),
+                Math.min(maxWait, endpoint.deadline()), TimeUnit.MILLISECONDS);
+        waiter.result.whenComplete((admit, failure) -> {
+            timeout.cancel(false);
+            if (!Boolean.TRUE.equals(admit)) {
+                giveUp(waiter);
+            }
+        });
+        return waiter.result;
+    }
+
+    /**
+     * Record that an admitted request has finished, and admit waiting
+     * requests that now fit.
+     * @param endpoint endpoint of the request
+     */
+    public void release(final Endpoint endpoint) {
+        List<Waiter> next;
+        synchronized (this) {
+            inUse -= endpoint.cost();
+            next = dispatch();
+        }
+        start(next);
+    }
+
+    /**
+     * Get the capacity in use and counters of the scheduler.
+     * @return values keyed by name
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("capacity", capacity);
+        values.put("inUse", inUse);
+        values.put("queueDepth", queue.size());
+        values.put("admitted", admitted);
+        values.put("shed", shed);
+        values.put("timedOut", timedOut);
+        return values;
+    }
+
+    /**
+     * Check whether a request fits in the capacity left. A request costing
+     * more than the whole capacity fits when nothing else is handled.
+     * @param cost round trips of the request
+     * @return whether the request fits
+     */
+    private boolean fits(final int cost) {
+        return inUse == 0 || inUse + cost <= capacity;
+    }
+
+    /**
+     * Queue a request with its finish tag.
+     * @param endpoint endpoint of the request
+     * @return waiting request
+     */
+    private Waiter enqueue(final Endpoint endpoint) {
+        double start = Math.max(virtualTime,
+                lastFinish.getOrDefault(endpoint, 0.0));
+        Waiter waiter = new Waiter(endpoint, start, start + endpoint.cost(),
+                queued++);
+        lastFinish.put(endpoint, waiter.finish);
+        queue.add(waiter);
+        return waiter;
+    }
+
+    /**
+     * Turn away the most expensive waiting request if it costs more than a
+     * new one.
+     * @param cost round trips of the new request
+     * @return request taken out of the queue, or null if no room was made
+     */
+    private Waiter makeRoom(final int cost) {
+        Waiter costliest = null;
+        for (Waiter w : queue) {
+            if (costliest == null
+                    || w.endpoint.cost() > costliest.endpoint.cost()
+                    || (w.endpoint.cost() == costliest.endpoint.cost()
+                    && w.compareTo(costliest) > 0)) {
+                costliest = w;
+            }
+        }
+        if (costliest == null || costliest.endpoint.cost() <= cost) {
+            return null;
+        }
+        queue.remove(costliest);
+        shed++;
+        return costliest;
+    }
+
+    /**
+     * Take waiting requests out of the queue in tag order while the next
+     * one fits, and count them in the capacity in use.
+     * @return requests to tell they were admitted
+     */
+    private List<Waiter> dispatch() {
+        List<Waiter> next = new ArrayList<>();
+        while (!queue.isEmpty() && fits(queue.peek().endpoint.cost())) {
+            Waiter w = queue.poll();
+            virtualTime = w.start;
+            inUse += w.endpoint.cost();
+            admitted++;
+            next.add(w);
+        }
+        if (queue.isEmpty()) {
+            // Tags only order requests waiting together
+            virtualTime = 0;
+            lastFinish.clear();
+        }
+        return next;
+    }
+
+    /**
+     * Tell requests taken out of the queue that they were admitted. This is
+     * done outside the lock, as the work of an asynchronous request starts
+     * when it is told.
+     * @param next admitted requests
+     */
+    private void start(final List<Waiter> next) {
+        for (Waiter w : next) {
+            if (!w.result.complete(true)) {
+                // The request stopped waiting just before it was admitted
+                release(w.endpoint);
+            }
+        }
+    }
+
+    /**
+     * Take a request that stopped waiting out of the queue. A request still
+     * queued when its wait runs out is turned away.
+     * @param waiter waiting request
+     */
+    private void giveUp(final Waiter waiter) {
+        List<Waiter> next;
+        synchronized (this) {
+            if (!queue.remove(waiter)) {
+                return;
+            }
+            timedOut++;
+            // A large request at the head may have held up smaller ones
+            next = dispatch();
+        }
+        waiter.result.complete(false);
+        start(next);
+    }
+
+    /**
+     * Read a number from the environment.
+     * @param name environment variable
+     * @param fallback value if the variable is not set
+     * @return value
+     */
+    private static int envInt(final String name, final int fallback) {
+        String value = System.getenv(name);
+        if (value == null || value.isEmpty()) {
+            return fallback;
+        }
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * Request waiting to be admitted.
+     */
+    private static final class Waiter implements Comparable<Waiter> {
+        /**
+         * Endpoint of the request.
+         */
+        private final Endpoint endpoint;
+
+        /**
+         * Virtual time at which the request's turn starts.
+         */
+        private final double start;
+
+        /**
+         * Virtual time at which the request's turn ends.
+         */
+        private final double finish;
+
+        /**
+         * Order in which the request was queued.
+         */
+        private final long sequence;
+
+        /**
+         * Completed with whether the request was admitted.
+         */
+        private final CompletableFuture<Boolean> result =
+                new CompletableFuture<>();
+
+        /**
+         * Create waiting request.
+         * @param target endpoint of the request
+         * @param startTag virtual time at which its turn starts
+         * @param finishTag virtual time at which its turn ends
+         * @param order order in which it was queued
+         */
+        Waiter(final Endpoint target, final double startTag,
+               final double finishTag, final long order) {
+            this.endpoint = target;
+            this.start = startTag;
+            this.finish = finishTag;
+            this.sequence = order;
+        }
+
+        /**
+         * Order by finish tag, then by arrival.
+         * @param other other waiting request
+         * @return negative if this request goes first
+         */
+        @Override
+        public int compareTo(final Waiter other) {
+            int c = Double.compare(finish, other.finish);
+            if (c != 0) {
+                return c;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
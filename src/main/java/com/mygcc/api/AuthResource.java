@@ -3,9 +3,12 @@ package com.mygcc.api;
 import com.mygcc.datacollection.InvalidCredentialsException;
 import com.mygcc.datacollection.NetworkException;
 import com.mygcc.datacollection.Session;
+import com.mygcc.datacollection.SessionPool;
 import com.mygcc.datacollection.Token;
 import com.mygcc.datacollection.UnexpectedResponseException;
 
+import javax.ws.rs.DELETE;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Consumes;
@@ -30,6 +33,7 @@ public class AuthResource extends MyGCCResource {
     @POST
     @Consumes(MediaType.APPLICATION_JSON)
     @Produces(MediaType.APPLICATION_JSON)
+    @UpstreamEndpoint(Endpoint.AUTH)
     public final Response authenticateUser(final User user) {
         // Check that user is not null and that required parameters exist
         if (user == null || !user.checkRequiredParams()) {
@@ -61,4 +65,26 @@ public class AuthResource extends MyGCCResource {
             return networkException();
         }
     }
+
+    /**
+     * Handles revoking a token so that it can no longer be used.
+     *
+     * @param token Authorization token
+     * @return Response to client
+     */
+    @DELETE
+    @Produces(MediaType.APPLICATION_JSON)
+    public final Response deauthenticateUser(
+            @HeaderParam("Authorization") final String token) {
+        try {
+            Token auth = new Token(token);
+            Token.revoke(token);
+
+            // Log the pooled myGCC session out too
+            SessionPool.getInstance().remove(auth.hash());
+            return Response.status(Response.Status.NO_CONTENT).build();
+        } catch (InvalidCredentialsException e) {
+            return invalidCredentialsException();
+        }
+    }
 }
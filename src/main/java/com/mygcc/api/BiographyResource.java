@@ -1,11 +1,8 @@
 package com.mygcc.api;
 
 import com.mygcc.datacollection.Biography;
-import com.mygcc.datacollection.ExpiredSessionException;
 import com.mygcc.datacollection.InvalidCredentialsException;
-import com.mygcc.datacollection.NetworkException;
 import com.mygcc.datacollection.Token;
-import com.mygcc.datacollection.UnexpectedResponseException;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
@@ -13,7 +10,8 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Get data about client.
@@ -28,7 +26,8 @@ public class BiographyResource extends MyGCCResource {
     @Path("/")
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public final Response getAllData(
+    @UpstreamEndpoint(Endpoint.BIOGRAPHY)
+    public final CompletionStage<Response> getAllData(
             @HeaderParam("Authorization") final String token) {
         Token auth;
 
@@ -36,24 +35,17 @@ public class BiographyResource extends MyGCCResource {
         try {
             auth = new Token(token);
         } catch (InvalidCredentialsException e) {
-            return invalidCredentialsException();
+            return CompletableFuture.completedFuture(
+                    invalidCredentialsException());
         }
 
+        // Wait for admission and for myGCC without holding a server thread
         Biography bio = new Biography(auth);
-        try {
-            Map<String, String> data = bio.getData();
-            return Response.status(Response.Status.OK)
-                    .entity(data)
-                    .type("application/json")
-                    .build();
-        } catch (ExpiredSessionException e) {
-            return sessionExpiredMessage();
-        } catch (InvalidCredentialsException e) {
-            return invalidCredentialsException();
-        } catch (NetworkException e) {
-            return networkException();
-        } catch (UnexpectedResponseException e) {
-            return unexpectedResponseException();
-        }
+        return whenAdmitted(Endpoint.BIOGRAPHY, () -> bio.getDataAsync()
+                .thenApply(data -> Response.status(Response.Status.OK)
+                        .entity(data)
+                        .type("application/json")
+                        .build())
+                .exceptionally(this::failureResponse));
     }
 }
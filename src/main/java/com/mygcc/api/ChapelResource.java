@@ -1,11 +1,8 @@
 package com.mygcc.api;
 
 import com.mygcc.datacollection.Chapel;
-import com.mygcc.datacollection.ExpiredSessionException;
 import com.mygcc.datacollection.InvalidCredentialsException;
-import com.mygcc.datacollection.NetworkException;
 import com.mygcc.datacollection.Token;
-import com.mygcc.datacollection.UnexpectedResponseException;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
@@ -13,7 +10,8 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Chapel resource endpoint.
@@ -31,24 +29,24 @@ public class ChapelResource extends MyGCCResource {
     @Path("/chapel")
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public final Response getChapelData(
+    @UpstreamEndpoint(Endpoint.CHAPEL)
+    public final CompletionStage<Response> getChapelData(
             @HeaderParam("Authorization") final String token) {
+        Token auth;
         try {
-            Token auth = new Token(token);
-            Chapel chap = new Chapel(auth);
-            Map<String, Integer> chapelData = chap.getChapelData();
-            return Response.status(Response.Status.OK)
-                    .entity(chapelData)
-                    .type("application/json")
-                    .build();
-        } catch (ExpiredSessionException e) {
-            return sessionExpiredMessage();
+            auth = new Token(token);
         } catch (InvalidCredentialsException e) {
-            return invalidCredentialsException();
-        } catch (NetworkException e) {
-            return networkException();
-        } catch (UnexpectedResponseException e) {
-            return unexpectedResponseException();
+            return CompletableFuture.completedFuture(
+                    invalidCredentialsException());
         }
+
+        // Wait for admission and for myGCC without holding a server thread
+        Chapel chapel = new Chapel(auth);
+        return whenAdmitted(Endpoint.CHAPEL, () -> chapel.getChapelDataAsync()
+                .thenApply(data -> Response.status(Response.Status.OK)
+                        .entity(data)
+                        .type("application/json")
+                        .build())
+                .exceptionally(this::failureResponse));
     }
 }
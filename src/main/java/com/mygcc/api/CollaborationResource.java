@@ -1,12 +1,8 @@
 package com.mygcc.api;
 
-import com.mygcc.datacollection.ClassDoesNotExistException;
 import com.mygcc.datacollection.Collaboration;
 import com.mygcc.datacollection.InvalidCredentialsException;
-import com.mygcc.datacollection.NetworkException;
-import com.mygcc.datacollection.StudentNotInClassException;
 import com.mygcc.datacollection.Token;
-import com.mygcc.datacollection.UnexpectedResponseException;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
@@ -15,7 +11,8 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Collaboration resource endpoint.
@@ -34,33 +31,25 @@ public class CollaborationResource extends MyGCCResource {
     @Path("/{course}/collaboration")
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public final Response getCollaborationData(
+    @UpstreamEndpoint(Endpoint.COURSE)
+    public final CompletionStage<Response> getCollaborationData(
             @HeaderParam("Authorization") final String token,
             @PathParam("course") final String courseCode) {
         Token auth;
         try {
             auth = new Token(token);
         } catch (InvalidCredentialsException e) {
-            return invalidCredentialsException();
+            return CompletableFuture.completedFuture(
+                    invalidCredentialsException());
         }
 
+        // Wait for admission and for myGCC without holding a server thread
         Collaboration hmw = new Collaboration(auth, courseCode);
-        try {
-            Map<String, Object> collaborationData = hmw.getData();
-            return Response.status(Response.Status.OK)
-                    .entity(collaborationData)
-                    .type("application/json")
-                    .build();
-        } catch (UnexpectedResponseException e) {
-            return unexpectedResponseException();
-        } catch (NetworkException e) {
-            return networkException();
-        } catch (InvalidCredentialsException e) {
-            return invalidCredentialsException();
-        } catch (ClassDoesNotExistException e) {
-            return classDoesNotExistException();
-        } catch (StudentNotInClassException e) {
-            return  studentNotInClassException();
-        }
+        return whenAdmitted(Endpoint.COURSE, () -> hmw.getDataAsync()
+                .thenApply(data -> Response.status(Response.Status.OK)
+                        .entity(data)
+                        .type("application/json")
+                        .build())
+                .exceptionally(this::failureResponse));
     }
 }
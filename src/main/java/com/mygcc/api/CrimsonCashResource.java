@@ -1,11 +1,8 @@
 package com.mygcc.api;
 
 import com.mygcc.datacollection.CrimsonCash;
-import com.mygcc.datacollection.ExpiredSessionException;
 import com.mygcc.datacollection.InvalidCredentialsException;
-import com.mygcc.datacollection.NetworkException;
 import com.mygcc.datacollection.Token;
-import com.mygcc.datacollection.UnexpectedResponseException;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
@@ -13,7 +10,8 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Crimson Cash resource endpoint.
@@ -31,30 +29,26 @@ public class CrimsonCashResource extends MyGCCResource {
     @Path("/ccash")
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public final Response getCrimsonCashData(
+    @UpstreamEndpoint(Endpoint.CRIMSONCASH)
+    public final CompletionStage<Response> getCrimsonCashData(
             @HeaderParam("Authorization") final String token) {
-        Token tok;
+        Token auth;
         try {
-            tok = new Token(token);
+            auth = new Token(token);
         } catch (InvalidCredentialsException e) {
-            return invalidCredentialsException();
+            return CompletableFuture.completedFuture(
+                    invalidCredentialsException());
         }
 
-        CrimsonCash cc = new CrimsonCash(tok);
-        try {
-            Map<String, Object> ccData = cc.getCrimsonCashData();
-            return Response.status(Response.Status.OK)
-                    .entity(ccData)
-                    .type("application/json")
-                    .build();
-        } catch (ExpiredSessionException e) {
-            return sessionExpiredMessage();
-        } catch (InvalidCredentialsException e) {
-            return invalidCredentialsException();
-        } catch (NetworkException e) {
-            return networkException();
-        } catch (UnexpectedResponseException e) {
-            return unexpectedResponseException();
-        }
+        // Wait for admission and for myGCC without holding a server thread
+        CrimsonCash ccash = new CrimsonCash(auth);
+        return whenAdmitted(Endpoint.CRIMSONCASH,
+                () -> ccash.getCrimsonCashDataAsync()
+                        .thenApply(data -> Response.status(
+                                Response.Status.OK)
+                                .entity(data)
+                                .type("application/json")
+                                .build())
+                        .exceptionally(this::failureResponse));
     }
 }
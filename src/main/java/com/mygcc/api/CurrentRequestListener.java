@@ -0,0 +1,56 @@
+package com.mygcc.api;
+
+import com.mygcc.datacollection.Deadline;
+import com.mygcc.datacollection.RequestAccount;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Removes the deadline and account of an API request from the thread that
+ * ran its resource method, and returns its admission once it finishes.
+ *
+ * <h3>Overview</h3>
+ * <p>The {@link DeadlineFilter} and {@link AccountingFilter} set the
+ * current {@link Deadline} and {@link RequestAccount} of the thread that
+ * runs the resource method, and remove them in their response filters. An
+ * asynchronous resource returns a {@code CompletionStage}, so its response
+ * filters run on whichever thread completes it, and the server thread that
+ * ran the method would keep both. Once the resource method has returned,
+ * this listener removes them on the thread that ran it.</p>
+ *
+ * <p>Once the request has finished, whether its response was sent, it
+ * failed or its client went away, the listener also returns any capacity
+ * the {@link AdmissionFilter} still holds for it.</p>
+ */
+@Provider
+public class CurrentRequestListener implements ApplicationEventListener {
+    /**
+     * Ignore events of the application.
+     * @param event application event
+     */
+    @Override
+    public final void onEvent(final ApplicationEvent event) {
+    }
+
+    /**
+     * Listen to the events of a request.
+     * @param start event starting the request
+     * @return listener to the events of the request
+     */
+    @Override
+    public final RequestEventListener onRequest(final RequestEvent start) {
+        return event -> {
+            if (event.getType()
+                    == RequestEvent.Type.RESOURCE_METHOD_FINISHED) {
+                Deadline.setCurrent(null);
+                RequestAccount.setCurrent(null);
+            } else if (event.getType() == RequestEvent.Type.FINISHED) {
+                AdmissionFilter.release(event.getContainerRequest());
+            }
+        };
+    }
+}
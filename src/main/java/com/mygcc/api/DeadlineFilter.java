@@ -0,0 +1,70 @@
+package com.mygcc.api;
+
+import com.mygcc.datacollection.Deadline;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.ext.Provider;
+import java.lang.reflect.Method;
+
+/**
+ * Starts the deadline of each API request.
+ *
+ * <h3>Overview</h3>
+ * <p>Before a resource method runs, the deadline of the endpoint given by
+ * its {@link UpstreamEndpoint} is set as the current {@link Deadline} of the
+ * thread, where the {@link com.mygcc.datacollection.Session} created by the
+ * resource picks it up. The deadline is removed again by the
+ * {@link CurrentRequestListener} once the resource method has returned, and
+ * by the response filter once the response has been produced; as it is set
+ * for every request, a thread never runs a resource method with the
+ * deadline of an earlier request.</p>
+ *
+ * <p>The filter runs before the {@link AdmissionFilter}, so the time a
+ * request waits to be admitted counts against its deadline.</p>
+ */
+@Provider
+@Priority(DeadlineFilter.PRIORITY)
+public class DeadlineFilter implements ContainerRequestFilter,
+        ContainerResponseFilter {
+    /**
+     * Priority of the filter, the first of the API's filters.
+     */
+    static final int PRIORITY = Priorities.USER;
+
+    /**
+     * Resource method handling the request.
+     */
+    @Context
+    private ResourceInfo resource;
+
+    /**
+     * Set the deadline of the request.
+     * @param request request
+     */
+    @Override
+    public final void filter(final ContainerRequestContext request) {
+        Method method = null;
+        if (resource != null) {
+            method = resource.getResourceMethod();
+        }
+        Deadline.setCurrent(Deadline.after(Endpoint.of(method).deadline()));
+    }
+
+    /**
+     * Remove the deadline once the response has been produced.
+     * @param request request
+     * @param response response
+     */
+    @Override
+    public final void filter(final ContainerRequestContext request,
+                             final ContainerResponseContext response) {
+        Deadline.setCurrent(null);
+    }
+}
@@ -0,0 +1,153 @@
+package com.mygcc.api;
+
+import java.lang.reflect.Method;
+
+/**
+ * API endpoints that contact myGCC, with the time each may take and the
+ * number of requests to myGCC each makes. Resource methods name the
+ * endpoint they serve with {@link UpstreamEndpoint}.
+ *
+ * <h3>Deadlines</h3>
+ * <p>Every request to an endpoint must be answered within its deadline,
+ * including the time taken to log in to myGCC. Endpoints that make more
+ * requests to myGCC get more time. A deadline can be changed without a
+ * rebuild by setting the environment variable {@code deadline_<name>} to a
+ * number of milliseconds, for example {@code deadline_chapel=8000}.</p>
+ *
+ * <h3>Cost</h3>
+ * <p>The cost of an endpoint is the number of round trips to myGCC a request
+ * to it makes, counting post backs and the iframes of portlets. The
+ * {@link AdmissionScheduler} uses it to share myGCC between endpoints.
+ * Endpoints that do not contact myGCC cost nothing.</p>
+ */
+public enum Endpoint {
+    /**
+     * Logging in.
+     */
+    AUTH("auth", 15000, 2),
+
+    /**
+     * Biography, which posts back to myGCC twice.
+     */
+    BIOGRAPHY("biography", 25000, 4),
+
+    /**
+     * Chapel attendance.
+     */
+    CHAPEL("chapel", 15000, 4),
+
+    /**
+     * Crimson Cash balance.
+     */
+    CRIMSONCASH("crimsoncash", 15000, 4),
+
+    /**
+     * Class schedule.
+     */
+    SCHEDULE("schedule", 15000, 3),
+
+    /**
+     * Contact information.
+     */
+    CONTACT("contact", 10000, 1),
+
+    /**
+     * Insurance information.
+     */
+    INSURANCE("insurance", 10000, 1),
+
+    /**
+     * Course pages: homework, files and collaboration.
+     */
+    COURSE("course", 20000, 3),
+
+    /**
+     * Endpoints without a deadline of their own, which do not contact
+     * myGCC.
+     */
+    DEFAULT("default", 20000, 0);
+
+    /**
+     * Name used in the environment variable.
+     */
+    private final String name;
+
+    /**
+     * Deadline in milliseconds.
+     */
+    private final long deadline;
+
+    /**
+     * Round trips to myGCC.
+     */
+    private final int cost;
+
+    /**
+     * Set endpoint.
+     * @param key name used in the environment variable
+     * @param millis default deadline in milliseconds
+     * @param trips round trips to myGCC
+     */
+    Endpoint(final String key, final long millis, final int trips) {
+        this.name = key;
+        this.deadline = readDeadline(key, millis);
+        this.cost = trips;
+    }
+
+    /**
+     * Get the name used in the environment variable.
+     * @return name
+     */
+    public String key() {
+        return name;
+    }
+
+    /**
+     * Get the time a request to the endpoint may take.
+     * @return deadline in milliseconds
+     */
+    public long deadline() {
+        return deadline;
+    }
+
+    /**
+     * Get the number of round trips to myGCC a request to the endpoint
+     * takes.
+     * @return cost, 0 if the endpoint does not contact myGCC
+     */
+    public int cost() {
+        return cost;
+    }
+
+    /**
+     * Get the endpoint a resource method serves.
+     * @param method resource method, or null if not known
+     * @return endpoint given by the method's {@link UpstreamEndpoint}, or
+     *         {@link #DEFAULT}
+     */
+    public static Endpoint of(final Method method) {
+        if (method == null) {
+            return DEFAULT;
+        }
+        UpstreamEndpoint endpoint =
+                method.getAnnotation(UpstreamEndpoint.class);
+        if (endpoint == null) {
+            return DEFAULT;
+        }
+        return endpoint.value();
+    }
+
+    /**
+     * Read a deadline from the environment.
+     * @param key endpoint name
+     * @param def deadline if the variable is not set
+     * @return deadline in milliseconds
+     */
+    private static long readDeadline(final String key, final long def) {
+        String value = System.getenv("deadline_" + key);
+        if (value == null || value.isEmpty()) {
+            return def;
+        }
+        return Long.parseLong(value);
+    }
+}
@@ -0,0 +1,228 @@
+package com.mygcc.api;
+
+import com.mygcc.datacollection.RequestAccount;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Requests to myGCC made by the API requests to each endpoint.
+ *
+ * <h3>Overview</h3>
+ * <p>When an API request has been answered, the {@link RequestAccount} it
+ * was handled with is added to the totals of its endpoint: the API requests
+ * answered, the requests sent to myGCC and how many of them failed, the
+ * bytes sent and received, and the milliseconds spent waiting for myGCC,
+ * both until its responses began and until they ended. Dividing by the API
+ * requests gives the usual cost of one request to the endpoint.</p>
+ *
+ * <h3>Sampling</h3>
+ * <p>A share of the API requests given by {@code accountsample}, between 0
+ * (default) and 1, is also written to the log with each of its requests to
+ * myGCC, to show where the cost of an endpoint comes from.</p>
+ */
+public final class EndpointCosts {
+    /**
+     * Lowest status of a myGCC server error.
+     */
+    private static final int SERVER_ERROR = 500;
+
+    /**
+     * Totals shared by all API requests.
+     */
+    private static final EndpointCosts INSTANCE = new EndpointCosts(
+            envDouble("accountsample", 0));
+
+    /**
+     * Share of API requests written to the log.
+     */
+    private final double sample;
+
+    /**
+     * Totals keyed by endpoint.
+     */
+    private final Map<Endpoint, Totals> totals = new EnumMap<>(Endpoint.class);
+
+    /**
+     * Create totals.
+     * @param logShare share of API requests written to the log
+     */
+    public EndpointCosts(final double logShare) {
+        this.sample = logShare;
+        for (Endpoint endpoint : Endpoint.values()) {
+            totals.put(endpoint, new Totals());
+        }
+    }
+
+    /**
+     * Get the totals shared by all API requests.
+     * @return totals
+     */
+    public static EndpointCosts getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Add an answered API request to the totals of its endpoint.
+     * @param endpoint endpoint of the request
+     * @param status status of the API response
+     * @param account account the request was handled with
+     */
+    public void record(final Endpoint endpoint, final int status,
+                       final RequestAccount account) {
+        List<RequestAccount.Hop> hops = account.getHops();
+        Totals t = totals.get(endpoint);
+        t.requests.increment();
+        for (RequestAccount.Hop hop : hops) {
+            t.hops.increment();
+            t.bytesOut.add(hop.getBytesOut());
+            t.bytesIn.add(hop.getBytesIn());
+            t.millis.add(hop.getTotalMillis());
+            if (hop.getFirstByteMillis() >= 0) {
+                t.answered.increment();
+                t.firstByte.add(hop.getFirstByteMillis());
+            }
+            if (hop.getStatus() == 0 || hop.getStatus() >= SERVER_ERROR) {
+                t.failures.increment();
+            }
+        }
+        if (sample > 0 && ThreadLocalRandom.current().nextDouble() < sample) {
+            log(endpoint, status, hops);
+        }
+    }
+
+    /**
+     * Get the totals of every endpoint.
+     * @return totals keyed by endpoint name, with the averages per API
+     *         request
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (Map.Entry<Endpoint, Totals> e : totals.entrySet()) {
+            Totals t = e.getValue();
+            long requests = t.requests.sum();
+            if (requests == 0) {
+                continue;
+            }
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("requests", requests);
+            counts.put("upstreamRequests", t.hops.sum());
+            counts.put("upstreamFailures", t.failures.sum());
+            counts.put("bytesOut", t.bytesOut.sum());
+            counts.put("bytesIn", t.bytesIn.sum());
+            counts.put("upstreamMillis", t.millis.sum());
+            counts.put("firstByteMillis", t.firstByte.sum());
+            counts.put("upstreamRequestsPerRequest",
+                    (double) t.hops.sum() / requests);
+            counts.put("upstreamMillisPerRequest",
+                    (double) t.millis.sum() / requests);
+            long answered = t.answered.sum();
+            if (answered > 0) {
+                counts.put("firstByteMillisPerUpstreamRequest",
+                        (double) t.firstByte.sum() / answered);
+            }
+            values.put(e.getKey().key(), counts);
+        }
+        return values;
+    }
+
+    /**
+     * Write an API request and its requests to myGCC to the log.
+     * @param endpoint endpoint of the request
+     * @param status status of the API response
+     * @param hops requests to myGCC
+     */
+    private static void log(final Endpoint endpoint, final int status,
+                            final List<RequestAccount.Hop> hops) {
+        System.out.println(line(endpoint, status, hops));
+    }
+
+    /**
+     * Describe an API request and its requests to myGCC on one line, so
+     * that the lines of requests answered at the same time do not mix.
+     * @param endpoint endpoint of the request
+     * @param status status of the API response
+     * @param hops requests to myGCC
+     * @return log line
+     */
+    static String line(final Endpoint endpoint, final int status,
+                       final List<RequestAccount.Hop> hops) {
+        StringBuilder line = new StringBuilder();
+        line.append("account ").append(endpoint.key()).append(' ')
+                .append(status).append(": ").append(hops.size())
+                .append(" upstream");
+        String separator = " [";
+        for (RequestAccount.Hop hop : hops) {
+            line.append(separator).append(hop);
+            separator = "; ";
+        }
+        if (!hops.isEmpty()) {
+            line.append(']');
+        }
+        return line.toString();
+    }
+
+    /**
+     * Read a number from the environment.
+     * @param name environment variable
+     * @param fallback value if the variable is not set
+     * @return value
+     */
+    private static double envDouble(final String name,
+                                    final double fallback) {
+        String value = System.getenv(name);
+        if (value == null || value.isEmpty()) {
+            return fallback;
+        }
+        return Double.parseDouble(value);
+    }
+
+    /**
+     * Totals of one endpoint.
+     */
+    private static final class Totals {
+        /**
+         * API requests answered.
+         */
+        private final LongAdder requests = new LongAdder();
+
+        /**
+         * Requests sent to myGCC.
+         */
+        private final LongAdder hops = new LongAdder();
+
+        /**
+         * Bytes of request body sent to myGCC.
+         */
+        private final LongAdder bytesOut = new LongAdder();
+
+        /**
+         * Bytes of response body received from myGCC.
+         */
+        private final LongAdder bytesIn = new LongAdder();
+
+        /**
+         * Milliseconds of the requests to myGCC, added up.
+         */
+        private final LongAdder millis = new LongAdder();
+
+        /**
+         * Requests to myGCC whose response began.
+         */
+        private final LongAdder answered = new LongAdder();
+
+        /**
+         * Milliseconds until the responses from myGCC began, added up.
+         */
+        private final LongAdder firstByte = new LongAdder();
+
+        /**
+         * Requests to myGCC that failed or were answered with a 5xx status.
+         */
+        private final LongAdder failures = new LongAdder();
+    }
+}
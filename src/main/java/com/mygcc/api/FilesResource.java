@@ -1,12 +1,8 @@
 package com.mygcc.api;
 
-import com.mygcc.datacollection.ClassDoesNotExistException;
 import com.mygcc.datacollection.Files;
 import com.mygcc.datacollection.InvalidCredentialsException;
-import com.mygcc.datacollection.NetworkException;
-import com.mygcc.datacollection.StudentNotInClassException;
 import com.mygcc.datacollection.Token;
-import com.mygcc.datacollection.UnexpectedResponseException;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
@@ -15,7 +11,8 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Files resource endpoint.
@@ -34,33 +31,25 @@ public class FilesResource extends MyGCCResource {
     @Path("/{course}/files")
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public final Response getFilesData(
+    @UpstreamEndpoint(Endpoint.COURSE)
+    public final CompletionStage<Response> getFilesData(
             @HeaderParam("Authorization") final String token,
             @PathParam("course") final String courseCode) {
         Token auth;
         try {
             auth = new Token(token);
         } catch (InvalidCredentialsException e) {
-            return invalidCredentialsException();
+            return CompletableFuture.completedFuture(
+                    invalidCredentialsException());
         }
 
+        // Wait for admission and for myGCC without holding a server thread
         Files hmw = new Files(auth, courseCode);
-        try {
-            Map<String, Object> filesData = hmw.getData();
-            return Response.status(Response.Status.OK)
-                    .entity(filesData)
-                    .type("application/json")
-                    .build();
-        } catch (UnexpectedResponseException e) {
-            return unexpectedResponseException();
-        } catch (NetworkException e) {
-            return networkException();
-        } catch (InvalidCredentialsException e) {
-            return invalidCredentialsException();
-        } catch (ClassDoesNotExistException e) {
-            return classDoesNotExistException();
-        } catch (StudentNotInClassException e) {
-            return  studentNotInClassException();
-        }
+        return whenAdmitted(Endpoint.COURSE, () -> hmw.getDataAsync()
+                .thenApply(data -> Response.status(Response.Status.OK)
+                        .entity(data)
+                        .type("application/json")
+                        .build())
+                .exceptionally(this::failureResponse));
     }
 }
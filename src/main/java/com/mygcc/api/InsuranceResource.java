@@ -3,7 +3,6 @@ package com.mygcc.api;
 import com.mygcc.datacollection.Insurance;
 import com.mygcc.datacollection.InvalidCredentialsException;
 import com.mygcc.datacollection.Token;
-import com.mygcc.datacollection.UnexpectedResponseException;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
@@ -11,7 +10,8 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Insurance resource endpoint.
@@ -29,24 +29,26 @@ public class InsuranceResource extends MyGCCResource {
     @Path("/insurance")
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public final Response getInsuranceData(
+    @UpstreamEndpoint(Endpoint.INSURANCE)
+    public final CompletionStage<Response> getInsuranceData(
             @HeaderParam("Authorization") final String token) {
         Token auth;
         try {
             auth = new Token(token);
         } catch (InvalidCredentialsException e) {
-            return invalidCredentialsException();
+            return CompletableFuture.completedFuture(
+                    invalidCredentialsException());
         }
 
+        // Wait for admission and for myGCC without holding a server thread
         Insurance ins = new Insurance(auth);
-        try {
-            Map<String, Object> insuranceData = ins.getInsuranceData();
-            return Response.status(Response.Status.OK)
-                    .entity(insuranceData)
-                    .type("application/json")
-                    .build();
-        } catch (UnexpectedResponseException e) {
-            return unexpectedResponseException();
-        }
+        return whenAdmitted(Endpoint.INSURANCE,
+                () -> ins.getInsuranceDataAsync()
+                        .thenApply(data -> Response.status(
+                                Response.Status.OK)
+                                .entity(data)
+                                .type("application/json")
+                                .build())
+                        .exceptionally(this::failureResponse));
     }
 }
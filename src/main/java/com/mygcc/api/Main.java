@@ -1,5 +1,7 @@
 package com.mygcc.api;
 
+import com.mygcc.datacollection.SessionKeepAlive;
+import com.mygcc.datacollection.Transports;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.servlet.ServletContextHandler;
 import org.eclipse.jetty.servlet.ServletHolder;
@@ -45,6 +47,12 @@ final class Main {
         serHol.setInitParameter("jersey.config.server.provider.packages",
                 "com.mygcc, com.fasterxml.jackson.jaxrs.json");
 
+        // Keep pooled myGCC sessions of active users from expiring
+        SessionKeepAlive.getInstance().start();
+
+        // Resolve myGCC and open connections before the first request
+        Transports.startWarming();
+
         server.start();
         server.join();
     }
@@ -0,0 +1,80 @@
+package com.mygcc.api;
+
+import com.mygcc.datacollection.CircuitBreaker;
+import com.mygcc.datacollection.ConcurrencyLimiter;
+import com.mygcc.datacollection.UpstreamMetrics;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import java.util.Map;
+
+/**
+ * Metrics resource endpoint.
+ *
+ * Endpoint resource for the counters of the connections to myGCC, the
+ * state of the circuit breaker in front of it and the limit on requests in
+ * flight.
+ */
+@Path("/1/metrics")
+public class MetricsResource extends MyGCCResource {
+    /**
+     * Method handling HTTP GET requests for the connection counters.
+     *
+     * @return counter values keyed by name
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public final Map<String, Object> getMetrics() {
+        return UpstreamMetrics.getInstance().snapshot();
+    }
+
+    /**
+     * Method handling HTTP GET requests for the circuit breaker state.
+     *
+     * @return breaker state and counters keyed by name
+     */
+    @GET
+    @Path("breaker")
+    @Produces(MediaType.APPLICATION_JSON)
+    public final Map<String, Object> getBreaker() {
+        return CircuitBreaker.getInstance().snapshot();
+    }
+
+    /**
+     * Method handling HTTP GET requests for the concurrency limit.
+     *
+     * @return limit, requests in flight and queue depth keyed by name
+     */
+    @GET
+    @Path("limiter")
+    @Produces(MediaType.APPLICATION_JSON)
+    public final Map<String, Object> getLimiter() {
+        return ConcurrencyLimiter.getInstance().snapshot();
+    }
+
+    /**
+     * Method handling HTTP GET requests for the admission scheduler.
+     *
+     * @return capacity in use, queue depth and counters keyed by name
+     */
+    @GET
+    @Path("admission")
+    @Produces(MediaType.APPLICATION_JSON)
+    public final Map<String, Object> getAdmission() {
+        return AdmissionScheduler.getInstance().snapshot();
+    }
+
+    /**
+     * Method handling HTTP GET requests for the cost of each endpoint.
+     *
+     * @return requests to myGCC, bytes and time keyed by endpoint name
+     */
+    @GET
+    @Path("endpoints")
+    @Produces(MediaType.APPLICATION_JSON)
+    public final Map<String, Object> getEndpoints() {
+        return EndpointCosts.getInstance().snapshot();
+    }
+}
@@ -1,11 +1,20 @@
 package com.mygcc.api;
 
+import com.mygcc.datacollection.ClassDoesNotExistException;
+import com.mygcc.datacollection.ExpiredSessionException;
+import com.mygcc.datacollection.Futures;
 import com.mygcc.datacollection.InvalidCredentialsException;
+import com.mygcc.datacollection.NetworkException;
+import com.mygcc.datacollection.StudentNotInClassException;
+import com.mygcc.datacollection.UnexpectedResponseException;
 
 import javax.ws.rs.core.Response;
 import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 
 /**
  * Abstract class for myGCC resources.
@@ -53,7 +62,12 @@ abstract class MyGCCResource {
         /**
          * Student not in class message.
          */
-        STUDENTNOTINCLASS("Student not enrolled in class");
+        STUDENTNOTINCLASS("Student not enrolled in class"),
+
+        /**
+         * Overloaded message.
+         */
+        OVERLOADED("Too many requests, try again later");
 
         /**
          * Message.
@@ -95,6 +109,15 @@ abstract class MyGCCResource {
                 Response.Status.BAD_REQUEST);
     }
 
+    /**
+     * Tell client that the API is too busy to handle the request.
+     * @return Response object
+     */
+    public static Response overloaded() {
+        return errorMessage(Message.OVERLOADED.message(),
+                Response.Status.SERVICE_UNAVAILABLE);
+    }
+
     /**
      * Tell client that their myGCC login credentials are invalid.
      * @return Response object
@@ -145,6 +168,61 @@ abstract class MyGCCResource {
                 Response.Status.BAD_REQUEST);
     }
 
+    /**
+     * Tell client why an asynchronous request failed.
+     * @param failure exception the request failed with
+     * @return Response object
+     */
+    public Response failureResponse(final Throwable failure) {
+        Throwable cause = Futures.unwrap(failure);
+        if (cause instanceof ExpiredSessionException) {
+            return sessionExpiredMessage();
+        } else if (cause instanceof InvalidCredentialsException) {
+            return invalidCredentialsException();
+        } else if (cause instanceof NetworkException) {
+            return networkException();
+        } else if (cause instanceof UnexpectedResponseException) {
+            return unexpectedResponseException();
+        } else if (cause instanceof ClassDoesNotExistException) {
+            return classDoesNotExistException();
+        } else if (cause instanceof StudentNotInClassException) {
+            return studentNotInClassException();
+        }
+        cause.printStackTrace();
+        return sendErrorMessage(Message.INTERNALSERVERERROR.message(),
+                Response.Status.INTERNAL_SERVER_ERROR);
+    }
+
+    /**
+     * Start the work of an asynchronous request once the
+     * {@link AdmissionScheduler} admits it, without holding a server thread
+     * while it waits. The capacity taken by the request is returned once
+     * its work has finished.
+     * @param endpoint endpoint of the request
+     * @param work work of the request
+     * @return response of the work, or {@link #overloaded()} if the request
+     *         was turned away
+     */
+    public final CompletionStage<Response> whenAdmitted(
+            final Endpoint endpoint,
+            final Supplier<CompletionStage<Response>> work) {
+        AdmissionScheduler scheduler = AdmissionScheduler.getInstance();
+        return scheduler.admitAsync(endpoint).thenCompose(admitted -> {
+            if (!admitted) {
+                return CompletableFuture.completedFuture(overloaded());
+            }
+            CompletionStage<Response> response;
+            try {
+                response = work.get();
+            } catch (RuntimeException e) {
+                scheduler.release(endpoint);
+                throw e;
+            }
+            return response.whenComplete(
+                    (done, failure) -> scheduler.release(endpoint));
+        });
+    }
+
     /**
      * Send error message to client.
      * @param message message text
@@ -153,6 +231,17 @@ abstract class MyGCCResource {
      */
     public final Response sendErrorMessage(final String message,
                                      final Response.Status status) {
+        return errorMessage(message, status);
+    }
+
+    /**
+     * Build error message for client.
+     * @param message message text
+     * @param status HTTP status code
+     * @return Response object
+     */
+    private static Response errorMessage(final String message,
+                                         final Response.Status status) {
         Map<String, Object> response = new HashMap<>();
         response.put("message", message);
         response.put("date", Instant.now().getEpochSecond());
@@ -1,10 +1,8 @@
 package com.mygcc.api;
 
-import com.mygcc.datacollection.NetworkException;
 import com.mygcc.datacollection.Schedule;
 import com.mygcc.datacollection.InvalidCredentialsException;
 import com.mygcc.datacollection.Token;
-import com.mygcc.datacollection.UnexpectedResponseException;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.HeaderParam;
@@ -12,7 +10,8 @@ import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Schedule resource endpoint.
@@ -30,28 +29,26 @@ public class ScheduleResource extends MyGCCResource {
     @Path("/schedule")
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public final Response getScheduleData(
+    @UpstreamEndpoint(Endpoint.SCHEDULE)
+    public final CompletionStage<Response> getScheduleData(
             @HeaderParam("Authorization") final String token) {
         Token auth;
         try {
             auth = new Token(token);
         } catch (InvalidCredentialsException e) {
-            return invalidCredentialsException();
+            return CompletableFuture.completedFuture(
+                    invalidCredentialsException());
         }
 
-        Schedule sch = new Schedule(auth);
-        try {
-            List<Object> scheduleData = sch.getScheduleData();
-            return Response.status(Response.Status.OK)
-                    .entity(scheduleData)
-                    .type("application/json")
-                    .build();
-        } catch (UnexpectedResponseException e) {
-            return unexpectedResponseException();
-        } catch (NetworkException e) {
-            return networkException();
-        } catch (InvalidCredentialsException e) {
-            return invalidCredentialsException();
-        }
+        // Wait for admission and for myGCC without holding a server thread
+        Schedule schedule = new Schedule(auth);
+        return whenAdmitted(Endpoint.SCHEDULE,
+                () -> schedule.getScheduleDataAsync()
+                        .thenApply(data -> Response.status(
+                                Response.Status.OK)
+                                .entity(data)
+                                .type("application/json")
+                                .build())
+                        .exceptionally(this::failureResponse));
     }
 }
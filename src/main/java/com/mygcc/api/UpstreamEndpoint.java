@@ -0,0 +1,22 @@
+package com.mygcc.api;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Names the {@link Endpoint} a resource method serves. The endpoint gives
+ * the method its deadline, its cost for admission and the totals its
+ * requests to myGCC are counted in. Methods without it belong to
+ * {@link Endpoint#DEFAULT}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface UpstreamEndpoint {
+    /**
+     * Endpoint the method serves.
+     * @return endpoint
+     */
+    Endpoint value();
+}
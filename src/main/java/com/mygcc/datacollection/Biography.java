@@ -4,11 +4,9 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.select.Elements;
 
-import java.io.IOException;
-import java.net.HttpURLConnection;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Chapel class.
@@ -21,6 +19,17 @@ public class Biography extends MyGCCDataCollection {
      */
     private static final String URL = "https://my.gcc.edu/ICS/";
 
+    /**
+     * View state generator of the personal info page.
+     */
+    private static final String DEFAULT_VIEWSTATEGENERATOR = "38ABEAAB";
+
+    /**
+     * Accept header sent with post backs.
+     */
+    private static final String ACCEPT = "text/html,application/xhtml+xml,"
+            + "application/xml;q=0.9,*/*;q=0.8";
+
     /**
      * Enumeration of Biography Info page HTML selectors for relevant data.
      */
@@ -116,82 +125,76 @@ public class Biography extends MyGCCDataCollection {
     public final Map<String, String> getData() throws
             ExpiredSessionException, UnexpectedResponseException,
             NetworkException, InvalidCredentialsException {
-        // Create session
-        auth.createSession();
-
-        try {
-            // Make first request to open the personal info site.
-            LinkedHashMap<String, String> postValues = new
-                    LinkedHashMap<String, String>() { {
-                put("_scriptManager_HiddenField", "");
-                put("__EVENTTARGET", "welcomeBackBar");
-                put("__EVENTARGUMENT", "accountInfo");
-                put("__VIEWSTATE", auth.getViewstate());
-                put("__VIEWSTATEGENERATOR", "38ABEAAB");
-                put("___BrowserRefresh", auth.getBrowserRefresh());
-                put("ctl04$tbSearch", "Search...");
-                put("CP$V$PreferredName", "");
-                put("CP$V$HideMiddleName", "on");
-                put("CP$V$Prefix", "");
-                put("CP$V$Suffix", "");
-            } };
-
-            String postData = postData(postValues, auth.getBoundary());
-
-            HttpURLConnection http = createPOST(URL,
-                    new HashMap<String, String>() { {
-                        put("Content-Type",
-                                "multipart/form-data; boundary="
-                                        + auth.getBoundary());
-                        put("Cookie",
-                                "ASP.NET_SessionId=" + auth.getSessionID()
-                                        + "; .ASPXAUTH=" + auth.getASPXAuth());
-                        put("Accept", "text/html,application/xhtml+xml,"
-                                + "application/xml;q=0.9,*/*;q=0.8");
-                    } }, postData);
-
-            String html = convertStreamToString(http.getInputStream());
-            auth.setBrowserRefresh(parseBrowserRefresh(html));
-            auth.setViewstate(parseViewState(html));
-
-            // Make second request to open the biography info tab.
-            LinkedHashMap<String, String> postValues2 = new
-                    LinkedHashMap<String, String>() { {
-                        put("_scriptManager_HiddenField", "");
-                        put("__EVENTTARGET", "CP$t6");
-                        put("__EVENTARGUMENT", "Biography View");
-                        put("__VIEWSTATE", auth.getViewstate());
-                        put("__VIEWSTATEGENERATOR", "38ABEAAB");
-                        put("___BrowserRefresh", auth.getBrowserRefresh());
-                        put("ctl04$tbSearch", "Search...");
-                        put("CP$V$PreferredName", "");
-                        put("CP$V$HideMiddleName", "on");
-                        put("CP$V$Prefix", "");
-                        put("CP$V$Suffix", "");
-                    } };
-
-            String postData2 = postData(postValues2, auth.getBoundary());
-
-            HttpURLConnection http2 = createPOST(URL,
-                    new HashMap<String, String>() { {
-                        put("Content-Type",
-                                "multipart/form-data; boundary="
-                                        + auth.getBoundary());
-                        put("Cookie",
-                                "ASP.NET_SessionId=" + auth.getSessionID()
-                                        + "; .ASPXAUTH=" + auth.getASPXAuth());
-                        put("Accept", "text/html,application/xhtml+xml,"
-                                + "application/xml;q=0.9,*/*;q=0.8");
-                    } }, postData2);
-
-            String bioHTML = convertStreamToString(http2.getInputStream());
-
-            return getUserDataFromHTML(bioHTML);
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new UnexpectedResponseException("unknown IOException "
-                    + "occurred");
+        return Futures.await(getDataAsync());
+    }
+
+    /**
+     * Get client personal information from myGCC without waiting for myGCC.
+     * @return future completed with the same map as {@link #getData()}, or
+     *         failed with the exceptions it throws
+     */
+    public final CompletableFuture<Map<String, String>> getDataAsync() {
+        // Create session with the page state needed to post back
+        return auth.createSessionAsync(true)
+                // Make first request to open the personal info site.
+                .thenCompose(v -> postBackAsync("welcomeBackBar",
+                        "accountInfo"))
+                .thenCompose(resp -> Futures.call(() -> {
+                    // Only the hidden fields of the personal info page are
+                    // needed
+                    auth.setFormState(HiddenFieldExtractor.extract(resp,
+                            HiddenFieldExtractor.POSTBACK_FIELDS));
+                    return null;
+                }))
+                // Make second request to open the biography info tab.
+                .thenCompose(v -> postBackAsync("CP$t6", "Biography View"))
+                .thenCompose(resp2 -> Futures.call(() ->
+                        getUserDataFromHTML(resp2.getBody())));
+    }
+
+    /**
+     * Post back to the personal info page with the current page state.
+     * @param target control that raised the event
+     * @param argument event argument
+     * @return future completed with the response, or failed with a
+     *         {@link NetworkException}
+     */
+    private CompletableFuture<UpstreamResponse> postBackAsync(
+            final String target, final String argument) {
+        MultipartBody body = new MultipartBody(auth.getBoundary())
+                .field("_scriptManager_HiddenField", "")
+                .field("__EVENTTARGET", target)
+                .field("__EVENTARGUMENT", argument)
+                .field("__VIEWSTATE", auth.getViewstate())
+                .field("__VIEWSTATEGENERATOR", viewstateGenerator())
+                .field("___BrowserRefresh", auth.getBrowserRefresh())
+                .field("ctl04$tbSearch", "Search...")
+                .field("CP$V$PreferredName", "")
+                .field("CP$V$HideMiddleName", "on")
+                .field("CP$V$Prefix", "")
+                .field("CP$V$Suffix", "");
+
+        UpstreamRequest request = createPOST(URL, body);
+        auth.apply(request);
+        auth.getCookies().apply(request);
+        request.setHeader("Accept", ACCEPT);
+        return sendAsync(request).thenApply(response -> {
+            auth.getCookies().store(response);
+            return response;
+        });
+    }
+
+    /**
+     * Get the view state generator to post back with.
+     * @return view state generator of the last page, or the generator of
+     *         the personal info page if myGCC did not send one
+     */
+    private String viewstateGenerator() {
+        String generator = auth.getViewstateGenerator();
+        if (generator == null || generator.isEmpty()) {
+            return DEFAULT_VIEWSTATEGENERATOR;
         }
+        return generator;
     }
 
     /**
@@ -0,0 +1,222 @@
+package com.mygcc.datacollection;
+
+import org.eclipse.jetty.util.Promise;
+import org.eclipse.jetty.util.SocketAddressResolver;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves host names for the {@link HttpTransport}, keeping the addresses
+ * for a set time.
+ *
+ * <h3>Overview</h3>
+ * <p>Without a cache, a connection opened after the JVM's own cache has
+ * expired waits for a DNS lookup first. The addresses of a host are kept
+ * for {@code dnsttl} milliseconds (default 60000) after they were looked
+ * up; the {@link ConnectionWarmer} looks them up again before they expire,
+ * so requests rarely wait for DNS. If a lookup fails, the addresses found
+ * last are used until a lookup succeeds, so a DNS outage does not take
+ * myGCC down with it.</p>
+ *
+ * <p>Lookups block, so {@link #resolve(String, int, Promise)} runs them on
+ * an executor, as Jetty's {@link SocketAddressResolver.Async} does, and
+ * answers from the cache on the calling thread.</p>
+ */
+public final class CachingResolver implements SocketAddressResolver {
+    /**
+     * Default milliseconds addresses are kept.
+     */
+    private static final long DEFAULT_TTL = 60000;
+
+    /**
+     * Milliseconds addresses are kept.
+     */
+    private final long ttl;
+
+    /**
+     * Counters the lookups are reported to.
+     */
+    private final UpstreamMetrics metrics;
+
+    /**
+     * Executor the lookups run on.
+     */
+    private final Executor executor;
+
+    /**
+     * Addresses keyed by host name.
+     */
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Create resolver.
+     * @param ttlMillis milliseconds addresses are kept
+     * @param counters counters the lookups are reported to
+     * @param lookups executor the lookups run on
+     */
+    public CachingResolver(final long ttlMillis,
+                           final UpstreamMetrics counters,
+                           final Executor lookups) {
+        this.ttl = ttlMillis;
+        this.metrics = counters;
+        this.executor = lookups;
+    }
+
+    /**
+     * Create resolver keeping addresses for the time configured in the
+     * environment.
+     * @param counters counters the lookups are reported to
+     * @param lookups executor the lookups run on
+     * @return resolver
+     */
+    public static CachingResolver fromEnvironment(
+            final UpstreamMetrics counters, final Executor lookups) {
+        long ttl = DEFAULT_TTL;
+        String value = System.getenv("dnsttl");
+        if (value != null && !value.isEmpty()) {
+            ttl = Long.parseLong(value);
+        }
+        return new CachingResolver(ttl, counters, lookups);
+    }
+
+    /**
+     * Resolve a host, from the cache on the calling thread if its addresses
+     * have not expired, otherwise by a lookup on the executor.
+     * @param host host name
+     * @param port port
+     * @param promise completed with the addresses, or failed with an
+     *                {@link UnknownHostException}
+     */
+    @Override
+    public void resolve(final String host, final int port,
+                        final Promise<List<InetSocketAddress>> promise) {
+        Entry entry = cache.get(host);
+        if (entry != null && !entry.isExpired()) {
+            metrics.dnsCacheHit();
+            promise.succeeded(withPort(entry.addresses, port));
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    promise.succeeded(withPort(lookup(host), port));
+                } catch (UnknownHostException e) {
+                    promise.failed(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            promise.failed(e);
+        }
+    }
+
+    /**
+     * Pair addresses with a port.
+     * @param addresses addresses
+     * @param port port
+     * @return socket addresses
+     */
+    private static List<InetSocketAddress> withPort(
+            final InetAddress[] addresses, final int port) {
+        List<InetSocketAddress> result = new ArrayList<>(addresses.length);
+        for (InetAddress address : addresses) {
+            result.add(new InetSocketAddress(address, port));
+        }
+        return result;
+    }
+
+    /**
+     * Get the addresses of a host, looking them up if they have expired.
+     * @param host host name
+     * @return addresses
+     * @throws UnknownHostException the host could not be resolved and no
+     *         earlier addresses are known
+     */
+    public InetAddress[] addresses(final String host)
+            throws UnknownHostException {
+        Entry entry = cache.get(host);
+        if (entry != null && !entry.isExpired()) {
+            metrics.dnsCacheHit();
+            return entry.addresses;
+        }
+        return lookup(host);
+    }
+
+    /**
+     * Look up the addresses of a host, even if they have not expired.
+     * @param host host name
+     * @return addresses
+     * @throws UnknownHostException the host could not be resolved and no
+     *         earlier addresses are known
+     */
+    public InetAddress[] lookup(final String host)
+            throws UnknownHostException {
+        metrics.dnsLookup();
+        try {
+            InetAddress[] addresses = InetAddress.getAllByName(host);
+            cache.put(host, new Entry(addresses, System.nanoTime()
+                    + TimeUnit.MILLISECONDS.toNanos(ttl)));
+            return addresses;
+        } catch (UnknownHostException e) {
+            Entry stale = cache.get(host);
+            if (stale == null) {
+                throw e;
+            }
+            return stale.addresses;
+        }
+    }
+
+    /**
+     * Check whether the addresses of a host expire within some time.
+     * @param host host name
+     * @param millis milliseconds from now
+     * @return whether the addresses are unknown or expire by then
+     */
+    public boolean expiresWithin(final String host, final long millis) {
+        Entry entry = cache.get(host);
+        return entry == null || entry.expiresAt - System.nanoTime()
+                <= TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Addresses of a host.
+     */
+    private static final class Entry {
+        /**
+         * Addresses.
+         */
+        private final InetAddress[] addresses;
+
+        /**
+         * Value of {@link System#nanoTime()} at which the addresses expire.
+         */
+        private final long expiresAt;
+
+        /**
+         * Create entry.
+         * @param found addresses
+         * @param expiry value of {@link System#nanoTime()} at which the
+         *               addresses expire
+         */
+        Entry(final InetAddress[] found, final long expiry) {
+            this.addresses = found;
+            this.expiresAt = expiry;
+        }
+
+        /**
+         * Check whether the addresses have expired.
+         * @return whether the addresses have expired
+         */
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt >= 0;
+        }
+    }
+}
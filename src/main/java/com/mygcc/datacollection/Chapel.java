@@ -4,14 +4,11 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.select.Elements;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.net.URLConnection;
+import java.io.InterruptedIOException;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Chapel class.
@@ -50,57 +47,51 @@ public class Chapel {
     public final Map<String, Integer> getChapelData() throws
             ExpiredSessionException, UnexpectedResponseException,
             NetworkException, InvalidCredentialsException {
-        // Create session
-        auth.createSession();
-
-        String aspxauth = auth.getASPXAuth();
-        String seshid = auth.getSessionID();
-        try {
-            //
-            // Get URL to chapel page from myGCC.
-            //
-
-            URLConnection conn = new URL(MYCHAP).openConnection();
-
-            conn.setRequestProperty("Cookie", "ASP.NET_SessionId=" + seshid
-                    + "; .ASPXAUTH=" + aspxauth);
-
-            // Get HTML data from request
-            BufferedReader in = new BufferedReader(new InputStreamReader(
-                    conn.getInputStream(), "UTF-8"));
-
-            // Get HTML data
-            String htmldata = in.lines().collect(Collectors.joining());
-
-            // Close input stream
-            in.close();
-
-            String chapurl = getChapelUrlFromDocument(htmldata);
-
-            // Replace spaces in URL with HTML %20 encoding
-            String encchapurl = chapurl.replace(" ", "%20");
-
-            //
-            // Get data from chapel page URL.
-            //
-
-            // Get data from chapel URL
-            URLConnection conn2 = new URL(encchapurl).openConnection();
-
-            // Get HTML data from request
-            BufferedReader in2 = new BufferedReader(new InputStreamReader(
-                    conn2.getInputStream(), "UTF-8"));
-            String data = in2.lines().collect(Collectors.joining());
-
-            // Close input stream
-            in2.close();
+        return Futures.await(getChapelDataAsync());
+    }
 
-            return getChapelDataFromTable(data);
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new UnexpectedResponseException("unknown IOException "
-                    + "occurred");
-        }
+    /**
+     * Get chapel data from myGCC without waiting for myGCC.
+     * @return future completed with the same map as
+     *         {@link #getChapelData()}, or failed with the exceptions it throws
+     */
+    public final CompletableFuture<Map<String, Integer>> getChapelDataAsync() {
+        return auth.createSessionAsync(false)
+                .thenCompose(v -> auth.fetchAsync(MYCHAP))
+                .thenCompose(html -> Futures.call(() ->
+                        // Replace spaces in URL with HTML %20 encoding
+                        getChapelUrlFromDocument(html).replace(" ", "%20")))
+                .thenCompose(url -> {
+                    // Loading the iframe only reads data, so it may be sent
+                    // twice if myGCC is slow
+                    UpstreamRequest request = auth.newRequest("GET", url);
+                    request.setHedged(true);
+                    return Transports.getDefault().executeAsync(request);
+                })
+                .exceptionally(e -> {
+                    Throwable cause = Futures.unwrap(e);
+                    if (cause instanceof InterruptedIOException) {
+                        throw Futures.wrap(new NetworkException(
+                                "Timed out waiting for myGCC"));
+                    } else if (RetryPolicy.isTransient(cause)
+                            || cause instanceof RejectedRequestException) {
+                        throw Futures.wrap(new NetworkException(
+                                "Could not reach myGCC"));
+                    } else if (cause instanceof IOException) {
+                        cause.printStackTrace();
+                        throw Futures.wrap(new UnexpectedResponseException(
+                                "unknown IOException occurred"));
+                    }
+                    throw Futures.wrap(cause);
+                })
+                .thenCompose(response -> {
+                    if (RetryPolicy.isTransient(response.getStatus())) {
+                        return Futures.failed(new NetworkException("myGCC "
+                                + "answered " + response.getStatus()));
+                    }
+                    return Futures.call(() ->
+                            getChapelDataFromTable(response.getBody()));
+                });
     }
 
     /**
@@ -115,6 +106,7 @@ public class Chapel {
         Elements iframe = doc.select("#pg0_V_iframe");
         String url = iframe.attr("src");
         if (url == null || url.equals("")) {
+            auth.invalidate();
             throw new ExpiredSessionException("Error finding src parameter");
         }
         return url;
@@ -0,0 +1,360 @@
+package com.mygcc.datacollection;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks whether myGCC is answering, so requests fail fast while it is not.
+ *
+ * <h3>States</h3>
+ * <ul>
+ *     <li>{@link State#CLOSED}: requests are sent. The outcomes of the last
+ *     50 are kept, and once at least 20 are known the breaker opens if half
+ *     of them failed, or if 80% took longer than {@code breakerslow}
+ *     milliseconds (default 10000). A failure is an I/O error or a 5xx
+ *     status.</li>
+ *     <li>{@link State#OPEN}: requests fail at once without contacting
+ *     myGCC, for {@code breakeropen} milliseconds (default 15000).</li>
+ *     <li>{@link State#HALF_OPEN}: up to 3 requests at a time are let
+ *     through as probes. When 3 of them succeed the breaker closes; when one
+ *     fails it opens again.</li>
+ * </ul>
+ *
+ * <h3>Usage</h3>
+ * <p>The breaker is shared by all requests to myGCC, which pass through the
+ * {@link CircuitBreakingTransport}. Its state is served by the metrics
+ * endpoint.</p>
+ */
+public final class CircuitBreaker {
+    /**
+     * State of the breaker.
+     */
+    public enum State {
+        /**
+         * Requests are sent.
+         */
+        CLOSED,
+
+        /**
+         * Requests fail without being sent.
+         */
+        OPEN,
+
+        /**
+         * A few requests are sent to find out whether myGCC has recovered.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * Number of recent outcomes kept.
+     */
+    private static final int WINDOW = 50;
+
+    /**
+     * Number of outcomes needed before the breaker can open.
+     */
+    private static final int MIN_CALLS = 20;
+
+    /**
+     * Percentage of failed requests that opens the breaker.
+     */
+    private static final int FAILURE_PERCENT = 50;
+
+    /**
+     * Percentage of slow requests that opens the breaker.
+     */
+    private static final int SLOW_PERCENT = 80;
+
+    /**
+     * Number of probes sent, and needed to close the breaker, when half
+     * open.
+     */
+    private static final int PROBES = 3;
+
+    /**
+     * Default milliseconds after which a request is slow.
+     */
+    private static final long DEFAULT_SLOW = 10000;
+
+    /**
+     * Default milliseconds the breaker stays open.
+     */
+    private static final long DEFAULT_OPEN = 15000;
+
+    /**
+     * Divisor of a percentage.
+     */
+    private static final int HUNDRED = 100;
+
+    /**
+     * Breaker shared by all requests to myGCC.
+     */
+    private static final CircuitBreaker INSTANCE = new CircuitBreaker(
+            envMillis("breakeropen", DEFAULT_OPEN),
+            envMillis("breakerslow", DEFAULT_SLOW));
+
+    /**
+     * Nanoseconds the breaker stays open.
+     */
+    private final long openNanos;
+
+    /**
+     * Milliseconds after which a request is slow.
+     */
+    private final long slowMillis;
+
+    /**
+     * Whether each recent request failed, used as a ring.
+     */
+    private final boolean[] failed = new boolean[WINDOW];
+
+    /**
+     * Whether each recent request was slow, used as a ring.
+     */
+    private final boolean[] slow = new boolean[WINDOW];
+
+    /**
+     * Number of outcomes in the rings.
+     */
+    private int calls;
+
+    /**
+     * Index of the next outcome in the rings.
+     */
+    private int next;
+
+    /**
+     * Failed requests in the rings.
+     */
+    private int failures;
+
+    /**
+     * Slow requests in the rings.
+     */
+    private int slowCalls;
+
+    /**
+     * Current state.
+     */
+    private State state = State.CLOSED;
+
+    /**
+     * Value of {@link System#nanoTime()} when the breaker last opened.
+     */
+    private long openedAt;
+
+    /**
+     * Probes sent that have not finished.
+     */
+    private int probes;
+
+    /**
+     * Probes that succeeded since the breaker became half open.
+     */
+    private int probeSuccesses;
+
+    /**
+     * Number of times the breaker opened.
+     */
+    private long opened;
+
+    /**
+     * Requests failed without being sent.
+     */
+    private long rejected;
+
+    /**
+     * Create breaker.
+     * @param openMillis milliseconds the breaker stays open
+     * @param slowAfter milliseconds after which a request is slow
+     */
+    public CircuitBreaker(final long openMillis, final long slowAfter) {
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.slowMillis = slowAfter;
+    }
+
+    /**
+     * Get the breaker shared by all requests to myGCC.
+     * @return breaker
+     */
+    public static CircuitBreaker getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Ask to send a request. A request that is allowed must be followed by
+     * one call to {@link #onSuccess(long)}, {@link #onFailure()} or
+     * {@link #onIgnored()}.
+     * @return whether the request may be sent
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                rejected++;
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probes = 0;
+            probeSuccesses = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probes >= PROBES) {
+                rejected++;
+                return false;
+            }
+            probes++;
+        }
+        return true;
+    }
+
+    /**
+     * Record a request that myGCC answered.
+     * @param millis time the request took in milliseconds
+     */
+    public synchronized void onSuccess(final long millis) {
+        if (state == State.HALF_OPEN) {
+            probes = Math.max(0, probes - 1);
+            probeSuccesses++;
+            if (probeSuccesses >= PROBES) {
+                close();
+            }
+        } else if (state == State.CLOSED) {
+            record(false, millis >= slowMillis);
+        }
+    }
+
+    /**
+     * Record a request that failed because of myGCC.
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+        } else if (state == State.CLOSED) {
+            record(true, false);
+        }
+    }
+
+    /**
+     * Record a request whose outcome says nothing about myGCC, such as one
+     * that was cancelled.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            probes = Math.max(0, probes - 1);
+        }
+    }
+
+    /**
+     * Get the current state.
+     * @return state; an open breaker whose wait is over is half open
+     */
+    public synchronized State getState() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    /**
+     * Get the state and counters of the breaker.
+     * @return values keyed by name
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("state", getState().name());
+        values.put("calls", calls);
+        values.put("failurePercent", percent(failures));
+        values.put("slowPercent", percent(slowCalls));
+        values.put("opened", opened);
+        values.put("rejected", rejected);
+        long left = 0;
+        if (state == State.OPEN) {
+            left = Math.max(0, TimeUnit.NANOSECONDS.toMillis(openNanos
+                    - (System.nanoTime() - openedAt)));
+        }
+        values.put("openMillisLeft", left);
+        return values;
+    }
+
+    /**
+     * Add an outcome to the rings and open the breaker if too many failed or
+     * were slow.
+     * @param failure whether the request failed
+     * @param late whether the request was slow
+     */
+    private void record(final boolean failure, final boolean late) {
+        if (calls == WINDOW) {
+            if (failed[next]) {
+                failures--;
+            }
+            if (slow[next]) {
+                slowCalls--;
+            }
+        } else {
+            calls++;
+        }
+        failed[next] = failure;
+        slow[next] = late;
+        if (failure) {
+            failures++;
+        }
+        if (late) {
+            slowCalls++;
+        }
+        next = (next + 1) % WINDOW;
+        if (calls >= MIN_CALLS && (failures * HUNDRED
+                >= FAILURE_PERCENT * calls
+                || slowCalls * HUNDRED >= SLOW_PERCENT * calls)) {
+            open();
+        }
+    }
+
+    /**
+     * Open the breaker.
+     */
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        opened++;
+    }
+
+    /**
+     * Close the breaker and forget the outcomes from before it opened.
+     */
+    private void close() {
+        state = State.CLOSED;
+        calls = 0;
+        next = 0;
+        failures = 0;
+        slowCalls = 0;
+        probes = 0;
+    }
+
+    /**
+     * Get a count of outcomes as a percentage of the outcomes kept.
+     * @param count number of outcomes
+     * @return percentage, 0 if no outcomes are kept
+     */
+    private int percent(final int count) {
+        if (calls == 0) {
+            return 0;
+        }
+        return count * HUNDRED / calls;
+    }
+
+    /**
+     * Read a duration from the environment.
+     * @param name environment variable
+     * @param fallback value if the variable is not set
+     * @return milliseconds
+     */
+    private static long envMillis(final String name, final long fallback) {
+        String value = System.getenv(name);
+        if (value == null || value.isEmpty()) {
+            return fallback;
+        }
+        return Long.parseLong(value);
+    }
+}
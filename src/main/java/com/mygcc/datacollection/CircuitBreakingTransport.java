@@ -0,0 +1,115 @@
+package com.mygcc.datacollection;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport that stops sending requests while myGCC is failing.
+ *
+ * <h3>Overview</h3>
+ * <p>When myGCC is down, every API request would otherwise wait for its
+ * session request and login to time out, holding a connection and adding
+ * load to a server that is trying to recover. Each request is first checked
+ * with a {@link CircuitBreaker}; while it is open the request fails at once
+ * with a {@link CircuitOpenException}, which the data collection classes
+ * report as a {@link NetworkException}. The outcome of every request that
+ * is sent is reported back to the breaker.</p>
+ *
+ * <p>A request whose {@link Deadline} had already passed is sent without
+ * consulting the breaker, as its failure says nothing about myGCC. For the
+ * same reason a request that fails with a {@link DeadlineExceededException}
+ * because its deadline passed while it was in flight is not counted as a
+ * failure.</p>
+ */
+public final class CircuitBreakingTransport implements Transport {
+    /**
+     * Transport that sends the requests.
+     */
+    private final Transport delegate;
+
+    /**
+     * Breaker the requests are checked with.
+     */
+    private final CircuitBreaker breaker;
+
+    /**
+     * Create transport using the shared breaker.
+     * @param transport transport that sends the requests
+     */
+    public CircuitBreakingTransport(final Transport transport) {
+        this(transport, CircuitBreaker.getInstance());
+    }
+
+    /**
+     * Create transport.
+     * @param transport transport that sends the requests
+     * @param circuit breaker the requests are checked with
+     */
+    public CircuitBreakingTransport(final Transport transport,
+                                    final CircuitBreaker circuit) {
+        this.delegate = transport;
+        this.breaker = circuit;
+    }
+
+    /**
+     * Send a request and wait for the response.
+     * @param request request to send
+     * @return response
+     * @throws IOException error sending request or reading response, or
+     *         {@link CircuitOpenException} if the breaker is open
+     */
+    @Override
+    public UpstreamResponse execute(final UpstreamRequest request)
+            throws IOException {
+        return Futures.awaitResponse(executeAsync(request));
+    }
+
+    /**
+     * Send a request unless the breaker is open.
+     * @param request request to send
+     * @return future completed with the response, or failed with an
+     *         {@link IOException}
+     */
+    @Override
+    public CompletableFuture<UpstreamResponse> executeAsync(
+            final UpstreamRequest request) {
+        if (request.getDeadline().isExpired()) {
+            return delegate.executeAsync(request);
+        }
+        if (!breaker.tryAcquire()) {
+            return Futures.failed(new CircuitOpenException("myGCC is failing; "
+                    + "request not sent"));
+        }
+        long start = System.nanoTime();
+        CompletableFuture<UpstreamResponse> attempt =
+                delegate.executeAsync(request);
+        attempt.whenComplete((response, failure) -> {
+            if (failure != null) {
+                report(Futures.unwrap(failure));
+            } else if (RetryPolicy.isTransient(response.getStatus())) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess(TimeUnit.NANOSECONDS.toMillis(
+                        System.nanoTime() - start));
+            }
+        });
+        return attempt;
+    }
+
+    /**
+     * Report a failed request to the breaker.
+     * @param cause cause of the failure
+     */
+    private void report(final Throwable cause) {
+        if (cause instanceof DeadlineExceededException) {
+            // The API request ran out of time, not myGCC
+            breaker.onIgnored();
+        } else if (RetryPolicy.isTransient(cause)) {
+            breaker.onFailure();
+        } else {
+            // Cancelled, interrupted or not a network failure
+            breaker.onIgnored();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.mygcc.datacollection;
+
+/**
+ * Request not sent because myGCC is failing.
+ *
+ * Thrown by the {@link CircuitBreakingTransport} while the
+ * {@link CircuitBreaker} is open.
+ */
+public class CircuitOpenException extends RejectedRequestException {
+    /**
+     * Constructor with message.
+     * @param message message about issue
+     */
+    public CircuitOpenException(final String message) {
+        super(message);
+    }
+}
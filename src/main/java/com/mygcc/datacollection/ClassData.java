@@ -1,11 +1,12 @@
 package com.mygcc.datacollection;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.select.Elements;
+
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * ClassData class is a helper class for getting data about classes from myGCC.
@@ -57,10 +58,31 @@ public abstract class ClassData extends MyGCCDataCollection {
      * @throws StudentNotInClassException If the student is not enrolled
      *      in the specified class
      */
-    public abstract Map<String, Object> getData() throws
+    public final Map<String, Object> getData() throws
             UnexpectedResponseException, InvalidCredentialsException,
             NetworkException, ClassDoesNotExistException,
-            StudentNotInClassException;
+            StudentNotInClassException {
+        try {
+            return Futures.await(getDataAsync());
+        } catch (ExpiredSessionException e) {
+            throw new UnexpectedResponseException("myGCC session expired");
+        } catch (IllegalStateException e) {
+            // Futures.await does not rethrow the exceptions of courses
+            if (e.getCause() instanceof ClassDoesNotExistException) {
+                throw (ClassDoesNotExistException) e.getCause();
+            } else if (e.getCause() instanceof StudentNotInClassException) {
+                throw (StudentNotInClassException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Get data from myGCC without waiting for myGCC.
+     * @return future completed with the same map as {@link #getData()}, or
+     *         failed with the exceptions it throws
+     */
+    public abstract CompletableFuture<Map<String, Object>> getDataAsync();
 
     /**
      * Get session.
@@ -167,33 +189,59 @@ public abstract class ClassData extends MyGCCDataCollection {
     }
 
     /**
-     * Gets the raw HTML from myGCC.
-     * @param url The url to get content from.
-     * @return The raw HTML schedule.
-     * @throws UnexpectedResponseException When internet has problems.
+     * Gets the raw HTML of a course page from myGCC, failing without
+     * contacting myGCC if the course recently could not be viewed.
+     * @param url gets the URL of the page
+     * @return future completed with the raw HTML, or failed with the
+     *         exceptions of {@link #getData()}
+     */
+    public final CompletableFuture<String> getCoursePageAsync(
+            final Callable<String> url) {
+        return Futures.call(() -> {
+            checkCourse();
+            return url.call();
+        }).thenCompose(page -> getAuth().createSessionAsync(false)
+                .thenCompose(v -> getAuth().fetchAsync(page)))
+                .exceptionally(e -> {
+                    if (Futures.unwrap(e) instanceof ExpiredSessionException) {
+                        throw Futures.wrap(new UnexpectedResponseException(
+                                "myGCC session expired"));
+                    }
+                    throw Futures.wrap(e);
+                });
+    }
+
+    /**
+     * Fail without contacting myGCC if the course recently could not be
+     * viewed by the user.
+     * @throws ClassDoesNotExistException If the class does not exist
+     * @throws StudentNotInClassException If the student is not in the class
      */
-    public final String getContentFromUrl(final String url)
-            throws UnexpectedResponseException {
-        try {
-            URL gccUrl = new URL(url);
-            HttpURLConnection http = (HttpURLConnection) gccUrl
-                    .openConnection();
-            http.setRequestProperty("Cookie",
-                    "ASP.NET_SessionId=" + getAuth().getSessionID()
-                            + "; .ASPXAUTH=" + getAuth().getASPXAuth());
-            BufferedReader in = new BufferedReader(new InputStreamReader(
-                    http.getInputStream(), "UTF-8"));
-            String inputLine;
-            StringBuilder output = new StringBuilder();
-            while ((inputLine = in.readLine()) != null) {
-                output.append(inputLine);
-            }
-            in.close();
-            return output.toString();
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new UnexpectedResponseException("unknown IOException "
-                    + "occurred");
+    public final void checkCourse() throws ClassDoesNotExistException,
+            StudentNotInClassException {
+        NegativeCache.getInstance().checkCourse(getAuth().getToken().hash(),
+                getCcode());
+    }
+
+    /**
+     * Parse a course page, checking that the course can be viewed.
+     * @param raw The raw HTML of the course page
+     * @return parsed course page
+     * @throws ClassDoesNotExistException If the class does not exist
+     * @throws StudentNotInClassException If the student is not in the class
+     */
+    public final Document parseCoursePage(final String raw)
+            throws ClassDoesNotExistException, StudentNotInClassException {
+        Document doc = Jsoup.parse(raw);
+        Elements notFound = doc.select(".notFound");
+        NegativeCache cache = NegativeCache.getInstance();
+        if (notFound.text().contains("require you to be")) {
+            cache.classDoesNotExist(getAuth().getToken().hash(), getCcode());
+            throw new ClassDoesNotExistException();
+        } else if (notFound.text().contains("permissions to view")) {
+            cache.studentNotInClass(getAuth().getToken().hash(), getCcode());
+            throw new StudentNotInClassException();
         }
+        return doc;
     }
 }
@@ -0,0 +1,299 @@
+package com.mygcc.datacollection;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Transport that sends identical GET requests in flight at the same time
+ * only once.
+ *
+ * <h3>Overview</h3>
+ * <p>Clients often ask for several things about the same course at once,
+ * and each API request fetches the pages it needs on its own, so the same
+ * page used to be fetched from myGCC several times with the same session.
+ * A GET request sent while an identical one is still in flight now waits
+ * for the response to that one instead. Requests are identical when they
+ * have the same URL, the same {@code Cookie} header, and read the body and
+ * follow redirects alike. Every waiter gets the same
+ * {@link UpstreamResponse}, which decompresses and decodes its body only
+ * once.</p>
+ *
+ * <h3>Deadlines</h3>
+ * <p>A request only waits for one in flight that may take at least as long
+ * as it may itself, so it never fails early because another API request
+ * ran out of time. A request that would wait longer is sent on its own.</p>
+ *
+ * <h3>Cancellation</h3>
+ * <p>A waiter that gives up stops waiting; the request in flight is only
+ * cancelled once every waiter has given up.</p>
+ */
+public final class CoalescingTransport implements Transport {
+    /**
+     * Transport that sends the requests.
+     */
+    private final Transport delegate;
+
+    /**
+     * Counters the coalesced requests are reported to.
+     */
+    private final UpstreamMetrics metrics;
+
+    /**
+     * Requests in flight keyed by what makes them identical.
+     */
+    private final Map<Key, Flight> flights = new ConcurrentHashMap<>();
+
+    /**
+     * Create transport reporting to the shared counters.
+     * @param transport transport that sends the requests
+     */
+    public CoalescingTransport(final Transport transport) {
+        this(transport, UpstreamMetrics.getInstance());
+    }
+
+    /**
+     * Create transport.
+     * @param transport transport that sends the requests
+     * @param counters counters the coalesced requests are reported to
+     */
+    public CoalescingTransport(final Transport transport,
+                               final UpstreamMetrics counters) {
+        this.delegate = transport;
+        this.metrics = counters;
+    }
+
+    /**
+     * Send a request and wait for the response.
+     * @param request request to send
+     * @return response
+     * @throws IOException error sending request or reading response
+     */
+    @Override
+    public UpstreamResponse execute(final UpstreamRequest request)
+            throws IOException {
+        return Futures.awaitResponse(executeAsync(request));
+    }
+
+    /**
+     * Send a request, or wait for an identical one in flight.
+     * @param request request to send
+     * @return future completed with the response, or failed with an
+     *         {@link IOException}
+     */
+    @Override
+    public CompletableFuture<UpstreamResponse> executeAsync(
+            final UpstreamRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return delegate.executeAsync(request);
+        }
+        Key key = new Key(request);
+        while (true) {
+            Flight flight = flights.get(key);
+            if (flight == null || !flight.lastsFor(request.getDeadline())) {
+                Flight own = new Flight(request.getDeadline());
+                boolean shared;
+                if (flight == null) {
+                    shared = flights.putIfAbsent(key, own) == null;
+                } else {
+                    shared = flights.replace(key, flight, own);
+                }
+                if (!shared) {
+                    // Another request took the slot first; look again
+                    continue;
+                }
+                CompletableFuture<UpstreamResponse> waiter = own.join();
+                own.send(key, request);
+                return waiter;
+            }
+            CompletableFuture<UpstreamResponse> waiter = flight.join();
+            if (waiter != null) {
+                metrics.requestCoalesced();
+                return waiter;
+            }
+            // Every waiter gave up just now; the flight is being cancelled
+            flights.remove(key, flight);
+        }
+    }
+
+    /**
+     * What makes two requests identical.
+     */
+    private static final class Key {
+        /**
+         * Absolute URL.
+         */
+        private final String url;
+
+        /**
+         * {@code Cookie} header, or null if the request has none.
+         */
+        private final String cookies;
+
+        /**
+         * Whether redirects are followed.
+         */
+        private final boolean follow;
+
+        /**
+         * Whether the response body is read.
+         */
+        private final boolean read;
+
+        /**
+         * Create key.
+         * @param request request the key is for
+         */
+        Key(final UpstreamRequest request) {
+            this.url = request.getUrl();
+            this.cookies = request.getHeaders().get("Cookie");
+            this.follow = request.isFollowRedirects();
+            this.read = request.isReadBody();
+        }
+
+        /**
+         * Check whether another key is for an identical request.
+         * @param o other key
+         * @return whether the requests are identical
+         */
+        @Override
+        public boolean equals(final Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return url.equals(other.url)
+                    && Objects.equals(cookies, other.cookies)
+                    && follow == other.follow && read == other.read;
+        }
+
+        /**
+         * Hash the key.
+         * @return hash code
+         */
+        @Override
+        public int hashCode() {
+            return Objects.hash(url, cookies, follow, read);
+        }
+    }
+
+    /**
+     * Request in flight and the requests waiting for it.
+     */
+    private final class Flight {
+        /**
+         * Deadline of the request sent.
+         */
+        private final Deadline deadline;
+
+        /**
+         * Response to the request sent.
+         */
+        private final CompletableFuture<UpstreamResponse> response =
+                new CompletableFuture<>();
+
+        /**
+         * Requests waiting that have not given up.
+         */
+        private int waiters;
+
+        /**
+         * Whether every waiter gave up.
+         */
+        private boolean abandoned;
+
+        /**
+         * Create flight.
+         * @param limit deadline of the request sent
+         */
+        Flight(final Deadline limit) {
+            this.deadline = limit;
+        }
+
+        /**
+         * Check whether the request in flight may take as long as a new
+         * request may.
+         * @param other deadline of the new request
+         * @return whether the new request may wait for this one
+         */
+        boolean lastsFor(final Deadline other) {
+            if (!deadline.isSet()) {
+                return true;
+            }
+            if (!other.isSet()) {
+                return false;
+            }
+            return deadline.remainingMillis(Long.MAX_VALUE)
+                    >= other.remainingMillis(Long.MAX_VALUE);
+        }
+
+        /**
+         * Add a waiter.
+         * @return future completed with the response, or null if every
+         *         waiter already gave up
+         */
+        synchronized CompletableFuture<UpstreamResponse> join() {
+            if (abandoned) {
+                return null;
+            }
+            waiters++;
+            CompletableFuture<UpstreamResponse> waiter =
+                    new CompletableFuture<>();
+            response.whenComplete((r, failure) -> {
+                if (failure != null) {
+                    waiter.completeExceptionally(Futures.unwrap(failure));
+                } else {
+                    waiter.complete(r);
+                }
+            });
+            waiter.whenComplete((r, failure) -> {
+                if (waiter.isCancelled()) {
+                    leave();
+                }
+            });
+            return waiter;
+        }
+
+        /**
+         * Remove a waiter that gave up, cancelling the request once none is
+         * left.
+         */
+        private void leave() {
+            synchronized (this) {
+                waiters--;
+                if (waiters > 0 || response.isDone()) {
+                    return;
+                }
+                abandoned = true;
+            }
+            response.cancel(true);
+        }
+
+        /**
+         * Send the request and hand its response to every waiter.
+         * @param key key the flight is stored under
+         * @param request request to send
+         */
+        void send(final Key key, final UpstreamRequest request) {
+            CompletableFuture<UpstreamResponse> attempt =
+                    delegate.executeAsync(request);
+            attempt.whenComplete((r, failure) -> {
+                // Requests sent from now on get a response of their own
+                flights.remove(key, this);
+                if (failure != null) {
+                    response.completeExceptionally(Futures.unwrap(failure));
+                } else {
+                    response.complete(r);
+                }
+            });
+            response.whenComplete((r, failure) -> {
+                if (response.isCancelled()) {
+                    flights.remove(key, this);
+                    attempt.cancel(true);
+                }
+            });
+        }
+    }
+}
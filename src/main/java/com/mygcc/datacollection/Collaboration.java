@@ -1,6 +1,5 @@
 package com.mygcc.datacollection;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -10,6 +9,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Class for getting homework information.
@@ -26,27 +26,19 @@ public class Collaboration extends ClassData {
     }
 
     /**
-     * Get the homework of a user's class.
-     * @return A list of homework for that user's class.
-     * @throws UnexpectedResponseException If the request goes wrong.
-     * @throws InvalidCredentialsException If credentials are invalid.
-     * @throws NetworkException If network is down.
-     * @throws ClassDoesNotExistException If a class does not exist.
-     * @throws StudentNotInClassException If the student is not enrolled
-     *      in the specified class.
+     * Get the coursemates of a user's class without waiting for myGCC.
+     * @return future completed with a list of coursemates for that user's
+     *         class, or failed with the exceptions of {@link #getData()}.
      */
-    public final Map<String, Object> getData() throws
-            UnexpectedResponseException, InvalidCredentialsException,
-            NetworkException, ClassDoesNotExistException,
-            StudentNotInClassException {
-        getAuth().createSession();
-        String hwURL = getCollaborationURL(getCcode());
-        String rawHTML = getContentFromUrl(hwURL);
-
-        // Workaround for abstract class.
-        Map<String, Object> listWrapper = new HashMap<>();
-        listWrapper.put("data", parseCollaborationHTML(rawHTML));
-        return listWrapper;
+    @Override
+    public final CompletableFuture<Map<String, Object>> getDataAsync() {
+        return getCoursePageAsync(() -> getCollaborationURL(getCcode()))
+                .thenCompose(html -> Futures.call(() -> {
+                    // Workaround for abstract class.
+                    Map<String, Object> listWrapper = new HashMap<>();
+                    listWrapper.put("data", parseCollaborationHTML(html));
+                    return listWrapper;
+                }));
     }
 
     /**
@@ -59,13 +51,7 @@ public class Collaboration extends ClassData {
     private  List<Object> parseCollaborationHTML(final String raw)
             throws ClassDoesNotExistException, StudentNotInClassException {
         List<Object> mainArray = new LinkedList<>();
-        Document doc = Jsoup.parse(raw);
-        Elements notFound = doc.select(".notFound");
-        if (notFound.text().contains("require you to be")) {
-            throw new ClassDoesNotExistException();
-        } else if (notFound.text().contains("permissions to view")) {
-            throw new StudentNotInClassException();
-        }
+        Document doc = parseCoursePage(raw);
 
         Elements rows = doc.select(".pContent tr");
         for (Element currRow : rows) {
@@ -0,0 +1,534 @@
+package com.mygcc.datacollection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many requests to myGCC are in flight at once, adapting the
+ * limit to how quickly myGCC answers.
+ *
+ * <h3>Limit</h3>
+ * <p>The limit starts at {@code concurrency} (default 20) and is adjusted by
+ * additive increase and multiplicative decrease. Each response is compared
+ * with the usual response time, a slowly moving average of all of them. A
+ * response taking more than twice as long, or a failure to reach myGCC,
+ * means IIS is queueing and the limit is cut by 10%, at most once per usual
+ * response time. Any other response while at least half the limit is in use
+ * raises the limit by about one per limit's worth of responses. The limit
+ * stays between 4 and 200.</p>
+ *
+ * <h3>Users</h3>
+ * <p>Requests are also limited per user, identified by
+ * {@link UpstreamRequest#getUser()}: at most {@code userconcurrency}
+ * (default 4) of one user's requests are in flight at once. Requests not
+ * made for a user are only subject to the overall limit.</p>
+ *
+ * <h3>Waiting</h3>
+ * <p>Requests that cannot be sent wait in a queue of their user. Whenever
+ * a request finishes, the queues take turns: the next request of each user
+ * in turn is let through, skipping users already at their own limit. A user
+ * with many requests waiting therefore does not hold up a user with one.
+ * Up to {@code maxqueue} requests (default 100) may wait, no more than five
+ * times the per-user limit from any one user, each for at most
+ * {@code queuewait} milliseconds (default 2000) or until its deadline. A
+ * request that cannot wait fails with a {@link RejectedRequestException}.
+ * </p>
+ *
+ * <h3>Usage</h3>
+ * <p>The limiter is shared by all requests to myGCC, which pass through the
+ * {@link ConcurrencyLimitingTransport}. Its limit, requests in flight and
+ * queue depth are served by the metrics endpoint.</p>
+ */
+public final class ConcurrencyLimiter {
+    /**
+     * Default initial limit.
+     */
+    private static final int DEFAULT_LIMIT = 20;
+
+    /**
+     * Default number of requests that may wait.
+     */
+    private static final int DEFAULT_QUEUE = 100;
+
+    /**
+     * Default milliseconds a request may wait.
+     */
+    private static final int DEFAULT_WAIT = 2000;
+
+    /**
+     * Default number of requests of one user in flight.
+     */
+    private static final int DEFAULT_USER_LIMIT = 4;
+
+    /**
+     * Multiple of the per-user limit that one user may have waiting.
+     */
+    private static final int USER_QUEUE_FACTOR = 5;
+
+    /**
+     * Lowest limit.
+     */
+    private static final double MIN_LIMIT = 4;
+
+    /**
+     * Highest limit.
+     */
+    private static final double MAX_LIMIT = 200;
+
+    /**
+     * Factor the limit is cut by.
+     */
+    private static final double BACKOFF = 0.9;
+
+    /**
+     * Multiple of the usual response time above which a response is slow.
+     */
+    private static final double TOLERANCE = 2.0;
+
+    /**
+     * Weight of each response in the usual response time.
+     */
+    private static final double SMOOTHING = 0.05;
+
+    /**
+     * Limiter shared by all requests to myGCC.
+     */
+    private static final ConcurrencyLimiter INSTANCE = new ConcurrencyLimiter(
+            envInt("concurrency", DEFAULT_LIMIT),
+            envInt("maxqueue", DEFAULT_QUEUE),
+            envInt("queuewait", DEFAULT_WAIT),
+            envInt("userconcurrency", DEFAULT_USER_LIMIT));
+
+    /**
+     * Number of requests that may wait.
+     */
+    private final int maxQueue;
+
+    /**
+     * Milliseconds a request may wait.
+     */
+    private final long maxWait;
+
+    /**
+     * Number of requests of one user that may be in flight.
+     */
+    private final int userLimit;
+
+    /**
+     * Requests in flight and waiting, keyed by user. Users with neither are
+     * removed.
+     */
+    private final Map<String, User> users = new HashMap<>();
+
+    /**
+     * Users with requests waiting, in the order they take turns.
+     */
+    private final Deque<User> turns = new ArrayDeque<>();
+
+    /**
+     * Requests waiting.
+     */
+    private int waiting;
+
+    /**
+     * Timer that ends waits.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Current limit, kept fractional so it can grow by less than one.
+     */
+    private double limit;
+
+    /**
+     * Requests in flight.
+     */
+    private int inFlight;
+
+    /**
+     * Usual response time in milliseconds, or -1 before the first response.
+     */
+    private double usualRtt = -1;
+
+    /**
+     * Value of {@link System#nanoTime()} when the limit was last cut.
+     */
+    private long lastCut = System.nanoTime();
+
+    /**
+     * Requests failed without being sent.
+     */
+    private long rejected;
+
+    /**
+     * Create limiter.
+     * @param initial initial limit
+     * @param queue number of requests that may wait
+     * @param waitMillis milliseconds a request may wait
+     * @param perUser number of requests of one user that may be in flight
+     */
+    public ConcurrencyLimiter(final int initial, final int queue,
+                              final long waitMillis, final int perUser) {
+        this.limit = Math.max(MIN_LIMIT, Math.min(MAX_LIMIT, initial));
+        this.maxQueue = queue;
+        this.maxWait = waitMillis;
+        this.userLimit = perUser;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "mygcc-limiter");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Get the limiter shared by all requests to myGCC.
+     * @return limiter
+     */
+    public static ConcurrencyLimiter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Ask to send a request. Once the future completes, the request must be
+     * followed by one call to {@link #onSuccess(String, long)},
+     * {@link #onDropped(String)} or {@link #onIgnored(String)} for the same
+     * user. Cancelling the future gives up waiting.
+     * @param deadline deadline of the request
+     * @param userHash user the request is made for, or null
+     * @return future completed when the request may be sent, or failed with
+     *         a {@link RejectedRequestException}
+     */
+    public CompletableFuture<Void> acquire(final Deadline deadline,
+                                           final String userHash) {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        long wait = deadline.remainingMillis(maxWait);
+        User u;
+        synchronized (this) {
+            u = user(userHash);
+            // Anyone still waiting while there is room is at their own limit
+            if (u.waiting.isEmpty() && inFlight < (int) limit
+                    && u.hasRoom()) {
+                inFlight++;
+                u.inFlight++;
+                permit.complete(null);
+                return permit;
+            }
+            if (waiting >= maxQueue || wait <= 0
+                    || u.waiting.size() >= userLimit * USER_QUEUE_FACTOR) {
+                rejected++;
+                forget(u);
+                return Futures.failed(new RejectedRequestException("Too "
+                        + "many requests waiting for myGCC"));
+            }
+            if (u.waiting.isEmpty()) {
+                turns.add(u);
+            }
+            u.waiting.add(permit);
+            waiting++;
+        }
+        timer.schedule(() -> {
+            // Leave the queue before the caller learns of the rejection
+            boolean left;
+            synchronized (this) {
+                left = leave(u, permit);
+                if (left) {
+                    rejected++;
+                }
+            }
+            if (left) {
+                permit.completeExceptionally(new RejectedRequestException(
+                        "Timed out waiting to contact myGCC"));
+            }
+        }, wait, TimeUnit.MILLISECONDS);
+        // Leave the queue when the caller gives up waiting
+        permit.whenComplete((v, failure) -> {
+            if (failure != null) {
+                synchronized (this) {
+                    leave(u, permit);
+                }
+            }
+        });
+        return permit;
+    }
+
+    /**
+     * Remove a request from the queue of its user, if it is still waiting.
+     * Must be called holding the lock.
+     * @param u user the request is made for
+     * @param permit future of the request
+     * @return whether the request was waiting
+     */
+    private boolean leave(final User u, final CompletableFuture<Void> permit) {
+        if (!u.waiting.remove(permit)) {
+            return false;
+        }
+        waiting--;
+        if (u.waiting.isEmpty()) {
+            turns.remove(u);
+        }
+        forget(u);
+        return true;
+    }
+
+    /**
+     * Record a request that myGCC answered, and let the next one through.
+     * @param userHash user the request was made for, or null
+     * @param millis time the request took in milliseconds
+     */
+    public void onSuccess(final String userHash, final long millis) {
+        grant(() -> {
+            release(userHash);
+            if (usualRtt < 0) {
+                usualRtt = millis;
+            }
+            if (millis > usualRtt * TOLERANCE) {
+                cut();
+            } else if (inFlight * 2 >= limit) {
+                limit = Math.min(MAX_LIMIT, limit + 1 / limit);
+            }
+            usualRtt += (millis - usualRtt) * SMOOTHING;
+        });
+    }
+
+    /**
+     * Record a request that failed to reach myGCC, and let the next one
+     * through.
+     * @param userHash user the request was made for, or null
+     */
+    public void onDropped(final String userHash) {
+        grant(() -> {
+            release(userHash);
+            cut();
+        });
+    }
+
+    /**
+     * Record a request whose outcome says nothing about myGCC, such as one
+     * that was cancelled, and let the next one through.
+     * @param userHash user the request was made for, or null
+     */
+    public void onIgnored(final String userHash) {
+        grant(() -> release(userHash));
+    }
+
+    /**
+     * Get the current limit.
+     * @return requests that may be in flight
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Get the number of requests in flight.
+     * @return requests in flight
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Get the number of requests waiting.
+     * @return queue depth
+     */
+    public synchronized int getQueueDepth() {
+        return waiting;
+    }
+
+    /**
+     * Get the number of requests of a user waiting.
+     * @param userHash user, or null for requests not made for a user
+     * @return queue depth of the user
+     */
+    public synchronized int getQueueDepth(final String userHash) {
+        User u = users.get(key(userHash));
+        if (u == null) {
+            return 0;
+        }
+        return u.waiting.size();
+    }
+
+    /**
+     * Get the limit and counters of the limiter.
+     * @return values keyed by name
+     */
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("limit", getLimit());
+        values.put("inFlight", inFlight);
+        values.put("queueDepth", waiting);
+        values.put("usersWaiting", turns.size());
+        values.put("userLimit", userLimit);
+        values.put("usualMillis", Math.max(0, Math.round(usualRtt)));
+        values.put("rejected", rejected);
+        return values;
+    }
+
+    /**
+     * Cut the limit, unless it was cut within the usual response time.
+     */
+    private void cut() {
+        long now = System.nanoTime();
+        if (usualRtt > 0 && now - lastCut
+                < TimeUnit.MILLISECONDS.toNanos((long) usualRtt)) {
+            return;
+        }
+        lastCut = now;
+        limit = Math.max(MIN_LIMIT, limit * BACKOFF);
+    }
+
+    /**
+     * Update the limiter, then let waiting requests through while the limit
+     * allows, taking turns between users. Both happen under one lock, so a
+     * new request cannot take a freed permit ahead of those waiting.
+     * @param update change to make first, while holding the lock
+     */
+    private void grant(final Runnable update) {
+        List<CompletableFuture<Void>> granted = new ArrayList<>();
+        List<User> grantedTo = new ArrayList<>();
+        synchronized (this) {
+            update.run();
+            // Stop after a full round in which every user was at its limit
+            int skipped = 0;
+            while (!turns.isEmpty() && inFlight < (int) limit
+                    && skipped < turns.size()) {
+                User u = turns.poll();
+                if (u.hasRoom()) {
+                    granted.add(u.waiting.poll());
+                    grantedTo.add(u);
+                    waiting--;
+                    inFlight++;
+                    u.inFlight++;
+                    skipped = 0;
+                } else {
+                    skipped++;
+                }
+                if (!u.waiting.isEmpty()) {
+                    turns.add(u);
+                }
+            }
+        }
+        // Send outside the lock; a wait that ended meanwhile returns its
+        // permit
+        for (int i = 0; i < granted.size(); i++) {
+            if (!granted.get(i).complete(null)) {
+                onIgnored(grantedTo.get(i).name);
+            }
+        }
+    }
+
+    /**
+     * Return the permit of a request that finished.
+     * @param userHash user the request was made for, or null
+     */
+    private void release(final String userHash) {
+        inFlight--;
+        User u = users.get(key(userHash));
+        if (u != null) {
+            u.inFlight--;
+            forget(u);
+        }
+    }
+
+    /**
+     * Get the state of a user, creating it if needed.
+     * @param userHash user, or null
+     * @return state of the user
+     */
+    private User user(final String userHash) {
+        return users.computeIfAbsent(key(userHash), User::new);
+    }
+
+    /**
+     * Remove the state of a user with nothing in flight or waiting.
+     * @param u user
+     */
+    private void forget(final User u) {
+        if (u.inFlight <= 0 && u.waiting.isEmpty()) {
+            users.remove(u.key);
+        }
+    }
+
+    /**
+     * Get the key of a user in {@link #users}.
+     * @param userHash user, or null
+     * @return key; requests not made for a user share the empty key
+     */
+    private static String key(final String userHash) {
+        if (userHash == null) {
+            return "";
+        }
+        return userHash;
+    }
+
+    /**
+     * Requests in flight and waiting of one user.
+     */
+    private final class User {
+        /**
+         * Key of the user in {@link #users}.
+         */
+        private final String key;
+
+        /**
+         * User as passed by callers, or null for requests not made for a
+         * user.
+         */
+        private final String name;
+
+        /**
+         * Requests waiting, in order.
+         */
+        private final Deque<CompletableFuture<Void>> waiting =
+                new ArrayDeque<>();
+
+        /**
+         * Requests in flight.
+         */
+        private int inFlight;
+
+        /**
+         * Create user state.
+         * @param userKey key of the user
+         */
+        User(final String userKey) {
+            this.key = userKey;
+            if (userKey.isEmpty()) {
+                this.name = null;
+            } else {
+                this.name = userKey;
+            }
+        }
+
+        /**
+         * Check whether another request of the user may be in flight.
+         * @return whether the user is below its limit
+         */
+        boolean hasRoom() {
+            return name == null || inFlight < userLimit;
+        }
+    }
+
+    /**
+     * Read a number from the environment.
+     * @param name environment variable
+     * @param fallback value if the variable is not set
+     * @return value
+     */
+    private static int envInt(final String name, final int fallback) {
+        String value = System.getenv(name);
+        if (value == null || value.isEmpty()) {
+            return fallback;
+        }
+        return Integer.parseInt(value);
+    }
+}
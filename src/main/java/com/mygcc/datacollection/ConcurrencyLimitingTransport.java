@@ -0,0 +1,140 @@
+package com.mygcc.datacollection;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport that holds requests back while too many are in flight.
+ *
+ * <h3>Overview</h3>
+ * <p>Bursts of API requests, such as at the start of registration, used to
+ * reach myGCC all at once and slow IIS down for everyone. Each request now
+ * first takes a permit from a {@link ConcurrencyLimiter}, waiting if the
+ * limit is reached, and reports how long myGCC took to answer when it is
+ * done. A request that cannot get a permit in time fails with a
+ * {@link RejectedRequestException}, which the data collection classes
+ * report as a {@link NetworkException}. Requests are queued per
+ * {@link UpstreamRequest#getUser() user}, so a user sending many at once
+ * does not hold up the others.</p>
+ *
+ * <p>A request that fails with a {@link DeadlineExceededException} ran out
+ * of the time of its API request, which says nothing about how loaded
+ * myGCC is, so it is not counted as dropped.</p>
+ */
+public final class ConcurrencyLimitingTransport implements Transport {
+    /**
+     * Transport that sends the requests.
+     */
+    private final Transport delegate;
+
+    /**
+     * Limiter the permits are taken from.
+     */
+    private final ConcurrencyLimiter limiter;
+
+    /**
+     * Create transport using the shared limiter.
+     * @param transport transport that sends the requests
+     */
+    public ConcurrencyLimitingTransport(final Transport transport) {
+        this(transport, ConcurrencyLimiter.getInstance());
+    }
+
+    /**
+     * Create transport.
+     * @param transport transport that sends the requests
+     * @param permits limiter the permits are taken from
+     */
+    public ConcurrencyLimitingTransport(final Transport transport,
+                                        final ConcurrencyLimiter permits) {
+        this.delegate = transport;
+        this.limiter = permits;
+    }
+
+    /**
+     * Send a request and wait for the response.
+     * @param request request to send
+     * @return response
+     * @throws IOException error sending request or reading response, or
+     *         {@link RejectedRequestException} if no permit was available
+     */
+    @Override
+    public UpstreamResponse execute(final UpstreamRequest request)
+            throws IOException {
+        return Futures.awaitResponse(executeAsync(request));
+    }
+
+    /**
+     * Send a request once a permit is available.
+     * @param request request to send
+     * @return future completed with the response, or failed with an
+     *         {@link IOException}
+     */
+    @Override
+    public CompletableFuture<UpstreamResponse> executeAsync(
+            final UpstreamRequest request) {
+        CompletableFuture<UpstreamResponse> result = new CompletableFuture<>();
+        CompletableFuture<Void> permit = limiter.acquire(
+                request.getDeadline(), request.getUser());
+        permit.whenComplete((v, rejection) -> {
+            if (rejection != null) {
+                result.completeExceptionally(Futures.unwrap(rejection));
+            } else {
+                send(request, result);
+            }
+        });
+        // Stop waiting if the caller gives up first
+        result.whenComplete((response, failure) -> {
+            if (result.isCancelled()) {
+                permit.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Send a request holding a permit, and return the permit when it ends.
+     * @param request request to send
+     * @param result future to complete with the response
+     */
+    private void send(final UpstreamRequest request,
+                      final CompletableFuture<UpstreamResponse> result) {
+        if (result.isDone()) {
+            limiter.onIgnored(request.getUser());
+            return;
+        }
+        long start = System.nanoTime();
+        CompletableFuture<UpstreamResponse> attempt =
+                delegate.executeAsync(request);
+        attempt.whenComplete((response, failure) -> {
+            if (failure == null) {
+                if (RetryPolicy.isTransient(response.getStatus())) {
+                    // IIS answering 503 is shedding load as well
+                    limiter.onDropped(request.getUser());
+                } else {
+                    limiter.onSuccess(request.getUser(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+                                    - start));
+                }
+                result.complete(response);
+            } else {
+                Throwable cause = Futures.unwrap(failure);
+                // A request whose deadline passed, before it was sent or
+                // while in flight, failed through no fault of myGCC
+                if (RetryPolicy.isTransient(cause)
+                        && !(cause instanceof DeadlineExceededException)) {
+                    limiter.onDropped(request.getUser());
+                } else {
+                    limiter.onIgnored(request.getUser());
+                }
+                result.completeExceptionally(cause);
+            }
+        });
+        result.whenComplete((response, failure) -> {
+            if (result.isCancelled()) {
+                attempt.cancel(true);
+            }
+        });
+    }
+}
@@ -0,0 +1,157 @@
+package com.mygcc.datacollection;
+
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps a few connections to myGCC open and its address resolved, so the
+ * first requests after starting or after a quiet spell do not wait for DNS
+ * and TLS.
+ *
+ * <h3>Overview</h3>
+ * <p>When the API starts, and whenever fewer than {@code warmconnections}
+ * connections (default 2) to myGCC are open, the warmer opens that many with
+ * {@link HttpTransport#warm(String, int)}. Connections close after the idle
+ * timeout of the transport, so while the API is quiet they are reopened
+ * every idle timeout; while it is busy, requests keep enough connections
+ * open and the warmer sends nothing. Setting {@code warmconnections} to 0
+ * turns the warmer off.</p>
+ *
+ * <h3>DNS</h3>
+ * <p>The address of myGCC is looked up again shortly before the
+ * {@link CachingResolver} would let it expire, so a request never waits for
+ * the lookup.</p>
+ *
+ * <h3>Internals</h3>
+ * <p>A single daemon thread checks every 10 seconds. A warm-up is not
+ * started while the previous one is still running.</p>
+ */
+public final class ConnectionWarmer {
+    /**
+     * Page the warm-up requests are sent to.
+     */
+    private static final String URL = "https://my.gcc.edu/ics/";
+
+    /**
+     * Default number of connections kept open.
+     */
+    private static final int DEFAULT_CONNECTIONS = 2;
+
+    /**
+     * Seconds between checks.
+     */
+    private static final long CHECK_INTERVAL = 10;
+
+    /**
+     * Transport the connections are opened with.
+     */
+    private final HttpTransport transport;
+
+    /**
+     * Counters the open connections are read from.
+     */
+    private final UpstreamMetrics metrics;
+
+    /**
+     * Number of connections kept open.
+     */
+    private final int connections;
+
+    /**
+     * Host of myGCC.
+     */
+    private final String host;
+
+    /**
+     * Whether a warm-up is running.
+     */
+    private final AtomicBoolean warming = new AtomicBoolean();
+
+    /**
+     * Thread that checks the connections.
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Create warmer.
+     * @param http transport the connections are opened with
+     * @param counters counters the open connections are read from
+     * @param open number of connections kept open
+     */
+    public ConnectionWarmer(final HttpTransport http,
+                            final UpstreamMetrics counters, final int open) {
+        this.transport = http;
+        this.metrics = counters;
+        this.connections = open;
+        this.host = URI.create(URL).getHost();
+    }
+
+    /**
+     * Create warmer keeping the number of connections configured in the
+     * environment open, reading the shared counters.
+     * @param http transport the connections are opened with
+     * @return warmer
+     */
+    public static ConnectionWarmer fromEnvironment(final HttpTransport http) {
+        int open = DEFAULT_CONNECTIONS;
+        String value = System.getenv("warmconnections");
+        if (value != null && !value.isEmpty()) {
+            open = Integer.parseInt(value);
+        }
+        return new ConnectionWarmer(http, UpstreamMetrics.getInstance(), open);
+    }
+
+    /**
+     * Warm up now, then keep the connections open.
+     */
+    public synchronized void start() {
+        if (scheduler != null || connections <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "mygcc-warmer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::check, 0, CHECK_INTERVAL,
+                TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop keeping connections open.
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * Refresh the address of myGCC if it is about to expire, and open
+     * connections if too few are open.
+     */
+    void check() {
+        try {
+            if (transport.getResolver().expiresWithin(host,
+                    TimeUnit.SECONDS.toMillis(CHECK_INTERVAL * 2))) {
+                transport.getResolver().lookup(host);
+            }
+        } catch (UnknownHostException e) {
+            // Requests will report myGCC as unreachable themselves
+            e.printStackTrace();
+            return;
+        }
+        if (metrics.getConnectionsOpen() >= connections
+                || !warming.compareAndSet(false, true)) {
+            return;
+        }
+        transport.warm(URL, connections)
+                .whenComplete((v, failure) -> warming.set(false));
+    }
+}
@@ -0,0 +1,170 @@
+package com.mygcc.datacollection;
+
+import java.net.HttpCookie;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cookies of a myGCC session.
+ *
+ * <h3>Overview</h3>
+ * <p>myGCC identifies a client by the {@code ASP.NET_SessionId} cookie and
+ * a logged in client by the {@code .ASPXAUTH} cookie, but it may set or rotate
+ * other cookies on any response. The cookie jar records every
+ * {@code Set-Cookie} header of the responses it is given and sends the
+ * cookies back on later requests, so a rotated cookie is never dropped.</p>
+ *
+ * <h3>Internals</h3>
+ * <p>Only cookie names and values are kept. All myGCC cookies have a path of
+ * {@code /} and are only sent to myGCC, so the domain and path attributes are
+ * not needed. A {@code Set-Cookie} header with an empty value or an expiry in
+ * the past removes the cookie, which is how ASP.NET signs a client out.</p>
+ *
+ * <p>A jar copied from the jar of a pooled session can be told to
+ * {@link #writeBackTo(CookieJar) write back} to it, so that cookies rotated
+ * while handling one API request are sent by the next one instead of the
+ * values myGCC has already replaced.</p>
+ */
+public final class CookieJar {
+    /**
+     * Cookie values keyed by cookie name, in the order they were first set.
+     */
+    private final Map<String, String> cookies = new LinkedHashMap<>();
+
+    /**
+     * Jar the cookies set by responses are also recorded in, or null.
+     */
+    private CookieJar writeBack;
+
+    /**
+     * Get a cookie value.
+     * @param name cookie name
+     * @return cookie value or null if the cookie is not set
+     */
+    public synchronized String get(final String name) {
+        return cookies.get(name);
+    }
+
+    /**
+     * Set a cookie value. A null value removes the cookie.
+     * @param name cookie name
+     * @param value cookie value
+     */
+    public synchronized void put(final String name, final String value) {
+        if (value == null) {
+            cookies.remove(name);
+        } else {
+            cookies.put(name, value);
+        }
+    }
+
+    /**
+     * Remove all cookies.
+     */
+    public synchronized void clear() {
+        cookies.clear();
+    }
+
+    /**
+     * Replace the cookies with the cookies of another jar.
+     * @param jar cookie jar to copy
+     */
+    public void copyFrom(final CookieJar jar) {
+        Map<String, String> other = jar.snapshot();
+        synchronized (this) {
+            cookies.clear();
+            cookies.putAll(other);
+        }
+    }
+
+    /**
+     * Also record the cookies set by responses in another jar.
+     * @param jar jar to record the cookies in, or null to stop
+     */
+    public synchronized void writeBackTo(final CookieJar jar) {
+        writeBack = jar;
+    }
+
+    /**
+     * Record the cookies set by a response.
+     * @param response response from myGCC
+     */
+    public void store(final UpstreamResponse response) {
+        store(response.getHeaders("Set-Cookie"));
+    }
+
+    /**
+     * Record the cookies set by {@code Set-Cookie} header values.
+     * @param headers header values, may be null
+     */
+    public void store(final List<String> headers) {
+        if (headers == null) {
+            return;
+        }
+        CookieJar target;
+        synchronized (this) {
+            set(headers);
+            target = writeBack;
+        }
+        if (target != null) {
+            target.store(headers);
+        }
+    }
+
+    /**
+     * Set or remove the cookies of {@code Set-Cookie} header values.
+     * @param headers header values
+     */
+    private void set(final List<String> headers) {
+        for (String header : headers) {
+            List<HttpCookie> parsed;
+            try {
+                parsed = HttpCookie.parse(header);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            for (HttpCookie cookie : parsed) {
+                if (cookie.getValue().isEmpty() || cookie.hasExpired()) {
+                    cookies.remove(cookie.getName());
+                } else {
+                    cookies.put(cookie.getName(), cookie.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the cookies to a request.
+     * @param request request to myGCC
+     */
+    public void apply(final UpstreamRequest request) {
+        String header = header();
+        if (!header.isEmpty()) {
+            request.setHeader("Cookie", header);
+        }
+    }
+
+    /**
+     * Get the {@code Cookie} request header value.
+     * @return cookies in the form {@code name=value; name=value}
+     */
+    public synchronized String header() {
+        StringBuilder header = new StringBuilder();
+        for (Map.Entry<String, String> e : cookies.entrySet()) {
+            if (header.length() > 0) {
+                header.append("; ");
+            }
+            header.append(e.getKey()).append('=').append(e.getValue());
+        }
+        return header.toString();
+    }
+
+    /**
+     * Copy the cookies.
+     * @return cookie values keyed by cookie name
+     */
+    private synchronized Map<String, String> snapshot() {
+        return new LinkedHashMap<>(cookies);
+    }
+}
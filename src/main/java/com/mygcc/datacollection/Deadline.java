@@ -0,0 +1,117 @@
+package com.mygcc.datacollection;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time by which an API request must be answered.
+ *
+ * <h3>Overview</h3>
+ * <p>An API request may take several requests to myGCC: logging in,
+ * following redirects and fetching the page. Rather than giving each of
+ * those its own timeout, the API request is given one deadline and every
+ * request to myGCC gets the time that is left. Once the deadline has passed,
+ * further requests fail at once with a {@link java.net.SocketTimeoutException}
+ * instead of being sent, so a slow myGCC cannot keep an API request, or the
+ * connections and threads serving it, waiting.</p>
+ *
+ * <h3>Usage</h3>
+ * <p>The deadline of the API request being handled on a thread is set with
+ * {@link #setCurrent(Deadline)}. A {@link Session} takes the current deadline
+ * when it is created, so it keeps applying it to the requests it makes after
+ * the work has moved to other threads. Work that is not part of an API
+ * request, such as keeping sessions alive, has no deadline.</p>
+ */
+public final class Deadline {
+    /**
+     * Deadline that never passes.
+     */
+    private static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    /**
+     * Deadline of the API request handled on each thread.
+     */
+    private static final ThreadLocal<Deadline> CURRENT =
+            ThreadLocal.withInitial(() -> NONE);
+
+    /**
+     * Value of {@link System#nanoTime()} at which the deadline passes.
+     */
+    private final long expiresAt;
+
+    /**
+     * Create deadline.
+     * @param nanoTime value of {@link System#nanoTime()} at which the
+     *                 deadline passes
+     */
+    private Deadline(final long nanoTime) {
+        this.expiresAt = nanoTime;
+    }
+
+    /**
+     * Create a deadline some time from now.
+     * @param millis milliseconds from now
+     * @return deadline
+     */
+    public static Deadline after(final long millis) {
+        return new Deadline(System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * Get the deadline that never passes.
+     * @return deadline
+     */
+    public static Deadline none() {
+        return NONE;
+    }
+
+    /**
+     * Get the deadline of the API request handled on this thread.
+     * @return deadline, never null
+     */
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Set the deadline of the API request handled on this thread.
+     * @param deadline deadline, or null to remove it
+     */
+    public static void setCurrent(final Deadline deadline) {
+        if (deadline == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(deadline);
+        }
+    }
+
+    /**
+     * Check whether this deadline can pass.
+     * @return whether this is not {@link #none()}
+     */
+    public boolean isSet() {
+        return this != NONE;
+    }
+
+    /**
+     * Check whether the deadline has passed.
+     * @return whether the deadline has passed
+     */
+    public boolean isExpired() {
+        return isSet() && System.nanoTime() - expiresAt >= 0;
+    }
+
+    /**
+     * Get the time left before the deadline, capped at a limit.
+     * @param limit most milliseconds to return
+     * @return milliseconds left, at most {@code limit} and at least 0
+     */
+    public long remainingMillis(final long limit) {
+        if (!isSet()) {
+            return limit;
+        }
+        long left = TimeUnit.NANOSECONDS.toMillis(expiresAt
+                - System.nanoTime());
+        return Math.max(0, Math.min(limit, left));
+    }
+}
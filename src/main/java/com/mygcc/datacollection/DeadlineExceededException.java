@@ -0,0 +1,21 @@
+package com.mygcc.datacollection;
+
+import java.net.SocketTimeoutException;
+
+/**
+ * Request to myGCC that ran out of time because the {@link Deadline} of its
+ * API request passed, rather than because myGCC was slow to answer within
+ * the full request timeout.
+ *
+ * The API request gave up, not myGCC, so the circuit breaker and the
+ * concurrency limiter do not count it against myGCC.
+ */
+public class DeadlineExceededException extends SocketTimeoutException {
+    /**
+     * Constructor with message.
+     * @param message message about issue
+     */
+    public DeadlineExceededException(final String message) {
+        super(message);
+    }
+}
@@ -1,6 +1,5 @@
 package com.mygcc.datacollection;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -9,6 +8,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Class for getting files.
@@ -25,27 +25,19 @@ public class Files extends ClassData {
     }
 
     /**
-     * Get the files of a user's class.
-     * @return A list of files for that user's class.
-     * @throws UnexpectedResponseException If the request goes wrong.
-     * @throws InvalidCredentialsException If credentials are invalid.
-     * @throws NetworkException If network is down.
-     * @throws ClassDoesNotExistException If a class does not exist.
-     * @throws StudentNotInClassException If the student is not enrolled
-     *      in the specified class.
+     * Get the files of a user's class without waiting for myGCC.
+     * @return future completed with a list of files for that user's class,
+     *         or failed with the exceptions of {@link #getData()}.
      */
-    public final Map<String, Object> getData() throws
-            UnexpectedResponseException, InvalidCredentialsException,
-            NetworkException, ClassDoesNotExistException,
-            StudentNotInClassException {
-        getAuth().createSession();
-        String hwURL = courseCodeToURL(getCcode());
-        String rawHTML = getContentFromUrl(hwURL);
-
-        // Workaround for abstract class.
-        Map<String, Object> listWrapper = new HashMap<>();
-        listWrapper.put("data", parseFilesHTML(rawHTML));
-        return listWrapper;
+    @Override
+    public final CompletableFuture<Map<String, Object>> getDataAsync() {
+        return getCoursePageAsync(() -> courseCodeToURL(getCcode()))
+                .thenCompose(html -> Futures.call(() -> {
+                    // Workaround for abstract class.
+                    Map<String, Object> listWrapper = new HashMap<>();
+                    listWrapper.put("data", parseFilesHTML(html));
+                    return listWrapper;
+                }));
     }
 
     /**
@@ -60,13 +52,7 @@ public class Files extends ClassData {
         final int gradestringlength = 4;
         final int percentindex = 3;
         List<Object> mainArray = new LinkedList<>();
-        Document doc = Jsoup.parse(raw);
-        Elements notFound = doc.select(".notFound");
-        if (notFound.text().contains("require you to be")) {
-            throw new ClassDoesNotExistException();
-        } else if (notFound.text().contains("permissions to view")) {
-            throw new StudentNotInClassException();
-        }
+        Document doc = parseCoursePage(raw);
         Elements handoutsSection = doc.select(
                 ".Handouts tbody.gbody tr");
         for (Element c : handoutsSection) {
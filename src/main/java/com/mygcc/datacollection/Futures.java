@@ -0,0 +1,146 @@
+package com.mygcc.datacollection;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Helpers for the asynchronous data collection API.
+ *
+ * <h3>Overview</h3>
+ * <p>The asynchronous methods of the data collection classes return
+ * {@link CompletableFuture}s that fail with the same checked exceptions the
+ * blocking methods throw, such as {@link NetworkException}. Java wraps
+ * exceptions thrown inside a chain of futures in a
+ * {@link CompletionException}; {@link #unwrap(Throwable)} recovers the
+ * original exception and {@link #await(CompletableFuture)} rethrows it from a
+ * blocking method. The blocking methods of the {@link Transport}s rethrow it
+ * with {@link #awaitResponse(CompletableFuture)}.</p>
+ */
+public final class Futures {
+    /**
+     * Utility class.
+     */
+    private Futures() {
+    }
+
+    /**
+     * Create a future that has already failed.
+     * @param failure cause of the failure
+     * @param <T> result type
+     * @return failed future
+     */
+    public static <T> CompletableFuture<T> failed(final Throwable failure) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(failure);
+        return future;
+    }
+
+    /**
+     * Run a step that may throw a checked exception.
+     * @param step step to run
+     * @param <T> result type
+     * @return future completed with the result of the step, or failed with
+     *         the exception it threw
+     */
+    public static <T> CompletableFuture<T> call(final Callable<T> step) {
+        try {
+            return CompletableFuture.completedFuture(step.call());
+        } catch (Exception e) {
+            return failed(e);
+        }
+    }
+
+    /**
+     * Get the exception a future failed with.
+     * @param failure exception passed to a completion stage
+     * @return the original exception
+     */
+    public static Throwable unwrap(final Throwable failure) {
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException
+                || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Wrap an exception so it can be thrown inside a completion stage.
+     * @param failure exception to throw
+     * @return exception to throw
+     */
+    public static CompletionException wrap(final Throwable failure) {
+        if (failure instanceof CompletionException) {
+            return (CompletionException) failure;
+        }
+        return new CompletionException(failure);
+    }
+
+    /**
+     * Wait for a future and rethrow the exception it failed with.
+     * @param future future to wait for
+     * @param <T> result type
+     * @return result of the future
+     * @throws NetworkException error connection to myGCC
+     * @throws InvalidCredentialsException invalid myGCC credentials
+     * @throws UnexpectedResponseException unexpected response from myGCC
+     * @throws ExpiredSessionException myGCC session expired
+     */
+    public static <T> T await(final CompletableFuture<T> future)
+            throws NetworkException, InvalidCredentialsException,
+            UnexpectedResponseException, ExpiredSessionException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NetworkException("Interrupted waiting for myGCC");
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof NetworkException) {
+                throw (NetworkException) cause;
+            } else if (cause instanceof InvalidCredentialsException) {
+                throw (InvalidCredentialsException) cause;
+            } else if (cause instanceof UnexpectedResponseException) {
+                throw (UnexpectedResponseException) cause;
+            } else if (cause instanceof ExpiredSessionException) {
+                throw (ExpiredSessionException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Request failed", cause);
+        }
+    }
+
+    /**
+     * Wait for the response to a request to myGCC in a blocking
+     * {@link Transport#execute(UpstreamRequest)}. The request is cancelled
+     * if the thread is interrupted.
+     * @param response response to wait for
+     * @return response
+     * @throws IOException exception the request failed with, wrapped in an
+     *         IOException if it is not one
+     */
+    public static UpstreamResponse awaitResponse(
+            final CompletableFuture<UpstreamResponse> response)
+            throws IOException {
+        try {
+            return response.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.cancel(true);
+            throw new InterruptedIOException("Interrupted while waiting for "
+                    + "myGCC");
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Request to myGCC failed", cause);
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.mygcc.datacollection;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transport that sends a second copy of slow GET requests.
+ *
+ * <h3>Overview</h3>
+ * <p>Most myGCC pages load quickly, but a few percent take several seconds.
+ * For a request marked with {@link UpstreamRequest#setHedged(boolean)}, the
+ * transport waits as long as 95% of such requests have recently taken. If
+ * there is no answer by then, an identical request is sent and whichever
+ * answers first is used; the other is cancelled. Requests that are not
+ * marked, and anything other than a GET, are passed on unchanged.</p>
+ *
+ * <h3>Limits</h3>
+ * <p>At most {@code hedgepercent} percent (default 5) of the hedgeable
+ * requests get a second copy, with a small allowance for bursts, so a slow
+ * myGCC is not sent twice the load. No request is hedged until enough
+ * requests have been timed to know how long they usually take. A failed
+ * first attempt is not repeated; only a slow one is.</p>
+ *
+ * <p>Every answered request is timed from when its first attempt was sent.
+ * When the second copy wins, the first attempt is cancelled before its own
+ * time is known; it took at least as long as the answer, which is longer
+ * than the delay, so that time is recorded instead. Leaving such requests
+ * out would drop the slowest requests and pull the delay down.</p>
+ *
+ * <h3>Metrics</h3>
+ * <p>Hedgeable requests, second copies sent and second copies that answered
+ * first are counted in {@link UpstreamMetrics}.</p>
+ */
+public final class HedgingTransport implements Transport {
+    /**
+     * Default percentage of hedgeable requests that may be hedged.
+     */
+    private static final int DEFAULT_PERCENT = 5;
+
+    /**
+     * Number of recent request times kept.
+     */
+    private static final int WINDOW = 256;
+
+    /**
+     * Number of request times needed before hedging.
+     */
+    private static final int MIN_SAMPLES = 32;
+
+    /**
+     * Number of request times between updates of the hedging delay.
+     */
+    private static final int UPDATE_EVERY = 32;
+
+    /**
+     * Percentile of request times used as the hedging delay.
+     */
+    private static final double PERCENTILE = 0.95;
+
+    /**
+     * Shortest hedging delay in milliseconds.
+     */
+    private static final long MIN_DELAY = 20;
+
+    /**
+     * Hedges that may be sent in a burst.
+     */
+    private static final long BURST = 10;
+
+    /**
+     * Credit needed for one hedge. Each hedgeable request earns this much
+     * times the hedging percentage.
+     */
+    private static final long HEDGE_COST = 10000;
+
+    /**
+     * Divisor of a percentage.
+     */
+    private static final int HUNDRED = 100;
+
+    /**
+     * Transport that sends the requests.
+     */
+    private final Transport delegate;
+
+    /**
+     * Credit earned by each hedgeable request.
+     */
+    private final long creditPerRequest;
+
+    /**
+     * Counters the transport reports to.
+     */
+    private final UpstreamMetrics metrics;
+
+    /**
+     * Timer that sends the second copies.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Credit available for hedges.
+     */
+    private final AtomicLong credit = new AtomicLong(HEDGE_COST * BURST);
+
+    /**
+     * Recent request times in milliseconds, used as a ring.
+     */
+    private final long[] samples = new long[WINDOW];
+
+    /**
+     * Number of request times recorded.
+     */
+    private long recorded;
+
+    /**
+     * Milliseconds to wait before hedging, or -1 until enough requests have
+     * been timed.
+     */
+    private volatile long delay = -1;
+
+    /**
+     * Create hedging transport configured from the environment, reporting
+     * to the shared counters.
+     * @param transport transport that sends the requests
+     */
+    public HedgingTransport(final Transport transport) {
+        this(transport, envPercent(), UpstreamMetrics.getInstance());
+    }
+
+    /**
+     * Create hedging transport.
+     * @param transport transport that sends the requests
+     * @param percent percentage of hedgeable requests that may be hedged;
+     *                0 turns hedging off
+     * @param counters counters to report to
+     */
+    public HedgingTransport(final Transport transport, final int percent,
+                            final UpstreamMetrics counters) {
+        this.delegate = transport;
+        this.creditPerRequest = HEDGE_COST * percent / HUNDRED;
+        this.metrics = counters;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "mygcc-hedge");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Send a request and wait for the response.
+     * @param request request to send
+     * @return response
+     * @throws IOException error sending request or reading response
+     */
+    @Override
+    public UpstreamResponse execute(final UpstreamRequest request)
+            throws IOException {
+        return Futures.awaitResponse(executeAsync(request));
+    }
+
+    /**
+     * Send a request, hedging it if it is marked and slow.
+     * @param request request to send
+     * @return future completed with the first response, or failed with an
+     *         {@link IOException}
+     */
+    @Override
+    public CompletableFuture<UpstreamResponse> executeAsync(
+            final UpstreamRequest request) {
+        if (!request.isHedged() || !"GET".equals(request.getMethod())
+                || creditPerRequest <= 0) {
+            return delegate.executeAsync(request);
+        }
+        metrics.hedgeableRequest();
+        earnCredit();
+        return new Hedge(request).start(delay);
+    }
+
+    /**
+     * Get the current hedging delay.
+     * @return milliseconds waited before hedging, or -1 if requests are
+     *         not hedged yet
+     */
+    public long getDelay() {
+        return delay;
+    }
+
+    /**
+     * Record how long a request took.
+     * @param millis request time in milliseconds
+     */
+    synchronized void record(final long millis) {
+        samples[(int) (recorded % WINDOW)] = millis;
+        recorded++;
+        if (recorded >= MIN_SAMPLES && recorded % UPDATE_EVERY == 0) {
+            int n = (int) Math.min(recorded, WINDOW);
+            long[] sorted = Arrays.copyOf(samples, n);
+            Arrays.sort(sorted);
+            delay = Math.max(MIN_DELAY, sorted[(int) (PERCENTILE * (n - 1))]);
+        }
+    }
+
+    /**
+     * Add the credit earned by a hedgeable request.
+     */
+    private void earnCredit() {
+        long max = HEDGE_COST * BURST;
+        long c;
+        do {
+            c = credit.get();
+            if (c >= max) {
+                return;
+            }
+        } while (!credit.compareAndSet(c, Math.min(max,
+                c + creditPerRequest)));
+    }
+
+    /**
+     * Spend the credit for one hedge.
+     * @return whether there was enough credit
+     */
+    private boolean takeCredit() {
+        long c;
+        do {
+            c = credit.get();
+            if (c < HEDGE_COST) {
+                return false;
+            }
+        } while (!credit.compareAndSet(c, c - HEDGE_COST));
+        return true;
+    }
+
+    /**
+     * Read the hedging percentage from the environment.
+     * @return percentage of hedgeable requests that may be hedged
+     */
+    private static int envPercent() {
+        String value = System.getenv("hedgepercent");
+        if (value == null || value.isEmpty()) {
+            return DEFAULT_PERCENT;
+        }
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * One hedgeable request and its copies.
+     */
+    private final class Hedge {
+        /**
+         * Request to send.
+         */
+        private final UpstreamRequest request;
+
+        /**
+         * Future completed with the first response.
+         */
+        private final CompletableFuture<UpstreamResponse> result =
+                new CompletableFuture<>();
+
+        /**
+         * Value of {@link System#nanoTime()} when the request was sent.
+         */
+        private final long start = System.nanoTime();
+
+        /**
+         * First attempt.
+         */
+        private CompletableFuture<UpstreamResponse> first;
+
+        /**
+         * Second attempt, or null if none was sent.
+         */
+        private CompletableFuture<UpstreamResponse> second;
+
+        /**
+         * Timer task that sends the second attempt.
+         */
+        private ScheduledFuture<?> timeout;
+
+        /**
+         * Attempts sent that have not finished.
+         */
+        private int pending;
+
+        /**
+         * Whether an attempt has answered.
+         */
+        private boolean answered;
+
+        /**
+         * Create hedge.
+         * @param req request to send
+         */
+        Hedge(final UpstreamRequest req) {
+            this.request = req;
+        }
+
+        /**
+         * Send the first attempt and schedule the second.
+         * @param wait milliseconds to wait before hedging, or -1 to not hedge
+         * @return future completed with the first response
+         */
+        synchronized CompletableFuture<UpstreamResponse> start(
+                final long wait) {
+            first = send(false);
+            if (wait >= 0 && !result.isDone()) {
+                timeout = timer.schedule(this::hedge, wait,
+                        TimeUnit.MILLISECONDS);
+            }
+            return result;
+        }
+
+        /**
+         * Send the second attempt if the first has not answered.
+         */
+        private synchronized void hedge() {
+            if (result.isDone() || !takeCredit()) {
+                return;
+            }
+            metrics.hedgeSent();
+            second = send(true);
+        }
+
+        /**
+         * Send an attempt.
+         * @param hedge whether this is the second attempt
+         * @return attempt
+         */
+        private CompletableFuture<UpstreamResponse> send(
+                final boolean hedge) {
+            pending++;
+            CompletableFuture<UpstreamResponse> attempt =
+                    delegate.executeAsync(request);
+            attempt.whenComplete((response, failure) ->
+                    done(hedge, response, failure));
+            return attempt;
+        }
+
+        /**
+         * Handle the end of an attempt.
+         * @param hedge whether this was the second attempt
+         * @param response response, or null if the attempt failed
+         * @param failure cause of the failure, or null
+         */
+        private synchronized void done(final boolean hedge,
+                                       final UpstreamResponse response,
+                                       final Throwable failure) {
+            pending--;
+            if (answered || result.isDone()) {
+                return;
+            }
+            if (failure == null) {
+                // If the second copy won, the first attempt would have
+                // taken at least this long
+                record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+                        - start));
+                if (hedge) {
+                    metrics.hedgeWon();
+                }
+                answered = true;
+                // Cancel the loser first, so it is stopped by the time
+                // the caller sees the response
+                cancelOthers(hedge);
+                result.complete(response);
+            } else if (pending == 0) {
+                if (timeout != null) {
+                    timeout.cancel(false);
+                }
+                result.completeExceptionally(Futures.unwrap(failure));
+            }
+        }
+
+        /**
+         * Stop the attempt and timer that are no longer needed.
+         * @param hedge whether the second attempt answered
+         */
+        private void cancelOthers(final boolean hedge) {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            if (hedge && first != null) {
+                first.cancel(true);
+            }
+            if (!hedge && second != null) {
+                second.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.mygcc.datacollection;
+
+import org.jsoup.parser.Parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Extracts ASP.NET hidden form fields from myGCC pages.
+ *
+ * <h3>Overview</h3>
+ * <p>Posting back to a myGCC page requires the values of hidden inputs such
+ * as {@code __VIEWSTATE} from the page being posted back to. myGCC pages are
+ * large, so instead of parsing the whole page into a document, the extractor
+ * scans the page once for {@code <input>} tags and reads only the attributes
+ * of those. It stops reading as soon as every requested field has been
+ * found. Given a compressed {@link UpstreamResponse}, the page is
+ * decompressed while it is scanned.</p>
+ */
+public final class HiddenFieldExtractor {
+    /**
+     * View state hidden field.
+     */
+    public static final String VIEWSTATE = "__VIEWSTATE";
+
+    /**
+     * View state generator hidden field.
+     */
+    public static final String VIEWSTATEGENERATOR = "__VIEWSTATEGENERATOR";
+
+    /**
+     * Event validation hidden field.
+     */
+    public static final String EVENTVALIDATION = "__EVENTVALIDATION";
+
+    /**
+     * Browser refresh hidden field.
+     */
+    public static final String BROWSERREFRESH = "___BrowserRefresh";
+
+    /**
+     * Hidden fields used when posting back to myGCC pages.
+     */
+    public static final String[] POSTBACK_FIELDS = {VIEWSTATE,
+            VIEWSTATEGENERATOR, EVENTVALIDATION, BROWSERREFRESH};
+
+    /**
+     * Start of an input tag.
+     */
+    private static final String INPUT_TAG = "<input";
+
+    /**
+     * Number of characters read at a time.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Utility class.
+     */
+    private HiddenFieldExtractor() {
+    }
+
+    /**
+     * Extract hidden field values from HTML.
+     * @param html HTML to scan
+     * @param names names of the fields to extract
+     * @return field values keyed by name; missing fields are left out
+     */
+    public static Map<String, String> extract(final String html,
+                                              final String... names) {
+        try {
+            return extract(new StringReader(html), names);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error reading string", e);
+        }
+    }
+
+    /**
+     * Extract hidden field values from a myGCC response. A compressed page
+     * is decompressed only up to the last field found.
+     * @param response response to scan
+     * @param names names of the fields to extract
+     * @return field values keyed by name; missing fields are left out
+     * @throws UnexpectedResponseException the page could not be read
+     */
+    public static Map<String, String> extract(final UpstreamResponse response,
+                                              final String... names)
+            throws UnexpectedResponseException {
+        try (Reader in = response.getBodyReader()) {
+            return extract(in, names);
+        } catch (IOException e) {
+            throw new UnexpectedResponseException("Could not read myGCC page: "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Extract hidden field values from a stream of HTML. Reading stops once
+     * all of the fields have been found.
+     * @param in HTML to scan
+     * @param names names of the fields to extract
+     * @return field values keyed by name; missing fields are left out
+     * @throws IOException error reading HTML
+     */
+    public static Map<String, String> extract(final Reader in,
+                                              final String... names)
+            throws IOException {
+        Set<String> wanted = new HashSet<>(Arrays.asList(names));
+        Map<String, String> fields = new HashMap<>();
+        char[] buf = new char[BUFFER_SIZE];
+        StringBuilder tag = new StringBuilder();
+
+        // Number of characters of INPUT_TAG matched so far
+        int matched = 0;
+        boolean inTag = false;
+        char quote = 0;
+
+        int len;
+        while ((len = in.read(buf)) != -1) {
+            for (int i = 0; i < len; i++) {
+                char c = buf[i];
+                if (!inTag) {
+                    if (Character.toLowerCase(c) == INPUT_TAG.charAt(matched)) {
+                        matched++;
+                        if (matched == INPUT_TAG.length()) {
+                            inTag = true;
+                            matched = 0;
+                            tag.setLength(0);
+                        }
+                    } else if (c == '<') {
+                        matched = 1;
+                    } else {
+                        matched = 0;
+                    }
+                } else if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                    tag.append(c);
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                    tag.append(c);
+                } else if (c == '>') {
+                    inTag = false;
+                    readInput(tag, wanted, fields);
+                    if (wanted.isEmpty()) {
+                        return fields;
+                    }
+                } else {
+                    tag.append(c);
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Record the value of an input tag if it is one of the wanted fields.
+     * @param tag attributes of the input tag
+     * @param wanted names of fields not yet found
+     * @param fields field values found so far
+     */
+    private static void readInput(final CharSequence tag,
+                                  final Set<String> wanted,
+                                  final Map<String, String> fields) {
+        Map<String, String> attrs = parseAttributes(tag);
+        String name = attrs.get("name");
+        if (name == null || !wanted.remove(name)) {
+            return;
+        }
+        String value = attrs.get("value");
+        if (value == null) {
+            value = "";
+        }
+        fields.put(name, value);
+    }
+
+    /**
+     * Parse the attributes of a tag.
+     * @param tag text of the tag after the tag name
+     * @return attribute values keyed by lower case attribute name
+     */
+    private static Map<String, String> parseAttributes(final CharSequence tag) {
+        Map<String, String> attrs = new HashMap<>();
+        int len = tag.length();
+        int i = 0;
+        while (i < len) {
+            // Skip whitespace and self-closing slash
+            while (i < len && (Character.isWhitespace(tag.charAt(i))
+                    || tag.charAt(i) == '/')) {
+                i++;
+            }
+            int nameStart = i;
+            while (i < len && tag.charAt(i) != '='
+                    && !Character.isWhitespace(tag.charAt(i))
+                    && tag.charAt(i) != '/') {
+                i++;
+            }
+            if (i == nameStart) {
+                break;
+            }
+            String name = tag.subSequence(nameStart, i).toString()
+                    .toLowerCase();
+            while (i < len && Character.isWhitespace(tag.charAt(i))) {
+                i++;
+            }
+            if (i >= len || tag.charAt(i) != '=') {
+                attrs.put(name, "");
+                continue;
+            }
+            i++;
+            while (i < len && Character.isWhitespace(tag.charAt(i))) {
+                i++;
+            }
+            int valueStart;
+            int valueEnd;
+            if (i < len && (tag.charAt(i) == '"' || tag.charAt(i) == '\'')) {
+                char q = tag.charAt(i);
+                valueStart = ++i;
+                while (i < len && tag.charAt(i) != q) {
+                    i++;
+                }
+                valueEnd = i++;
+            } else {
+                valueStart = i;
+                while (i < len && !Character.isWhitespace(tag.charAt(i))) {
+                    i++;
+                }
+                valueEnd = i;
+            }
+            String value = tag.subSequence(valueStart, Math.min(valueEnd, len))
+                    .toString();
+            if (value.indexOf('&') >= 0) {
+                value = Parser.unescapeEntities(value, true);
+            }
+            attrs.putIfAbsent(name, value);
+        }
+        return attrs;
+    }
+}
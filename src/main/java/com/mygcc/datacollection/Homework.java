@@ -1,7 +1,6 @@
 package com.mygcc.datacollection;
 
 import org.apache.commons.lang3.StringUtils;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
@@ -11,6 +10,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Class for getting homework information.
@@ -27,23 +27,15 @@ public class Homework extends ClassData {
     }
 
     /**
-     * Get the homework of a user's class.
-     * @return A list of homework for that user's class.
-     * @throws UnexpectedResponseException If the request goes wrong.
-     * @throws InvalidCredentialsException If credentials are invalid.
-     * @throws NetworkException If network is down.
-     * @throws ClassDoesNotExistException If a class does not exist.
-     * @throws StudentNotInClassException If the student is not enrolled
-     *      in the specified class.
+     * Get the homework of a user's class without waiting for myGCC.
+     * @return future completed with a list of homework for that user's class,
+     *         or failed with the exceptions of {@link #getData()}.
      */
-    public final Map<String, Object> getData() throws
-            UnexpectedResponseException, InvalidCredentialsException,
-            NetworkException, ClassDoesNotExistException,
-            StudentNotInClassException {
-        getAuth().createSession();
-        String hwURL = getCourseworkURL(getCcode());
-        String rawHTML = getContentFromUrl(hwURL);
-        return parseHomeworkHTML(rawHTML);
+    @Override
+    public final CompletableFuture<Map<String, Object>> getDataAsync() {
+        return getCoursePageAsync(() -> getCourseworkURL(getCcode()))
+                .thenCompose(html -> Futures.call(() ->
+                        parseHomeworkHTML(html)));
     }
 
     /**
@@ -58,13 +50,7 @@ public class Homework extends ClassData {
         final int gradestringlength = 4;
         final int percentindex = 3;
         Map<String, Object> mainArray = new HashMap<>();
-        Document doc = Jsoup.parse(raw);
-        Elements notFound = doc.select(".notFound");
-        if (notFound.text().contains("require you to be")) {
-            throw new ClassDoesNotExistException();
-        } else if (notFound.text().contains("permissions to view")) {
-            throw new StudentNotInClassException();
-        }
+        Document doc = parseCoursePage(raw);
         Elements sections = doc.select(
                 "#pg0_V__assignmentView__updatePanel > div.assignmentTitle");
         for (Element c : sections) {
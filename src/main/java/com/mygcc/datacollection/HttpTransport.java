@@ -0,0 +1,623 @@
+package com.mygcc.datacollection;
+
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.api.Response;
+import org.eclipse.jetty.client.api.Result;
+import org.eclipse.jetty.client.util.BufferingResponseListener;
+import org.eclipse.jetty.client.util.BytesContentProvider;
+import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.io.Connection;
+import org.eclipse.jetty.io.ssl.SslConnection;
+import org.eclipse.jetty.io.ssl.SslHandshakeListener;
+import org.eclipse.jetty.util.HttpCookieStore;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ScheduledExecutorScheduler;
+import org.eclipse.jetty.util.thread.Scheduler;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transport that sends requests to myGCC.
+ *
+ * <h3>Connection pool</h3>
+ * <p>Requests are sent with a shared Jetty {@link HttpClient}, which keeps
+ * connections to myGCC open between requests so that most requests skip the
+ * TCP and TLS handshakes. At most {@code maxconnections} connections
+ * (default 16) are opened to a host; further requests wait for a free
+ * connection. A connection that has been idle for {@code idletimeout}
+ * milliseconds (default 30000) is closed, which keeps it from being reused
+ * after myGCC has dropped it.</p>
+ *
+ * <h3>Draining</h3>
+ * <p>The whole response body is always read before the response is returned,
+ * so a connection is never left with unread data and can always go back to
+ * the pool. A request that does not need the body still reads a small one,
+ * up to 64 KiB within a second of the headers, so its connection goes back
+ * to the pool too; a larger or slower body is dropped with the connection
+ * instead of downloading the page, and the response is returned without
+ * it.</p>
+ *
+ * <h3>Timeouts</h3>
+ * <p>A request may take at most 30 seconds, connecting included, and at most
+ * the time left before the {@link Deadline} of the request; the same budget
+ * is the longest myGCC may go without sending data. A request whose
+ * deadline has already passed is not sent. Running out of time fails the
+ * request with a {@link SocketTimeoutException}, or with its
+ * {@link DeadlineExceededException} subclass when the deadline ran out
+ * rather than the full timeout.</p>
+ *
+ * <h3>Asynchronous requests</h3>
+ * <p>Requests are sent asynchronously; {@link #execute(UpstreamRequest)}
+ * waits for {@link #executeAsync(UpstreamRequest)}. Waiting for myGCC does
+ * not hold a thread, so many slow requests can be in flight at once.
+ * Cancelling the future aborts the request.</p>
+ *
+ * <h3>Compression</h3>
+ * <p>Every request asks myGCC for a {@code gzip} or {@code deflate} body.
+ * The client's own decoders are removed so the body is kept compressed until
+ * it is read from the {@link UpstreamResponse}, which also lets the bytes
+ * received be counted.</p>
+ *
+ * <h3>Metrics</h3>
+ * <p>Requests, opened and closed connections and TLS handshakes are counted
+ * in {@link UpstreamMetrics}, as are the compressed and uncompressed bytes
+ * received from each endpoint.</p>
+ *
+ * <h3>Warming</h3>
+ * <p>Host names are resolved by a {@link CachingResolver}. TLS sessions are
+ * kept for a day, so a new connection to myGCC can usually resume one
+ * instead of making a full handshake. {@link #warm(String, int)} opens
+ * connections before they are needed; the {@link ConnectionWarmer} uses it
+ * to keep a few ready. The first request sent after no request was sent
+ * for the idle timeout is timed in {@link UpstreamMetrics}.</p>
+ *
+ * <h3>Accounting</h3>
+ * <p>Every request sent is recorded in the {@link RequestAccount} of the
+ * request with its status, the bytes sent and received, and the time until
+ * the response began and until it ended.</p>
+ */
+public final class HttpTransport implements Transport {
+    /**
+     * Default maximum number of connections to a host.
+     */
+    private static final int DEFAULT_MAX_CONNECTIONS = 16;
+
+    /**
+     * Default milliseconds after which an idle connection is closed.
+     */
+    private static final long DEFAULT_IDLE_TIMEOUT = 30000;
+
+    /**
+     * Milliseconds allowed for opening a connection.
+     */
+    private static final long CONNECT_TIMEOUT = 10000;
+
+    /**
+     * Milliseconds allowed for a whole request.
+     */
+    private static final long REQUEST_TIMEOUT = 30000;
+
+    /**
+     * Largest response body read, in bytes.
+     */
+    private static final int MAX_BODY = 16 * 1024 * 1024;
+
+    /**
+     * Largest body read, in bytes as sent, for a request that does not need
+     * it.
+     */
+    private static final long DRAIN_LIMIT = 64 * 1024;
+
+    /**
+     * Milliseconds after the headers within which the body of a request
+     * that does not need it must have been read.
+     */
+    private static final long DRAIN_TIMEOUT = 1000;
+
+    /**
+     * Encodings myGCC may compress a response with.
+     */
+    private static final String ACCEPT_ENCODING = "gzip, deflate";
+
+    /**
+     * Number of TLS sessions kept for resumption.
+     */
+    private static final int TLS_SESSION_CACHE = 64;
+
+    /**
+     * Seconds a TLS session is kept for resumption.
+     */
+    private static final int TLS_SESSION_TIMEOUT = 24 * 60 * 60;
+
+    /**
+     * Value of {@link #lastSent} before any request was sent.
+     */
+    private static final long NEVER = Long.MIN_VALUE;
+
+    /**
+     * Client that holds the connection pool.
+     */
+    private final HttpClient client;
+
+    /**
+     * Timer of the client.
+     */
+    private final Scheduler scheduler;
+
+    /**
+     * Counters the transport reports to.
+     */
+    private final UpstreamMetrics metrics;
+
+    /**
+     * Resolver of host names.
+     */
+    private final CachingResolver resolver;
+
+    /**
+     * Nanoseconds without a request after which the transport is idle.
+     */
+    private final long idleNanos;
+
+    /**
+     * Value of {@link System#nanoTime()} when the last request other than
+     * a warm-up was sent, or {@link #NEVER}.
+     */
+    private final AtomicLong lastSent = new AtomicLong(NEVER);
+
+    /**
+     * Create transport configured from the environment, reporting to the
+     * shared counters.
+     */
+    public HttpTransport() {
+        this(envInt("maxconnections", DEFAULT_MAX_CONNECTIONS),
+                envInt("idletimeout", (int) DEFAULT_IDLE_TIMEOUT),
+                UpstreamMetrics.getInstance());
+    }
+
+    /**
+     * Create transport.
+     * @param maxConnections maximum number of connections to a host
+     * @param idleTimeout milliseconds after which an idle connection is
+     *                    closed
+     * @param counters counters to report to
+     */
+    public HttpTransport(final int maxConnections, final long idleTimeout,
+                         final UpstreamMetrics counters) {
+        this.metrics = counters;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+
+        SslContextFactory ssl = new SslContextFactory();
+        ssl.setEndpointIdentificationAlgorithm("HTTPS");
+        ssl.setSslSessionCacheSize(TLS_SESSION_CACHE);
+        ssl.setSslSessionTimeout(TLS_SESSION_TIMEOUT);
+        client = new HttpClient(ssl);
+
+        // Pool threads must not keep the JVM running
+        QueuedThreadPool threads = new QueuedThreadPool();
+        threads.setName("mygcc-client");
+        threads.setDaemon(true);
+        client.setExecutor(threads);
+        scheduler = new ScheduledExecutorScheduler("mygcc-client-scheduler",
+                true);
+        client.setScheduler(scheduler);
+
+        // DNS lookups run on the pool rather than the connecting thread
+        resolver = CachingResolver.fromEnvironment(counters, threads);
+        client.setSocketAddressResolver(resolver);
+        client.setMaxConnectionsPerDestination(maxConnections);
+        client.setIdleTimeout(idleTimeout);
+        client.setConnectTimeout(CONNECT_TIMEOUT);
+
+        // Cookies are managed by each session's CookieJar
+        client.setCookieStore(new HttpCookieStore.Empty());
+
+        // Bodies are decompressed by UpstreamResponse when they are read
+        client.getContentDecoderFactories().clear();
+
+        // The client adds its listener beans to every connection it opens
+        client.addBean(new MetricsListener());
+        try {
+            client.start();
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not start HTTP client", e);
+        }
+    }
+
+    /**
+     * Send a request to myGCC and read the whole response.
+     * @param request request to send
+     * @return response
+     * @throws IOException error sending request or reading response
+     */
+    @Override
+    public UpstreamResponse execute(final UpstreamRequest request)
+            throws IOException {
+        return Futures.awaitResponse(executeAsync(request));
+    }
+
+    /**
+     * Send a request to myGCC without waiting for the response. No thread is
+     * held while waiting; the future is completed by a client thread once the
+     * whole response has been read.
+     * @param request request to send
+     * @return future completed with the response, or failed with an
+     *         {@link IOException}
+     */
+    @Override
+    public CompletableFuture<UpstreamResponse> executeAsync(
+            final UpstreamRequest request) {
+        long now = System.nanoTime();
+        long previous = lastSent.getAndSet(now);
+        CompletableFuture<UpstreamResponse> result = send(request);
+        if (previous == NEVER || now - previous > idleNanos) {
+            // Pooled connections have closed since the last request
+            result.whenComplete((response, failure) -> {
+                if (failure == null) {
+                    metrics.firstRequest(TimeUnit.NANOSECONDS.toMillis(
+                            System.nanoTime() - now));
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Open connections to a host before they are needed, by sending HEAD
+     * requests to it at the same time. Each request that finds no idle
+     * connection in the pool opens one, which stays in the pool until the
+     * idle timeout.
+     * @param url URL the requests are sent to
+     * @param connections number of requests to send
+     * @return future completed once every request has ended, whether or
+     *         not it succeeded
+     */
+    public CompletableFuture<Void> warm(final String url,
+                                        final int connections) {
+        CompletableFuture<?>[] sent = new CompletableFuture<?>[connections];
+        for (int i = 0; i < connections; i++) {
+            UpstreamRequest request = new UpstreamRequest("HEAD", url);
+            request.setFollowRedirects(false);
+            metrics.warmupSent();
+            sent[i] = send(request).handle((response, failure) -> null);
+        }
+        return CompletableFuture.allOf(sent);
+    }
+
+    /**
+     * Get the resolver of host names.
+     * @return resolver
+     */
+    public CachingResolver getResolver() {
+        return resolver;
+    }
+
+    /**
+     * Send a request to myGCC.
+     * @param request request to send
+     * @return future completed with the response, or failed with an
+     *         {@link IOException}
+     */
+    private CompletableFuture<UpstreamResponse> send(
+            final UpstreamRequest request) {
+        long budget = request.getDeadline().remainingMillis(REQUEST_TIMEOUT);
+        if (budget == 0) {
+            return Futures.failed(new DeadlineExceededException("Deadline "
+                    + "passed before request to myGCC was sent"));
+        }
+        Request http = client.newRequest(request.getUrl())
+                .method(request.getMethod())
+                .followRedirects(request.isFollowRedirects())
+                .timeout(budget, TimeUnit.MILLISECONDS)
+                .idleTimeout(budget, TimeUnit.MILLISECONDS);
+        for (Map.Entry<String, String> h
+                : request.getHeaders().entrySet()) {
+            http.header(h.getKey(), h.getValue());
+        }
+        if (!request.getHeaders().containsKey("Accept-Encoding")) {
+            http.header("Accept-Encoding", ACCEPT_ENCODING);
+        }
+        if (request.getBody() != null) {
+            http.content(new BytesContentProvider(request.getBody()));
+        }
+
+        CompletableFuture<UpstreamResponse> future = new CompletableFuture<>();
+        if (!request.isReadBody()) {
+            // Reading a small body keeps the connection open, but closing
+            // the connection is cheaper than reading a large page
+            AtomicBoolean skipping = new AtomicBoolean();
+            http.onResponseHeaders(response -> {
+                if (request.isReadBody(convert(response, new byte[0]))) {
+                    return;
+                }
+                skipping.set(true);
+                if (response.getHeaders().getLongField("Content-Length")
+                        > DRAIN_LIMIT) {
+                    skipBody(future, response);
+                } else {
+                    // A body still arriving after the drain timeout is
+                    // skipped; the timer is not needed once it has arrived
+                    Scheduler.Task drain = scheduler.schedule(
+                            () -> skipBody(future, response),
+                            DRAIN_TIMEOUT, TimeUnit.MILLISECONDS);
+                    future.whenComplete((r, failure) -> drain.cancel());
+                }
+            });
+            AtomicLong drained = new AtomicLong();
+            http.onResponseContent((response, content) -> {
+                if (skipping.get() && drained.addAndGet(content.remaining())
+                        > DRAIN_LIMIT) {
+                    skipBody(future, response);
+                }
+            });
+        }
+        long start = System.nanoTime();
+        AtomicLong firstByte = new AtomicLong(-1);
+        http.onResponseBegin(response -> firstByte.compareAndSet(-1,
+                System.nanoTime() - start));
+        metrics.requestSent();
+        http.send(new BodyListener(future, request.getDeadline()));
+
+        // The request is counted before the caller sees the response, so
+        // it is in the account by the time the API request is answered
+        String endpoint = RequestAccount.template(request.getUrl());
+        CompletableFuture<UpstreamResponse> result = new CompletableFuture<>();
+        future.whenComplete((response, failure) -> {
+            if (response != null) {
+                metrics.bytesReceived(endpoint, response.getWireLength());
+                response.setDecodedListener(
+                        size -> metrics.bytesDecoded(endpoint, size));
+            }
+            account(request, response, firstByte.get(),
+                    System.nanoTime() - start);
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(response);
+            }
+        });
+
+        // A caller that no longer needs the response frees the connection
+        result.whenComplete((response, failure) -> {
+            if (failure instanceof CancellationException) {
+                http.abort(failure);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Complete a request with an empty body and close its connection, unless
+     * the whole body has already been read.
+     * @param future future of the request
+     * @param response response whose body is not read
+     */
+    private static void skipBody(
+            final CompletableFuture<UpstreamResponse> future,
+            final Response response) {
+        if (future.complete(convert(response, new byte[0]))) {
+            response.abort(new CancellationException("Body not needed"));
+        }
+    }
+
+    /**
+     * Record a request in the account of the API request it was made for.
+     * @param request request sent
+     * @param response response, or null if the request failed
+     * @param firstByte nanoseconds until the response began, or -1
+     * @param total nanoseconds until the request ended
+     */
+    private static void account(final UpstreamRequest request,
+                                final UpstreamResponse response,
+                                final long firstByte, final long total) {
+        RequestAccount account = request.getAccount();
+        if (!account.isSet()) {
+            return;
+        }
+        int status = 0;
+        long received = 0;
+        if (response != null) {
+            status = response.getStatus();
+            received = response.getWireLength();
+        }
+        long sent = 0;
+        if (request.getBody() != null) {
+            sent = request.getBody().length;
+        }
+        long ttfb = -1;
+        if (firstByte >= 0) {
+            ttfb = TimeUnit.NANOSECONDS.toMillis(firstByte);
+        }
+        account.record(new RequestAccount.Hop(request.getMethod(),
+                request.getUrl(), status, sent, received, ttfb,
+                TimeUnit.NANOSECONDS.toMillis(total)));
+    }
+
+    /**
+     * Copy a Jetty response.
+     * @param response Jetty response
+     * @param body response body
+     * @return response
+     */
+    private static UpstreamResponse convert(final Response response,
+                                            final byte[] body) {
+        UpstreamResponse converted = new UpstreamResponse(
+                response.getStatus(), body);
+        for (HttpField h : response.getHeaders()) {
+            converted.addHeader(h.getName(), h.getValue());
+        }
+        return converted;
+    }
+
+    /**
+     * Read an integer from the environment.
+     * @param name environment variable name
+     * @param def value if the variable is not set
+     * @return value
+     */
+    private static int envInt(final String name, final int def) {
+        String value = System.getenv(name);
+        if (value == null || value.isEmpty()) {
+            return def;
+        }
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * Converts a Jetty failure to an I/O exception.
+     * @param failure cause of the failure
+     * @param deadline deadline of the request
+     * @return I/O exception, a {@link DeadlineExceededException} if the
+     *         request timed out because its deadline passed
+     */
+    private static IOException toIOException(final Throwable failure,
+                                             final Deadline deadline) {
+        if (failure instanceof TimeoutException
+                || failure instanceof SocketTimeoutException) {
+            SocketTimeoutException timeout;
+            if (deadline.isExpired()) {
+                // The timeouts were cut short to the deadline
+                timeout = new DeadlineExceededException("Deadline passed "
+                        + "waiting for myGCC");
+            } else {
+                timeout = new SocketTimeoutException("Timed out waiting for "
+                        + "myGCC");
+            }
+            timeout.initCause(failure);
+            return timeout;
+        } else if (failure instanceof IOException) {
+            return (IOException) failure;
+        }
+        return new IOException("Request to myGCC failed", failure);
+    }
+
+    /**
+     * Completes a future once the whole response has been read.
+     */
+    private static final class BodyListener
+            extends BufferingResponseListener {
+        /**
+         * Future to complete.
+         */
+        private final CompletableFuture<UpstreamResponse> future;
+
+        /**
+         * Deadline of the request.
+         */
+        private final Deadline deadline;
+
+        /**
+         * Create listener.
+         * @param result future to complete
+         * @param limit deadline of the request
+         */
+        BodyListener(final CompletableFuture<UpstreamResponse> result,
+                     final Deadline limit) {
+            super(MAX_BODY);
+            this.future = result;
+            this.deadline = limit;
+        }
+
+        /**
+         * Complete the future with the response or the failure.
+         * @param result result of the exchange
+         */
+        @Override
+        public void onComplete(final Result result) {
+            if (result.isFailed()) {
+                future.completeExceptionally(
+                        toIOException(result.getFailure(), deadline));
+            } else {
+                future.complete(convert(result.getResponse(), getContent()));
+            }
+        }
+    }
+
+    /**
+     * Counts connections and TLS handshakes.
+     */
+    private final class MetricsListener implements Connection.Listener,
+            SslHandshakeListener {
+        /**
+         * IDs of the TLS sessions seen, at most as many as are kept for
+         * resumption, oldest first.
+         */
+        private final Map<String, Boolean> sessions =
+                new LinkedHashMap<String, Boolean>() {
+                    @Override
+                    protected boolean removeEldestEntry(
+                            final Map.Entry<String, Boolean> eldest) {
+                        return size() > TLS_SESSION_CACHE;
+                    }
+                };
+
+        /**
+         * Count an opened connection. A TLS connection is made of a
+         * {@link SslConnection} and the HTTP connection over it, so only the
+         * HTTP connection is counted.
+         * @param connection connection
+         */
+        @Override
+        public void onOpened(final Connection connection) {
+            if (!(connection instanceof SslConnection)) {
+                metrics.connectionOpened();
+            }
+        }
+
+        /**
+         * Count a closed connection.
+         * @param connection connection
+         */
+        @Override
+        public void onClosed(final Connection connection) {
+            if (!(connection instanceof SslConnection)) {
+                metrics.connectionClosed();
+            }
+        }
+
+        /**
+         * Count a completed TLS handshake.
+         * @param event handshake event
+         */
+        @Override
+        public void handshakeSucceeded(final Event event) {
+            metrics.handshakeSucceeded();
+            // A resumed session has the ID of one an earlier handshake made
+            byte[] id = event.getSSLEngine().getSession().getId();
+            if (id == null || id.length == 0) {
+                return;
+            }
+            String key = Base64.getEncoder().encodeToString(id);
+            boolean seen;
+            synchronized (sessions) {
+                seen = sessions.put(key, Boolean.TRUE) != null;
+            }
+            if (seen) {
+                metrics.handshakeResumed();
+            }
+        }
+
+        /**
+         * Count a failed TLS handshake.
+         * @param event handshake event
+         * @param failure cause of the failure
+         */
+        @Override
+        public void handshakeFailed(final Event event,
+                                    final Throwable failure) {
+            metrics.handshakeFailed();
+        }
+    }
+}
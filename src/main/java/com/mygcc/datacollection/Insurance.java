@@ -2,13 +2,11 @@ package com.mygcc.datacollection;
 
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.InterruptedIOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Class for getting insurance information.
@@ -41,50 +39,63 @@ public class Insurance {
      *  name of the insurance field (e.g. Address, etc.) and the value is
      *  entered data of that field.
      * @throws UnexpectedResponseException If no insurance data is returned.
+     * @throws NetworkException myGCC did not answer in time.
      */
     public final Map<String, Object> getInsuranceData()
-            throws UnexpectedResponseException {
-        String rawIns = getContentFromUrl();
-        if (rawIns == null) {
-            throw new UnexpectedResponseException();
+            throws UnexpectedResponseException, NetworkException {
+        try {
+            return Futures.await(getInsuranceDataAsync());
+        } catch (InvalidCredentialsException | ExpiredSessionException e) {
+            // No login is made for the insurance data
+            throw new IllegalStateException(e);
         }
-        Map<String, Object> response = parseInsuranceJSON(rawIns);
-        return response;
     }
 
     /**
-     * Get insurance info for given id.
-     * @return JSON string from myGCC
-     * @throws UnexpectedResponseException Unexpected response from myGCC.
+     * Gets the insurance data without waiting for myGCC.
+     * @return future completed with the same map as
+     *         {@link #getInsuranceData()}, or failed with the exceptions it
+     *         throws
      */
-    private String getContentFromUrl() throws UnexpectedResponseException {
+    public final CompletableFuture<Map<String, Object>>
+            getInsuranceDataAsync() {
         final int nullLength = 4;
-        try {
-            URL gccIns = new URL(MYINS + auth.getToken().getUsername());
-            HttpURLConnection http = (HttpURLConnection) gccIns
-                    .openConnection();
-            http.setRequestProperty("Cookie",
-                    "ASP.NET_SessionId=" + auth.getSessionID());
+        UpstreamRequest request = auth.newRequest("GET",
+                MYINS + auth.getToken().getUsername());
+        auth.getCookies().apply(request);
+        return Transports.getDefault().executeAsync(request)
+                .exceptionally(e -> {
+                    Throwable cause = Futures.unwrap(e);
+                    if (cause instanceof InterruptedIOException) {
+                        throw Futures.wrap(new NetworkException(
+                                "Timed out waiting for myGCC"));
+                    } else if (RetryPolicy.isTransient(cause)
+                            || cause instanceof RejectedRequestException) {
+                        throw Futures.wrap(new NetworkException(
+                                "Could not reach myGCC"));
+                    } else if (cause instanceof IOException) {
+                        cause.printStackTrace();
+                        throw Futures.wrap(new UnexpectedResponseException(
+                                "unknown IOException occurred"));
+                    }
+                    throw Futures.wrap(cause);
+                })
+                .thenCompose(response -> {
+                    if (RetryPolicy.isTransient(response.getStatus())) {
+                        return Futures.failed(new NetworkException("myGCC "
+                                + "answered " + response.getStatus()));
+                    }
 
-            // Check for invalid id.
-            // If the info does not exist then 'null' is returned from gcc.
-            if (http.getContentLength() == nullLength) {
-                return null;
-            }
-            BufferedReader in = new BufferedReader(new InputStreamReader(
-                    http.getInputStream(), "UTF-8"));
-            String inputLine;
-            StringBuilder output = new StringBuilder();
-            while ((inputLine = in.readLine()) != null) {
-                output.append(inputLine);
-            }
-            in.close();
-            return output.toString();
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new UnexpectedResponseException("unknown IOException "
-                    + "occurred");
-        }
+                    // Check for invalid id.
+                    // If the info does not exist then 'null' is returned
+                    // from gcc.
+                    if (response.getBodyBytes().length == nullLength) {
+                        return Futures.failed(
+                                new UnexpectedResponseException());
+                    }
+                    return Futures.call(() ->
+                            parseInsuranceJSON(response.getBody()));
+                });
     }
 
     /**
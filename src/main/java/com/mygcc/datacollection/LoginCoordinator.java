@@ -0,0 +1,84 @@
+package com.mygcc.datacollection;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coordinates concurrent logins for the same user.
+ *
+ * <h3>Overview</h3>
+ * <p>Clients often send several requests at once, each of which needs a
+ * {@link Session}. Without coordination every request would log in to myGCC
+ * separately. The login coordinator lets the first request for a set of
+ * credentials start the login while later requests for the same credentials
+ * receive the future of that login, so they get the same session without a
+ * thread waiting for it.</p>
+ *
+ * <h3>Internals</h3>
+ * <p>Logins in flight are keyed by {@link Token#hash()}. A login that fails
+ * fails every waiting request with the same exception. Once a login
+ * completes, successful or not, the next request for the credentials starts
+ * a new login.</p>
+ */
+public final class LoginCoordinator {
+    /**
+     * Shared login coordinator.
+     */
+    private static final LoginCoordinator INSTANCE = new LoginCoordinator();
+
+    /**
+     * Logins in flight keyed by credential hash.
+     */
+    private final Map<String, CompletableFuture<Session>> inFlight =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Get the shared login coordinator.
+     * @return login coordinator
+     */
+    public static LoginCoordinator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Log in without blocking, or join a login already in flight for the
+     * same key.
+     * @param key credential hash
+     * @param login starts the login to perform if none is in flight
+     * @return future completed with the authenticated session
+     */
+    public CompletableFuture<Session> loginAsync(final String key,
+            final Supplier<CompletableFuture<Session>> login) {
+        CompletableFuture<Session> mine = new CompletableFuture<>();
+        CompletableFuture<Session> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<Session> started;
+        try {
+            started = login.get();
+        } catch (RuntimeException e) {
+            started = Futures.failed(e);
+        }
+        started.whenComplete((ses, e) -> {
+            inFlight.remove(key, mine);
+            if (e != null) {
+                mine.completeExceptionally(Futures.unwrap(e));
+            } else {
+                mine.complete(ses);
+            }
+        });
+        return mine;
+    }
+
+    /**
+     * Get the number of logins in flight.
+     * @return number of logins in flight
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,336 @@
+package com.mygcc.datacollection;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * {@code multipart/form-data} body of a post back to myGCC.
+ *
+ * <h3>Usage</h3>
+ * <p>Fields are added in the order the form sends them:</p>
+ * <pre>
+ * MultipartBody body = new MultipartBody(boundary)
+ *         .field("userName", username)
+ *         .field("password", password);
+ * request.setBody(body);
+ * </pre>
+ *
+ * <h3>Encoding</h3>
+ * <p>Lines end with CRLF as required by RFC 7578, and names and values are
+ * encoded as UTF-8. The exact length of the body is worked out from the
+ * fields before anything is encoded, so {@link #toByteArray()} allocates a
+ * single array of that size and encodes every part straight into it; the
+ * request is sent with that array and a fixed {@code Content-Length}.</p>
+ */
+public final class MultipartBody {
+    /**
+     * Prefix of generated boundaries, as sent by browsers.
+     */
+    private static final String BOUNDARY_PREFIX =
+            "---------------------------";
+
+    /**
+     * Number of random digits in a generated boundary.
+     */
+    private static final int BOUNDARY_DIGITS = 25;
+
+    /**
+     * Digits a generated boundary is made of.
+     */
+    private static final int RADIX = 10;
+
+    /**
+     * Number of fields allocated for before growing.
+     */
+    private static final int INITIAL_FIELDS = 12;
+
+    /**
+     * Dashes before a boundary.
+     */
+    private static final String DASHES = "--";
+
+    /**
+     * Line separator.
+     */
+    private static final String CRLF = "\r\n";
+
+    /**
+     * Start of the header of a field.
+     */
+    private static final String DISPOSITION =
+            "Content-Disposition: form-data; name=\"";
+
+    /**
+     * End of the header of a field, followed by the empty line.
+     */
+    private static final String DISPOSITION_END = "\"" + CRLF + CRLF;
+
+    /**
+     * Largest character encoded as one UTF-8 byte.
+     */
+    private static final int MAX_ONE_BYTE = 0x7f;
+
+    /**
+     * Largest character encoded as two UTF-8 bytes.
+     */
+    private static final int MAX_TWO_BYTES = 0x7ff;
+
+    /**
+     * Number of UTF-8 bytes of a supplementary character.
+     */
+    private static final int SURROGATE_PAIR_BYTES = 4;
+
+    /**
+     * Number of UTF-8 bytes of any other character.
+     */
+    private static final int THREE_BYTES = 3;
+
+    /**
+     * Number of payload bits in a UTF-8 continuation byte.
+     */
+    private static final int SHIFT = 6;
+
+    /**
+     * Payload bits of a UTF-8 continuation byte.
+     */
+    private static final int CONTINUATION_MASK = 0x3f;
+
+    /**
+     * Marker of a UTF-8 continuation byte.
+     */
+    private static final int CONTINUATION = 0x80;
+
+    /**
+     * Marker of the first of two UTF-8 bytes.
+     */
+    private static final int TWO_BYTE_LEAD = 0xc0;
+
+    /**
+     * Marker of the first of three UTF-8 bytes.
+     */
+    private static final int THREE_BYTE_LEAD = 0xe0;
+
+    /**
+     * Marker of the first of four UTF-8 bytes.
+     */
+    private static final int FOUR_BYTE_LEAD = 0xf0;
+
+    /**
+     * Replacement for an unpaired surrogate, as in {@link String#getBytes}.
+     */
+    private static final byte REPLACEMENT = '?';
+
+    /**
+     * Boundary separating the fields.
+     */
+    private final String boundary;
+
+    /**
+     * Field names and values, alternating.
+     */
+    private String[] fields = new String[INITIAL_FIELDS * 2];
+
+    /**
+     * Number of strings in {@code fields}.
+     */
+    private int size;
+
+    /**
+     * Create empty body.
+     * @param separator boundary separating the fields
+     */
+    public MultipartBody(final String separator) {
+        this.boundary = separator;
+    }
+
+    /**
+     * Generate a boundary in the format sent by browsers to IIS.
+     * @return boundary of 27 dashes and 25 random digits
+     */
+    public static String newBoundary() {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        char[] b = new char[BOUNDARY_PREFIX.length() + BOUNDARY_DIGITS];
+        BOUNDARY_PREFIX.getChars(0, BOUNDARY_PREFIX.length(), b, 0);
+        for (int i = BOUNDARY_PREFIX.length(); i < b.length; i++) {
+            b[i] = Character.forDigit(rnd.nextInt(RADIX), RADIX);
+        }
+        return new String(b);
+    }
+
+    /**
+     * Add a field.
+     * @param name field name
+     * @param value field value; null is sent as empty
+     * @return this body
+     */
+    public MultipartBody field(final String name, final String value) {
+        if (size == fields.length) {
+            fields = Arrays.copyOf(fields, size * 2);
+        }
+        fields[size++] = name;
+        if (value == null) {
+            fields[size++] = "";
+        } else {
+            fields[size++] = value;
+        }
+        return this;
+    }
+
+    /**
+     * Get the boundary separating the fields.
+     * @return boundary
+     */
+    public String getBoundary() {
+        return boundary;
+    }
+
+    /**
+     * Get the value of the {@code Content-Type} header.
+     * @return content type with the boundary
+     */
+    public String getContentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    /**
+     * Get the length of the encoded body.
+     * @return number of bytes
+     */
+    public int getContentLength() {
+        int separator = DASHES.length() + utf8Length(boundary)
+                + CRLF.length();
+        int length = 0;
+        for (int i = 0; i < size; i += 2) {
+            length += separator + DISPOSITION.length()
+                    + utf8Length(fields[i]) + DISPOSITION_END.length()
+                    + utf8Length(fields[i + 1]) + CRLF.length();
+        }
+        return length + DASHES.length() + utf8Length(boundary)
+                + DASHES.length() + CRLF.length();
+    }
+
+    /**
+     * Encode the body.
+     * @return encoded body of exactly {@link #getContentLength()} bytes
+     */
+    public byte[] toByteArray() {
+        byte[] out = new byte[getContentLength()];
+        int pos = 0;
+        for (int i = 0; i < size; i += 2) {
+            pos = put(DASHES, out, pos);
+            pos = put(boundary, out, pos);
+            pos = put(CRLF, out, pos);
+            pos = put(DISPOSITION, out, pos);
+            pos = put(fields[i], out, pos);
+            pos = put(DISPOSITION_END, out, pos);
+            pos = put(fields[i + 1], out, pos);
+            pos = put(CRLF, out, pos);
+        }
+        pos = put(DASHES, out, pos);
+        pos = put(boundary, out, pos);
+        pos = put(DASHES, out, pos);
+        put(CRLF, out, pos);
+        return out;
+    }
+
+    /**
+     * Write the encoded body to a stream.
+     * @param out stream to write to
+     * @throws IOException error writing to the stream
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        out.write(toByteArray());
+    }
+
+    /**
+     * Get the encoded body as a string, for logging.
+     * @return body decoded as UTF-8
+     */
+    @Override
+    public String toString() {
+        return new String(toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get the number of bytes a string takes in UTF-8.
+     * @param s string
+     * @return number of bytes
+     */
+    static int utf8Length(final String s) {
+        int length = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c <= MAX_ONE_BYTE) {
+                length++;
+            } else if (c <= MAX_TWO_BYTES) {
+                length += 2;
+            } else if (isPair(s, i)) {
+                length += SURROGATE_PAIR_BYTES;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += THREE_BYTES;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Encode a string as UTF-8 into an array.
+     * @param s string
+     * @param out array to encode into
+     * @param start index of the first byte to write
+     * @return index after the last byte written
+     */
+    private static int put(final String s, final byte[] out,
+                           final int start) {
+        int pos = start;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c <= MAX_ONE_BYTE) {
+                out[pos++] = (byte) c;
+            } else if (c <= MAX_TWO_BYTES) {
+                out[pos++] = (byte) (TWO_BYTE_LEAD | (c >> SHIFT));
+                out[pos++] = continuation(c);
+            } else if (isPair(s, i)) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                out[pos++] = (byte) (FOUR_BYTE_LEAD
+                        | (cp >> (THREE_BYTES * SHIFT)));
+                out[pos++] = continuation(cp >> (2 * SHIFT));
+                out[pos++] = continuation(cp >> SHIFT);
+                out[pos++] = continuation(cp);
+            } else if (Character.isSurrogate(c)) {
+                out[pos++] = REPLACEMENT;
+            } else {
+                out[pos++] = (byte) (THREE_BYTE_LEAD | (c >> (2 * SHIFT)));
+                out[pos++] = continuation(c >> SHIFT);
+                out[pos++] = continuation(c);
+            }
+        }
+        return pos;
+    }
+
+    /**
+     * Get a UTF-8 continuation byte.
+     * @param bits bits to encode, of which the lowest six are used
+     * @return continuation byte
+     */
+    private static byte continuation(final int bits) {
+        return (byte) (CONTINUATION | (bits & CONTINUATION_MASK));
+    }
+
+    /**
+     * Check whether a character starts a valid surrogate pair.
+     * @param s string
+     * @param i index of the character
+     * @return whether the character and the next form a surrogate pair
+     */
+    private static boolean isPair(final String s, final int i) {
+        return Character.isHighSurrogate(s.charAt(i)) && i + 1 < s.length()
+                && Character.isLowSurrogate(s.charAt(i + 1));
+    }
+}
@@ -1,21 +1,9 @@
 package com.mygcc.datacollection;
 
-import org.apache.commons.lang3.StringUtils;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.select.Elements;
-
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.ProtocolException;
-import java.net.URL;
-import java.net.URLConnection;
-import java.util.List;
-import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Tools for data collection.
@@ -46,9 +34,9 @@ public abstract class MyGCCDataCollection {
      * @return browserrefresh value
      */
     public static String parseBrowserRefresh(final String html) {
-        Document doc = Jsoup.parse(html);
-        Elements name = doc.select("input[name=___BrowserRefresh]");
-        return name.attr("value");
+        return HiddenFieldExtractor.extract(html,
+                HiddenFieldExtractor.BROWSERREFRESH)
+                .getOrDefault(HiddenFieldExtractor.BROWSERREFRESH, "");
     }
 
     /**
@@ -57,111 +45,54 @@ public abstract class MyGCCDataCollection {
      * @return VIEWSTATE value
      */
     public static String parseViewState(final String html) {
-        Document doc = Jsoup.parse(html);
-        Elements name = doc.select("input[name=__VIEWSTATE]");
-        return name.attr("value");
+        return HiddenFieldExtractor.extract(html,
+                HiddenFieldExtractor.VIEWSTATE)
+                .getOrDefault(HiddenFieldExtractor.VIEWSTATE, "");
     }
 
     /**
-     * Get ASPXAuth from list of cookies.
-     * @param cookies list of cookies
-     * @return ASPXAuth string
-     */
-    public static String parseAspxauth(final List<String> cookies) {
-        String aspRaw = cookies.get(0);
-
-        // Trim everything but the cookie value itself
-        return StringUtils.substringBetween(aspRaw,
-                ".ASPXAUTH=",
-                "; path=/");
-    }
-
-    /**
-     * Create HTTP POST data string.
-     * @param data map in the form name: value
-     * @param boundary boundary string
-     * @return POST data
+     * Create HTTP POST request to myGCC. Redirects are not followed.
+     * @param url url for POST request
+     * @param body form data to be sent
+     * @return request
      */
-    public static String postData(final Map<String, String> data,
-                                  final String boundary) {
-        StringBuilder separator = new StringBuilder()
-                .append("--")
-                .append(boundary)
-                .append("\n");
-        StringBuilder postData = new StringBuilder();
-
-        for (Map.Entry<String, String> entry : data.entrySet()) {
-            String name = entry.getKey();
-            String value = entry.getValue();
-
-            // Boundary
-            postData.append(separator);
-
-            // Content disposition line
-            postData.append("Content-Disposition: form-data; name=\"")
-                    .append(name)
-                    .append("\"\n");
-            // Empty line between name and value
-            postData.append("\n");
-
-            // Value
-            postData.append(value)
-                    .append("\n");
-        }
-
-        // Closing boundary
-        postData.append("--")
-                .append(boundary)
-                .append("--\n");
-
-        return postData.toString();
+    public static UpstreamRequest createPOST(final String url,
+                                             final MultipartBody body) {
+        UpstreamRequest request = new UpstreamRequest("POST", url);
+        request.setFollowRedirects(false);
+        request.setBody(body);
+        return request;
     }
 
     /**
-     * Create HTTP POST request object.
-     * @param url url for POST request
-     * @param requestProperties HTTP request properties
-     * @param postData data to be sent
-     * @return HttpURLConnection
+     * Send HTTP request to myGCC with the default {@link Transport}.
+     * @param request request to send
+     * @return response
      * @throws NetworkException error connection to URL
      */
-    public static HttpURLConnection createPOST(final String url,
-                                               final Map<String, String>
-                                                       requestProperties,
-                                               final String postData)
+    public static UpstreamResponse send(final UpstreamRequest request)
             throws NetworkException {
-        URLConnection con;
         try {
-            con = new URL(url).openConnection();
-        } catch (MalformedURLException e) {
-            throw new IllegalStateException("Malformed url", e);
-        } catch (IOException e) {
-            throw new IllegalStateException("Unknown IOException");
-        }
-        HttpURLConnection http = (HttpURLConnection) con;
-        try {
-            http.setRequestMethod("POST");
-        } catch (ProtocolException e) {
-            throw new IllegalStateException("Unknown protocol exception");
-        }
-        http.setDoOutput(true);
-        http.setInstanceFollowRedirects(false);
-
-        // Set request properties
-        for (Map.Entry<String, String> prop : requestProperties.entrySet()) {
-            http.setRequestProperty(prop.getKey(), prop.getValue());
-        }
-
-        DataOutputStream wr;
-        try {
-            wr = new DataOutputStream(http.getOutputStream());
-            wr.writeBytes(postData);
-            wr.close();
+            return Transports.getDefault().execute(request);
         } catch (IOException e) {
             throw new NetworkException("Could not connect to myGCC");
         }
+    }
 
-        return http;
+    /**
+     * Send HTTP request to myGCC with the default {@link Transport} without
+     * waiting for the response.
+     * @param request request to send
+     * @return future completed with the response, or failed with a
+     *         {@link NetworkException}
+     */
+    public static CompletableFuture<UpstreamResponse> sendAsync(
+            final UpstreamRequest request) {
+        return Transports.getDefault().executeAsync(request)
+                .exceptionally(e -> {
+                    throw Futures.wrap(new NetworkException("Could not "
+                            + "connect to myGCC"));
+                });
     }
 
     /**
@@ -0,0 +1,266 @@
+package com.mygcc.datacollection;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived cache of requests that myGCC is known to reject.
+ *
+ * <h3>Overview</h3>
+ * <p>A client that retries with a wrong password or a mistyped course code
+ * gets the same answer from myGCC every time, but each attempt still costs a
+ * login and often a page fetch. The negative cache remembers these failures
+ * for a short while so that repeats are answered without contacting
+ * myGCC.</p>
+ *
+ * <h3>Internals</h3>
+ * <p>Failed logins are keyed by {@link Token#hash()}, so a corrected password
+ * is never answered from the cache. Course failures are keyed by the
+ * credential hash and the course code. Only the kind of failure is cached and
+ * a new exception is thrown for every hit. Expired entries are dropped when
+ * they are looked up or when the cache grows beyond its maximum size.</p>
+ */
+public final class NegativeCache {
+    /**
+     * Default milliseconds a failed login is remembered.
+     */
+    private static final long DEFAULT_LOGIN_TTL =
+            TimeUnit.MINUTES.toMillis(2);
+
+    /**
+     * Default milliseconds a missing course is remembered.
+     */
+    private static final long DEFAULT_COURSE_TTL =
+            TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * Default maximum number of cached failures.
+     */
+    private static final int DEFAULT_MAX_SIZE = 10000;
+
+    /**
+     * Shared negative cache.
+     */
+    private static final NegativeCache INSTANCE =
+            new NegativeCache(DEFAULT_MAX_SIZE, DEFAULT_LOGIN_TTL,
+                    DEFAULT_COURSE_TTL);
+
+    /**
+     * Cached failures keyed by credential hash, or by credential hash and
+     * course code.
+     */
+    private final Map<String, Entry> failures = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum number of cached failures.
+     */
+    private final int maxSize;
+
+    /**
+     * Milliseconds a failed login is remembered.
+     */
+    private final long loginTtl;
+
+    /**
+     * Milliseconds a missing course is remembered.
+     */
+    private final long courseTtl;
+
+    /**
+     * Create a negative cache.
+     * @param max maximum number of cached failures
+     * @param login milliseconds a failed login is remembered
+     * @param course milliseconds a missing course is remembered
+     */
+    public NegativeCache(final int max, final long login, final long course) {
+        this.maxSize = max;
+        this.loginTtl = login;
+        this.courseTtl = course;
+    }
+
+    /**
+     * Get the shared negative cache.
+     * @return negative cache
+     */
+    public static NegativeCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Throw if a login with the credentials failed recently.
+     * @param key credential hash
+     * @throws InvalidCredentialsException the credentials were rejected
+     */
+    public void checkLogin(final String key)
+            throws InvalidCredentialsException {
+        if (lookup(key) == Failure.INVALID_CREDENTIALS) {
+            throw new InvalidCredentialsException("Credentials recently "
+                    + "rejected by myGCC");
+        }
+    }
+
+    /**
+     * Remember that myGCC rejected the credentials.
+     * @param key credential hash
+     */
+    public void loginFailed(final String key) {
+        put(key, Failure.INVALID_CREDENTIALS, loginTtl);
+    }
+
+    /**
+     * Throw if the course recently could not be viewed by the user.
+     * @param key credential hash
+     * @param courseCode sanitized course code
+     * @throws ClassDoesNotExistException the course does not exist
+     * @throws StudentNotInClassException the user is not in the course
+     */
+    public void checkCourse(final String key, final String courseCode)
+            throws ClassDoesNotExistException, StudentNotInClassException {
+        Failure failure = lookup(courseKey(key, courseCode));
+        if (failure == Failure.CLASS_DOES_NOT_EXIST) {
+            throw new ClassDoesNotExistException();
+        } else if (failure == Failure.STUDENT_NOT_IN_CLASS) {
+            throw new StudentNotInClassException();
+        }
+    }
+
+    /**
+     * Remember that the course does not exist.
+     * @param key credential hash
+     * @param courseCode sanitized course code
+     */
+    public void classDoesNotExist(final String key, final String courseCode) {
+        put(courseKey(key, courseCode), Failure.CLASS_DOES_NOT_EXIST,
+                courseTtl);
+    }
+
+    /**
+     * Remember that the user is not in the course.
+     * @param key credential hash
+     * @param courseCode sanitized course code
+     */
+    public void studentNotInClass(final String key, final String courseCode) {
+        put(courseKey(key, courseCode), Failure.STUDENT_NOT_IN_CLASS,
+                courseTtl);
+    }
+
+    /**
+     * Get the number of cached failures.
+     * @return number of cached failures
+     */
+    public int size() {
+        return failures.size();
+    }
+
+    /**
+     * Get the cache key of a course.
+     * @param key credential hash
+     * @param courseCode sanitized course code
+     * @return cache key
+     */
+    private static String courseKey(final String key,
+                                    final String courseCode) {
+        return key + "|" + courseCode.toUpperCase();
+    }
+
+    /**
+     * Get an unexpired failure.
+     * @param key cache key
+     * @return failure or null if none is cached
+     */
+    private Failure lookup(final String key) {
+        Entry entry = failures.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            failures.remove(key, entry);
+            return null;
+        }
+        return entry.getFailure();
+    }
+
+    /**
+     * Cache a failure.
+     * @param key cache key
+     * @param failure kind of failure
+     * @param ttl milliseconds to remember the failure
+     */
+    private void put(final String key, final Failure failure,
+                     final long ttl) {
+        long now = System.currentTimeMillis();
+        failures.put(key, new Entry(failure, now + ttl));
+        if (failures.size() > maxSize) {
+            failures.values().removeIf(e -> e.isExpired(now));
+            Iterator<String> it = failures.keySet().iterator();
+            while (failures.size() > maxSize && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Kinds of cached failures.
+     */
+    private enum Failure {
+        /**
+         * myGCC rejected the credentials.
+         */
+        INVALID_CREDENTIALS,
+
+        /**
+         * The course does not exist.
+         */
+        CLASS_DOES_NOT_EXIST,
+
+        /**
+         * The user is not in the course.
+         */
+        STUDENT_NOT_IN_CLASS
+    }
+
+    /**
+     * Cached failure and when it expires.
+     */
+    private static final class Entry {
+        /**
+         * Kind of failure.
+         */
+        private final Failure failure;
+
+        /**
+         * Time the entry expires in milliseconds.
+         */
+        private final long expires;
+
+        /**
+         * Create entry.
+         * @param fail kind of failure
+         * @param exp time the entry expires in milliseconds
+         */
+        Entry(final Failure fail, final long exp) {
+            this.failure = fail;
+            this.expires = exp;
+        }
+
+        /**
+         * Get kind of failure.
+         * @return failure
+         */
+        Failure getFailure() {
+            return failure;
+        }
+
+        /**
+         * Check whether the entry has expired.
+         * @param now current time in milliseconds
+         * @return whether the entry has expired
+         */
+        boolean isExpired(final long now) {
+            return now >= expires;
+        }
+    }
+}
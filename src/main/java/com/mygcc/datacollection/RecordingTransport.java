@@ -0,0 +1,290 @@
+package com.mygcc.datacollection;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Transport that records requests and responses to disk.
+ *
+ * <h3>Overview</h3>
+ * <p>Requests are sent with another transport, usually the
+ * {@link HttpTransport}, and each request and its response are saved as a
+ * JSON file in a directory. The {@link ReplayTransport} serves the saved
+ * responses.</p>
+ *
+ * <h3>Sanitizing</h3>
+ * <p>Recordings must not contain credentials. Request headers and bodies,
+ * which carry cookies and the login password, are not saved. Cookie values
+ * set by responses are replaced with a placeholder, as are the usernames in
+ * the query string of the contact and insurance URLs.</p>
+ *
+ * <p>Response bodies must not contain personal data either. The usernames
+ * removed from URLs and the username of the login form are remembered, and
+ * replaced with the placeholder wherever they appear in a body. So are the
+ * values of the JSON fields that hold names, addresses, phone numbers,
+ * email addresses and insurance details, as sent by the contact and
+ * insurance pages. Other pages, such as the biography, may still show
+ * personal details, so recordings should be made with a test account.
+ * Bodies are saved uncompressed; the {@code Content-Encoding} and
+ * {@code Content-Length} headers are left out since they describe the body
+ * as it was received.</p>
+ *
+ * <h3>File format</h3>
+ * <p>Each exchange is saved as {@code <key>-<n>.json}, where the key is a
+ * hash of the method and sanitized URL and {@code n} counts repeats of the
+ * same request from 0. The file holds the method, sanitized URL, status,
+ * response headers and response body.</p>
+ */
+public final class RecordingTransport implements Transport {
+    /**
+     * Placeholder for removed values.
+     */
+    static final String REDACTED = "REDACTED";
+
+    /**
+     * Query parameters whose values identify a user.
+     */
+    private static final Pattern SENSITIVE_PARAMS =
+            Pattern.compile("([?&]id_num=)([^&]*)");
+
+    /**
+     * Username field of the login form in a multipart request body.
+     */
+    private static final Pattern LOGIN_USERNAME = Pattern.compile(
+            "name=\"userName\"\r\n\r\n([^\r]+)\r\n");
+
+    /**
+     * JSON string field holding personal data, as sent by the contact and
+     * insurance pages.
+     */
+    private static final Pattern PERSONAL_FIELDS = Pattern.compile("(\"(?:"
+            + "Address1|Address2|City|State|Zip|Country|Phone|Mobile|Email"
+            + "|FatherName|FatherOccupation|FatherEmail|FatherWork"
+            + "|FatherMobile|MotherName|MotherOccupation|MotherEmail"
+            + "|MotherWork|MotherMobile|SeparatedParent|SeparatedAddress1"
+            + "|SeparatedAddress2|SeparatedCity|SeparatedState|SeparatedZip"
+            + "|SeparatedCountry|SeparatedPhone|Address|PolicyNum|GroupNum"
+            + "|Subscriber|Employer|EmployerAddress|PolicyNum2|GroupNum2"
+            + "|Subscriber2|Employer2|EmployerAddress2|Physician|PhysPhone"
+            + ")\"\\s*:\\s*\")(?:[^\"\\\\]|\\\\.)*\"");
+
+    /**
+     * Value of a {@code Set-Cookie} header.
+     */
+    private static final Pattern COOKIE_VALUE =
+            Pattern.compile("^([^=;]+)=([^;]*)");
+
+    /**
+     * Number of hash bytes used in file names.
+     */
+    private static final int KEY_BYTES = 8;
+
+    /**
+     * Mask of the low byte of an integer.
+     */
+    private static final int BYTE_MASK = 0xff;
+
+    /**
+     * Indentation of the saved JSON.
+     */
+    private static final int INDENT = 2;
+
+    /**
+     * Transport that sends the requests.
+     */
+    private final Transport delegate;
+
+    /**
+     * Directory recordings are saved to.
+     */
+    private final Path dir;
+
+    /**
+     * Number of recordings made of each request key.
+     */
+    private final Map<String, AtomicInteger> counts =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Usernames seen in requests, removed from the bodies saved.
+     */
+    private final Set<String> usernames = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create recording transport.
+     * @param transport transport that sends the requests
+     * @param directory directory to save recordings to
+     * @throws IOException directory could not be created
+     */
+    public RecordingTransport(final Transport transport,
+                              final Path directory) throws IOException {
+        this.delegate = transport;
+        this.dir = directory;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Send a request and save it with its response.
+     * @param request request to send
+     * @return response
+     * @throws IOException error sending request or saving recording
+     */
+    @Override
+    public UpstreamResponse execute(final UpstreamRequest request)
+            throws IOException {
+        UpstreamResponse response = delegate.execute(request);
+        save(request, response);
+        return response;
+    }
+
+    /**
+     * Send a request without waiting for the response, and save it with its
+     * response once it arrives.
+     * @param request request to send
+     * @return future completed with the response
+     */
+    @Override
+    public CompletableFuture<UpstreamResponse> executeAsync(
+            final UpstreamRequest request) {
+        return delegate.executeAsync(request).thenCompose(response ->
+                Futures.call(() -> {
+                    save(request, response);
+                    return response;
+                }));
+    }
+
+    /**
+     * Save a request with its response.
+     * @param request request sent
+     * @param response response received
+     * @throws IOException error saving recording
+     */
+    private void save(final UpstreamRequest request,
+                      final UpstreamResponse response) throws IOException {
+        remember(request);
+        String url = sanitizeUrl(request.getUrl());
+        String key = key(request.getMethod(), url);
+        int n = counts.computeIfAbsent(key, k -> new AtomicInteger())
+                .getAndIncrement();
+
+        JSONObject headers = new JSONObject();
+        for (Map.Entry<String, List<String>> h
+                : response.getHeaders().entrySet()) {
+            if (h.getKey().equalsIgnoreCase("Content-Encoding")
+                    || h.getKey().equalsIgnoreCase("Content-Length")) {
+                continue;
+            }
+            JSONArray values = new JSONArray();
+            for (String value : h.getValue()) {
+                if (h.getKey().equalsIgnoreCase("Set-Cookie")) {
+                    values.put(sanitizeCookie(value));
+                } else {
+                    values.put(value);
+                }
+            }
+            headers.put(h.getKey(), values);
+        }
+
+        JSONObject recording = new JSONObject();
+        recording.put("method", request.getMethod());
+        recording.put("url", url);
+        recording.put("status", response.getStatus());
+        recording.put("headers", headers);
+        recording.put("body", sanitizeBody(response.getBody()));
+        Files.write(dir.resolve(key + "-" + n + ".json"),
+                recording.toString(INDENT).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Get the key that identifies a request in recordings.
+     * @param method HTTP method
+     * @param url sanitized URL
+     * @return hex encoded hash of the method and URL
+     */
+    static String key(final String method, final String url) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest((method + " " + url)
+                            .getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder();
+            for (int i = 0; i < KEY_BYTES; i++) {
+                key.append(String.format("%02x", hash[i] & BYTE_MASK));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+    }
+
+    /**
+     * Remove user identifiers from a URL.
+     * @param url URL
+     * @return sanitized URL
+     */
+    static String sanitizeUrl(final String url) {
+        return SENSITIVE_PARAMS.matcher(url).replaceAll("$1" + REDACTED);
+    }
+
+    /**
+     * Remember the usernames in the URL and login form of a request.
+     * @param request request sent
+     */
+    private void remember(final UpstreamRequest request) {
+        Matcher m = SENSITIVE_PARAMS.matcher(request.getUrl());
+        while (m.find()) {
+            if (!m.group(2).isEmpty()) {
+                usernames.add(m.group(2));
+            }
+        }
+        if (request.getBody() != null) {
+            m = LOGIN_USERNAME.matcher(new String(request.getBody(),
+                    StandardCharsets.UTF_8));
+            if (m.find()) {
+                usernames.add(m.group(1));
+            }
+        }
+    }
+
+    /**
+     * Remove personal data from a response body.
+     * @param body response body
+     * @return sanitized body
+     */
+    private String sanitizeBody(final String body) {
+        String sanitized = PERSONAL_FIELDS.matcher(body)
+                .replaceAll("$1" + REDACTED + "\"");
+        for (String username : usernames) {
+            sanitized = sanitized.replace(username, REDACTED);
+        }
+        return sanitized;
+    }
+
+    /**
+     * Replace the value of a {@code Set-Cookie} header. Cleared cookies are
+     * left empty.
+     * @param header header value
+     * @return sanitized header value
+     */
+    private static String sanitizeCookie(final String header) {
+        Matcher m = COOKIE_VALUE.matcher(header);
+        if (!m.find() || m.group(2).isEmpty()) {
+            return header;
+        }
+        return m.group(1) + "=" + REDACTED + header.substring(m.end());
+    }
+}
@@ -0,0 +1,19 @@
+package com.mygcc.datacollection;
+
+import java.io.IOException;
+
+/**
+ * Request not sent to myGCC to protect it or the API from overload.
+ *
+ * Such requests are not retried, and the data collection classes report
+ * them as a {@link NetworkException}.
+ */
+public class RejectedRequestException extends IOException {
+    /**
+     * Constructor with message.
+     * @param message message about issue
+     */
+    public RejectedRequestException(final String message) {
+        super(message);
+    }
+}
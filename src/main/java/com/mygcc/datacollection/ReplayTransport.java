@@ -0,0 +1,217 @@
+package com.mygcc.datacollection;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transport that serves responses saved by the {@link RecordingTransport}.
+ *
+ * <h3>Overview</h3>
+ * <p>The replay transport never contacts myGCC. Each request is answered
+ * with a recorded response for the same method and URL after a fixed delay
+ * that stands in for myGCC's latency. Together with the recordings of a test
+ * account this allows every endpoint to be load tested offline.</p>
+ *
+ * <h3>Internals</h3>
+ * <p>All recordings are loaded when the transport is created. A request
+ * recorded more than once, such as the login POST, is answered with the
+ * recordings in the order they were made, starting over after the last one,
+ * so that a flow that posts to the same URL several times sees the same
+ * sequence of pages as when it was recorded. A request with no recording
+ * fails with an {@link IOException}. A request whose {@link Deadline} passes
+ * before the delay is over fails with a {@link DeadlineExceededException},
+ * as it would against myGCC. No thread is held during the delay: the answer is
+ * given by a timer thread shared by all replay transports.</p>
+ */
+public final class ReplayTransport implements Transport {
+    /**
+     * Thread that answers requests once their delay is over.
+     */
+    private static final ScheduledExecutorService TIMER =
+            Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "mygcc-replay");
+                t.setDaemon(true);
+                return t;
+            });
+
+    /**
+     * Recorded responses keyed by request key, in recording order.
+     */
+    private final Map<String, List<UpstreamResponse>> recordings;
+
+    /**
+     * Number of times each request key has been replayed.
+     */
+    private final Map<String, AtomicInteger> counts =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Milliseconds to wait before answering a request.
+     */
+    private final long latency;
+
+    /**
+     * Create replay transport.
+     * @param directory directory recordings were saved to
+     * @param delay milliseconds to wait before answering a request
+     * @throws IOException recordings could not be read
+     */
+    public ReplayTransport(final Path directory, final long delay)
+            throws IOException {
+        this.recordings = load(directory);
+        this.latency = delay;
+    }
+
+    /**
+     * Answer a request with a recorded response.
+     * @param request request to answer
+     * @return recorded response
+     * @throws IOException no response was recorded for the request
+     */
+    @Override
+    public UpstreamResponse execute(final UpstreamRequest request)
+            throws IOException {
+        return Futures.awaitResponse(executeAsync(request));
+    }
+
+    /**
+     * Answer a request with a recorded response once the delay is over,
+     * without holding the calling thread.
+     * @param request request to answer
+     * @return future completed with the recorded response, or failed with
+     *         an {@link IOException}
+     */
+    @Override
+    public CompletableFuture<UpstreamResponse> executeAsync(
+            final UpstreamRequest request) {
+        UpstreamResponse response;
+        try {
+            response = next(request);
+        } catch (IOException e) {
+            return Futures.failed(e);
+        }
+        long wait = request.getDeadline().remainingMillis(latency);
+        CompletableFuture<UpstreamResponse> result = new CompletableFuture<>();
+        Runnable answer = () -> {
+            if (wait < latency) {
+                result.completeExceptionally(new DeadlineExceededException(
+                        "Deadline passed waiting for myGCC"));
+            } else {
+                result.complete(response);
+            }
+        };
+        if (wait <= 0) {
+            answer.run();
+            return result;
+        }
+        ScheduledFuture<?> timer = TIMER.schedule(answer, wait,
+                TimeUnit.MILLISECONDS);
+        result.whenComplete((r, failure) -> timer.cancel(false));
+        return result;
+    }
+
+    /**
+     * Get the recorded response a request is answered with.
+     * @param request request to answer
+     * @return recorded response
+     * @throws IOException no response was recorded for the request
+     */
+    private UpstreamResponse next(final UpstreamRequest request)
+            throws IOException {
+        String url = RecordingTransport.sanitizeUrl(request.getUrl());
+        String key = RecordingTransport.key(request.getMethod(), url);
+        List<UpstreamResponse> responses = recordings.get(key);
+        if (responses == null) {
+            throw new IOException("No recording for " + request.getMethod()
+                    + " " + url);
+        }
+        int n = counts.computeIfAbsent(key, k -> new AtomicInteger())
+                .getAndIncrement();
+        return responses.get(Math.floorMod(n, responses.size()));
+    }
+
+    /**
+     * Get the number of recorded requests.
+     * @return number of distinct recorded requests
+     */
+    public int size() {
+        return recordings.size();
+    }
+
+    /**
+     * Load all recordings from a directory.
+     * @param directory directory recordings were saved to
+     * @return recorded responses keyed by request key
+     * @throws IOException recordings could not be read
+     */
+    private static Map<String, List<UpstreamResponse>> load(
+            final Path directory) throws IOException {
+        Map<String, TreeMap<Integer, UpstreamResponse>> sorted =
+                new HashMap<>();
+        try (DirectoryStream<Path> files =
+                     Files.newDirectoryStream(directory, "*-*.json")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                int dash = name.lastIndexOf('-');
+                String key = name.substring(0, dash);
+                int n;
+                try {
+                    n = Integer.parseInt(name.substring(dash + 1,
+                            name.length() - ".json".length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                sorted.computeIfAbsent(key, k -> new TreeMap<>())
+                        .put(n, parse(file));
+            }
+        }
+
+        Map<String, List<UpstreamResponse>> loaded = new HashMap<>();
+        for (Map.Entry<String, TreeMap<Integer, UpstreamResponse>> e
+                : sorted.entrySet()) {
+            loaded.put(e.getKey(), new ArrayList<>(e.getValue().values()));
+        }
+        return loaded;
+    }
+
+    /**
+     * Read a recorded response.
+     * @param file recording
+     * @return recorded response
+     * @throws IOException recording could not be read
+     */
+    private static UpstreamResponse parse(final Path file)
+            throws IOException {
+        JSONObject recording = new JSONObject(new String(
+                Files.readAllBytes(file), StandardCharsets.UTF_8));
+        UpstreamResponse response = new UpstreamResponse(
+                recording.getInt("status"),
+                recording.getString("body").getBytes(StandardCharsets.UTF_8));
+        JSONObject headers = recording.getJSONObject("headers");
+        for (String name : headers.keySet()) {
+            JSONArray values = headers.getJSONArray(name);
+            for (int i = 0; i < values.length(); i++) {
+                response.addHeader(name, values.getString(i));
+            }
+        }
+        return response;
+    }
+}
@@ -0,0 +1,263 @@
+package com.mygcc.datacollection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Requests to myGCC made for one API request.
+ *
+ * <h3>Overview</h3>
+ * <p>An API request may cost several requests to myGCC: logging in,
+ * following redirects, loading portlets and posting back forms. Every
+ * request actually sent to myGCC, retries and hedged copies included, is
+ * recorded in the account of the API request it was made for as a
+ * {@link Hop}, so the cost of each endpoint can be measured.</p>
+ *
+ * <h3>Usage</h3>
+ * <p>Like the {@link Deadline}, the account of the API request being
+ * handled on a thread is set with {@link #setCurrent(RequestAccount)}. A
+ * {@link Session} takes the current account when it is created and gives
+ * it to every request it makes, and the {@link HttpTransport} records each
+ * request it sends in the account of that request. Work that is not part of
+ * an API request uses {@link #none()}, which records nothing.</p>
+ */
+public final class RequestAccount {
+    /**
+     * Account that records nothing.
+     */
+    private static final RequestAccount NONE = new RequestAccount();
+
+    /**
+     * Account of the API request handled on each thread.
+     */
+    private static final ThreadLocal<RequestAccount> CURRENT =
+            ThreadLocal.withInitial(() -> NONE);
+
+    /**
+     * Requests sent, in the order they ended.
+     */
+    private final List<Hop> hops = new ArrayList<>();
+
+    /**
+     * Create an empty account.
+     */
+    public RequestAccount() {
+    }
+
+    /**
+     * Get the account that records nothing.
+     * @return account
+     */
+    public static RequestAccount none() {
+        return NONE;
+    }
+
+    /**
+     * Get the account of the API request handled on this thread.
+     * @return account, never null
+     */
+    public static RequestAccount current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Set the account of the API request handled on this thread.
+     * @param account account, or null to remove it
+     */
+    public static void setCurrent(final RequestAccount account) {
+        if (account == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(account);
+        }
+    }
+
+    /**
+     * Check whether this account records requests.
+     * @return whether this is not {@link #none()}
+     */
+    public boolean isSet() {
+        return this != NONE;
+    }
+
+    /**
+     * Record a request sent to myGCC.
+     * @param hop request
+     */
+    public void record(final Hop hop) {
+        if (!isSet()) {
+            return;
+        }
+        synchronized (hops) {
+            hops.add(hop);
+        }
+    }
+
+    /**
+     * Get the requests recorded so far.
+     * @return requests, in the order they ended
+     */
+    public List<Hop> getHops() {
+        synchronized (hops) {
+            return Collections.unmodifiableList(new ArrayList<>(hops));
+        }
+    }
+
+    /**
+     * Get the URL of a request with the parts that vary between users and
+     * courses left out, so that requests to the same page are counted
+     * together.
+     * @param url absolute URL
+     * @return host and path without the query, with every path segment
+     *         containing a digit replaced by {@code *}
+     */
+    public static String template(final String url) {
+        String path = url.replaceFirst("^[a-zA-Z]+://", "");
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        StringBuilder template = new StringBuilder();
+        for (String segment : path.split("/", -1)) {
+            if (template.length() > 0) {
+                template.append('/');
+            }
+            if (segment.matches(".*\\d.*") && template.length() > 0) {
+                template.append('*');
+            } else {
+                template.append(segment);
+            }
+        }
+        return template.toString();
+    }
+
+    /**
+     * Request sent to myGCC.
+     */
+    public static final class Hop {
+        /**
+         * HTTP method.
+         */
+        private final String method;
+
+        /**
+         * URL template, see {@link RequestAccount#template(String)}.
+         */
+        private final String url;
+
+        /**
+         * Response status, or 0 if no response arrived.
+         */
+        private final int status;
+
+        /**
+         * Bytes of request body sent.
+         */
+        private final long bytesOut;
+
+        /**
+         * Bytes of response body received, as sent by myGCC.
+         */
+        private final long bytesIn;
+
+        /**
+         * Milliseconds until the response began, or -1 if it did not.
+         */
+        private final long firstByteMillis;
+
+        /**
+         * Milliseconds until the request ended.
+         */
+        private final long totalMillis;
+
+        /**
+         * Create request record.
+         * @param meth HTTP method
+         * @param location absolute URL
+         * @param code response status, or 0 if no response arrived
+         * @param sent bytes of request body sent
+         * @param received bytes of response body received
+         * @param firstByte milliseconds until the response began, or -1
+         * @param total milliseconds until the request ended
+         */
+        public Hop(final String meth, final String location, final int code,
+                   final long sent, final long received, final long firstByte,
+                   final long total) {
+            this.method = meth;
+            this.url = template(location);
+            this.status = code;
+            this.bytesOut = sent;
+            this.bytesIn = received;
+            this.firstByteMillis = firstByte;
+            this.totalMillis = total;
+        }
+
+        /**
+         * Get the HTTP method.
+         * @return method
+         */
+        public String getMethod() {
+            return method;
+        }
+
+        /**
+         * Get the URL template.
+         * @return URL template
+         */
+        public String getUrl() {
+            return url;
+        }
+
+        /**
+         * Get the response status.
+         * @return status, or 0 if no response arrived
+         */
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * Get the bytes of request body sent.
+         * @return bytes sent
+         */
+        public long getBytesOut() {
+            return bytesOut;
+        }
+
+        /**
+         * Get the bytes of response body received.
+         * @return bytes received
+         */
+        public long getBytesIn() {
+            return bytesIn;
+        }
+
+        /**
+         * Get the time until the response began.
+         * @return milliseconds, or -1 if the response did not begin
+         */
+        public long getFirstByteMillis() {
+            return firstByteMillis;
+        }
+
+        /**
+         * Get the time until the request ended.
+         * @return milliseconds
+         */
+        public long getTotalMillis() {
+            return totalMillis;
+        }
+
+        /**
+         * Describe the request for the log.
+         * @return method, URL template, status, bytes and times
+         */
+        @Override
+        public String toString() {
+            return method + " " + url + " " + status + " out=" + bytesOut
+                    + " in=" + bytesIn + " ttfb=" + firstByteMillis
+                    + "ms total=" + totalMillis + "ms";
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.mygcc.datacollection;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Number of retries an API request may still spend on requests to myGCC.
+ *
+ * <h3>Overview</h3>
+ * <p>The {@link RetryPolicy} limits how often a single request to myGCC is
+ * sent. An API request may make several of them, so it is also given a
+ * budget shared by all of them: once it is spent, failures are passed on
+ * instead of retried. This keeps an API request from multiplying its load
+ * on a myGCC that is failing everything.</p>
+ *
+ * <p>A {@link Session} takes a budget of {@code retrybudget} retries
+ * (default 3) when it is created and gives it to every request it sends.
+ * Requests made outside an API request have an unlimited budget and are
+ * limited by the policy alone.</p>
+ */
+public final class RetryBudget {
+    /**
+     * Default number of retries of an API request.
+     */
+    private static final int DEFAULT_RETRIES = 3;
+
+    /**
+     * Budget that is never spent.
+     */
+    private static final RetryBudget UNLIMITED = new RetryBudget(0);
+
+    /**
+     * Retries left.
+     */
+    private final AtomicInteger remaining;
+
+    /**
+     * Create budget.
+     * @param retries number of retries allowed
+     */
+    public RetryBudget(final int retries) {
+        this.remaining = new AtomicInteger(retries);
+    }
+
+    /**
+     * Create a budget of the size configured in the environment.
+     * @return budget
+     */
+    public static RetryBudget fromEnvironment() {
+        String value = System.getenv("retrybudget");
+        if (value == null || value.isEmpty()) {
+            return new RetryBudget(DEFAULT_RETRIES);
+        }
+        return new RetryBudget(Integer.parseInt(value));
+    }
+
+    /**
+     * Get the budget that is never spent.
+     * @return budget
+     */
+    public static RetryBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Spend one retry.
+     * @return whether a retry was left
+     */
+    public boolean tryAcquire() {
+        if (this == UNLIMITED) {
+            return true;
+        }
+        int left;
+        do {
+            left = remaining.get();
+            if (left <= 0) {
+                return false;
+            }
+        } while (!remaining.compareAndSet(left, left - 1));
+        return true;
+    }
+
+    /**
+     * Get the number of retries left.
+     * @return retries left, or {@link Integer#MAX_VALUE} if unlimited
+     */
+    public int getRemaining() {
+        if (this == UNLIMITED) {
+            return Integer.MAX_VALUE;
+        }
+        return remaining.get();
+    }
+}
@@ -0,0 +1,147 @@
+package com.mygcc.datacollection;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which failed requests to myGCC are sent again, and when.
+ *
+ * <h3>What is retried</h3>
+ * <p>Only requests that may safely be sent twice, GET and HEAD, are
+ * retried, and only after a failure that is likely to go away: an I/O error
+ * such as a reset or refused connection or a timeout, or a 5xx status from
+ * IIS. A page that arrives but cannot be parsed is not an upstream failure
+ * and is never retried, nor are logins and post backs.</p>
+ *
+ * <h3>Backoff</h3>
+ * <p>The wait before retry {@code n} (from 0) is chosen at random between 0
+ * and {@code base * 2^n}, capped at {@code max}. The random "full jitter"
+ * keeps clients that failed together from retrying together.</p>
+ */
+public final class RetryPolicy {
+    /**
+     * Default number of attempts of one request, the first included.
+     */
+    private static final int DEFAULT_ATTEMPTS = 3;
+
+    /**
+     * Default upper bound of the first wait in milliseconds.
+     */
+    private static final long DEFAULT_BASE = 100;
+
+    /**
+     * Default upper bound of any wait in milliseconds.
+     */
+    private static final long DEFAULT_MAX = 2000;
+
+    /**
+     * Largest exponent used for the backoff, which keeps it from
+     * overflowing.
+     */
+    private static final int MAX_SHIFT = 20;
+
+    /**
+     * Number of attempts of one request, the first included.
+     */
+    private final int maxAttempts;
+
+    /**
+     * Upper bound of the first wait in milliseconds.
+     */
+    private final long baseDelay;
+
+    /**
+     * Upper bound of any wait in milliseconds.
+     */
+    private final long maxDelay;
+
+    /**
+     * Create policy.
+     * @param attempts number of attempts of one request, the first included
+     * @param base upper bound of the first wait in milliseconds
+     * @param max upper bound of any wait in milliseconds
+     */
+    public RetryPolicy(final int attempts, final long base, final long max) {
+        this.maxAttempts = attempts;
+        this.baseDelay = base;
+        this.maxDelay = max;
+    }
+
+    /**
+     * Create the policy configured in the environment. {@code maxattempts}
+     * sets the number of attempts of one request (default 3).
+     * @return policy
+     */
+    public static RetryPolicy fromEnvironment() {
+        String value = System.getenv("maxattempts");
+        int attempts = DEFAULT_ATTEMPTS;
+        if (value != null && !value.isEmpty()) {
+            attempts = Integer.parseInt(value);
+        }
+        return new RetryPolicy(attempts, DEFAULT_BASE, DEFAULT_MAX);
+    }
+
+    /**
+     * Get the number of attempts of one request.
+     * @return attempts, the first included
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Check whether a request may be sent again.
+     * @param request request
+     * @return whether the request is a GET or HEAD
+     */
+    public boolean isRetryable(final UpstreamRequest request) {
+        return "GET".equals(request.getMethod())
+                || "HEAD".equals(request.getMethod());
+    }
+
+    /**
+     * Get the wait before a retry.
+     * @param retry number of retries already made
+     * @return milliseconds to wait
+     */
+    public long backoff(final int retry) {
+        long bound = Math.min(maxDelay,
+                baseDelay << Math.min(retry, MAX_SHIFT));
+        if (bound <= 0) {
+            return 0;
+        }
+        return ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    /**
+     * Check whether an HTTP status is a failure of myGCC that may go away.
+     * @param status HTTP status code
+     * @return whether the status is a 5xx other than 501 Not Implemented
+     */
+    public static boolean isTransient(final int status) {
+        return status >= HttpURLConnection.HTTP_INTERNAL_ERROR
+                && status != HttpURLConnection.HTTP_NOT_IMPLEMENTED;
+    }
+
+    /**
+     * Check whether a failure to reach myGCC may go away.
+     * @param failure exception a request failed with
+     * @return whether the failure is an I/O error, other than the request
+     *         being interrupted or rejected to avoid overload
+     */
+    public static boolean isTransient(final Throwable failure) {
+        Throwable cause = Futures.unwrap(failure);
+        if (cause instanceof RejectedRequestException) {
+            // Never sent, and sending it again would add to the overload
+            return false;
+        }
+        if (cause instanceof SocketTimeoutException) {
+            return true;
+        }
+        return cause instanceof IOException
+                && !(cause instanceof InterruptedIOException);
+    }
+}
@@ -0,0 +1,211 @@
+package com.mygcc.datacollection;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transport that sends a request again after a transient failure.
+ *
+ * <h3>Overview</h3>
+ * <p>A reset connection or a 503 from IIS used to fail the whole API
+ * request, and the client then repeated every step, login included. This
+ * transport repeats only the request that failed. Which requests and
+ * failures are retried, and how long to wait in between, is decided by a
+ * {@link RetryPolicy}; logins and post backs are never retried.</p>
+ *
+ * <h3>Limits</h3>
+ * <p>A request is retried at most as often as the policy allows and while
+ * the {@link RetryBudget} of its API request lasts. No retry is made whose
+ * wait would run past the request's {@link Deadline}. When no retry is
+ * left, the last response or failure is passed on; a 5xx response is
+ * passed on as it is.</p>
+ *
+ * <h3>Metrics</h3>
+ * <p>Retries sent and requests that failed after their last retry are
+ * counted in {@link UpstreamMetrics}.</p>
+ */
+public final class RetryingTransport implements Transport {
+    /**
+     * Transport that sends the requests.
+     */
+    private final Transport delegate;
+
+    /**
+     * Policy deciding what is retried.
+     */
+    private final RetryPolicy policy;
+
+    /**
+     * Counters the transport reports to.
+     */
+    private final UpstreamMetrics metrics;
+
+    /**
+     * Timer that sends the retries.
+     */
+    private final ScheduledExecutorService timer;
+
+    /**
+     * Create retrying transport configured from the environment, reporting
+     * to the shared counters.
+     * @param transport transport that sends the requests
+     */
+    public RetryingTransport(final Transport transport) {
+        this(transport, RetryPolicy.fromEnvironment(),
+                UpstreamMetrics.getInstance());
+    }
+
+    /**
+     * Create retrying transport.
+     * @param transport transport that sends the requests
+     * @param retryPolicy policy deciding what is retried
+     * @param counters counters to report to
+     */
+    public RetryingTransport(final Transport transport,
+                             final RetryPolicy retryPolicy,
+                             final UpstreamMetrics counters) {
+        this.delegate = transport;
+        this.policy = retryPolicy;
+        this.metrics = counters;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "mygcc-retry");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Send a request and wait for the response.
+     * @param request request to send
+     * @return response
+     * @throws IOException error sending request or reading response
+     */
+    @Override
+    public UpstreamResponse execute(final UpstreamRequest request)
+            throws IOException {
+        return Futures.awaitResponse(executeAsync(request));
+    }
+
+    /**
+     * Send a request, retrying it after transient failures.
+     * @param request request to send
+     * @return future completed with the response, or failed with an
+     *         {@link IOException}
+     */
+    @Override
+    public CompletableFuture<UpstreamResponse> executeAsync(
+            final UpstreamRequest request) {
+        if (!policy.isRetryable(request) || policy.getMaxAttempts() <= 1) {
+            return delegate.executeAsync(request);
+        }
+        return new Attempts(request).send();
+    }
+
+    /**
+     * Attempts of one retryable request.
+     */
+    private final class Attempts {
+        /**
+         * Request to send.
+         */
+        private final UpstreamRequest request;
+
+        /**
+         * Future completed with the final response.
+         */
+        private final CompletableFuture<UpstreamResponse> result =
+                new CompletableFuture<>();
+
+        /**
+         * Attempt in progress.
+         */
+        private volatile CompletableFuture<UpstreamResponse> current;
+
+        /**
+         * Number of retries made.
+         */
+        private int retries;
+
+        /**
+         * Create attempts.
+         * @param req request to send
+         */
+        Attempts(final UpstreamRequest req) {
+            this.request = req;
+            // Stop the attempt in progress if the caller gives up
+            result.whenComplete((response, failure) -> {
+                CompletableFuture<UpstreamResponse> attempt = current;
+                if (result.isCancelled() && attempt != null) {
+                    attempt.cancel(true);
+                }
+            });
+        }
+
+        /**
+         * Send the next attempt.
+         * @return future completed with the final response
+         */
+        CompletableFuture<UpstreamResponse> send() {
+            if (result.isDone()) {
+                return result;
+            }
+            CompletableFuture<UpstreamResponse> attempt =
+                    delegate.executeAsync(request);
+            current = attempt;
+            attempt.whenComplete(this::done);
+            return result;
+        }
+
+        /**
+         * Handle the end of an attempt.
+         * @param response response, or null if the attempt failed
+         * @param failure cause of the failure, or null
+         */
+        private void done(final UpstreamResponse response,
+                          final Throwable failure) {
+            boolean failed;
+            if (failure == null) {
+                failed = RetryPolicy.isTransient(response.getStatus());
+            } else {
+                failed = RetryPolicy.isTransient(failure);
+            }
+            if (failed && !result.isDone() && retry()) {
+                return;
+            }
+            if (failed) {
+                metrics.retriesExhausted();
+            }
+            if (failure == null) {
+                result.complete(response);
+            } else {
+                result.completeExceptionally(Futures.unwrap(failure));
+            }
+        }
+
+        /**
+         * Schedule a retry if one is left.
+         * @return whether a retry was scheduled
+         */
+        private boolean retry() {
+            if (retries + 1 >= policy.getMaxAttempts()) {
+                return false;
+            }
+            long wait = policy.backoff(retries);
+            Deadline deadline = request.getDeadline();
+            if (deadline.isSet()
+                    && deadline.remainingMillis(Long.MAX_VALUE) <= wait) {
+                return false;
+            }
+            if (!request.getRetryBudget().tryAcquire()) {
+                return false;
+            }
+            retries++;
+            metrics.retrySent();
+            timer.schedule(this::send, wait, TimeUnit.MILLISECONDS);
+            return true;
+        }
+    }
+}
@@ -4,15 +4,11 @@ import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Class for getting schedule information.
@@ -49,12 +45,30 @@ public class Schedule {
     public final List<Object> getScheduleData()
             throws UnexpectedResponseException, NetworkException,
             InvalidCredentialsException {
-        // Create session
-        auth.createSession();
+        try {
+            return Futures.await(getScheduleDataAsync());
+        } catch (ExpiredSessionException e) {
+            throw new UnexpectedResponseException("myGCC session expired");
+        }
+    }
 
-        String rawHTML = getContentFromUrl();
-        List<Object> prettyJSON = parseScheduleHTML(rawHTML);
-        return prettyJSON;
+    /**
+     * Get the class schedule of a user without waiting for myGCC.
+     * @return future completed with the user's schedule, or failed with the
+     *         exceptions thrown by {@link #getScheduleData()}
+     */
+    public final CompletableFuture<List<Object>> getScheduleDataAsync() {
+        return auth.createSessionAsync(false)
+                .thenCompose(v -> auth.fetchAsync(MYSCH))
+                .exceptionally(e -> {
+                    Throwable cause = Futures.unwrap(e);
+                    if (cause instanceof ExpiredSessionException) {
+                        throw Futures.wrap(new UnexpectedResponseException(
+                                "myGCC session expired"));
+                    }
+                    throw Futures.wrap(cause);
+                })
+                .thenApply(this::parseScheduleHTML);
     }
 
     /**
@@ -132,33 +146,4 @@ public class Schedule {
         }
         return classArray;
     }
-
-    /**
-     * Gets the raw HTML schedule from myGCC.
-     * @return The raw HTML schedule.
-     * @throws UnexpectedResponseException When internet has problems.
-     */
-    private String getContentFromUrl()
-            throws UnexpectedResponseException {
-        try {
-            URL gccUrl = new URL(MYSCH);
-            HttpURLConnection http = (HttpURLConnection) gccUrl
-                    .openConnection();
-            http.setRequestProperty("Cookie",
-                    "ASP.NET_SessionId=" + auth.getSessionID());
-            BufferedReader in = new BufferedReader(new InputStreamReader(
-                    http.getInputStream(), "UTF-8"));
-            String inputLine;
-            StringBuilder output = new StringBuilder();
-            while ((inputLine = in.readLine()) != null) {
-                output.append(inputLine);
-            }
-            in.close();
-            return output.toString();
-        } catch (IOException e) {
-            e.printStackTrace();
-            throw new UnexpectedResponseException("unknown IOException "
-                    + "occurred");
-        }
-    }
 }
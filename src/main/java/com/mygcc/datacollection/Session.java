@@ -1,16 +1,12 @@
 package com.mygcc.datacollection;
 
-import org.apache.commons.lang3.StringUtils;
-
-import java.io.IOException;
-import java.net.ConnectException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
 import java.net.URL;
-import java.net.URLConnection;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Implements authorization into myGCC, usually done manually by the user.
@@ -55,10 +51,82 @@ import java.util.Random;
  * {@code #___BrowserRefresh} and {@code #__VIEWSTATE} and are passed in HTTP
  * POST request data do the server.</p>
  *
+ * <p>Most requests only need the cookies, so by default the login response
+ * page is not downloaded at all. Callers that post back to myGCC pages create
+ * the session with {@link #createSession(boolean)}, which reads the hidden
+ * elements from the login response, or from the portal page when the session
+ * came from the pool without them. The hidden elements are read with the
+ * {@link HiddenFieldExtractor}, which stops scanning the login response once
+ * they have all been found.</p>
+ *
+ * <h4>Reuse</h4>
+ * <p>Once authenticated, a copy of the session is kept in the
+ * {@link SessionPool}. Later sessions created for the same credentials reuse
+ * the pooled cookies instead of logging in again. Sessions created at the same
+ * time for the same credentials share a single login through the
+ * {@link LoginCoordinator}. Credentials that myGCC rejected are remembered
+ * for a short while by the {@link NegativeCache}, so repeated attempts with
+ * them fail without contacting myGCC. A session that turns out to
+ * have expired on the myGCC side should be {@link #invalidate() invalidated}
+ * so that the next request logs in again.</p>
+ *
+ * <h4>Deadline</h4>
+ * <p>A session takes the {@link Deadline} of the API request it is created
+ * for and gives it to every request it sends, so logging in, following
+ * redirects and fetching pages share one time budget. Running out of time
+ * fails with a {@link NetworkException}.</p>
+ *
+ * <h4>Retries</h4>
+ * <p>Page requests that fail because myGCC reset the connection or answered
+ * with a 5xx status are retried by the {@link RetryingTransport}, within a
+ * {@link RetryBudget} the session takes when it is created. A failure that
+ * remains is reported as a {@link NetworkException}; only a page that
+ * arrives but cannot be read is an {@link UnexpectedResponseException}.</p>
+ *
+ * <h4>Fair share</h4>
+ * <p>Every request of a session is marked with the {@link Token#userHash()}
+ * of its user, so one user's many API requests at once wait their turn
+ * behind their own requests instead of everyone else's.</p>
+ *
+ * <h4>Accounting</h4>
+ * <p>Every request of a session is also given the {@link RequestAccount}
+ * current when the session was created, so the requests to myGCC made for
+ * an API request are counted against it.</p>
+ *
+ * <h4>Fetching pages</h4>
+ * <p>Pages are fetched with {@link #fetch(String)}, which sends the session
+ * cookies. A pooled session may have expired on the myGCC side, in which case
+ * myGCC answers with a redirect to its login page or with a page containing
+ * the login form. Both are detected before the page is parsed. The session
+ * then logs in again once and repeats the request. Page requests only read
+ * from myGCC, so they are marked to be hedged by the
+ * {@link HedgingTransport}; logins are not.</p>
+ *
+ * <h4>Cookies</h4>
+ * <p>The session keeps its cookies in a {@link CookieJar}. Every response
+ * from myGCC, including heartbeats and redirects, is recorded in the jar and
+ * every request sends the cookies in the jar, so cookies that myGCC rotates
+ * are picked up instead of forcing another login. A session restored from
+ * the pool writes the cookies it receives back to the pooled session, so
+ * later sessions restored from it start with the rotated values.</p>
+ *
+ * <h4>Asynchronous use</h4>
+ * <p>{@link #createSessionAsync(boolean)} and {@link #fetchAsync(String)}
+ * chain the requests to myGCC on futures instead of blocking the calling
+ * thread on each of them, so no thread is held while myGCC answers. The
+ * blocking methods wait for their asynchronous counterparts.</p>
+ *
+ * <h4>Transport</h4>
+ * <p>All requests to myGCC are sent with the {@link Transport} chosen by
+ * {@link Transports}, so the session can run against recorded myGCC
+ * responses instead of myGCC itself.</p>
+ *
  * <h3>Security</h3>
  * <p>To maximize the security of client login credentials, username and
  * password do not persist beyond the request. Credentials are not stored in a
- * database or persistent mechanism in order to limit attack vectors.</p>
+ * database or persistent mechanism in order to limit attack vectors. Pooled
+ * sessions are keyed by a one-way hash of the credentials and do not hold the
+ * credentials themselves.</p>
  */
 public class Session extends MyGCCDataCollection {
     /**
@@ -66,20 +134,72 @@ public class Session extends MyGCCDataCollection {
      */
     private static final String BASEURL = "https://my.gcc.edu/ics/";
 
+    /**
+     * Username field of the login form. Only present in myGCC pages when the
+     * session is not logged in.
+     */
+    private static final String LOGIN_MARKER = "name=\"userName\"";
+
+    /**
+     * Number of characters at the start of a page searched for the login
+     * form. The form is in the page header, so a long page is not scanned to
+     * its end.
+     */
+    private static final int LOGIN_SCAN = 64 * 1024;
+
+    /**
+     * Page sent heartbeats. myGCC only shows it to a logged in session and
+     * sends anyone else to the login page, unlike the portal page at
+     * {@link #BASEURL}.
+     */
+    private static final String HEARTBEAT_URL =
+            "https://my.gcc.edu/ICS/Student/";
+
+    /**
+     * Maximum number of redirects followed when fetching a page.
+     */
+    private static final int MAX_REDIRECTS = 5;
+
+    /**
+     * Name of the session identifier cookie.
+     */
+    private static final String SESSION_COOKIE = "ASP.NET_SessionId";
+
+    /**
+     * Name of the authentication cookie.
+     */
+    private static final String AUTH_COOKIE = ".ASPXAUTH";
+
     /**
      * Token object.
      */
     private Token token;
 
     /**
-     * myGCC session identifier.
+     * Deadline of the API request the session was created for.
+     */
+    private Deadline deadline = Deadline.none();
+
+    /**
+     * Retries left to the API request the session was created for.
+     */
+    private RetryBudget retryBudget = RetryBudget.unlimited();
+
+    /**
+     * Hash of the username the session was created for, or null for pooled
+     * copies.
+     */
+    private String user;
+
+    /**
+     * Account of the API request the session was created for.
      */
-    private String sessionID;
+    private RequestAccount account = RequestAccount.none();
 
     /**
-     * myGCC ASPXAUTH cookie.
+     * myGCC cookies, including the session identifier and ASPXAUTH cookies.
      */
-    private String aspxauth;
+    private final CookieJar cookies = new CookieJar();
 
     /**
      * myGCC browser refresh token.
@@ -91,11 +211,26 @@ public class Session extends MyGCCDataCollection {
      */
     private String viewstate;
 
+    /**
+     * myGCC view state generator token.
+     */
+    private String viewstateGenerator;
+
+    /**
+     * myGCC event validation token.
+     */
+    private String eventValidation;
+
     /**
      * Generated boundary token.
      */
     private String boundary;
 
+    /**
+     * Pooled session this session's state was restored from.
+     */
+    private Session source;
+
     /**
      * Constructor from Token.
      * @param tok token
@@ -103,10 +238,15 @@ public class Session extends MyGCCDataCollection {
     public Session(final Token tok) {
         setToken(tok);
         setBoundary();
+        this.deadline = Deadline.current();
+        this.retryBudget = RetryBudget.fromEnvironment();
+        this.user = tok.userHash();
+        this.account = RequestAccount.current();
     }
 
     /**
-     * Default constructor.
+     * Default constructor. Pooled copies outlive the API request they were
+     * made for, so they have no deadline, retry budget, user or account.
      */
     private Session() {
     }
@@ -119,117 +259,458 @@ public class Session extends MyGCCDataCollection {
      */
     public final void createSession() throws NetworkException,
             InvalidCredentialsException, UnexpectedResponseException {
-        requestSessionID();
-        authenticateSession();
+        createSession(false);
     }
 
     /**
-     * Set boundary string.
+     * Create session, optionally with the page state needed for postbacks.
+     * @param postback whether to load the view state and browser refresh
+     *                 hidden fields
+     * @throws NetworkException error connection to myGCC
+     * @throws InvalidCredentialsException invalid myGCC credentials
+     * @throws UnexpectedResponseException unexpected response from myGCC
      */
-    private void setBoundary() {
-        boundary = "---------------------------" + generateBoundary();
+    public final void createSession(final boolean postback)
+            throws NetworkException, InvalidCredentialsException,
+            UnexpectedResponseException {
+        try {
+            Futures.await(createSessionAsync(postback));
+        } catch (ExpiredSessionException e) {
+            throw new UnexpectedResponseException("myGCC rejected session");
+        }
+    }
+
+    /**
+     * Create session without waiting for myGCC.
+     * @param postback whether to load the view state and browser refresh
+     *                 hidden fields
+     * @return future completed once the session is created, or failed with
+     *         a {@link NetworkException}, {@link InvalidCredentialsException}
+     *         or {@link UnexpectedResponseException}
+     */
+    public final CompletableFuture<Void> createSessionAsync(
+            final boolean postback) {
+        String key = token.hash();
+        try {
+            NegativeCache.getInstance().checkLogin(key);
+        } catch (InvalidCredentialsException e) {
+            return Futures.failed(e);
+        }
+        SessionPool pool = SessionPool.getInstance();
+        Session pooled = pool.get(key);
+        CompletableFuture<Session> shared;
+        if (pooled != null) {
+            shared = CompletableFuture.completedFuture(pooled);
+        } else {
+            // Share a single login between concurrent requests for the
+            // same user
+            shared = LoginCoordinator.getInstance().loginAsync(key, () -> {
+                Session existing = pool.get(key);
+                if (existing != null) {
+                    return CompletableFuture.completedFuture(existing);
+                }
+                return requestSessionIDAsync()
+                        .thenCompose(v -> authenticateSessionAsync(postback))
+                        .whenComplete((v, e) -> {
+                            if (e != null && Futures.unwrap(e)
+                                    instanceof InvalidCredentialsException) {
+                                NegativeCache.getInstance().loginFailed(key);
+                            }
+                        })
+                        .thenApply(v -> {
+                            Session ses = copy();
+                            pool.put(key, ses);
+                            return ses;
+                        });
+            });
+        }
+        return shared.thenCompose(ses -> {
+            restore(ses);
+            source = ses;
+            cookies.writeBackTo(ses.getCookies());
+            if (postback && getViewstate() == null) {
+                return loadFormStateAsync();
+            }
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Load the view state and browser refresh hidden fields from the portal
+     * page.
+     * @return future completed once the fields are loaded
+     */
+    private CompletableFuture<Void> loadFormStateAsync() {
+        return getAsync(BASEURL, 0).thenCompose(html -> {
+            if (html == null) {
+                return Futures.failed(new UnexpectedResponseException(
+                        "myGCC rejected session"));
+            }
+            setFormState(HiddenFieldExtractor.extract(html,
+                    HiddenFieldExtractor.POSTBACK_FIELDS));
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+    /**
+     * Set the hidden form fields needed to post back to a myGCC page.
+     * Missing fields are set to an empty string.
+     * @param fields hidden field values keyed by field name
+     */
+    public final void setFormState(final Map<String, String> fields) {
+        setViewstate(fields.getOrDefault(HiddenFieldExtractor.VIEWSTATE, ""));
+        setViewstateGenerator(fields.getOrDefault(
+                HiddenFieldExtractor.VIEWSTATEGENERATOR, ""));
+        setEventValidation(fields.getOrDefault(
+                HiddenFieldExtractor.EVENTVALIDATION, ""));
+        setBrowserRefresh(fields.getOrDefault(
+                HiddenFieldExtractor.BROWSERREFRESH, ""));
     }
 
     /**
-     * Generate a 25-digit boundary to include in request.
-     * @return 25-digit boundary for IIS
+     * Get a myGCC page with the session cookies.
+     *
+     * If myGCC no longer accepts the session, the session logs in again and
+     * the request is repeated once.
+     * @param url URL of page
+     * @return HTML of page
+     * @throws NetworkException error connection to myGCC
+     * @throws InvalidCredentialsException invalid myGCC credentials
+     * @throws UnexpectedResponseException unexpected response from myGCC
+     * @throws ExpiredSessionException myGCC rejected a new session too
      */
-    private String generateBoundary() {
-        final String saltchars = "1234567890";
-        final int stringlen = 25;
+    public final String fetch(final String url) throws NetworkException,
+            InvalidCredentialsException, UnexpectedResponseException,
+            ExpiredSessionException {
+        return Futures.await(fetchAsync(url));
+    }
+
+    /**
+     * Get a myGCC page with the session cookies without waiting for myGCC.
+     * @param url URL of page
+     * @return future completed with the HTML of the page, or failed with the
+     *         exceptions thrown by {@link #fetch(String)}
+     */
+    public final CompletableFuture<String> fetchAsync(final String url) {
+        return getAsync(url, 0).thenCompose(html -> {
+            if (html != null) {
+                return CompletableFuture.completedFuture(html);
+            }
+            invalidate();
+            return createSessionAsync(false)
+                    .thenCompose(v -> getAsync(url, 0))
+                    .thenCompose(retry -> {
+                        if (retry == null) {
+                            return Futures.failed(
+                                    new ExpiredSessionException("myGCC "
+                                            + "rejected session"));
+                        }
+                        return CompletableFuture.completedFuture(retry);
+                    });
+        });
+    }
 
-        StringBuilder salt = new StringBuilder();
-        Random rnd = new Random();
-        while (salt.length() < stringlen) {
-            int index = (int) (rnd.nextFloat() * saltchars.length());
-            salt.append(saltchars.charAt(index));
+    /**
+     * Send a GET request with the session cookies.
+     * @param url URL of page
+     * @param redirects number of redirects already followed
+     * @return future completed with the HTML of the page or null if myGCC
+     *         answered with its login page, or failed with a
+     *         {@link NetworkException} or
+     *         {@link UnexpectedResponseException}
+     */
+    private CompletableFuture<String> getAsync(final String url,
+                                               final int redirects) {
+        if (redirects > MAX_REDIRECTS) {
+            return Futures.failed(new UnexpectedResponseException("Too many "
+                    + "redirects"));
         }
-        return salt.toString();
+        UpstreamRequest request = newRequest("GET", url);
+        request.setFollowRedirects(false);
+        request.setHedged(true);
+        cookies.apply(request);
+        return Transports.getDefault().executeAsync(request)
+                .exceptionally(e -> {
+                    Throwable cause = Futures.unwrap(e);
+                    if (RetryPolicy.isTransient(cause)
+                            || cause instanceof InterruptedIOException
+                            || cause instanceof RejectedRequestException) {
+                        throw Futures.wrap(new NetworkException());
+                    }
+                    cause.printStackTrace();
+                    throw Futures.wrap(new UnexpectedResponseException(
+                            "unknown IOException occurred"));
+                })
+                .thenCompose(response -> page(url, redirects, response));
     }
 
     /**
-     * Gets a new sessionID from myGCC.
-     * @throws NetworkException bad connection to my.gcc.edu
+     * Handle the response to a GET request.
+     * @param url URL of page
+     * @param redirects number of redirects already followed
+     * @param response response from myGCC
+     * @return future completed with the HTML of the page or null if myGCC
+     *         answered with its login page
      */
-    private void requestSessionID() throws NetworkException {
-        try {
-            URLConnection connection = new URL(BASEURL).openConnection();
-            List<String> cookies = connection.
-                    getHeaderFields().
-                    get("Set-Cookie");
-            if (cookies.size() != 2) {
-                throw new Exception("Expected 2 cookies from mygcc");
+    private CompletableFuture<String> page(final String url,
+                                           final int redirects,
+                                           final UpstreamResponse response) {
+        // Check status and redirect before looking at the page
+        int status = response.getStatus();
+        cookies.store(response);
+        if (status == HttpURLConnection.HTTP_UNAUTHORIZED
+                || status == HttpURLConnection.HTTP_FORBIDDEN) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (RetryPolicy.isTransient(status)) {
+            return Futures.failed(new NetworkException("myGCC answered "
+                    + status));
+        }
+        if (status >= HttpURLConnection.HTTP_MULT_CHOICE
+                && status < HttpURLConnection.HTTP_BAD_REQUEST) {
+            String redirect = response.getHeader("Location");
+            if (redirect == null) {
+                return Futures.failed(new UnexpectedResponseException(
+                        "Redirect without location"));
+            }
+            if (isLoginRedirect(redirect)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            String location;
+            try {
+                location = new URL(new URL(url), redirect).toString();
+            } catch (MalformedURLException e) {
+                return Futures.failed(new UnexpectedResponseException(
+                        "Invalid redirect " + redirect));
+            }
+            return getAsync(location, redirects + 1);
+        }
+
+        // Look for the login form without parsing the page
+        String html = response.getBody();
+        if (isLoginPage(html)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.completedFuture(html);
+    }
+
+    /**
+     * Check whether a redirect leads to the myGCC login page.
+     * @param location redirect location
+     * @return whether the redirect leads to the login page
+     */
+    private static boolean isLoginRedirect(final String location) {
+        String lower = location.toLowerCase();
+        return lower.contains("login") || lower.contains("returnurl=");
+    }
+
+    /**
+     * Send a heartbeat request to myGCC to keep the session from expiring.
+     *
+     * The request is a HEAD request for a page that needs a login, so that
+     * no page is transferred and an expired session is noticed. A 401, a
+     * 403 or a redirect to the login page means myGCC no longer accepts the
+     * session. If myGCC rotates any cookies in response, the new values are
+     * kept.
+     * @return whether myGCC still accepts the session
+     * @throws NetworkException error connection to myGCC
+     */
+    public final boolean heartbeat() throws NetworkException {
+        UpstreamRequest request = newRequest("HEAD", HEARTBEAT_URL);
+        request.setFollowRedirects(false);
+        cookies.apply(request);
+        UpstreamResponse response = send(request);
+        cookies.store(response);
+
+        int status = response.getStatus();
+        if (RetryPolicy.isTransient(status)) {
+            throw new NetworkException("myGCC answered " + status);
+        }
+        if (status >= HttpURLConnection.HTTP_MULT_CHOICE
+                && status < HttpURLConnection.HTTP_BAD_REQUEST) {
+            String redirect = response.getHeader("Location");
+            if (redirect == null || isLoginRedirect(redirect)) {
+                return false;
             }
-            String seshidstr = cookies.get(1);
-
-            // Get the session ID parameter
-            this.sessionID = StringUtils.substringBetween(seshidstr,
-                    "ASP.NET_SessionId=",
-                    "; path=/; HttpOnly");
-        } catch (ConnectException e) {
-            throw new NetworkException();
-        } catch (Exception e) {
-            e.printStackTrace();
+        } else if (status != HttpURLConnection.HTTP_OK) {
+            return false;
         }
+
+        // myGCC clears the ASPXAUTH cookie when it signs a client out
+        return getASPXAuth() != null;
     }
 
     /**
-     * Authenticate session and get session data.
-     * @throws InvalidCredentialsException username and password incorrect
-     * @throws UnexpectedResponseException unexpected response from myGCC
-     * @throws NetworkException error connection to URL
+     * Remove this session from the session pool.
+     *
+     * Should be called when myGCC no longer accepts the session so that the
+     * next request logs in again.
      */
-    private void authenticateSession() throws InvalidCredentialsException,
-            UnexpectedResponseException, NetworkException {
-        // Return previously retrieved ASPXAuth
-        if (getASPXAuth() != null
-                && getBrowserRefresh() != null
-                && getViewstate() != null) {
-            return;
+    public final void invalidate() {
+        if (source != null) {
+            SessionPool.getInstance().remove(token.hash(), source);
+            source = null;
         }
+        cookies.writeBackTo(null);
+        cookies.clear();
+        setBrowserRefresh(null);
+        setViewstate(null);
+        setViewstateGenerator(null);
+        setEventValidation(null);
+    }
 
-        LinkedHashMap<String, String> postValues = new
-                LinkedHashMap<String, String>() { {
-            put("_scriptManager_HiddenField", "");
-            put("__EVENTTARGET", "");
-            put("__EVENTARGUMENT", "");
-            put("__VIEWSTATE", "");
-            put("__VIEWSTATEGENERATOR", "");
-            put("___BrowserRefresh", "");
-            put("userName", token.getUsername());
-            put("password", token.getPassword());
-            put("btnLogin", "Login");
-            put("ctl04$tbSearch", "Search...");
-        } };
-
-        String postData = postData(postValues, getBoundary());
-
-        HttpURLConnection http = createPOST(BASEURL, new
-                HashMap<String, String>() { {
-                    put("Content-Type",
-                            "multipart/form-data; boundary=" + getBoundary());
-                    put("Cookie", "ASP.NET_SessionId=" + sessionID + ";");
-                } }, postData);
-
-        // Check if logged in
-        List<String> cookies = http.getHeaderFields().get("Set-Cookie");
-
-        // Should be a ASPXAUTH cookie and a session heartbeat
-        if (cookies.size() != 2) {
-            throw new InvalidCredentialsException("2 cookies expected; "
-                    + cookies.size() + " received");
+    /**
+     * Copy the session state without the token.
+     * @return copy of session
+     */
+    private Session copy() {
+        Session ses = new Session();
+        ses.restore(this);
+        return ses;
+    }
+
+    /**
+     * Set the session state from another session.
+     * @param ses session to copy state from
+     */
+    private void restore(final Session ses) {
+        cookies.copyFrom(ses.getCookies());
+        setBrowserRefresh(ses.getBrowserRefresh());
+        setViewstate(ses.getViewstate());
+        setViewstateGenerator(ses.getViewstateGenerator());
+        setEventValidation(ses.getEventValidation());
+        this.boundary = ses.getBoundary();
+    }
+
+    /**
+     * Set boundary string.
+     */
+    private void setBoundary() {
+        boundary = MultipartBody.newBoundary();
+    }
+
+    /**
+     * Gets a new sessionID from myGCC.
+     * @return future completed once the session identifier is received, or
+     *         failed with a {@link NetworkException}
+     */
+    private CompletableFuture<Void> requestSessionIDAsync() {
+        return sendAsync(newRequest("GET", BASEURL))
+                .thenCompose(response -> {
+                    cookies.store(response);
+                    if (getSessionID() == null) {
+                        return Futures.failed(new NetworkException("myGCC "
+                                + "did not send a session identifier"));
+                    }
+                    return CompletableFuture.completedFuture(null);
+                });
+    }
+
+    /**
+     * Authenticate session and get session data.
+     * @param readFormState whether to read the hidden fields from the login
+     *                      response page
+     * @return future completed once the session is authenticated, or failed
+     *         with an {@link InvalidCredentialsException} if the username
+     *         and password are incorrect, an
+     *         {@link UnexpectedResponseException} if the login page could
+     *         not be read or a {@link NetworkException}
+     */
+    private CompletableFuture<Void> authenticateSessionAsync(
+            final boolean readFormState) {
+        // Return previously retrieved ASPXAuth
+        if (getASPXAuth() != null) {
+            return CompletableFuture.completedFuture(null);
         }
 
-        setASPXAuth(parseAspxauth(http.getHeaderFields().get("Set-Cookie")));
+        MultipartBody body = new MultipartBody(getBoundary())
+                .field("_scriptManager_HiddenField", "")
+                .field("__EVENTTARGET", "")
+                .field("__EVENTARGUMENT", "")
+                .field("__VIEWSTATE", "")
+                .field("__VIEWSTATEGENERATOR", "")
+                .field("___BrowserRefresh", "")
+                .field("userName", token.getUsername())
+                .field("password", token.getPassword())
+                .field("btnLogin", "Login")
+                .field("ctl04$tbSearch", "Search...");
+
+        UpstreamRequest request = createPOST(BASEURL, body);
+        apply(request);
+        cookies.apply(request);
+
+        // Only the cookies are needed unless the caller posts back, or
+        // myGCC did not log in and the page must say why
+        request.setReadBody(readFormState);
+        request.setReadBodyIf(headers -> {
+            CookieJar set = new CookieJar();
+            set.store(headers);
+            return set.get(AUTH_COOKIE) == null;
+        });
+        return sendAsync(request).thenCompose(response -> {
+            // Logged in if myGCC set the ASPXAUTH cookie
+            cookies.store(response);
+            if (getASPXAuth() == null) {
+                return Futures.failed(loginFailure(response));
+            }
+            if (!readFormState) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return Futures.call(() -> {
+                setFormState(HiddenFieldExtractor.extract(response,
+                        HiddenFieldExtractor.POSTBACK_FIELDS));
+                return null;
+            });
+        });
+    }
 
+    /**
+     * Find out why myGCC did not log the session in. Only the login page
+     * sent back with its login form rejects the credentials; an error or a
+     * response that cannot be read says nothing about them, so it must not
+     * be remembered by the {@link NegativeCache}.
+     * @param response login response without an ASPXAUTH cookie
+     * @return {@link InvalidCredentialsException} if myGCC rejected the
+     *         credentials, {@link NetworkException} if it failed or the page
+     *         was not read, or {@link UnexpectedResponseException}
+     */
+    private static Exception loginFailure(final UpstreamResponse response) {
+        int status = response.getStatus();
+        if (status >= HttpURLConnection.HTTP_INTERNAL_ERROR) {
+            return new NetworkException("myGCC answered " + status);
+        }
+        if (status < HttpURLConnection.HTTP_OK
+                || status >= HttpURLConnection.HTTP_MULT_CHOICE) {
+            return new UnexpectedResponseException("myGCC answered login "
+                    + "with " + status);
+        }
+        String html;
         try {
-            String html = convertStreamToString(http.getInputStream());
+            html = response.getBody();
+        } catch (UncheckedIOException e) {
+            return new NetworkException("Could not read login page");
+        }
+        // The page is always read when no auth cookie was set, so an empty
+        // one means myGCC sent nothing
+        if (html.isEmpty()) {
+            return new NetworkException("Login page not received");
+        }
+        if (isLoginPage(html)) {
+            return new InvalidCredentialsException("No ASPXAUTH cookie "
+                    + "received");
+        }
+        return new UnexpectedResponseException("myGCC did not log in");
+    }
 
-            setViewstate(parseViewState(html));
-            setBrowserRefresh(parseBrowserRefresh(html));
-        } catch (IOException e) {
-            e.printStackTrace();
+    /**
+     * Check whether a page is the myGCC login page.
+     * @param html HTML of the page
+     * @return whether the start of the page contains the login form
+     */
+    private static boolean isLoginPage(final String html) {
+        if (html.length() <= LOGIN_SCAN) {
+            return html.contains(LOGIN_MARKER);
         }
+        return html.substring(0, LOGIN_SCAN).contains(LOGIN_MARKER);
     }
 
     /**
@@ -237,7 +718,7 @@ public class Session extends MyGCCDataCollection {
      * @return session ID.
      */
     public final String getSessionID() {
-        return sessionID;
+        return cookies.get(SESSION_COOKIE);
     }
 
     /**
@@ -245,7 +726,7 @@ public class Session extends MyGCCDataCollection {
      * @param sid session ID
      */
     public final void setSessionID(final String sid) {
-        this.sessionID = sid;
+        cookies.put(SESSION_COOKIE, sid);
     }
 
     /**
@@ -253,7 +734,7 @@ public class Session extends MyGCCDataCollection {
      * @return ASPXAuth
      */
     public final String getASPXAuth() {
-        return aspxauth;
+        return cookies.get(AUTH_COOKIE);
     }
 
     /**
@@ -261,7 +742,15 @@ public class Session extends MyGCCDataCollection {
      * @param aa ASXPAuth
      */
     public final void setASPXAuth(final String aa) {
-        this.aspxauth = aa;
+        cookies.put(AUTH_COOKIE, aa);
+    }
+
+    /**
+     * Get the session cookies.
+     * @return cookie jar
+     */
+    public final CookieJar getCookies() {
+        return cookies;
     }
 
     /**
@@ -296,6 +785,38 @@ public class Session extends MyGCCDataCollection {
         this.viewstate = vs;
     }
 
+    /**
+     * Get view state generator.
+     * @return view state generator
+     */
+    public final String getViewstateGenerator() {
+        return viewstateGenerator;
+    }
+
+    /**
+     * Set view state generator.
+     * @param vsg view state generator
+     */
+    public final void setViewstateGenerator(final String vsg) {
+        this.viewstateGenerator = vsg;
+    }
+
+    /**
+     * Get event validation.
+     * @return event validation
+     */
+    public final String getEventValidation() {
+        return eventValidation;
+    }
+
+    /**
+     * Set event validation.
+     * @param ev event validation
+     */
+    public final void setEventValidation(final String ev) {
+        this.eventValidation = ev;
+    }
+
     /**
      * Get boundary string.
      * @return boundary string
@@ -304,6 +825,48 @@ public class Session extends MyGCCDataCollection {
         return boundary;
     }
 
+    /**
+     * Create a request to myGCC for the session.
+     * @param meth HTTP method
+     * @param url absolute URL
+     * @return request with the deadline, retry budget, user and account of
+     *         the session
+     */
+    public final UpstreamRequest newRequest(final String meth,
+                                            final String url) {
+        UpstreamRequest request = new UpstreamRequest(meth, url);
+        apply(request);
+        return request;
+    }
+
+    /**
+     * Give a request the deadline, retry budget, user and account of the
+     * session.
+     * @param request request to myGCC
+     */
+    public final void apply(final UpstreamRequest request) {
+        request.setDeadline(deadline);
+        request.setRetryBudget(retryBudget);
+        request.setUser(user);
+        request.setAccount(account);
+    }
+
+    /**
+     * Get the deadline of the API request the session was created for.
+     * @return deadline, {@link Deadline#none()} if there is none
+     */
+    public final Deadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Set the deadline applied to the requests of the session.
+     * @param limit deadline
+     */
+    public final void setDeadline(final Deadline limit) {
+        this.deadline = limit;
+    }
+
     /**
      * Get Token.
      * @return Token object
@@ -0,0 +1,197 @@
+package com.mygcc.datacollection;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps pooled sessions of active users from expiring.
+ *
+ * <h3>Overview</h3>
+ * <p>myGCC expires a session after 20 minutes without a request. A user who
+ * comes back after that would find their pooled session rejected and have to
+ * log in again. The keep-alive scheduler sends a {@link Session#heartbeat()}
+ * for pooled sessions that have not been sent to myGCC for a while, as long
+ * as their user has made a request recently. Sessions of idle users are left
+ * to expire.</p>
+ *
+ * <h3>Internals</h3>
+ * <p>A single scheduler thread checks the {@link SessionPool} once a minute.
+ * Heartbeats run on a small fixed thread pool, which caps how many run at
+ * once. A session that myGCC no longer accepts is removed from the pool.</p>
+ */
+public final class SessionKeepAlive {
+    /**
+     * Default milliseconds without being sent to myGCC after which a session
+     * needs a heartbeat.
+     */
+    private static final long REFRESH_AFTER = TimeUnit.MINUTES.toMillis(12);
+
+    /**
+     * Default milliseconds since a user's last request within which their
+     * session is kept alive.
+     */
+    private static final long ACTIVE_WINDOW = TimeUnit.MINUTES.toMillis(30);
+
+    /**
+     * Seconds between checks for sessions that need a heartbeat.
+     */
+    private static final long CHECK_INTERVAL = 60;
+
+    /**
+     * Maximum number of heartbeats running at once.
+     */
+    private static final int MAX_CONCURRENT_HEARTBEATS = 4;
+
+    /**
+     * Shared keep-alive scheduler.
+     */
+    private static final SessionKeepAlive INSTANCE =
+            new SessionKeepAlive(SessionPool.getInstance());
+
+    /**
+     * Pool of sessions to keep alive.
+     */
+    private final SessionPool pool;
+
+    /**
+     * Milliseconds without being sent to myGCC after which a session needs a
+     * heartbeat.
+     */
+    private final long refreshAfter;
+
+    /**
+     * Milliseconds since a user's last request within which their session is
+     * kept alive.
+     */
+    private final long activeWindow;
+
+    /**
+     * Credential hashes of sessions with a heartbeat queued or running.
+     */
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Thread that checks for sessions that need a heartbeat.
+     */
+    private volatile ScheduledExecutorService scheduler;
+
+    /**
+     * Threads that send heartbeats.
+     */
+    private volatile ExecutorService heartbeats;
+
+    /**
+     * Create keep-alive scheduler.
+     * @param sessionPool pool of sessions to keep alive
+     */
+    public SessionKeepAlive(final SessionPool sessionPool) {
+        this(sessionPool, REFRESH_AFTER, ACTIVE_WINDOW);
+    }
+
+    /**
+     * Create keep-alive scheduler with its own times.
+     * @param sessionPool pool of sessions to keep alive
+     * @param refresh milliseconds without being sent to myGCC after which
+     *                a session needs a heartbeat
+     * @param active milliseconds since a user's last request within which
+     *               their session is kept alive
+     */
+    SessionKeepAlive(final SessionPool sessionPool, final long refresh,
+                     final long active) {
+        this.pool = sessionPool;
+        this.refreshAfter = refresh;
+        this.activeWindow = active;
+    }
+
+    /**
+     * Get the shared keep-alive scheduler.
+     * @return keep-alive scheduler
+     */
+    public static SessionKeepAlive getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Start checking for sessions that need a heartbeat.
+     */
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-keepalive");
+            t.setDaemon(true);
+            return t;
+        });
+        heartbeats = Executors.newFixedThreadPool(MAX_CONCURRENT_HEARTBEATS,
+                r -> {
+                    Thread t = new Thread(r, "session-heartbeat");
+                    t.setDaemon(true);
+                    return t;
+                });
+        scheduler.scheduleWithFixedDelay(this::refreshDue, CHECK_INTERVAL,
+                CHECK_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop sending heartbeats.
+     */
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdownNow();
+        heartbeats.shutdownNow();
+        scheduler = null;
+        heartbeats = null;
+        pending.clear();
+    }
+
+    /**
+     * Queue a heartbeat for every session that needs one.
+     */
+    void refreshDue() {
+        ExecutorService exec = heartbeats;
+        if (exec == null) {
+            return;
+        }
+        Map<String, Session> due = pool.due(refreshAfter, activeWindow);
+        for (Map.Entry<String, Session> e : due.entrySet()) {
+            String key = e.getKey();
+            if (!pending.add(key)) {
+                continue;
+            }
+            try {
+                exec.execute(() -> refresh(key, e.getValue()));
+            } catch (RejectedExecutionException ex) {
+                pending.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Send a heartbeat for a session.
+     * @param key credential hash
+     * @param session pooled session
+     */
+    private void refresh(final String key, final Session session) {
+        try {
+            if (session.heartbeat()) {
+                pool.refreshed(key);
+            } else {
+                pool.remove(key, session);
+            }
+        } catch (NetworkException e) {
+            // Leave the session to expire if myGCC can't be reached
+            e.printStackTrace();
+        } finally {
+            pending.remove(key);
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.mygcc.datacollection;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of authenticated myGCC sessions.
+ *
+ * <h3>Overview</h3>
+ * <p>Creating a {@link Session} costs two round trips to myGCC: one to get a
+ * session identifier and one to log in. The session pool keeps the cookies
+ * and page state of recently authenticated sessions so that later requests
+ * from the same user can skip both of them.</p>
+ *
+ * <h3>Internals</h3>
+ * <p>Sessions are keyed by {@link Token#hash()}, so the pool never holds
+ * usernames or passwords. Pooled sessions are copies that do not carry a
+ * token. Each entry records when it was last used by a request and when it
+ * was last sent to myGCC, either by a request or by the
+ * {@link SessionKeepAlive} heartbeat. An entry is evicted once it has not been
+ * sent to myGCC for longer than the idle timeout, since myGCC will have expired
+ * it by then. When the pool grows beyond its maximum size the least recently
+ * used entries are evicted.</p>
+ */
+public final class SessionPool {
+    /**
+     * Default maximum number of pooled sessions.
+     */
+    private static final int DEFAULT_MAX_SIZE = 1000;
+
+    /**
+     * Default time a session may go without being sent to myGCC before it is
+     * evicted. myGCC expires sessions after 20 minutes of inactivity.
+     */
+    private static final long DEFAULT_IDLE_TIMEOUT =
+            TimeUnit.MINUTES.toMillis(15);
+
+    /**
+     * Shared session pool.
+     */
+    private static final SessionPool INSTANCE =
+            new SessionPool(DEFAULT_MAX_SIZE, DEFAULT_IDLE_TIMEOUT);
+
+    /**
+     * Pooled sessions keyed by credential hash.
+     */
+    private final Map<String, Entry> sessions = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum number of pooled sessions.
+     */
+    private final int maxSize;
+
+    /**
+     * Milliseconds a session may go without being sent to myGCC before it is
+     * evicted.
+     */
+    private final long idleTimeout;
+
+    /**
+     * Create a session pool.
+     * @param max maximum number of pooled sessions
+     * @param idle milliseconds a session may go without being sent to myGCC
+     *             before it is evicted
+     */
+    public SessionPool(final int max, final long idle) {
+        this.maxSize = max;
+        this.idleTimeout = idle;
+    }
+
+    /**
+     * Get the shared session pool.
+     * @return session pool
+     */
+    public static SessionPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get a pooled session and mark it as used.
+     * @param key credential hash
+     * @return pooled session or null if there is no live session for the key
+     */
+    public Session get(final String key) {
+        Entry entry = sessions.get(key);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (entry.isIdle(now, idleTimeout)) {
+            sessions.remove(key, entry);
+            return null;
+        }
+        entry.touch(now);
+        return entry.getSession();
+    }
+
+    /**
+     * Add a session to the pool, replacing any session with the same key.
+     * @param key credential hash
+     * @param session authenticated session
+     */
+    public void put(final String key, final Session session) {
+        sessions.put(key, new Entry(session, System.currentTimeMillis()));
+        if (sessions.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Remove a session from the pool.
+     * @param key credential hash
+     */
+    public void remove(final String key) {
+        sessions.remove(key);
+    }
+
+    /**
+     * Remove a session from the pool if it is still the pooled session for
+     * the key. A session that has since been replaced is left alone.
+     * @param key credential hash
+     * @param session pooled session to remove
+     */
+    public void remove(final String key, final Session session) {
+        sessions.computeIfPresent(key, (k, entry) -> {
+            if (entry.getSession() == session) {
+                return null;
+            }
+            return entry;
+        });
+    }
+
+    /**
+     * Record that a pooled session was sent to myGCC without being used by a
+     * request.
+     * @param key credential hash
+     */
+    public void refreshed(final String key) {
+        Entry entry = sessions.get(key);
+        if (entry != null) {
+            entry.refresh(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * Get sessions that are still in use but have not been sent to myGCC
+     * recently.
+     * @param refreshAfter milliseconds since a session was last sent to myGCC
+     *                     after which it needs refreshing
+     * @param activeWindow milliseconds since a session was last used by a
+     *                     request within which it is still considered in use
+     * @return sessions keyed by credential hash
+     */
+    public Map<String, Session> due(final long refreshAfter,
+                                    final long activeWindow) {
+        long now = System.currentTimeMillis();
+        Map<String, Session> due = new HashMap<>();
+        for (Map.Entry<String, Entry> e : sessions.entrySet()) {
+            Entry entry = e.getValue();
+            if (now - entry.getLastRefreshed() > refreshAfter
+                    && now - entry.getLastUsed() <= activeWindow
+                    && !entry.isIdle(now, idleTimeout)) {
+                due.put(e.getKey(), entry.getSession());
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Get the number of pooled sessions.
+     * @return number of pooled sessions
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Evict idle sessions, then the least recently used sessions until the
+     * pool is back within its maximum size.
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        sessions.entrySet().removeIf(e -> e.getValue().isIdle(now,
+                idleTimeout));
+        while (sessions.size() > maxSize) {
+            Map.Entry<String, Entry> eldest = null;
+            for (Map.Entry<String, Entry> e : sessions.entrySet()) {
+                if (eldest == null || e.getValue().getLastUsed()
+                        < eldest.getValue().getLastUsed()) {
+                    eldest = e;
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            sessions.remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    /**
+     * Pooled session and the times it was last used and last refreshed.
+     */
+    private static final class Entry {
+        /**
+         * Pooled session.
+         */
+        private final Session session;
+
+        /**
+         * Time the session was last used in milliseconds.
+         */
+        private volatile long lastUsed;
+
+        /**
+         * Time the session was last sent to myGCC in milliseconds.
+         */
+        private volatile long lastRefreshed;
+
+        /**
+         * Create entry.
+         * @param ses pooled session
+         * @param now current time in milliseconds
+         */
+        Entry(final Session ses, final long now) {
+            this.session = ses;
+            this.lastUsed = now;
+            this.lastRefreshed = now;
+        }
+
+        /**
+         * Get pooled session.
+         * @return session
+         */
+        Session getSession() {
+            return session;
+        }
+
+        /**
+         * Get time the session was last used.
+         * @return time in milliseconds
+         */
+        long getLastUsed() {
+            return lastUsed;
+        }
+
+        /**
+         * Get time the session was last sent to myGCC.
+         * @return time in milliseconds
+         */
+        long getLastRefreshed() {
+            return lastRefreshed;
+        }
+
+        /**
+         * Mark the session as used. A used session is sent to myGCC.
+         * @param now current time in milliseconds
+         */
+        void touch(final long now) {
+            lastUsed = now;
+            lastRefreshed = now;
+        }
+
+        /**
+         * Mark the session as sent to myGCC.
+         * @param now current time in milliseconds
+         */
+        void refresh(final long now) {
+            lastRefreshed = now;
+        }
+
+        /**
+         * Check whether the session has gone too long without being sent to
+         * myGCC.
+         * @param now current time in milliseconds
+         * @param timeout idle timeout in milliseconds
+         * @return whether the session is idle
+         */
+        boolean isIdle(final long now, final long timeout) {
+            return now - lastRefreshed > timeout;
+        }
+    }
+}
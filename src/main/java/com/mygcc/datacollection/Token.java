@@ -1,15 +1,7 @@
 package com.mygcc.datacollection;
 
-import javax.crypto.BadPaddingException;
-import javax.crypto.Cipher;
-import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.NoSuchPaddingException;
-import javax.crypto.spec.IvParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
 import java.io.UnsupportedEncodingException;
-import java.security.InvalidAlgorithmParameterException;
-import java.security.InvalidKeyException;
-import java.security.InvalidParameterException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 
@@ -19,6 +11,8 @@ import java.util.Base64;
  * <h3>Usage</h3>
  * <p>The Token object is meant to be a developer friendly, secure way to
  * transfer myGCC username and password from client to server.</p>
+ *
+ * <p>Tokens are encrypted and decrypted by the {@link TokenCodec}.</p>
  */
 public class Token {
     /**
@@ -84,11 +78,48 @@ public class Token {
         this.password = pw;
     }
 
+    /**
+     * Get a one-way hash of the username and password.
+     *
+     * The hash identifies a user's credentials without keeping them in
+     * memory, so it can be used as a key for data shared between requests.
+     * @return Base64 encoded SHA-256 hash of the credentials
+     */
+    public final String hash() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(escapePipe(getUsername()).getBytes("UTF-8"));
+            digest.update((byte) '|');
+            digest.update(escapePipe(getPassword()).getBytes("UTF-8"));
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (UnsupportedEncodingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+    }
+
+    /**
+     * Get a one-way hash of the username.
+     *
+     * The hash identifies a user, whatever password was sent, without
+     * keeping the username in memory, so it can be used to share limits
+     * between the requests of that user.
+     * @return Base64 encoded SHA-256 hash of the lower case username
+     */
+    public final String userHash() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(getUsername().toLowerCase().getBytes("UTF-8"));
+            return Base64.getEncoder().encodeToString(digest.digest());
+        } catch (UnsupportedEncodingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+    }
+
     /**
      * Generate a token to be delivered to user.
      *
-     * The token contains the username, password, sessionID, and ASPXAUTH
-     * separated by a pipe (|) character.
+     * The token contains the username and password separated by a pipe (|)
+     * character and the time the token was issued.
      * @param rawUsername username
      * @param rawPassword password
      * @return encrypted token
@@ -107,26 +138,7 @@ public class Token {
         String pw = escapePipe(rawPassword);
         String un = escapePipe(rawUsername);
 
-        String tkraw = un + "|" + pw;
-
-        try {
-            IvParameterSpec iv = new IvParameterSpec(
-                    getInitVector().getBytes("UTF-8"));
-            SecretKeySpec skeySpec = new SecretKeySpec(
-                    getEncryptionKey().getBytes("UTF-8"), "AES");
-
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5PADDING");
-            cipher.init(Cipher.ENCRYPT_MODE, skeySpec, iv);
-
-            byte[] encrypted = cipher.doFinal(tkraw.getBytes("UTF-8"));
-            return Base64.getEncoder().encodeToString(encrypted);
-        } catch (UnsupportedEncodingException | NoSuchAlgorithmException
-                | NoSuchPaddingException | InvalidKeyException
-                | InvalidAlgorithmParameterException | IllegalBlockSizeException
-                | BadPaddingException e) {
-            e.printStackTrace();
-            throw new InvalidCredentialsException("Error encrypting token");
-        }
+        return TokenCodec.getInstance().encode(un, pw);
     }
 
     /**
@@ -138,6 +150,19 @@ public class Token {
         return encrypt(getUsername(), getPassword());
     }
 
+    /**
+     * Revoke a token so that it is no longer accepted.
+     * @param token token to revoke
+     * @throws InvalidCredentialsException token invalid
+     */
+    public static void revoke(final String token)
+            throws InvalidCredentialsException {
+        if (token == null || token.trim().isEmpty()) {
+            throw new InvalidCredentialsException("Token invalid");
+        }
+        TokenCodec.getInstance().revoke(token);
+    }
+
     /**
      * Decrypt token.
      * @param token result of encryptToken
@@ -148,50 +173,18 @@ public class Token {
      */
     private static String[] decrypt(final String token) throws
             InvalidCredentialsException {
-        final int expectedTokenLength = 2;
-
         // Check that token is a string
         if (token == null || token.trim().isEmpty()) {
             throw new InvalidCredentialsException("Token invalid");
         }
 
-        try {
-            IvParameterSpec iv = new IvParameterSpec(
-                    getInitVector().getBytes("UTF-8"));
-            SecretKeySpec sKeySpec = new SecretKeySpec(
-                    getEncryptionKey().getBytes("UTF-8"), "AES");
-
-            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5PADDING");
-            cipher.init(Cipher.DECRYPT_MODE, sKeySpec, iv);
-
-            byte[] original;
-            try {
-                original = cipher.doFinal(Base64.getDecoder().decode(token));
-            } catch (IllegalBlockSizeException e) {
-                throw new InvalidCredentialsException("Token invalid");
-            }
-
-            String decoded = new String(original, "UTF-8");
-            String[] keyvalues = decoded.split("\\|");
-
-            // Verify that there are 2 values in the token
-            if (keyvalues.length != expectedTokenLength) {
-                throw new InvalidCredentialsException("Expected 2 values in "
-                        + "token");
-            }
-
-            // Unescape each parameter in the token
-            for (int i = 0; i < keyvalues.length; i++) {
-                keyvalues[i] = unescapePipe(keyvalues[i]);
-            }
-
-            return keyvalues;
-        } catch (UnsupportedEncodingException | InvalidKeyException
-                | NoSuchAlgorithmException | NoSuchPaddingException
-                | InvalidParameterException | InvalidAlgorithmParameterException
-                | BadPaddingException ex) {
-            throw new InvalidCredentialsException("Token invalid");
+        String[] keyvalues = TokenCodec.getInstance().decode(token);
+
+        // Unescape each parameter in the token
+        for (int i = 0; i < keyvalues.length; i++) {
+            keyvalues[i] = unescapePipe(keyvalues[i]);
         }
+        return keyvalues;
     }
 
     /**
@@ -213,32 +206,4 @@ public class Token {
     private static String unescapePipe(final String escaped) {
         return escaped.replace("&#124;", "|");
     }
-
-    /**
-     * Get initial vector for encryption.
-     * Expects a 16 character string.
-     * @return vector string
-     */
-    private static String getInitVector() {
-        if (System.getenv("initvect") != null) {
-            return System.getenv("initvect");
-        } else {
-            throw new RuntimeException("Environment variable 'initvect' "
-                    + "not found");
-        }
-    }
-
-    /**
-     * Get encryption key.
-     * Expects a 16 character string.
-     * @return encryption key
-     */
-    private static String getEncryptionKey() {
-        if (System.getenv("enckey") != null) {
-            return System.getenv("enckey");
-        } else {
-            throw new RuntimeException("Environment variable 'enckey' "
-                    + "not found");
-        }
-    }
 }
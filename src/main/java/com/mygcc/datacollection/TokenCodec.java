@@ -0,0 +1,524 @@
+package com.mygcc.datacollection;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encrypts and decrypts tokens.
+ *
+ * <h3>Overview</h3>
+ * <p>Every authenticated request decrypts a token. The token codec reads the
+ * encryption key and initial vector from the environment once, keeps a cipher
+ * per thread instead of looking one up for every token, and remembers the
+ * credentials of recently decrypted tokens so that a client sending the same
+ * token again skips decryption entirely.</p>
+ *
+ * <h3>Token formats</h3>
+ * <p>Version 1 tokens are the Base64 encoded AES/CBC encryption of
+ * {@code username|password} with the key and initial vector from the
+ * environment. They do not expire and are still accepted, but are no longer
+ * issued.</p>
+ *
+ * <p>Version 2 tokens start with {@code v2.} followed by the URL-safe Base64
+ * encoding of a random 12 byte nonce and the AES/GCM encryption of the time
+ * the token was issued and {@code username|password}. GCM authenticates the
+ * token, so a token that was tampered with is rejected. Version 2 tokens
+ * expire once they are older than the maximum token age, which can be set in
+ * days with the {@code tokenmaxage} environment variable. The version 2 key
+ * is derived from the encryption key so that the two versions never use the
+ * same key.</p>
+ *
+ * <h3>Internals</h3>
+ * <p>Before anything else, the SHA-256 hash of a token is checked against
+ * the {@link TokenRevocationList}. Decrypted tokens are cached by the same
+ * hash, so the cache never holds tokens themselves. The cache is bounded and
+ * evicts the least recently used token when full. Only tokens that decrypt
+ * successfully are cached, and the age of a cached token is checked on every
+ * use.</p>
+ */
+public final class TokenCodec {
+    /**
+     * Cipher transformation of version 1 tokens.
+     */
+    private static final String TRANSFORMATION = "AES/CBC/PKCS5PADDING";
+
+    /**
+     * Cipher transformation of version 2 tokens.
+     */
+    private static final String V2_TRANSFORMATION = "AES/GCM/NoPadding";
+
+    /**
+     * Prefix of version 2 tokens.
+     */
+    private static final String V2_PREFIX = "v2.";
+
+    /**
+     * Context mixed into the encryption key to derive the version 2 key.
+     */
+    private static final String V2_KEY_CONTEXT = "mygcc-token-v2|";
+
+    /**
+     * Length of the version 2 key in bytes.
+     */
+    private static final int V2_KEY_LENGTH = 16;
+
+    /**
+     * Length of the version 2 nonce in bytes.
+     */
+    private static final int NONCE_LENGTH = 12;
+
+    /**
+     * Length of the version 2 authentication tag in bits.
+     */
+    private static final int TAG_BITS = 128;
+
+    /**
+     * Milliseconds a version 2 token may be issued in the future to allow
+     * for clock differences between servers.
+     */
+    private static final long CLOCK_SKEW = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Default maximum token age in days.
+     */
+    private static final int DEFAULT_MAX_AGE_DAYS = 90;
+
+    /**
+     * Issued-at time of tokens that do not record one.
+     */
+    private static final long UNKNOWN_ISSUED_AT = -1;
+
+    /**
+     * Default maximum number of cached tokens.
+     */
+    private static final int DEFAULT_CACHE_SIZE = 1024;
+
+    /**
+     * Load factor of the token cache.
+     */
+    private static final float LOAD_FACTOR = 0.75f;
+
+    /**
+     * Number of values in a token.
+     */
+    private static final int TOKEN_VALUES = 2;
+
+    /**
+     * Shared token codec, created on first use.
+     */
+    private static volatile TokenCodec instance;
+
+    /**
+     * Version 1 encryption key.
+     */
+    private final SecretKeySpec key;
+
+    /**
+     * Version 2 encryption key.
+     */
+    private final SecretKeySpec v2Key;
+
+    /**
+     * Milliseconds after it was issued that a version 2 token expires.
+     */
+    private final long maxAge;
+
+    /**
+     * Revoked tokens.
+     */
+    private final TokenRevocationList revoked = new TokenRevocationList();
+
+    /**
+     * Source of version 2 nonces.
+     */
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Initial vector.
+     */
+    private final IvParameterSpec iv;
+
+    /**
+     * Version 1 cipher of each thread.
+     */
+    private final ThreadLocal<Cipher> ciphers =
+            ThreadLocal.withInitial(() -> newCipher(TRANSFORMATION));
+
+    /**
+     * Version 2 cipher of each thread.
+     */
+    private final ThreadLocal<Cipher> v2Ciphers =
+            ThreadLocal.withInitial(() -> newCipher(V2_TRANSFORMATION));
+
+    /**
+     * Digest of each thread used to hash tokens.
+     */
+    private final ThreadLocal<MessageDigest> digests =
+            ThreadLocal.withInitial(TokenCodec::newDigest);
+
+    /**
+     * Credentials of recently decrypted tokens keyed by token hash.
+     */
+    private final Map<String, Decoded> decoded;
+
+    /**
+     * Create token codec.
+     * @param encKey 16 character encryption key
+     * @param initVect 16 character initial vector
+     * @param cacheSize maximum number of cached tokens
+     * @param age milliseconds after it was issued that a version 2 token
+     *            expires
+     */
+    public TokenCodec(final String encKey, final String initVect,
+                      final int cacheSize, final long age) {
+        this.key = new SecretKeySpec(
+                encKey.getBytes(StandardCharsets.UTF_8), "AES");
+        this.iv = new IvParameterSpec(
+                initVect.getBytes(StandardCharsets.UTF_8));
+        this.v2Key = new SecretKeySpec(Arrays.copyOf(sha256(V2_KEY_CONTEXT
+                + encKey), V2_KEY_LENGTH), "AES");
+        this.maxAge = age;
+        this.decoded = Collections.synchronizedMap(
+                new LinkedHashMap<String, Decoded>(cacheSize, LOAD_FACTOR,
+                        true) {
+                    @Override
+                    protected boolean removeEldestEntry(
+                            final Map.Entry<String, Decoded> eldest) {
+                        return size() > cacheSize;
+                    }
+                });
+    }
+
+    /**
+     * Get the shared token codec, reading the key material from the
+     * environment the first time.
+     * @return token codec
+     */
+    public static TokenCodec getInstance() {
+        TokenCodec codec = instance;
+        if (codec == null) {
+            synchronized (TokenCodec.class) {
+                codec = instance;
+                if (codec == null) {
+                    codec = new TokenCodec(getEncryptionKey(),
+                            getInitVector(), DEFAULT_CACHE_SIZE,
+                            TimeUnit.DAYS.toMillis(getMaxAgeDays()));
+                    instance = codec;
+                }
+            }
+        }
+        return codec;
+    }
+
+    /**
+     * Encrypt escaped credentials into a version 2 token.
+     * @param un escaped username
+     * @param pw escaped password
+     * @return token
+     * @throws InvalidCredentialsException error encrypting token
+     */
+    public String encode(final String un, final String pw)
+            throws InvalidCredentialsException {
+        byte[] creds = (un + "|" + pw).getBytes(StandardCharsets.UTF_8);
+        byte[] nonce = new byte[NONCE_LENGTH];
+        random.nextBytes(nonce);
+        try {
+            Cipher cipher = v2Ciphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, v2Key,
+                    new GCMParameterSpec(TAG_BITS, nonce));
+            byte[] plain = ByteBuffer.allocate(Long.BYTES + creds.length)
+                    .putLong(System.currentTimeMillis())
+                    .put(creds)
+                    .array();
+            byte[] encrypted = cipher.doFinal(plain);
+            byte[] token = ByteBuffer.allocate(nonce.length
+                    + encrypted.length)
+                    .put(nonce)
+                    .put(encrypted)
+                    .array();
+            return V2_PREFIX + Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(token);
+        } catch (GeneralSecurityException e) {
+            e.printStackTrace();
+            throw new InvalidCredentialsException("Error encrypting token");
+        }
+    }
+
+    /**
+     * Encrypt escaped credentials into a version 1 token.
+     * @param un escaped username
+     * @param pw escaped password
+     * @return token
+     * @throws InvalidCredentialsException error encrypting token
+     */
+    String encodeV1(final String un, final String pw)
+            throws InvalidCredentialsException {
+        try {
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, key, iv);
+            byte[] encrypted = cipher.doFinal((un + "|" + pw)
+                    .getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(encrypted);
+        } catch (GeneralSecurityException e) {
+            e.printStackTrace();
+            throw new InvalidCredentialsException("Error encrypting token");
+        }
+    }
+
+    /**
+     * Decrypt a token of either version.
+     * @param token token
+     * @return escaped username and password
+     * @throws InvalidCredentialsException token could not be decrypted, has
+     * expired or was revoked
+     */
+    public String[] decode(final String token)
+            throws InvalidCredentialsException {
+        byte[] hash = sha256(token);
+        if (revoked.isRevoked(hash)) {
+            throw new InvalidCredentialsException("Token revoked");
+        }
+
+        String cacheKey = Base64.getEncoder().encodeToString(hash);
+        Decoded dec = decoded.get(cacheKey);
+        if (dec == null) {
+            if (token.startsWith(V2_PREFIX)) {
+                dec = decodeV2(token.substring(V2_PREFIX.length()));
+            } else {
+                dec = decodeV1(token);
+            }
+            decoded.put(cacheKey, dec);
+        }
+
+        if (dec.isExpired(System.currentTimeMillis(), maxAge)) {
+            decoded.remove(cacheKey);
+            throw new InvalidCredentialsException("Token expired");
+        }
+        return dec.getValues();
+    }
+
+    /**
+     * Revoke a token so that it is no longer accepted.
+     * @param token token
+     */
+    public void revoke(final String token) {
+        byte[] hash = sha256(token);
+        revoked.revoke(hash);
+        decoded.remove(Base64.getEncoder().encodeToString(hash));
+    }
+
+    /**
+     * Decrypt a version 1 token.
+     * @param token token
+     * @return decrypted token
+     * @throws InvalidCredentialsException token could not be decrypted
+     */
+    private Decoded decodeV1(final String token)
+            throws InvalidCredentialsException {
+        byte[] original;
+        try {
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, key, iv);
+            original = cipher.doFinal(Base64.getDecoder().decode(token));
+        } catch (IllegalArgumentException | GeneralSecurityException e) {
+            throw new InvalidCredentialsException("Token invalid");
+        }
+        return new Decoded(splitCredentials(new String(original,
+                StandardCharsets.UTF_8)), UNKNOWN_ISSUED_AT);
+    }
+
+    /**
+     * Decrypt a version 2 token.
+     * @param token token without the version prefix
+     * @return decrypted token
+     * @throws InvalidCredentialsException token could not be decrypted
+     */
+    private Decoded decodeV2(final String token)
+            throws InvalidCredentialsException {
+        ByteBuffer plain;
+        try {
+            byte[] raw = Base64.getUrlDecoder().decode(token);
+            if (raw.length <= NONCE_LENGTH) {
+                throw new InvalidCredentialsException("Token invalid");
+            }
+            Cipher cipher = v2Ciphers.get();
+            cipher.init(Cipher.DECRYPT_MODE, v2Key,
+                    new GCMParameterSpec(TAG_BITS, raw, 0, NONCE_LENGTH));
+            plain = ByteBuffer.wrap(cipher.doFinal(raw, NONCE_LENGTH,
+                    raw.length - NONCE_LENGTH));
+        } catch (IllegalArgumentException | GeneralSecurityException e) {
+            throw new InvalidCredentialsException("Token invalid");
+        }
+        if (plain.remaining() < Long.BYTES) {
+            throw new InvalidCredentialsException("Token invalid");
+        }
+        long issuedAt = plain.getLong();
+        String creds = new String(plain.array(), plain.position(),
+                plain.remaining(), StandardCharsets.UTF_8);
+        return new Decoded(splitCredentials(creds), issuedAt);
+    }
+
+    /**
+     * Split decrypted credentials into username and password.
+     * @param creds credentials in the form {@code username|password}
+     * @return escaped username and password
+     * @throws InvalidCredentialsException credentials formatted incorrectly
+     */
+    private static String[] splitCredentials(final String creds)
+            throws InvalidCredentialsException {
+        int pipe = creds.indexOf('|');
+        if (pipe < 0 || creds.indexOf('|', pipe + 1) >= 0) {
+            throw new InvalidCredentialsException("Expected "
+                    + TOKEN_VALUES + " values in token");
+        }
+        return new String[] {creds.substring(0, pipe),
+                creds.substring(pipe + 1)};
+    }
+
+    /**
+     * Get the number of cached tokens.
+     * @return number of cached tokens
+     */
+    public int cacheSize() {
+        return decoded.size();
+    }
+
+    /**
+     * Hash a string.
+     * @param value string to hash
+     * @return SHA-256 hash of the string
+     */
+    private byte[] sha256(final String value) {
+        MessageDigest digest = digests.get();
+        digest.reset();
+        return digest.digest(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Create a token cipher.
+     * @param transformation cipher transformation
+     * @return cipher
+     */
+    private static Cipher newCipher(final String transformation) {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException e) {
+            throw new IllegalStateException(transformation
+                    + " not supported", e);
+        }
+    }
+
+    /**
+     * Create a digest for hashing tokens.
+     * @return SHA-256 digest
+     */
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not supported", e);
+        }
+    }
+
+    /**
+     * Get initial vector for encryption.
+     * Expects a 16 character string.
+     * @return vector string
+     */
+    private static String getInitVector() {
+        if (System.getenv("initvect") != null) {
+            return System.getenv("initvect");
+        } else {
+            throw new RuntimeException("Environment variable 'initvect' "
+                    + "not found");
+        }
+    }
+
+    /**
+     * Get encryption key.
+     * Expects a 16 character string.
+     * @return encryption key
+     */
+    private static String getEncryptionKey() {
+        if (System.getenv("enckey") != null) {
+            return System.getenv("enckey");
+        } else {
+            throw new RuntimeException("Environment variable 'enckey' "
+                    + "not found");
+        }
+    }
+
+    /**
+     * Get maximum age of version 2 tokens.
+     * @return maximum age in days
+     */
+    private static int getMaxAgeDays() {
+        String days = System.getenv("tokenmaxage");
+        if (days == null || days.isEmpty()) {
+            return DEFAULT_MAX_AGE_DAYS;
+        }
+        return Integer.parseInt(days);
+    }
+
+    /**
+     * Decrypted token.
+     */
+    private static final class Decoded {
+        /**
+         * Escaped username and password.
+         */
+        private final String[] values;
+
+        /**
+         * Time the token was issued in milliseconds, or
+         * {@code UNKNOWN_ISSUED_AT} for version 1 tokens.
+         */
+        private final long issuedAt;
+
+        /**
+         * Create decrypted token.
+         * @param vals escaped username and password
+         * @param issued time the token was issued in milliseconds
+         */
+        Decoded(final String[] vals, final long issued) {
+            this.values = vals;
+            this.issuedAt = issued;
+        }
+
+        /**
+         * Get a copy of the escaped username and password.
+         * @return escaped username and password
+         */
+        String[] getValues() {
+            return values.clone();
+        }
+
+        /**
+         * Check whether the token is too old or issued in the future.
+         * @param now current time in milliseconds
+         * @param age maximum token age in milliseconds
+         * @return whether the token has expired
+         */
+        boolean isExpired(final long now, final long age) {
+            if (issuedAt == UNKNOWN_ISSUED_AT) {
+                return false;
+            }
+            return now - issuedAt > age || issuedAt - now > CLOCK_SKEW;
+        }
+    }
+}
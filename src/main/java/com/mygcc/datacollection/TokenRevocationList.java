@@ -0,0 +1,122 @@
+package com.mygcc.datacollection;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tokens that may no longer be used.
+ *
+ * <h3>Overview</h3>
+ * <p>A revoked token is rejected before the request does any other work.
+ * Revoked tokens are identified by the SHA-256 hash of the token, which the
+ * {@link TokenCodec} computes for every token anyway.</p>
+ *
+ * <h3>Internals</h3>
+ * <p>Almost every token checked is not revoked, so the revocation list puts a
+ * Bloom filter in front of an exact set of revoked hashes. Each revoked hash
+ * sets a few bits of the filter, taken directly from the hash bytes. A token
+ * whose bits are not all set is not revoked and is answered from the filter
+ * alone; only the rare false positive falls through to the exact set. The
+ * list is kept in memory, so revocations last until the server
+ * restarts.</p>
+ */
+public final class TokenRevocationList {
+    /**
+     * Default number of bits in the Bloom filter.
+     */
+    private static final int DEFAULT_BITS = 1 << 20;
+
+    /**
+     * Number of bits of the Bloom filter set for each revoked token.
+     */
+    private static final int BITS_PER_TOKEN = 4;
+
+    /**
+     * Number of bits in a word of the Bloom filter.
+     */
+    private static final int WORD_BITS = 64;
+
+    /**
+     * Bits of the Bloom filter.
+     */
+    private final AtomicLongArray filter;
+
+    /**
+     * Mask that maps an integer to a bit of the Bloom filter.
+     */
+    private final int mask;
+
+    /**
+     * Base64 encoded hashes of revoked tokens.
+     */
+    private final Set<String> revoked = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Create a revocation list with the default filter size.
+     */
+    public TokenRevocationList() {
+        this(DEFAULT_BITS);
+    }
+
+    /**
+     * Create a revocation list.
+     * @param bits number of bits in the Bloom filter; a power of two of at
+     *             least 64
+     */
+    public TokenRevocationList(final int bits) {
+        if (bits < WORD_BITS || Integer.bitCount(bits) != 1) {
+            throw new IllegalArgumentException("Filter size must be a power "
+                    + "of two of at least " + WORD_BITS);
+        }
+        this.filter = new AtomicLongArray(bits / WORD_BITS);
+        this.mask = bits - 1;
+    }
+
+    /**
+     * Revoke a token.
+     * @param hash SHA-256 hash of the token
+     */
+    public void revoke(final byte[] hash) {
+        // Add to the exact set first so a filter hit always finds it
+        revoked.add(Base64.getEncoder().encodeToString(hash));
+        ByteBuffer buf = ByteBuffer.wrap(hash);
+        for (int i = 0; i < BITS_PER_TOKEN; i++) {
+            int bit = buf.getInt() & mask;
+            int word = bit / WORD_BITS;
+            long set = 1L << (bit % WORD_BITS);
+            long old;
+            do {
+                old = filter.get(word);
+            } while ((old & set) == 0
+                    && !filter.compareAndSet(word, old, old | set));
+        }
+    }
+
+    /**
+     * Check whether a token is revoked.
+     * @param hash SHA-256 hash of the token
+     * @return whether the token is revoked
+     */
+    public boolean isRevoked(final byte[] hash) {
+        ByteBuffer buf = ByteBuffer.wrap(hash);
+        for (int i = 0; i < BITS_PER_TOKEN; i++) {
+            int bit = buf.getInt() & mask;
+            if ((filter.get(bit / WORD_BITS) & (1L << (bit % WORD_BITS)))
+                    == 0) {
+                return false;
+            }
+        }
+        return revoked.contains(Base64.getEncoder().encodeToString(hash));
+    }
+
+    /**
+     * Get the number of revoked tokens.
+     * @return number of revoked tokens
+     */
+    public int size() {
+        return revoked.size();
+    }
+}
@@ -0,0 +1,46 @@
+package com.mygcc.datacollection;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends HTTP requests to myGCC.
+ *
+ * <h3>Overview</h3>
+ * <p>Every request to myGCC, from {@link Session} and from the scrapers,
+ * goes through a transport. The transport in use is chosen by
+ * {@link Transports#getDefault()}. Besides the live {@link HttpTransport},
+ * requests can be recorded to disk with the {@link RecordingTransport} and
+ * served from the recordings with the {@link ReplayTransport}, so that the
+ * API can be load tested without myGCC.</p>
+ *
+ * <h3>Asynchronous requests</h3>
+ * <p>{@link #executeAsync(UpstreamRequest)} returns without waiting for
+ * myGCC. The {@link HttpTransport} sends the request without holding a
+ * thread while waiting for the response; other transports answer it on the
+ * calling thread.</p>
+ */
+public interface Transport {
+    /**
+     * Send a request and read the whole response.
+     * @param request request to send
+     * @return response
+     * @throws IOException error sending request or reading response
+     */
+    UpstreamResponse execute(UpstreamRequest request) throws IOException;
+
+    /**
+     * Send a request without waiting for the response.
+     * @param request request to send
+     * @return future completed with the response, or failed with an
+     *         {@link IOException}
+     */
+    default CompletableFuture<UpstreamResponse> executeAsync(
+            final UpstreamRequest request) {
+        try {
+            return CompletableFuture.completedFuture(execute(request));
+        } catch (IOException e) {
+            return Futures.failed(e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.mygcc.datacollection;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+
+/**
+ * Chooses the {@link Transport} used to reach myGCC.
+ *
+ * <h3>Configuration</h3>
+ * <p>The transport is chosen on first use from the {@code transport}
+ * environment variable:</p>
+ * <ul>
+ *     <li>{@code live} (default) sends requests to myGCC, hedging slow
+ *     page requests with the {@link HedgingTransport}, retrying failed
+ *     ones with the {@link RetryingTransport}, failing fast while myGCC
+ *     is down with the {@link CircuitBreakingTransport}, limiting the
+ *     requests in flight with the {@link ConcurrencyLimitingTransport} and
+ *     sending identical page requests in flight only once with the
+ *     {@link CoalescingTransport}. A {@link ConnectionWarmer} keeps
+ *     connections to myGCC ready once {@link #startWarming()} has been
+ *     called.</li>
+ *     <li>{@code record} sends requests to myGCC and saves them to the
+ *     directory in {@code transportdir}.</li>
+ *     <li>{@code replay} answers requests from the recordings in
+ *     {@code transportdir}, waiting {@code replaylatency} milliseconds
+ *     (default 0) before each answer.</li>
+ * </ul>
+ */
+public final class Transports {
+    /**
+     * Default directory of recordings.
+     */
+    private static final String DEFAULT_DIR = "recordings";
+
+    /**
+     * Transport in use, created on first use.
+     */
+    private static volatile Transport transport;
+
+    /**
+     * Warmer of the live transport, or null if the transport is not live.
+     */
+    private static volatile ConnectionWarmer warmer;
+
+    /**
+     * Utility class.
+     */
+    private Transports() {
+    }
+
+    /**
+     * Get the transport in use.
+     * @return transport
+     */
+    public static Transport getDefault() {
+        Transport t = transport;
+        if (t == null) {
+            synchronized (Transports.class) {
+                t = transport;
+                if (t == null) {
+                    t = fromEnvironment();
+                    transport = t;
+                }
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Create the transport in use if needed, and start keeping connections
+     * to myGCC ready if it is live.
+     */
+    public static void startWarming() {
+        getDefault();
+        ConnectionWarmer w = warmer;
+        if (w != null) {
+            w.start();
+        }
+    }
+
+    /**
+     * Replace the transport in use.
+     * @param t transport to use for all later requests
+     */
+    public static void setDefault(final Transport t) {
+        transport = t;
+    }
+
+    /**
+     * Create the transport configured in the environment.
+     * @return transport
+     */
+    private static Transport fromEnvironment() {
+        String mode = System.getenv("transport");
+        String dir = System.getenv("transportdir");
+        if (dir == null || dir.isEmpty()) {
+            dir = DEFAULT_DIR;
+        }
+        try {
+            if ("record".equals(mode)) {
+                return new RecordingTransport(new HttpTransport(),
+                        Paths.get(dir));
+            } else if ("replay".equals(mode)) {
+                String latency = System.getenv("replaylatency");
+                long delay = 0;
+                if (latency != null && !latency.isEmpty()) {
+                    delay = Long.parseLong(latency);
+                }
+                return new ReplayTransport(Paths.get(dir), delay);
+            } else if (mode == null || mode.isEmpty()
+                    || "live".equals(mode)) {
+                HttpTransport http = new HttpTransport();
+                warmer = ConnectionWarmer.fromEnvironment(http);
+                return new CoalescingTransport(new RetryingTransport(
+                        new CircuitBreakingTransport(new HedgingTransport(
+                                new ConcurrencyLimitingTransport(http)))));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error opening " + dir, e);
+        }
+        throw new IllegalStateException("Unknown transport '" + mode + "'");
+    }
+}
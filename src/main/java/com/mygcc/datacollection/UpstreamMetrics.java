@@ -0,0 +1,550 @@
+package com.mygcc.datacollection;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the connections used to reach myGCC.
+ *
+ * <h3>Overview</h3>
+ * <p>Opening a connection to myGCC costs a TCP and a TLS handshake, which is
+ * a large part of the time a request takes. The {@link HttpTransport} keeps
+ * connections open between requests and reports to these counters how many
+ * requests it sent, how many connections it had to open and how many TLS
+ * handshakes it made. Requests that did not open a connection reused one.
+ * The counters are served by the metrics endpoint.</p>
+ *
+ * <h3>Compression</h3>
+ * <p>For each myGCC endpoint, identified by its URL template (see
+ * {@link RequestAccount#template(String)}), the counters keep the number of
+ * responses, the bytes received, which are compressed if myGCC compressed
+ * the page, and the uncompressed size of the bodies that were read in full.
+ * The metrics endpoint is served without a login, so at most
+ * {@value #MAX_ENDPOINTS} endpoints are kept apart; responses from further
+ * endpoints are counted together under {@value #OTHER_ENDPOINTS}.</p>
+ *
+ * <h3>Hedging</h3>
+ * <p>The {@link HedgingTransport} reports how many requests could have been
+ * hedged, how many second copies it sent and how many of those answered
+ * first.</p>
+ *
+ * <h3>Retries</h3>
+ * <p>The {@link RetryingTransport} reports how many retries it sent and how
+ * many requests still failed when no retry was left.</p>
+ *
+ * <h3>Coalescing</h3>
+ * <p>The {@link CoalescingTransport} reports how many requests waited for
+ * an identical one in flight instead of being sent.</p>
+ *
+ * <h3>Warming</h3>
+ * <p>The {@link CachingResolver} reports its DNS lookups and cache hits,
+ * and the {@link ConnectionWarmer} the connections it opened ahead of
+ * requests. TLS handshakes that resumed an earlier session, recognised by
+ * a session ID seen before, are counted apart. The first request sent
+ * after a {@link HttpTransport} has been idle is timed, which shows
+ * whether warming paid off.</p>
+ */
+public final class UpstreamMetrics {
+    /**
+     * Counters of the shared transport.
+     */
+    private static final UpstreamMetrics INSTANCE = new UpstreamMetrics();
+
+    /**
+     * Largest number of endpoints with byte counters of their own.
+     */
+    static final int MAX_ENDPOINTS = 64;
+
+    /**
+     * Endpoint the bytes of endpoints past {@link #MAX_ENDPOINTS} are
+     * counted under.
+     */
+    static final String OTHER_ENDPOINTS = "other";
+
+    /**
+     * Requests sent.
+     */
+    private final LongAdder requests = new LongAdder();
+
+    /**
+     * Connections opened.
+     */
+    private final LongAdder opened = new LongAdder();
+
+    /**
+     * Connections closed.
+     */
+    private final LongAdder closed = new LongAdder();
+
+    /**
+     * Completed TLS handshakes.
+     */
+    private final LongAdder handshakes = new LongAdder();
+
+    /**
+     * Failed TLS handshakes.
+     */
+    private final LongAdder handshakeFailures = new LongAdder();
+
+    /**
+     * Requests that may be hedged.
+     */
+    private final LongAdder hedgeable = new LongAdder();
+
+    /**
+     * Second copies of requests sent.
+     */
+    private final LongAdder hedgesSent = new LongAdder();
+
+    /**
+     * Second copies that answered before the first.
+     */
+    private final LongAdder hedgesWon = new LongAdder();
+
+    /**
+     * Retries of failed requests sent.
+     */
+    private final LongAdder retries = new LongAdder();
+
+    /**
+     * Requests that failed with no retry left.
+     */
+    private final LongAdder exhausted = new LongAdder();
+
+    /**
+     * Requests that waited for an identical one in flight.
+     */
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * TLS handshakes that resumed an earlier session.
+     */
+    private final LongAdder resumed = new LongAdder();
+
+    /**
+     * DNS lookups.
+     */
+    private final LongAdder dnsLookups = new LongAdder();
+
+    /**
+     * Host names resolved from the cache.
+     */
+    private final LongAdder dnsHits = new LongAdder();
+
+    /**
+     * Requests sent to open connections ahead of use.
+     */
+    private final LongAdder warmups = new LongAdder();
+
+    /**
+     * Requests sent after the transport had been idle.
+     */
+    private final LongAdder firstRequests = new LongAdder();
+
+    /**
+     * Milliseconds of the requests sent after the transport had been idle,
+     * added up.
+     */
+    private final LongAdder firstRequestMillis = new LongAdder();
+
+    /**
+     * Byte counters keyed by endpoint.
+     */
+    private final Map<String, EndpointBytes> endpoints =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Get the counters of the shared transport.
+     * @return shared counters
+     */
+    public static UpstreamMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Record a request sent.
+     */
+    public void requestSent() {
+        requests.increment();
+    }
+
+    /**
+     * Record a connection opened.
+     */
+    public void connectionOpened() {
+        opened.increment();
+    }
+
+    /**
+     * Record a connection closed.
+     */
+    public void connectionClosed() {
+        closed.increment();
+    }
+
+    /**
+     * Record a completed TLS handshake.
+     */
+    public void handshakeSucceeded() {
+        handshakes.increment();
+    }
+
+    /**
+     * Record a failed TLS handshake.
+     */
+    public void handshakeFailed() {
+        handshakeFailures.increment();
+    }
+
+    /**
+     * Record a request that may be hedged.
+     */
+    public void hedgeableRequest() {
+        hedgeable.increment();
+    }
+
+    /**
+     * Record a second copy of a request sent.
+     */
+    public void hedgeSent() {
+        hedgesSent.increment();
+    }
+
+    /**
+     * Record a second copy that answered before the first.
+     */
+    public void hedgeWon() {
+        hedgesWon.increment();
+    }
+
+    /**
+     * Record a retry of a failed request sent.
+     */
+    public void retrySent() {
+        retries.increment();
+    }
+
+    /**
+     * Record a request that failed with no retry left.
+     */
+    public void retriesExhausted() {
+        exhausted.increment();
+    }
+
+    /**
+     * Record a request that waited for an identical one in flight.
+     */
+    public void requestCoalesced() {
+        coalesced.increment();
+    }
+
+    /**
+     * Record a TLS handshake that resumed an earlier session. It is also
+     * recorded with {@link #handshakeSucceeded()}.
+     */
+    public void handshakeResumed() {
+        resumed.increment();
+    }
+
+    /**
+     * Record a DNS lookup.
+     */
+    public void dnsLookup() {
+        dnsLookups.increment();
+    }
+
+    /**
+     * Record a host name resolved from the cache.
+     */
+    public void dnsCacheHit() {
+        dnsHits.increment();
+    }
+
+    /**
+     * Record a request sent to open a connection ahead of use.
+     */
+    public void warmupSent() {
+        warmups.increment();
+    }
+
+    /**
+     * Record a request sent after the transport had been idle.
+     * @param millis milliseconds until the request ended
+     */
+    public void firstRequest(final long millis) {
+        firstRequests.increment();
+        firstRequestMillis.add(millis);
+    }
+
+    /**
+     * Record the size of a response as received.
+     * @param endpoint URL template of the request
+     * @param wire number of bytes received
+     */
+    public void bytesReceived(final String endpoint, final long wire) {
+        EndpointBytes bytes = endpoint(endpoint);
+        bytes.responses.increment();
+        bytes.wire.add(wire);
+    }
+
+    /**
+     * Record the uncompressed size of a response body.
+     * @param endpoint URL template of the request
+     * @param size number of bytes after decompression
+     */
+    public void bytesDecoded(final String endpoint, final long size) {
+        endpoint(endpoint).decoded.add(size);
+    }
+
+    /**
+     * Get the number of bytes received from an endpoint.
+     * @param endpoint URL template of the request
+     * @return bytes received
+     */
+    public long getBytesReceived(final String endpoint) {
+        EndpointBytes bytes = endpoints.get(endpoint);
+        if (bytes == null) {
+            return 0;
+        }
+        return bytes.wire.sum();
+    }
+
+    /**
+     * Get the uncompressed number of bytes received from an endpoint.
+     * @param endpoint URL template of the request
+     * @return bytes after decompression
+     */
+    public long getBytesDecoded(final String endpoint) {
+        EndpointBytes bytes = endpoints.get(endpoint);
+        if (bytes == null) {
+            return 0;
+        }
+        return bytes.decoded.sum();
+    }
+
+    /**
+     * Get the number of requests sent.
+     * @return requests sent
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * Get the number of connections opened.
+     * @return connections opened
+     */
+    public long getConnectionsOpened() {
+        return opened.sum();
+    }
+
+    /**
+     * Get the number of requests sent on a connection opened by an earlier
+     * request.
+     * @return requests that reused a connection
+     */
+    public long getConnectionsReused() {
+        return Math.max(0, requests.sum() - opened.sum());
+    }
+
+    /**
+     * Get the number of connections currently open.
+     * @return connections open
+     */
+    public long getConnectionsOpen() {
+        return Math.max(0, opened.sum() - closed.sum());
+    }
+
+    /**
+     * Get the number of completed TLS handshakes.
+     * @return TLS handshakes
+     */
+    public long getHandshakes() {
+        return handshakes.sum();
+    }
+
+    /**
+     * Get the number of failed TLS handshakes.
+     * @return failed TLS handshakes
+     */
+    public long getHandshakeFailures() {
+        return handshakeFailures.sum();
+    }
+
+    /**
+     * Get the number of requests that may be hedged.
+     * @return hedgeable requests
+     */
+    public long getHedgeableRequests() {
+        return hedgeable.sum();
+    }
+
+    /**
+     * Get the number of second copies of requests sent.
+     * @return hedges sent
+     */
+    public long getHedgesSent() {
+        return hedgesSent.sum();
+    }
+
+    /**
+     * Get the number of second copies that answered before the first.
+     * @return hedges that won
+     */
+    public long getHedgesWon() {
+        return hedgesWon.sum();
+    }
+
+    /**
+     * Get the number of retries of failed requests sent.
+     * @return retries sent
+     */
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * Get the number of requests that failed with no retry left.
+     * @return requests that failed after retrying
+     */
+    public long getRetriesExhausted() {
+        return exhausted.sum();
+    }
+
+    /**
+     * Get the number of requests that waited for an identical one in
+     * flight.
+     * @return requests not sent
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Get the number of TLS handshakes that resumed an earlier session.
+     * @return resumed TLS handshakes
+     */
+    public long getHandshakesResumed() {
+        return resumed.sum();
+    }
+
+    /**
+     * Get the number of DNS lookups.
+     * @return DNS lookups
+     */
+    public long getDnsLookups() {
+        return dnsLookups.sum();
+    }
+
+    /**
+     * Get the number of host names resolved from the cache.
+     * @return DNS cache hits
+     */
+    public long getDnsCacheHits() {
+        return dnsHits.sum();
+    }
+
+    /**
+     * Get the number of requests sent to open connections ahead of use.
+     * @return warm-up requests
+     */
+    public long getWarmups() {
+        return warmups.sum();
+    }
+
+    /**
+     * Get the number of requests sent after the transport had been idle.
+     * @return first requests
+     */
+    public long getFirstRequests() {
+        return firstRequests.sum();
+    }
+
+    /**
+     * Get the milliseconds of the requests sent after the transport had
+     * been idle, added up.
+     * @return milliseconds
+     */
+    public long getFirstRequestMillis() {
+        return firstRequestMillis.sum();
+    }
+
+    /**
+     * Get all counters.
+     * @return counter values keyed by name, with the byte counters of each
+     *         endpoint under {@code endpoints}
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("requests", getRequests());
+        values.put("connectionsOpened", getConnectionsOpened());
+        values.put("connectionsReused", getConnectionsReused());
+        values.put("connectionsOpen", getConnectionsOpen());
+        values.put("tlsHandshakes", getHandshakes());
+        values.put("tlsHandshakeFailures", getHandshakeFailures());
+        values.put("hedgeableRequests", getHedgeableRequests());
+        values.put("hedgesSent", getHedgesSent());
+        values.put("hedgesWon", getHedgesWon());
+        values.put("retries", getRetries());
+        values.put("retriesExhausted", getRetriesExhausted());
+        values.put("coalesced", getCoalesced());
+        values.put("tlsHandshakesResumed", getHandshakesResumed());
+        values.put("dnsLookups", getDnsLookups());
+        values.put("dnsCacheHits", getDnsCacheHits());
+        values.put("warmups", getWarmups());
+        values.put("firstRequests", getFirstRequests());
+        values.put("firstRequestMillis", getFirstRequestMillis());
+
+        Map<String, Object> bytes = new TreeMap<>();
+        for (Map.Entry<String, EndpointBytes> e : endpoints.entrySet()) {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            counts.put("responses", e.getValue().responses.sum());
+            counts.put("bytesReceived", e.getValue().wire.sum());
+            counts.put("bytesUncompressed", e.getValue().decoded.sum());
+            bytes.put(e.getKey(), counts);
+        }
+        values.put("endpoints", bytes);
+        return values;
+    }
+
+    /**
+     * Get the byte counters of an endpoint, or the shared counters once
+     * {@link #MAX_ENDPOINTS} endpoints have their own.
+     * @param endpoint URL template of the request
+     * @return byte counters
+     */
+    private EndpointBytes endpoint(final String endpoint) {
+        EndpointBytes bytes = endpoints.get(endpoint);
+        if (bytes != null) {
+            return bytes;
+        }
+        String key = endpoint;
+        if (endpoints.size() >= MAX_ENDPOINTS) {
+            key = OTHER_ENDPOINTS;
+        }
+        return endpoints.computeIfAbsent(key, k -> new EndpointBytes());
+    }
+
+    /**
+     * Byte counters of one endpoint.
+     */
+    private static final class EndpointBytes {
+        /**
+         * Responses received.
+         */
+        private final LongAdder responses = new LongAdder();
+
+        /**
+         * Bytes received.
+         */
+        private final LongAdder wire = new LongAdder();
+
+        /**
+         * Bytes after decompression.
+         */
+        private final LongAdder decoded = new LongAdder();
+    }
+}
@@ -0,0 +1,323 @@
+package com.mygcc.datacollection;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * HTTP request to myGCC.
+ *
+ * <h3>Usage</h3>
+ * <p>Requests are sent with a {@link Transport}. Redirects are followed by
+ * default; callers that need to see redirects, such as {@link Session}, turn
+ * this off with {@link #setFollowRedirects(boolean)}. Callers that only need
+ * the status and headers of a large page can skip downloading it with
+ * {@link #setReadBody(boolean)}; a small body is read anyway so the
+ * connection can be reused. Callers that need the body of only some
+ * responses, such as a rejected login, pick them by their status and
+ * headers with {@link #setReadBodyIf(Predicate)}.</p>
+ *
+ * <h3>Deadline</h3>
+ * <p>A request made for an API request carries that request's
+ * {@link Deadline}. The transport gives the request only the time left
+ * before the deadline and does not send it at all once the deadline has
+ * passed.</p>
+ *
+ * <h3>Hedging</h3>
+ * <p>A GET that may safely be sent twice can be marked with
+ * {@link #setHedged(boolean)}; the {@link HedgingTransport} then sends a
+ * second copy if the first is slow. Requests that change state on myGCC,
+ * such as logins and post backs, must not be marked.</p>
+ *
+ * <h3>Retries</h3>
+ * <p>GET and HEAD requests that fail with a transient error are sent again
+ * by the {@link RetryingTransport}. A request made for an API request
+ * carries that request's {@link RetryBudget}, which limits the retries of
+ * all its requests together.</p>
+ *
+ * <h3>User</h3>
+ * <p>A request made for a user carries the {@link Token#userHash()} of that
+ * user, so the {@link ConcurrencyLimiter} can share myGCC fairly between
+ * users.</p>
+ *
+ * <h3>Accounting</h3>
+ * <p>A request made for an API request carries that request's
+ * {@link RequestAccount}, in which the {@link HttpTransport} records each
+ * copy of the request it sends.</p>
+ */
+public final class UpstreamRequest {
+    /**
+     * HTTP method.
+     */
+    private final String method;
+
+    /**
+     * Absolute URL.
+     */
+    private final String url;
+
+    /**
+     * Request headers in the order they were set.
+     */
+    private final Map<String, String> headers = new LinkedHashMap<>();
+
+    /**
+     * Request body, or null if the request has none.
+     */
+    private byte[] body;
+
+    /**
+     * Whether redirects are followed.
+     */
+    private boolean followRedirects = true;
+
+    /**
+     * Whether the response body is read.
+     */
+    private boolean readBody = true;
+
+    /**
+     * Test of the status and headers of a response whose body is read
+     * although {@link #readBody} is false, or null.
+     */
+    private Predicate<UpstreamResponse> readBodyIf;
+
+    /**
+     * Deadline of the API request the request is made for.
+     */
+    private Deadline deadline = Deadline.none();
+
+    /**
+     * Whether a second copy may be sent if the request is slow.
+     */
+    private boolean hedged;
+
+    /**
+     * Retries left to the API request the request is made for.
+     */
+    private RetryBudget retryBudget = RetryBudget.unlimited();
+
+    /**
+     * Hash of the username of the user the request is made for, or null.
+     */
+    private String user;
+
+    /**
+     * Account of the API request the request is made for.
+     */
+    private RequestAccount account = RequestAccount.none();
+
+    /**
+     * Create request.
+     * @param meth HTTP method
+     * @param location absolute URL
+     */
+    public UpstreamRequest(final String meth, final String location) {
+        this.method = meth;
+        this.url = location;
+    }
+
+    /**
+     * Get HTTP method.
+     * @return HTTP method
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Get URL.
+     * @return absolute URL
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Get request headers.
+     * @return headers in the order they were set
+     */
+    public Map<String, String> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * Set a request header, replacing any previous value.
+     * @param name header name
+     * @param value header value
+     */
+    public void setHeader(final String name, final String value) {
+        headers.put(name, value);
+    }
+
+    /**
+     * Get request body.
+     * @return body or null if the request has none
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Set request body.
+     * @param data body
+     */
+    public void setBody(final byte[] data) {
+        this.body = data;
+    }
+
+    /**
+     * Set request body from a string.
+     * @param data body, encoded as UTF-8
+     */
+    public void setBody(final String data) {
+        setBody(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Set a {@code multipart/form-data} request body and its
+     * {@code Content-Type} header.
+     * @param data body
+     */
+    public void setBody(final MultipartBody data) {
+        setHeader("Content-Type", data.getContentType());
+        setBody(data.toByteArray());
+    }
+
+    /**
+     * Check whether redirects are followed.
+     * @return whether redirects are followed
+     */
+    public boolean isFollowRedirects() {
+        return followRedirects;
+    }
+
+    /**
+     * Set whether redirects are followed.
+     * @param follow whether redirects are followed
+     */
+    public void setFollowRedirects(final boolean follow) {
+        this.followRedirects = follow;
+    }
+
+    /**
+     * Check whether the response body is read.
+     * @return whether the response body is read
+     */
+    public boolean isReadBody() {
+        return readBody;
+    }
+
+    /**
+     * Set whether the response body is read. A response whose body is not
+     * read has an empty body, unless the body was small enough to read
+     * anyway.
+     * @param read whether the response body is read
+     */
+    public void setReadBody(final boolean read) {
+        this.readBody = read;
+    }
+
+    /**
+     * Check whether the body of a response is read.
+     * @param headers response with the status and headers received, and no
+     *                body
+     * @return whether the response body is read
+     */
+    public boolean isReadBody(final UpstreamResponse headers) {
+        return readBody || (readBodyIf != null && readBodyIf.test(headers));
+    }
+
+    /**
+     * Read the body of the responses that pass a test of their status and
+     * headers, even when {@link #setReadBody(boolean)} turned reading off.
+     * @param test test of a response with no body, or null
+     */
+    public void setReadBodyIf(final Predicate<UpstreamResponse> test) {
+        this.readBodyIf = test;
+    }
+
+    /**
+     * Get the deadline of the API request the request is made for.
+     * @return deadline, {@link Deadline#none()} if there is none
+     */
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Set the deadline of the API request the request is made for.
+     * @param limit deadline
+     */
+    public void setDeadline(final Deadline limit) {
+        this.deadline = limit;
+    }
+
+    /**
+     * Check whether a second copy may be sent if the request is slow.
+     * @return whether the request may be hedged
+     */
+    public boolean isHedged() {
+        return hedged;
+    }
+
+    /**
+     * Set whether a second copy may be sent if the request is slow. Only
+     * GET requests are hedged.
+     * @param hedge whether the request may be hedged
+     */
+    public void setHedged(final boolean hedge) {
+        this.hedged = hedge;
+    }
+
+    /**
+     * Get the retries left to the API request the request is made for.
+     * @return retry budget, {@link RetryBudget#unlimited()} if there is none
+     */
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    /**
+     * Set the retries left to the API request the request is made for.
+     * @param budget retry budget
+     */
+    public void setRetryBudget(final RetryBudget budget) {
+        this.retryBudget = budget;
+    }
+
+    /**
+     * Get the user the request is made for.
+     * @return hash of the username, or null if the request is not made
+     *         for a user
+     */
+    public String getUser() {
+        return user;
+    }
+
+    /**
+     * Set the user the request is made for.
+     * @param userHash hash of the username, or null
+     */
+    public void setUser(final String userHash) {
+        this.user = userHash;
+    }
+
+    /**
+     * Get the account of the API request the request is made for.
+     * @return account, {@link RequestAccount#none()} if there is none
+     */
+    public RequestAccount getAccount() {
+        return account;
+    }
+
+    /**
+     * Set the account of the API request the request is made for.
+     * @param ledger account
+     */
+    public void setAccount(final RequestAccount ledger) {
+        this.account = ledger;
+    }
+}
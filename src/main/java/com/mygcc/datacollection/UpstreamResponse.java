@@ -0,0 +1,282 @@
+package com.mygcc.datacollection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * HTTP response from myGCC.
+ *
+ * <h3>Usage</h3>
+ * <p>Responses are returned by a {@link Transport} with the whole body
+ * already read, so there is no connection for the caller to close. Header
+ * names are case-insensitive.</p>
+ *
+ * <h3>Compression</h3>
+ * <p>The body is kept as it was received. If myGCC compressed it, as given
+ * by the {@code Content-Encoding} header, it is decompressed on demand:
+ * {@link #getBodyStream()} decompresses while the caller reads, so a parser
+ * that stops early never decompresses the rest of the page, and
+ * {@link #getBodyBytes()} decompresses the whole body once and keeps the
+ * result. Both {@code gzip} and {@code deflate} are supported; a
+ * {@code deflate} body may be sent with or without the zlib wrapper.</p>
+ */
+public final class UpstreamResponse {
+    /**
+     * Number of bytes decompressed at a time.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Typical ratio of uncompressed to compressed size of a myGCC page.
+     */
+    private static final int EXPECTED_RATIO = 6;
+
+    /**
+     * Mask of the low byte of an integer.
+     */
+    private static final int BYTE_MASK = 0xff;
+
+    /**
+     * Mask of the compression method bits of a zlib header.
+     */
+    private static final int LOW_NIBBLE = 0x0f;
+
+    /**
+     * Compression method of a zlib header for deflate.
+     */
+    private static final int DEFLATE_METHOD = 8;
+
+    /**
+     * Divisor of the check bits of a zlib header.
+     */
+    private static final int ZLIB_CHECK = 31;
+
+    /**
+     * HTTP status code.
+     */
+    private final int status;
+
+    /**
+     * Response headers keyed by case-insensitive name.
+     */
+    private final Map<String, List<String>> headers =
+            new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * Response body as received.
+     */
+    private final byte[] body;
+
+    /**
+     * Decompressed response body, set on first use.
+     */
+    private byte[] decoded;
+
+    /**
+     * Response body decoded as UTF-8, set on first use.
+     */
+    private String text;
+
+    /**
+     * Called with the size of the decompressed body, or null.
+     */
+    private LongConsumer decodedListener;
+
+    /**
+     * Create response.
+     * @param code HTTP status code
+     * @param data response body
+     */
+    public UpstreamResponse(final int code, final byte[] data) {
+        this.status = code;
+        this.body = data;
+    }
+
+    /**
+     * Get HTTP status code.
+     * @return status code
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Add a response header value.
+     * @param name header name
+     * @param value header value
+     */
+    public void addHeader(final String name, final String value) {
+        headers.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+    }
+
+    /**
+     * Get the first value of a response header.
+     * @param name header name
+     * @return header value or null if the header is not present
+     */
+    public String getHeader(final String name) {
+        List<String> values = headers.get(name);
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        return values.get(0);
+    }
+
+    /**
+     * Get all values of a response header.
+     * @param name header name
+     * @return header values, empty if the header is not present
+     */
+    public List<String> getHeaders(final String name) {
+        List<String> values = headers.get(name);
+        if (values == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Get all response headers.
+     * @return header values keyed by header name
+     */
+    public Map<String, List<String>> getHeaders() {
+        return Collections.unmodifiableMap(headers);
+    }
+
+    /**
+     * Get the size of the body as received.
+     * @return number of bytes received, compressed or not
+     */
+    public int getWireLength() {
+        return body.length;
+    }
+
+    /**
+     * Set a listener to be told the size of the body once it has been
+     * decompressed in full.
+     * @param listener listener, or null for none
+     */
+    void setDecodedListener(final LongConsumer listener) {
+        this.decodedListener = listener;
+    }
+
+    /**
+     * Get the response body as a stream, decompressing it while it is read.
+     * @return uncompressed body
+     * @throws IOException the body uses an unsupported encoding
+     */
+    public InputStream getBodyStream() throws IOException {
+        InputStream raw = new ByteArrayInputStream(body);
+        String encoding = getHeader("Content-Encoding");
+        if (encoding == null) {
+            return raw;
+        }
+        switch (encoding.trim().toLowerCase()) {
+            case "":
+            case "identity":
+                return raw;
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(raw, BUFFER_SIZE);
+            case "deflate":
+                if (isZlib()) {
+                    return new InflaterInputStream(raw);
+                }
+                return new InflaterInputStream(raw, new Inflater(true));
+            default:
+                throw new IOException("Unsupported content encoding "
+                        + encoding);
+        }
+    }
+
+    /**
+     * Get the response body as a character stream.
+     * @return uncompressed body decoded as UTF-8
+     * @throws IOException the body uses an unsupported encoding
+     */
+    public Reader getBodyReader() throws IOException {
+        return new InputStreamReader(getBodyStream(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get response body.
+     * @return uncompressed body
+     * @throws UncheckedIOException the body could not be decompressed
+     */
+    public synchronized byte[] getBodyBytes() {
+        if (decoded == null) {
+            if (getHeader("Content-Encoding") == null) {
+                decoded = body;
+            } else {
+                decoded = decode();
+            }
+            if (decodedListener != null) {
+                decodedListener.accept(decoded.length);
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * Get response body as a string.
+     * @return body decoded as UTF-8
+     * @throws UncheckedIOException the body could not be decompressed
+     */
+    public synchronized String getBody() {
+        // Decoded once even when several requests share the response
+        if (text == null) {
+            text = new String(getBodyBytes(), StandardCharsets.UTF_8);
+        }
+        return text;
+    }
+
+    /**
+     * Decompress the whole body.
+     * @return uncompressed body
+     */
+    private byte[] decode() {
+        try (InputStream in = getBodyStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(
+                    body.length * EXPECTED_RATIO);
+            byte[] buf = new byte[BUFFER_SIZE];
+            int len;
+            while ((len = in.read(buf)) != -1) {
+                out.write(buf, 0, len);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not decompress response",
+                    e);
+        }
+    }
+
+    /**
+     * Check whether a deflate body has the zlib wrapper. Some servers send
+     * raw deflate data instead.
+     * @return whether the body starts with a zlib header
+     */
+    private boolean isZlib() {
+        if (body.length < 2) {
+            return false;
+        }
+        int cmf = body[0] & BYTE_MASK;
+        int flg = body[1] & BYTE_MASK;
+        return (cmf & LOW_NIBBLE) == DEFLATE_METHOD
+                && ((cmf << Byte.SIZE) | flg) % ZLIB_CHECK == 0;
+    }
+}
@@ -0,0 +1,87 @@
+package com.mygcc.api;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.Application;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class AdmissionFilterTest extends JerseyTest {
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(AdmissionFilter.class);
+    }
+
+    private static AdmissionFilter filter(final Method method)
+            throws Exception {
+        AdmissionFilter filter = new AdmissionFilter();
+        Field resource = AdmissionFilter.class.getDeclaredField("resource");
+        resource.setAccessible(true);
+        resource.set(filter, Proxy.newProxyInstance(
+                ResourceInfo.class.getClassLoader(),
+                new Class<?>[] {ResourceInfo.class},
+                (proxy, m, args) -> method));
+        return filter;
+    }
+
+    /**
+     * Request context keeping its properties in a map.
+     */
+    private static ContainerRequestContext request(
+            final Map<String, Object> properties) {
+        return (ContainerRequestContext) Proxy.newProxyInstance(
+                ContainerRequestContext.class.getClassLoader(),
+                new Class<?>[] {ContainerRequestContext.class},
+                (proxy, m, args) -> {
+                    if (m.getName().equals("getProperty")) {
+                        return properties.get(args[0]);
+                    } else if (m.getName().equals("setProperty")) {
+                        properties.put((String) args[0], args[1]);
+                    }
+                    return null;
+                });
+    }
+
+    private static int inUse() {
+        return (Integer) AdmissionScheduler.getInstance().snapshot()
+                .get("inUse");
+    }
+
+    @Test
+    public void testCapacityReturnedOnce() throws Exception {
+        int before = inUse();
+        ContainerRequestContext request = request(new HashMap<>());
+        filter(AuthResource.class.getMethod("authenticateUser",
+                User.class)).filter(request);
+        assertEquals(before + Endpoint.AUTH.cost(), inUse());
+
+        // The response filter and the end of the request both return it
+        new AdmissionFilter().filter(request, null);
+        AdmissionFilter.release(request);
+        assertEquals(before, inUse());
+    }
+
+    @Test
+    public void testAsynchronousResourcePassedThrough() throws Exception {
+        int before = inUse();
+        Map<String, Object> properties = new HashMap<>();
+        filter(ChapelResource.class.getMethod("getChapelData",
+                String.class)).filter(request(properties));
+        assertEquals(before, inUse());
+        assertNull(properties.get("com.mygcc.api.admitted"));
+    }
+}
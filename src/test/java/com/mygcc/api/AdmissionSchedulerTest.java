@@ -0,0 +1,224 @@
+package com.mygcc.api;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class AdmissionSchedulerTest extends JerseyTest {
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(AdmissionScheduler.class);
+    }
+
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+
+    @After
+    public void stopThreads() {
+        threads.shutdownNow();
+    }
+
+    /**
+     * Ask for admission on another thread, and wait until it is queued or
+     * turned away.
+     */
+    private CompletableFuture<Boolean> waitFor(
+            final AdmissionScheduler scheduler, final Endpoint endpoint)
+            throws InterruptedException {
+        long before = queueDepth(scheduler) + shed(scheduler);
+        CompletableFuture<Boolean> admitted = CompletableFuture.supplyAsync(
+                () -> {
+                    try {
+                        return scheduler.admit(endpoint);
+                    } catch (InterruptedException e) {
+                        throw new CompletionException(e);
+                    }
+                }, threads);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!admitted.isDone()
+                && queueDepth(scheduler) + shed(scheduler) == before
+                && System.nanoTime() < end) {
+            Thread.sleep(1);
+        }
+        return admitted;
+    }
+
+    private static int queueDepth(final AdmissionScheduler scheduler) {
+        return (Integer) scheduler.snapshot().get("queueDepth");
+    }
+
+    private static long shed(final AdmissionScheduler scheduler) {
+        return (Long) scheduler.snapshot().get("shed");
+    }
+
+    @Test
+    public void testFreeEndpointsBypass() throws InterruptedException {
+        AdmissionScheduler scheduler = new AdmissionScheduler(1, 0, 10);
+        assertTrue(scheduler.admit(Endpoint.CONTACT));
+        assertTrue(scheduler.admit(Endpoint.DEFAULT));
+        assertEquals(1, scheduler.snapshot().get("inUse"));
+    }
+
+    @Test
+    public void testCheapRequestsNotStarved() throws Exception {
+        AdmissionScheduler scheduler = new AdmissionScheduler(4, 10, 5000);
+        assertTrue(scheduler.admit(Endpoint.BIOGRAPHY));
+        CompletableFuture<Boolean> first =
+                waitFor(scheduler, Endpoint.BIOGRAPHY);
+        CompletableFuture<Boolean> second =
+                waitFor(scheduler, Endpoint.BIOGRAPHY);
+        CompletableFuture<Boolean> contact =
+                waitFor(scheduler, Endpoint.CONTACT);
+        assertEquals(3, queueDepth(scheduler));
+
+        // Contact information arrived last but has the earliest finish tag
+        scheduler.release(Endpoint.BIOGRAPHY);
+        assertTrue(contact.get(5, TimeUnit.SECONDS));
+        assertFalse(first.isDone());
+        scheduler.release(Endpoint.CONTACT);
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertFalse(second.isDone());
+        scheduler.release(Endpoint.BIOGRAPHY);
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTagsStartOverWhenDrained() throws Exception {
+        AdmissionScheduler scheduler = new AdmissionScheduler(1, 10, 5000);
+
+        // A flood of biography requests that has drained
+        assertTrue(scheduler.admit(Endpoint.CONTACT));
+        CompletableFuture<Boolean> first =
+                waitFor(scheduler, Endpoint.BIOGRAPHY);
+        CompletableFuture<Boolean> second =
+                waitFor(scheduler, Endpoint.BIOGRAPHY);
+        scheduler.release(Endpoint.CONTACT);
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        scheduler.release(Endpoint.BIOGRAPHY);
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+        scheduler.release(Endpoint.BIOGRAPHY);
+        assertEquals(0, scheduler.snapshot().get("inUse"));
+
+        // Biography takes its fair turn again, after three contacts
+        assertTrue(scheduler.admit(Endpoint.CONTACT));
+        CompletableFuture<Boolean> biography =
+                waitFor(scheduler, Endpoint.BIOGRAPHY);
+        List<CompletableFuture<Boolean>> contacts = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            contacts.add(waitFor(scheduler, Endpoint.CONTACT));
+        }
+        for (int i = 0; i < 3; i++) {
+            scheduler.release(Endpoint.CONTACT);
+            assertTrue(contacts.get(i).get(5, TimeUnit.SECONDS));
+        }
+        scheduler.release(Endpoint.CONTACT);
+        assertTrue(biography.get(5, TimeUnit.SECONDS));
+        assertFalse(contacts.get(3).isDone());
+    }
+
+    @Test
+    public void testExpensiveRequestsShedFirst() throws Exception {
+        AdmissionScheduler scheduler = new AdmissionScheduler(4, 2, 5000);
+        assertTrue(scheduler.admit(Endpoint.BIOGRAPHY));
+        CompletableFuture<Boolean> schedule =
+                waitFor(scheduler, Endpoint.SCHEDULE);
+        CompletableFuture<Boolean> biography =
+                waitFor(scheduler, Endpoint.BIOGRAPHY);
+
+        // A full queue makes room for cheaper work only
+        CompletableFuture<Boolean> contact =
+                waitFor(scheduler, Endpoint.CONTACT);
+        assertFalse(biography.get(5, TimeUnit.SECONDS));
+        assertFalse(scheduler.admit(Endpoint.SCHEDULE));
+        assertEquals(2L, scheduler.snapshot().get("shed"));
+
+        scheduler.release(Endpoint.BIOGRAPHY);
+        assertTrue(contact.get(5, TimeUnit.SECONDS));
+        assertTrue(schedule.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBoundedWait() throws Exception {
+        AdmissionScheduler scheduler = new AdmissionScheduler(4, 10, 20);
+        assertTrue(scheduler.admit(Endpoint.BIOGRAPHY));
+        assertFalse(scheduler.admit(Endpoint.CONTACT));
+        assertEquals(0, queueDepth(scheduler));
+        assertEquals(1L, scheduler.snapshot().get("timedOut"));
+
+        // Capacity freed later is not given to the request that left
+        scheduler.release(Endpoint.BIOGRAPHY);
+        assertEquals(0, scheduler.snapshot().get("inUse"));
+    }
+
+    @Test
+    public void testAsyncWaitHoldsNoThread() throws Exception {
+        AdmissionScheduler scheduler = new AdmissionScheduler(4, 10, 5000);
+        assertTrue(scheduler.admit(Endpoint.BIOGRAPHY));
+        CompletableFuture<Boolean> contact =
+                scheduler.admitAsync(Endpoint.CONTACT);
+        assertFalse(contact.isDone());
+        assertEquals(1, queueDepth(scheduler));
+
+        scheduler.release(Endpoint.BIOGRAPHY);
+        assertTrue(contact.get(5, TimeUnit.SECONDS));
+        assertEquals(1, scheduler.snapshot().get("inUse"));
+    }
+
+    @Test
+    public void testAsyncWaitBounded() throws Exception {
+        AdmissionScheduler scheduler = new AdmissionScheduler(4, 10, 20);
+        assertTrue(scheduler.admit(Endpoint.BIOGRAPHY));
+        CompletableFuture<Boolean> contact =
+                scheduler.admitAsync(Endpoint.CONTACT);
+        assertFalse(contact.get(5, TimeUnit.SECONDS));
+        assertEquals(0, queueDepth(scheduler));
+        assertEquals(1L, scheduler.snapshot().get("timedOut"));
+    }
+
+    @Test
+    public void testAbandonedWaitLeavesQueue() throws Exception {
+        AdmissionScheduler scheduler = new AdmissionScheduler(4, 10, 5000);
+        assertTrue(scheduler.admit(Endpoint.BIOGRAPHY));
+        CompletableFuture<Boolean> contact =
+                scheduler.admitAsync(Endpoint.CONTACT);
+        contact.complete(false);
+        assertEquals(0, queueDepth(scheduler));
+
+        scheduler.release(Endpoint.BIOGRAPHY);
+        assertEquals(0, scheduler.snapshot().get("inUse"));
+    }
+
+    @Test
+    public void testAdmittedWorkReturnsCapacity() throws Exception {
+        AdmissionScheduler scheduler = AdmissionScheduler.getInstance();
+        int before = (Integer) scheduler.snapshot().get("inUse");
+        CompletableFuture<Response> work = new CompletableFuture<>();
+        CompletionStage<Response> response = new WelcomeResource()
+                .whenAdmitted(Endpoint.CHAPEL, () -> work);
+        assertEquals(before + Endpoint.CHAPEL.cost(),
+                scheduler.snapshot().get("inUse"));
+
+        work.complete(null);
+        response.toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertEquals(before, scheduler.snapshot().get("inUse"));
+    }
+}
@@ -36,7 +36,7 @@ public final class BiographyResourceTest extends JerseyTest {
             String token = auth.encrypt();
 
             BiographyResource br = new BiographyResource();
-            Response r = br.getAllData(token);
+            Response r = br.getAllData(token).toCompletableFuture().join();
             assertEquals("test success status", Response.Status.OK.getStatusCode(), r.getStatus());
         } catch (Exception e) {
             e.printStackTrace();
@@ -54,14 +54,14 @@ public final class BiographyResourceTest extends JerseyTest {
         String token = auth.encrypt();
 
         BiographyResource br = new BiographyResource();
-        Response r = br.getAllData(token);
+        Response r = br.getAllData(token).toCompletableFuture().join();
         assertEquals("test unauthorized status code", Response.Status.UNAUTHORIZED.getStatusCode(), r.getStatus());
     }
 
     @Test
     public void testBiographyStatusNullToken() {
         BiographyResource br = new BiographyResource();
-        Response r = br.getAllData(null);
+        Response r = br.getAllData(null).toCompletableFuture().join();
         assertEquals("test unauthorized status code", Response.Status.UNAUTHORIZED.getStatusCode(), r.getStatus());
     }
 }
@@ -25,7 +25,7 @@ public final class ChapelResourceTest extends JerseyTest {
     @Test
     public void testNullAuthorization() {
         ChapelResource chap = new ChapelResource();
-        Response r = chap.getChapelData(null);
+        Response r = chap.getChapelData(null).toCompletableFuture().join();
         assertEquals("status should be unauthorized", Response.Status.UNAUTHORIZED.getStatusCode(), r.getStatus());
     }
 
@@ -39,7 +39,7 @@ public final class ChapelResourceTest extends JerseyTest {
                 && System.getenv("initvect") != null
                 && System.getenv("enckey") != null);
         ChapelResource chap = new ChapelResource();
-        Response r = chap.getChapelData("asdf");
+        Response r = chap.getChapelData("asdf").toCompletableFuture().join();
         assertEquals("token should be invalid", Response.Status.UNAUTHORIZED.getStatusCode(), r.getStatus());
     }
 
@@ -60,7 +60,7 @@ public final class ChapelResourceTest extends JerseyTest {
             String token = auth.encrypt();
 
             ChapelResource chap = new ChapelResource();
-            Response r = chap.getChapelData(token);
+            Response r = chap.getChapelData(token).toCompletableFuture().join();
             assertEquals("test working key", Response.Status.OK.getStatusCode(), r.getStatus());
         } catch (Exception e) {
             e.printStackTrace();
@@ -70,7 +70,7 @@ public final class ChapelResourceTest extends JerseyTest {
     @Test
     public void testChapelStatusNullToken() {
         ChapelResource br = new ChapelResource();
-        Response r = br.getChapelData(null);
+        Response r = br.getChapelData(null).toCompletableFuture().join();
         assertEquals("test unauthorized status code", Response.Status.UNAUTHORIZED.getStatusCode(), r.getStatus());
     }
 }
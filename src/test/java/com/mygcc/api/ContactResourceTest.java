@@ -23,7 +23,7 @@ public final class ContactResourceTest extends JerseyTest {
     @Test
     public void testNullAuthorization() {
         ContactResource conres = new ContactResource();
-        Response r = conres.getContactData(null);
+        Response r = conres.getContactData(null).toCompletableFuture().join();
         assertEquals("status should be unauthorized", Response.Status.UNAUTHORIZED.getStatusCode(), r.getStatus());
     }
 
@@ -34,7 +34,7 @@ public final class ContactResourceTest extends JerseyTest {
                 && System.getenv("initvect") != null
                 && System.getenv("enckey") != null);
         ContactResource conres = new ContactResource();
-        Response r = conres.getContactData("asdf");
+        Response r = conres.getContactData("asdf").toCompletableFuture().join();
         assertEquals("status should be unauthorized", Response.Status.UNAUTHORIZED.getStatusCode(), r.getStatus());
     }
 
@@ -52,7 +52,7 @@ public final class ContactResourceTest extends JerseyTest {
             String token = auth.encrypt();
 
             ContactResource conres = new ContactResource();
-            Response r = conres.getContactData(token);
+            Response r = conres.getContactData(token).toCompletableFuture().join();
             assertEquals("test working key", Response.Status.OK.getStatusCode(), r.getStatus());
         } catch (Exception e) {
             e.printStackTrace();
@@ -26,7 +26,7 @@ public final class CrimsonCashResourceTest extends JerseyTest {
     @Test
     public void testNullAuthorization() {
         CrimsonCashResource cc = new CrimsonCashResource();
-        Response r = cc.getCrimsonCashData(null);
+        Response r = cc.getCrimsonCashData(null).toCompletableFuture().join();
         assertEquals("status should be 401", Response.Status.UNAUTHORIZED.getStatusCode(), r.getStatus());
     }
 
@@ -40,7 +40,7 @@ public final class CrimsonCashResourceTest extends JerseyTest {
                 && System.getenv("initvect") != null
                 && System.getenv("enckey") != null);
         CrimsonCashResource cc = new CrimsonCashResource();
-        Response r = cc.getCrimsonCashData("asdf");
+        Response r = cc.getCrimsonCashData("asdf").toCompletableFuture().join();
         assertEquals("token should be invalid; status should be 400", Response.Status.UNAUTHORIZED.getStatusCode(), r.getStatus());
     }
 
@@ -61,7 +61,7 @@ public final class CrimsonCashResourceTest extends JerseyTest {
             String token = auth.encrypt();
 
             CrimsonCashResource cc = new CrimsonCashResource();
-            Response r = cc.getCrimsonCashData(token);
+            Response r = cc.getCrimsonCashData(token).toCompletableFuture().join();
             assertEquals("test working key", Response.Status.OK.getStatusCode(), r.getStatus());
         } catch (Exception e) {
             e.printStackTrace();
@@ -0,0 +1,50 @@
+package com.mygcc.api;
+
+import com.mygcc.datacollection.Deadline;
+import com.mygcc.datacollection.RequestAccount;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.lang.reflect.Proxy;
+
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CurrentRequestListenerTest extends JerseyTest {
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(CurrentRequestListener.class);
+    }
+
+    private static RequestEvent event(final RequestEvent.Type type) {
+        return (RequestEvent) Proxy.newProxyInstance(
+                RequestEvent.class.getClassLoader(),
+                new Class<?>[] {RequestEvent.class},
+                (proxy, method, args) -> type);
+    }
+
+    @Test
+    public void testClearedWhenResourceMethodReturns() {
+        new DeadlineFilter().filter(null);
+        RequestAccount.setCurrent(new RequestAccount());
+        RequestEventListener listener = new CurrentRequestListener()
+                .onRequest(event(RequestEvent.Type.START));
+
+        listener.onEvent(event(RequestEvent.Type.RESOURCE_METHOD_START));
+        assertTrue(Deadline.current().isSet());
+        assertTrue(RequestAccount.current().isSet());
+
+        // An asynchronous resource has returned before its response filters
+        listener.onEvent(event(RequestEvent.Type.RESOURCE_METHOD_FINISHED));
+        assertSame(Deadline.none(), Deadline.current());
+        assertSame(RequestAccount.none(), RequestAccount.current());
+    }
+}
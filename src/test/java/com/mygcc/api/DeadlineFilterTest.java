@@ -0,0 +1,53 @@
+package com.mygcc.api;
+
+import com.mygcc.datacollection.Deadline;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DeadlineFilterTest extends JerseyTest {
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(DeadlineFilter.class);
+    }
+
+    @Test
+    public void testAnnotatedEndpoint() throws Exception {
+        assertEquals(Endpoint.CHAPEL, Endpoint.of(
+                ChapelResource.class.getMethod("getChapelData",
+                        String.class)));
+        assertEquals(Endpoint.BIOGRAPHY, Endpoint.of(
+                BiographyResource.class.getMethod("getAllData",
+                        String.class)));
+    }
+
+    @Test
+    public void testDefaultEndpoint() throws Exception {
+        assertEquals(Endpoint.DEFAULT, Endpoint.of(
+                WelcomeResource.class.getMethod("getWelcomeMessage")));
+        assertEquals(Endpoint.DEFAULT, Endpoint.of(null));
+    }
+
+    @Test
+    public void testFilterSetsAndClearsDeadline() {
+        DeadlineFilter filter = new DeadlineFilter();
+        filter.filter(null);
+        try {
+            assertTrue(Deadline.current().isSet());
+            assertFalse(Deadline.current().isExpired());
+        } finally {
+            filter.filter(null, null);
+        }
+        assertSame(Deadline.none(), Deadline.current());
+    }
+}
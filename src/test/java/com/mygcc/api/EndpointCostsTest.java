@@ -0,0 +1,68 @@
+package com.mygcc.api;
+
+import com.mygcc.datacollection.RequestAccount;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class EndpointCostsTest extends JerseyTest {
+    private static final String URL = "https://my.gcc.edu/ICS/page";
+
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(EndpointCosts.class);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTotalsPerEndpoint() {
+        EndpointCosts costs = new EndpointCosts(1);
+        for (int i = 0; i < 2; i++) {
+            RequestAccount account = new RequestAccount();
+            account.record(new RequestAccount.Hop("GET", URL, 200, 0, 1000,
+                    20, 50));
+            account.record(new RequestAccount.Hop("POST", URL, 503, 300, 10,
+                    10, 30));
+            costs.record(Endpoint.BIOGRAPHY, 200, account);
+        }
+        Map<String, Object> snapshot = costs.snapshot();
+        assertFalse(snapshot.containsKey(Endpoint.CHAPEL.key()));
+        Map<String, Object> bio =
+                (Map<String, Object>) snapshot.get(Endpoint.BIOGRAPHY.key());
+        assertEquals(2L, bio.get("requests"));
+        assertEquals(4L, bio.get("upstreamRequests"));
+        assertEquals(2L, bio.get("upstreamFailures"));
+        assertEquals(600L, bio.get("bytesOut"));
+        assertEquals(2020L, bio.get("bytesIn"));
+        assertEquals(160L, bio.get("upstreamMillis"));
+        assertEquals(2.0, bio.get("upstreamRequestsPerRequest"));
+        assertEquals(15.0, bio.get("firstByteMillisPerUpstreamRequest"));
+    }
+
+    @Test
+    public void testLogLinePerAccount() {
+        RequestAccount account = new RequestAccount();
+        account.record(new RequestAccount.Hop("GET", URL, 200, 0, 1000,
+                20, 50));
+        account.record(new RequestAccount.Hop("POST", URL, 503, 300, 10,
+                10, 30));
+        String line = EndpointCosts.line(Endpoint.BIOGRAPHY, 200,
+                account.getHops());
+        assertFalse(line.contains("\n"));
+        assertTrue(line.startsWith("account " + Endpoint.BIOGRAPHY.key()
+                + " 200: 2 upstream [GET "));
+        assertTrue(line.contains("; POST "));
+        assertTrue(line.endsWith("ms]"));
+    }
+}
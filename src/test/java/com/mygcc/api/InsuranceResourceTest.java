@@ -26,7 +26,7 @@ public final class InsuranceResourceTest extends JerseyTest {
     @Test
     public void testNullAuthorization() {
         InsuranceResource ins = new InsuranceResource();
-        Response r = ins.getInsuranceData(null);
+        Response r = ins.getInsuranceData(null).toCompletableFuture().join();
         assertEquals("status should be 400", Response.Status.UNAUTHORIZED.getStatusCode(), r.getStatus());
     }
 
@@ -40,7 +40,7 @@ public final class InsuranceResourceTest extends JerseyTest {
                 && System.getenv("initvect") != null
                 && System.getenv("enckey") != null);
         InsuranceResource ins = new InsuranceResource();
-        Response r = ins.getInsuranceData("asdf");
+        Response r = ins.getInsuranceData("asdf").toCompletableFuture().join();
         assertEquals("token should be invalid", Response.Status.UNAUTHORIZED.getStatusCode(), r.getStatus());
     }
 
@@ -61,7 +61,7 @@ public final class InsuranceResourceTest extends JerseyTest {
             String token = auth.encrypt();
 
             InsuranceResource ins = new InsuranceResource();
-            Response r = ins.getInsuranceData(token);
+            Response r = ins.getInsuranceData(token).toCompletableFuture().join();
             assertEquals("test working key", Response.Status.OK.getStatusCode(), r.getStatus());
         } catch (Exception e) {
             e.printStackTrace();
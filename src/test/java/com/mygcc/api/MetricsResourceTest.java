@@ -0,0 +1,139 @@
+package com.mygcc.api;
+
+import com.mygcc.datacollection.UpstreamMetrics;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+import javax.ws.rs.core.Response;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Metrics Resource test class.
+ */
+public final class MetricsResourceTest extends JerseyTest {
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(MetricsResource.class);
+    }
+
+    /**
+     * Test metrics response status.
+     */
+    @Test
+    public void testMetricsStatus() {
+        final Response response = target().path("/1/metrics").request()
+                .get();
+        assertEquals(Response.Status.OK.getStatusCode(),
+                response.getStatus());
+    }
+
+    /**
+     * Test metrics returned data.
+     */
+    @Test
+    public void testMetricsReturnedData() {
+        Map<String, Object> metrics = new MetricsResource().getMetrics();
+        assertTrue(metrics.containsKey("requests"));
+        assertTrue(metrics.containsKey("connectionsOpened"));
+        assertTrue(metrics.containsKey("connectionsReused"));
+        assertTrue(metrics.containsKey("tlsHandshakes"));
+        assertTrue(metrics.containsKey("endpoints"));
+    }
+
+    /**
+     * Test that requests without a new connection count as reused.
+     */
+    @Test
+    public void testReusedConnections() {
+        UpstreamMetrics metrics = new UpstreamMetrics();
+        metrics.requestSent();
+        metrics.connectionOpened();
+        metrics.handshakeSucceeded();
+        metrics.requestSent();
+        metrics.requestSent();
+        assertEquals(3, metrics.getRequests());
+        assertEquals(1, metrics.getConnectionsOpened());
+        assertEquals(2, metrics.getConnectionsReused());
+        assertEquals(1, metrics.getHandshakes());
+        assertEquals(1, metrics.getConnectionsOpen());
+    }
+
+    /**
+     * Test compressed and uncompressed bytes counted per endpoint.
+     */
+    @Test
+    public void testBytesPerEndpoint() {
+        UpstreamMetrics metrics = new UpstreamMetrics();
+        metrics.bytesReceived("my.gcc.edu/ICS/", 1000);
+        metrics.bytesDecoded("my.gcc.edu/ICS/", 6000);
+        metrics.bytesReceived("my.gcc.edu/ICS/", 500);
+        assertEquals(1500, metrics.getBytesReceived("my.gcc.edu/ICS/"));
+        assertEquals(6000, metrics.getBytesDecoded("my.gcc.edu/ICS/"));
+        assertEquals(0, metrics.getBytesReceived("my.gcc.edu/other"));
+    }
+
+    /**
+     * Test endpoints past the limit counted together.
+     */
+    @Test
+    public void testEndpointsBounded() {
+        UpstreamMetrics metrics = new UpstreamMetrics();
+        for (int i = 0; i < 100; i++) {
+            metrics.bytesReceived("my.gcc.edu/page" + i, 10);
+        }
+        Map<?, ?> endpoints = (Map<?, ?>) metrics.snapshot().get("endpoints");
+        assertEquals(65, endpoints.size());
+        assertEquals(10, metrics.getBytesReceived("my.gcc.edu/page0"));
+        assertEquals(360, metrics.getBytesReceived("other"));
+    }
+
+    /**
+     * Test breaker state returned data.
+     */
+    @Test
+    public void testBreakerReturnedData() {
+        Map<String, Object> breaker = new MetricsResource().getBreaker();
+        assertTrue(breaker.containsKey("state"));
+        assertTrue(breaker.containsKey("failurePercent"));
+        assertTrue(breaker.containsKey("rejected"));
+    }
+
+    /**
+     * Test concurrency limiter returned data.
+     */
+    @Test
+    public void testLimiterReturnedData() {
+        Map<String, Object> limiter = new MetricsResource().getLimiter();
+        assertTrue(limiter.containsKey("limit"));
+        assertTrue(limiter.containsKey("inFlight"));
+        assertTrue(limiter.containsKey("queueDepth"));
+    }
+
+    /**
+     * Test admission scheduler returned data.
+     */
+    @Test
+    public void testAdmissionReturnedData() {
+        Map<String, Object> admission = new MetricsResource().getAdmission();
+        assertTrue(admission.containsKey("capacity"));
+        assertTrue(admission.containsKey("inUse"));
+        assertTrue(admission.containsKey("queueDepth"));
+    }
+
+    /**
+     * Test endpoint costs returned data.
+     */
+    @Test
+    public void testEndpointsReturnedData() {
+        assertNotNull(new MetricsResource().getEndpoints());
+    }
+}
@@ -26,7 +26,7 @@ public final class ScheduleResourceTest extends JerseyTest {
     @Test
     public void testNullAuthorization() {
         ScheduleResource sch = new ScheduleResource();
-        Response r = sch.getScheduleData(null);
+        Response r = sch.getScheduleData(null).toCompletableFuture().join();
         assertEquals("status should be 400", Response.Status.UNAUTHORIZED.getStatusCode(), r.getStatus());
     }
 
@@ -40,7 +40,7 @@ public final class ScheduleResourceTest extends JerseyTest {
                 && System.getenv("initvect") != null
                 && System.getenv("enckey") != null);
         ScheduleResource sch = new ScheduleResource();
-        Response r = sch.getScheduleData("asdf");
+        Response r = sch.getScheduleData("asdf").toCompletableFuture().join();
         assertEquals("token should be invalid; status should be 400", Response.Status.UNAUTHORIZED.getStatusCode(), r.getStatus());
     }
 
@@ -61,7 +61,7 @@ public final class ScheduleResourceTest extends JerseyTest {
             String token = auth.encrypt();
 
             ScheduleResource sch = new ScheduleResource();
-            Response r = sch.getScheduleData(token);
+            Response r = sch.getScheduleData(token).toCompletableFuture().join();
             assertEquals("test working key", Response.Status.OK.getStatusCode(), r.getStatus());
         } catch (Exception e) {
             e.printStackTrace();
@@ -0,0 +1,105 @@
+package com.mygcc.datacollection;
+
+import org.eclipse.jetty.util.Promise;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class CachingResolverTest extends JerseyTest {
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(CachingResolver.class);
+    }
+
+    @Test
+    public void testAddressesCached() throws UnknownHostException {
+        UpstreamMetrics metrics = new UpstreamMetrics();
+        CachingResolver resolver = new CachingResolver(60000, metrics, Runnable::run);
+        assertTrue(resolver.expiresWithin("localhost", 0));
+        resolver.addresses("localhost");
+        resolver.addresses("localhost");
+        assertEquals(1, metrics.getDnsLookups());
+        assertEquals(1, metrics.getDnsCacheHits());
+        assertFalse(resolver.expiresWithin("localhost", 1000));
+        assertTrue(resolver.expiresWithin("localhost", 120000));
+    }
+
+    @Test
+    public void testExpiredAddressesLookedUp() throws UnknownHostException {
+        UpstreamMetrics metrics = new UpstreamMetrics();
+        CachingResolver resolver = new CachingResolver(0, metrics, Runnable::run);
+        resolver.addresses("localhost");
+        resolver.addresses("localhost");
+        assertEquals(2, metrics.getDnsLookups());
+        assertEquals(0, metrics.getDnsCacheHits());
+    }
+
+    @Test
+    public void testResolvedWithPort() {
+        CachingResolver resolver = new CachingResolver(60000,
+                new UpstreamMetrics(), Runnable::run);
+        CompletableFuture<List<InetSocketAddress>> result =
+                resolve(resolver, "localhost", 443);
+        assertFalse(result.join().isEmpty());
+        assertEquals(443, result.join().get(0).getPort());
+    }
+
+    @Test
+    public void testLookupOffCallingThread() {
+        List<Runnable> lookups = new ArrayList<>();
+        UpstreamMetrics metrics = new UpstreamMetrics();
+        CachingResolver resolver = new CachingResolver(60000, metrics,
+                lookups::add);
+
+        // A miss waits for the executor
+        CompletableFuture<List<InetSocketAddress>> first =
+                resolve(resolver, "localhost", 443);
+        assertFalse(first.isDone());
+        assertEquals(1, lookups.size());
+        lookups.get(0).run();
+        assertFalse(first.join().isEmpty());
+
+        // A hit is answered at once
+        CompletableFuture<List<InetSocketAddress>> second =
+                resolve(resolver, "localhost", 443);
+        assertTrue(second.isDone());
+        assertEquals(1, lookups.size());
+        assertEquals(1, metrics.getDnsCacheHits());
+    }
+
+    private static CompletableFuture<List<InetSocketAddress>> resolve(
+            final CachingResolver resolver, final String host,
+            final int port) {
+        CompletableFuture<List<InetSocketAddress>> result =
+                new CompletableFuture<>();
+        resolver.resolve(host, port,
+                new Promise<List<InetSocketAddress>>() {
+                    @Override
+                    public void succeeded(
+                            final List<InetSocketAddress> addresses) {
+                        result.complete(addresses);
+                    }
+
+                    @Override
+                    public void failed(final Throwable failure) {
+                        result.completeExceptionally(failure);
+                    }
+                });
+        return result;
+    }
+}
@@ -0,0 +1,171 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class CircuitBreakerTest extends JerseyTest {
+    private static final String PAGE = "https://my.gcc.edu/ICS/page";
+
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(CircuitBreaker.class);
+    }
+
+    /**
+     * Transport that fails while {@code down} is set.
+     */
+    private static final class Upstream implements Transport {
+        private final AtomicInteger sent = new AtomicInteger();
+        private volatile boolean down;
+
+        @Override
+        public UpstreamResponse execute(final UpstreamRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<UpstreamResponse> executeAsync(
+                final UpstreamRequest request) {
+            sent.incrementAndGet();
+            if (down) {
+                return Futures.failed(new ConnectException("refused"));
+            }
+            return CompletableFuture.completedFuture(new UpstreamResponse(200,
+                    "ok".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static void send(final Transport transport) {
+        try {
+            transport.executeAsync(new UpstreamRequest("GET", PAGE)).join();
+        } catch (CompletionException e) {
+            // Counted by the breaker
+        }
+    }
+
+    @Test
+    public void testOpensOnFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(60000, 10000);
+        Upstream upstream = new Upstream();
+        Transport transport = new CircuitBreakingTransport(upstream, breaker);
+        upstream.down = true;
+        for (int i = 0; i < 19; i++) {
+            send(transport);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        send(transport);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(20, upstream.sent.get());
+
+        try {
+            transport.executeAsync(new UpstreamRequest("GET", PAGE)).join();
+            fail("Request sent while open");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof CircuitOpenException);
+        }
+        assertEquals(20, upstream.sent.get());
+        assertEquals(1L, breaker.snapshot().get("rejected"));
+    }
+
+    @Test
+    public void testDeadlineTimeoutsIgnored() {
+        CircuitBreaker breaker = new CircuitBreaker(60000, 10000);
+        Transport transport = new CircuitBreakingTransport(req -> {
+            throw new DeadlineExceededException("Deadline passed");
+        }, breaker);
+        for (int i = 0; i < 40; i++) {
+            send(transport);
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testStaysClosedBelowThreshold() {
+        CircuitBreaker breaker = new CircuitBreaker(60000, 10000);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(breaker.tryAcquire());
+            if (i % 3 == 0) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess(5);
+            }
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testOpensOnSlowResponses() {
+        CircuitBreaker breaker = new CircuitBreaker(60000, 100);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess(500);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    public void testProbesCloseBreaker() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(10, 10000);
+        Upstream upstream = new Upstream();
+        Transport transport = new CircuitBreakingTransport(upstream, breaker);
+        upstream.down = true;
+        for (int i = 0; i < 20; i++) {
+            send(transport);
+        }
+        Thread.sleep(20);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // Only three probes at a time
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        breaker.onIgnored();
+        breaker.onIgnored();
+        breaker.onIgnored();
+
+        upstream.down = false;
+        send(transport);
+        send(transport);
+        send(transport);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void testFailedProbeReopens() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(10, 10000);
+        for (int i = 0; i < 20; i++) {
+            breaker.tryAcquire();
+            breaker.onFailure();
+        }
+        Thread.sleep(20);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2L, breaker.snapshot().get("opened"));
+    }
+
+    @Test
+    public void testOpenCircuitNotRetried() {
+        assertFalse(RetryPolicy.isTransient(
+                new CircuitOpenException("open")));
+    }
+}
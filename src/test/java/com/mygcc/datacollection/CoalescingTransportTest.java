@@ -0,0 +1,158 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class CoalescingTransportTest extends JerseyTest {
+    private static final String PAGE = "https://my.gcc.edu/ICS/page";
+
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(CoalescingTransport.class);
+    }
+
+    /**
+     * Transport whose requests answer when the test completes them.
+     */
+    private static final class Held implements Transport {
+        private final List<CompletableFuture<UpstreamResponse>> sent =
+                new CopyOnWriteArrayList<>();
+
+        @Override
+        public UpstreamResponse execute(final UpstreamRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<UpstreamResponse> executeAsync(
+                final UpstreamRequest request) {
+            CompletableFuture<UpstreamResponse> f = new CompletableFuture<>();
+            sent.add(f);
+            return f;
+        }
+
+        void answer(final int i) {
+            sent.get(i).complete(new UpstreamResponse(200,
+                    "page".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static UpstreamRequest get(final String cookie) {
+        UpstreamRequest request = new UpstreamRequest("GET", PAGE);
+        request.setHeader("Cookie", cookie);
+        return request;
+    }
+
+    @Test
+    public void testIdenticalRequestsSentOnce() {
+        Held upstream = new Held();
+        UpstreamMetrics metrics = new UpstreamMetrics();
+        Transport transport = new CoalescingTransport(upstream, metrics);
+        CompletableFuture<UpstreamResponse> first =
+                transport.executeAsync(get("a=1"));
+        CompletableFuture<UpstreamResponse> second =
+                transport.executeAsync(get("a=1"));
+        assertEquals(1, upstream.sent.size());
+        assertEquals(1L, metrics.getCoalesced());
+
+        upstream.answer(0);
+        assertSame(first.join(), second.join());
+        assertSame(first.join().getBody(), second.join().getBody());
+
+        // Once answered, the page is fetched again
+        transport.executeAsync(get("a=1"));
+        assertEquals(2, upstream.sent.size());
+    }
+
+    @Test
+    public void testOtherSessionsSentSeparately() {
+        Held upstream = new Held();
+        Transport transport = new CoalescingTransport(upstream,
+                new UpstreamMetrics());
+        transport.executeAsync(get("a=1"));
+        transport.executeAsync(get("a=2"));
+        transport.executeAsync(new UpstreamRequest("POST", PAGE));
+        transport.executeAsync(new UpstreamRequest("POST", PAGE));
+        assertEquals(4, upstream.sent.size());
+    }
+
+    @Test
+    public void testLaterDeadlineSentSeparately() {
+        Held upstream = new Held();
+        Transport transport = new CoalescingTransport(upstream,
+                new UpstreamMetrics());
+        UpstreamRequest hurried = get("a=1");
+        hurried.setDeadline(Deadline.after(100));
+        UpstreamRequest patient = get("a=1");
+        patient.setDeadline(Deadline.after(60000));
+        transport.executeAsync(hurried);
+        transport.executeAsync(patient);
+        assertEquals(2, upstream.sent.size());
+
+        // A request in a hurry may wait for the patient one
+        UpstreamRequest again = get("a=1");
+        again.setDeadline(Deadline.after(100));
+        transport.executeAsync(again);
+        assertEquals(2, upstream.sent.size());
+    }
+
+    @Test
+    public void testCancelledOnlyWhenAllWaitersGiveUp() {
+        Held upstream = new Held();
+        Transport transport = new CoalescingTransport(upstream,
+                new UpstreamMetrics());
+        CompletableFuture<UpstreamResponse> first =
+                transport.executeAsync(get("a=1"));
+        CompletableFuture<UpstreamResponse> second =
+                transport.executeAsync(get("a=1"));
+        first.cancel(true);
+        assertFalse(upstream.sent.get(0).isCancelled());
+        second.cancel(true);
+        assertTrue(upstream.sent.get(0).isCancelled());
+
+        // A new request is not handed the cancelled one
+        CompletableFuture<UpstreamResponse> third =
+                transport.executeAsync(get("a=1"));
+        assertEquals(2, upstream.sent.size());
+        upstream.answer(1);
+        assertEquals(200, third.join().getStatus());
+    }
+
+    @Test
+    public void testUncheckedFailureThrownAsIOException() {
+        Held upstream = new Held();
+        Transport transport = new CoalescingTransport(upstream,
+                new UpstreamMetrics());
+        IllegalStateException bug = new IllegalStateException("bug");
+        CompletableFuture.runAsync(() -> {
+            while (upstream.sent.isEmpty()) {
+                Thread.yield();
+            }
+            upstream.sent.get(0).completeExceptionally(bug);
+        });
+        try {
+            transport.execute(get("a=1"));
+            fail("request should fail");
+        } catch (IOException e) {
+            assertSame(bug, e.getCause());
+        }
+    }
+}
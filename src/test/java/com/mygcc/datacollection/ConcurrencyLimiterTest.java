@@ -0,0 +1,246 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class ConcurrencyLimiterTest extends JerseyTest {
+    private static final String PAGE = "https://my.gcc.edu/ICS/page";
+
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(ConcurrencyLimiter.class);
+    }
+
+    /**
+     * Transport whose requests answer when the test completes them.
+     */
+    private static final class Held implements Transport {
+        private final List<CompletableFuture<UpstreamResponse>> sent =
+                new CopyOnWriteArrayList<>();
+
+        @Override
+        public UpstreamResponse execute(final UpstreamRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<UpstreamResponse> executeAsync(
+                final UpstreamRequest request) {
+            CompletableFuture<UpstreamResponse> f = new CompletableFuture<>();
+            sent.add(f);
+            return f;
+        }
+
+        void answer(final int i) {
+            if (sent.get(i).isDone()) {
+                throw new IllegalStateException("Answered twice");
+            }
+            sent.get(i).complete(new UpstreamResponse(200,
+                    "ok".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Test
+    public void testQueuedUntilPermitReturned() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 10, 5000, 100);
+        Held upstream = new Held();
+        Transport transport = new ConcurrencyLimitingTransport(upstream,
+                limiter);
+        for (int i = 0; i < 6; i++) {
+            transport.executeAsync(new UpstreamRequest("GET", PAGE));
+        }
+        assertEquals(4, upstream.sent.size());
+        assertEquals(4, limiter.getInFlight());
+        assertEquals(2, limiter.getQueueDepth());
+
+        upstream.answer(0);
+        assertEquals(5, upstream.sent.size());
+        assertEquals(1, limiter.getQueueDepth());
+        assertEquals(4, limiter.getInFlight());
+    }
+
+    @Test
+    public void testDeadlineTimeoutNotDropped() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 10, 5000, 100);
+        Transport transport = new ConcurrencyLimitingTransport(req -> {
+            throw new DeadlineExceededException("Deadline passed");
+        }, limiter);
+        assertTrue(transport.executeAsync(new UpstreamRequest("GET", PAGE))
+                .isCompletedExceptionally());
+        assertEquals(20, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testBoundedQueue() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 1, 5000, 100);
+        Transport transport = new ConcurrencyLimitingTransport(new Held(),
+                limiter);
+        for (int i = 0; i < 5; i++) {
+            transport.executeAsync(new UpstreamRequest("GET", PAGE));
+        }
+        try {
+            transport.executeAsync(new UpstreamRequest("GET", PAGE)).join();
+            fail("Queue not bounded");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof RejectedRequestException);
+        }
+        assertEquals(1L, limiter.snapshot().get("rejected"));
+    }
+
+    @Test
+    public void testBoundedWait() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 10, 20, 100);
+        Held upstream = new Held();
+        Transport transport = new ConcurrencyLimitingTransport(upstream,
+                limiter);
+        for (int i = 0; i < 4; i++) {
+            transport.executeAsync(new UpstreamRequest("GET", PAGE));
+        }
+        try {
+            transport.executeAsync(new UpstreamRequest("GET", PAGE)).join();
+            fail("Wait not bounded");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof RejectedRequestException);
+        }
+        assertEquals(0, limiter.getQueueDepth());
+        // The permit freed later is not given to the request that left
+        upstream.answer(0);
+        assertEquals(3, limiter.getInFlight());
+    }
+
+    @Test
+    public void testCancelledWaitLeavesQueue() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 10, 5000, 100);
+        Transport transport = new ConcurrencyLimitingTransport(new Held(),
+                limiter);
+        for (int i = 0; i < 4; i++) {
+            transport.executeAsync(new UpstreamRequest("GET", PAGE));
+        }
+        transport.executeAsync(new UpstreamRequest("GET", PAGE))
+                .cancel(true);
+        assertEquals(0, limiter.getQueueDepth());
+    }
+
+    @Test
+    public void testLimitGrowsWhenFast() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 10, 5000, 100);
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < limiter.getLimit(); i++) {
+                limiter.acquire(Deadline.none(), null);
+            }
+            int n = limiter.getInFlight();
+            for (int i = 0; i < n; i++) {
+                limiter.onSuccess(null, 50);
+            }
+        }
+        assertTrue(limiter.getLimit() > 4);
+    }
+
+    @Test
+    public void testLimitCutWhenSlow() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(50, 10, 5000, 100);
+        limiter.acquire(Deadline.none(), null);
+        limiter.onSuccess(null, 0);
+        limiter.acquire(Deadline.none(), null);
+        limiter.onSuccess(null, 1000);
+        assertEquals(45, limiter.getLimit());
+        limiter.acquire(Deadline.none(), null);
+        limiter.onDropped(null);
+        assertFalse(limiter.getLimit() > 45);
+    }
+
+    private static UpstreamRequest page(final String user) {
+        UpstreamRequest request = new UpstreamRequest("GET", PAGE);
+        request.setUser(user);
+        return request;
+    }
+
+    @Test
+    public void testUserCapped() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(20, 100, 5000, 2);
+        Held upstream = new Held();
+        Transport transport = new ConcurrencyLimitingTransport(upstream,
+                limiter);
+        for (int i = 0; i < 5; i++) {
+            transport.executeAsync(page("heavy"));
+        }
+        transport.executeAsync(page("light"));
+        transport.executeAsync(page(null));
+        assertEquals(4, upstream.sent.size());
+        assertEquals(3, limiter.getQueueDepth("heavy"));
+        assertEquals(0, limiter.getQueueDepth("light"));
+
+        upstream.answer(0);
+        assertEquals(5, upstream.sent.size());
+        assertEquals(2, limiter.getQueueDepth("heavy"));
+    }
+
+    @Test
+    public void testUsersTakeTurns() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 100, 5000, 4);
+        Held upstream = new Held();
+        Transport transport = new ConcurrencyLimitingTransport(upstream,
+                limiter);
+        List<CompletableFuture<UpstreamResponse>> heavy =
+                new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            heavy.add(transport.executeAsync(page("heavy")));
+        }
+        assertEquals(4, upstream.sent.size());
+        CompletableFuture<UpstreamResponse> light =
+                transport.executeAsync(page("light"));
+
+        // The heavy user had the first turn; the light user is served on
+        // the next free permit despite arriving after six heavy requests
+        upstream.answer(0);
+        assertEquals(5, upstream.sent.size());
+        upstream.answer(4);
+        assertEquals(6, upstream.sent.size());
+        upstream.answer(5);
+        assertTrue(light.isDone());
+        assertEquals(4, limiter.getQueueDepth("heavy"));
+    }
+
+    @Test
+    public void testUserQueueBounded() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 100, 5000, 1);
+        Transport transport = new ConcurrencyLimitingTransport(new Held(),
+                limiter);
+        for (int i = 0; i < 6; i++) {
+            transport.executeAsync(page("heavy"));
+        }
+        try {
+            transport.executeAsync(page("heavy")).join();
+            fail("User queue not bounded");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof RejectedRequestException);
+        }
+        assertFalse(transport.executeAsync(page("light")).isDone());
+    }
+
+    @Test
+    public void testUserHashIgnoresCaseAndPassword() {
+        assertEquals(new Token("SmithJD1", "a").userHash(),
+                new Token("smithjd1", "b").userHash());
+        assertFalse(new Token("smithjd1", "a").userHash()
+                .contains("smithjd1"));
+    }
+}
@@ -18,7 +18,8 @@ public final class ContactTest extends JerseyTest {
     }
 
     @Test
-    public void testGetContactData() throws UnexpectedResponseException {
+    public void testGetContactData() throws UnexpectedResponseException,
+            NetworkException {
         Assume.assumeTrue(System.getenv("myGCC_username") != null
                 && System.getenv("myGCC_password") != null
                 && System.getenv("initvect") != null
@@ -0,0 +1,77 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public final class CookieJarTest extends JerseyTest {
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(CookieJar.class);
+    }
+
+    @Test
+    public void testStoreInAnyOrder() {
+        CookieJar jar = new CookieJar();
+        jar.store(Arrays.asList(
+                ".ASPXAUTH=A1B2C3; path=/; HttpOnly",
+                "ASP.NET_SessionId=abc123; path=/; HttpOnly",
+                "heartbeat=1; path=/"));
+        assertEquals("A1B2C3", jar.get(".ASPXAUTH"));
+        assertEquals("abc123", jar.get("ASP.NET_SessionId"));
+        assertEquals(".ASPXAUTH=A1B2C3; ASP.NET_SessionId=abc123; "
+                + "heartbeat=1", jar.header());
+    }
+
+    @Test
+    public void testRotatedCookieReplaced() {
+        CookieJar jar = new CookieJar();
+        jar.put("ASP.NET_SessionId", "abc123");
+        jar.put(".ASPXAUTH", "OLD");
+        jar.store(Collections.singletonList(".ASPXAUTH=NEW; path=/"));
+        assertEquals("ASP.NET_SessionId=abc123; .ASPXAUTH=NEW",
+                jar.header());
+    }
+
+    @Test
+    public void testClearedCookieRemoved() {
+        CookieJar jar = new CookieJar();
+        jar.put(".ASPXAUTH", "A1B2C3");
+        jar.store(Collections.singletonList(".ASPXAUTH=; "
+                + "expires=Mon, 11-Oct-1999 04:00:00 GMT; path=/"));
+        assertNull(jar.get(".ASPXAUTH"));
+        assertEquals("", jar.header());
+    }
+
+    @Test
+    public void testCopyFrom() {
+        CookieJar jar = new CookieJar();
+        jar.put("ASP.NET_SessionId", "abc123");
+        CookieJar copy = new CookieJar();
+        copy.put("stale", "1");
+        copy.copyFrom(jar);
+        jar.put(".ASPXAUTH", "A1B2C3");
+        assertEquals("ASP.NET_SessionId=abc123", copy.header());
+    }
+
+    @Test
+    public void testSessionUsesJar() {
+        Session ses = new Session(new Token("un", "pw"));
+        ses.getCookies().store(Collections.singletonList(
+                "ASP.NET_SessionId=abc123; path=/; HttpOnly"));
+        assertEquals("abc123", ses.getSessionID());
+        ses.setASPXAuth("A1B2C3");
+        assertEquals("A1B2C3", ses.getCookies().get(".ASPXAUTH"));
+    }
+}
@@ -0,0 +1,99 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public final class DeadlineTest extends JerseyTest {
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(Deadline.class);
+    }
+
+    @Test
+    public void testRemainingCappedByLimit() {
+        Deadline deadline = Deadline.after(60000);
+        assertTrue(deadline.isSet());
+        assertFalse(deadline.isExpired());
+        assertEquals(1000, deadline.remainingMillis(1000));
+        assertTrue(deadline.remainingMillis(120000) <= 60000);
+    }
+
+    @Test
+    public void testExpired() {
+        Deadline deadline = Deadline.after(-1);
+        assertTrue(deadline.isExpired());
+        assertEquals(0, deadline.remainingMillis(1000));
+    }
+
+    @Test
+    public void testNone() {
+        assertFalse(Deadline.none().isSet());
+        assertFalse(Deadline.none().isExpired());
+        assertEquals(30000, Deadline.none().remainingMillis(30000));
+    }
+
+    @Test
+    public void testSessionTakesCurrentDeadline() {
+        Deadline deadline = Deadline.after(5000);
+        Deadline.setCurrent(deadline);
+        try {
+            Session ses = new Session(new Token("deadline", "pw"));
+            assertSame(deadline, ses.getDeadline());
+            assertSame(deadline, ses.newRequest("GET",
+                    "https://my.gcc.edu/ics/").getDeadline());
+        } finally {
+            Deadline.setCurrent(null);
+        }
+        assertSame(Deadline.none(), Deadline.current());
+        assertSame(Deadline.none(),
+                new Session(new Token("deadline", "pw")).getDeadline());
+    }
+
+    @Test(expected = SocketTimeoutException.class)
+    public void testReplayStopsAtDeadline() throws IOException {
+        Path dir = Files.createTempDirectory("recordings");
+        new RecordingTransport(req -> new UpstreamResponse(200,
+                "<html></html>".getBytes(StandardCharsets.UTF_8)), dir)
+                .execute(new UpstreamRequest("GET", "https://my.gcc.edu/ics/"));
+
+        UpstreamRequest request = new UpstreamRequest("GET",
+                "https://my.gcc.edu/ics/");
+        request.setDeadline(Deadline.after(20));
+        new ReplayTransport(dir, 5000).execute(request);
+    }
+
+    @Test(expected = NetworkException.class)
+    public void testExpiredDeadlineFailsFetch() throws Exception {
+        Transports.setDefault(req -> {
+            if (req.getDeadline().isExpired()) {
+                throw new SocketTimeoutException("Deadline passed");
+            }
+            return new UpstreamResponse(200, new byte[0]);
+        });
+        try {
+            Session ses = new Session(new Token("deadline"
+                    + System.nanoTime(), "pw"));
+            ses.setDeadline(Deadline.after(-1));
+            ses.fetch("https://my.gcc.edu/ICS/page");
+        } finally {
+            Transports.setDefault(null);
+        }
+    }
+}
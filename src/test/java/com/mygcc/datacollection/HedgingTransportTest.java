@@ -0,0 +1,171 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class HedgingTransportTest extends JerseyTest {
+    private static final String PAGE = "https://my.gcc.edu/ICS/page";
+
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(HedgingTransport.class);
+    }
+
+    /**
+     * Transport whose first request never answers and whose later requests
+     * answer at once.
+     */
+    private static final class SlowFirst implements Transport {
+        private final List<CompletableFuture<UpstreamResponse>> sent =
+                new CopyOnWriteArrayList<>();
+
+        @Override
+        public UpstreamResponse execute(final UpstreamRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<UpstreamResponse> executeAsync(
+                final UpstreamRequest request) {
+            CompletableFuture<UpstreamResponse> f = new CompletableFuture<>();
+            if (!sent.isEmpty()) {
+                f.complete(new UpstreamResponse(200,
+                        ("copy " + sent.size())
+                                .getBytes(StandardCharsets.UTF_8)));
+            }
+            sent.add(f);
+            return f;
+        }
+    }
+
+    private static HedgingTransport warmed(final Transport delegate,
+                                           final UpstreamMetrics metrics) {
+        HedgingTransport hedging = new HedgingTransport(delegate, 5, metrics);
+        for (int i = 0; i < 32; i++) {
+            hedging.record(1);
+        }
+        return hedging;
+    }
+
+    private static UpstreamRequest page() {
+        UpstreamRequest request = new UpstreamRequest("GET", PAGE);
+        request.setHedged(true);
+        return request;
+    }
+
+    @Test
+    public void testSlowRequestHedged() {
+        SlowFirst delegate = new SlowFirst();
+        UpstreamMetrics metrics = new UpstreamMetrics();
+        HedgingTransport hedging = warmed(delegate, metrics);
+        assertEquals(20, hedging.getDelay());
+
+        UpstreamResponse response = hedging.executeAsync(page()).join();
+        assertEquals("copy 1", response.getBody());
+        assertEquals(2, delegate.sent.size());
+        assertTrue(delegate.sent.get(0).isCancelled());
+        assertEquals(1, metrics.getHedgeableRequests());
+        assertEquals(1, metrics.getHedgesSent());
+        assertEquals(1, metrics.getHedgesWon());
+    }
+
+    @Test
+    public void testSlowRequestsKeepDelay() {
+        // One request in ten stalls until it is hedged
+        AtomicBoolean stall = new AtomicBoolean();
+        Transport delegate = new Transport() {
+            @Override
+            public UpstreamResponse execute(final UpstreamRequest request) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public CompletableFuture<UpstreamResponse> executeAsync(
+                    final UpstreamRequest request) {
+                if (stall.getAndSet(false)) {
+                    return new CompletableFuture<>();
+                }
+                return CompletableFuture.completedFuture(
+                        new UpstreamResponse(200, new byte[0]));
+            }
+        };
+        HedgingTransport hedging = new HedgingTransport(delegate, 20,
+                new UpstreamMetrics());
+        for (int i = 0; i < 32; i++) {
+            hedging.record(50);
+        }
+        assertEquals(50, hedging.getDelay());
+
+        // Enough requests to replace every recorded time
+        for (int i = 0; i < 480; i++) {
+            stall.set(i % 10 == 0);
+            hedging.executeAsync(page()).join();
+        }
+        assertTrue(hedging.getDelay() >= 50);
+    }
+
+    @Test
+    public void testNotHedgedBeforeWarmUp() throws Exception {
+        SlowFirst delegate = new SlowFirst();
+        HedgingTransport hedging = new HedgingTransport(delegate, 5,
+                new UpstreamMetrics());
+        CompletableFuture<UpstreamResponse> response =
+                hedging.executeAsync(page());
+        Thread.sleep(100);
+        assertEquals(1, delegate.sent.size());
+        assertTrue(!response.isDone());
+    }
+
+    @Test
+    public void testPostNeverHedged() throws Exception {
+        SlowFirst delegate = new SlowFirst();
+        UpstreamMetrics metrics = new UpstreamMetrics();
+        HedgingTransport hedging = warmed(delegate, metrics);
+        UpstreamRequest login = new UpstreamRequest("POST", PAGE);
+        login.setHedged(true);
+        hedging.executeAsync(login);
+        hedging.executeAsync(new UpstreamRequest("GET", PAGE));
+        Thread.sleep(100);
+        assertEquals(2, delegate.sent.size());
+        assertEquals(0, metrics.getHedgesSent());
+    }
+
+    @Test
+    public void testHedgeRateCapped() throws Exception {
+        SlowFirst delegate = new SlowFirst();
+        UpstreamMetrics metrics = new UpstreamMetrics();
+        HedgingTransport hedging = warmed(delegate, metrics);
+        for (int i = 0; i < 100; i++) {
+            delegate.sent.clear();
+            hedging.executeAsync(page());
+        }
+        Thread.sleep(200);
+        // The burst allowance plus 5% of the requests
+        assertTrue(metrics.getHedgesSent() <= 15);
+        assertTrue(metrics.getHedgesSent() >= 10);
+    }
+
+    @Test(expected = IOException.class)
+    public void testFailureNotHedged() throws IOException {
+        HedgingTransport hedging = warmed(req -> {
+            throw new IOException("Connection refused");
+        }, new UpstreamMetrics());
+        hedging.execute(page());
+    }
+}
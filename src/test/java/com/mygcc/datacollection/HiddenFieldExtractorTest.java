@@ -0,0 +1,118 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public final class HiddenFieldExtractorTest extends JerseyTest {
+    private static final String PAGE = "<html><head><title>myGCC</title>"
+            + "</head><body><form method=\"post\" id=\"MAINFORM\">"
+            + "<INPUT type=\"hidden\" name=\"___BrowserRefresh\" "
+            + "id=\"___BrowserRefresh\" value=\"e0f7a5c2-1b\" />"
+            + "<input type='hidden' name='__VIEWSTATE' "
+            + "value='/wEPDwUK&amp;LTE2+a/b=='>"
+            + "<input type=\"hidden\" name=\"__VIEWSTATEGENERATOR\""
+            + " value=\"38ABEAAB\"/>"
+            + "<input name=\"userName\" type=\"text\" value=\"a > b\">"
+            + "<input type=\"hidden\" name=\"__EVENTVALIDATION\" "
+            + "value=\"/wEdAAK\">"
+            + "</form></body></html>";
+
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(HiddenFieldExtractor.class);
+    }
+
+    @Test
+    public void testExtractAllFields() {
+        Map<String, String> fields = HiddenFieldExtractor.extract(PAGE,
+                HiddenFieldExtractor.POSTBACK_FIELDS);
+        assertEquals(4, fields.size());
+        assertEquals("e0f7a5c2-1b",
+                fields.get(HiddenFieldExtractor.BROWSERREFRESH));
+        assertEquals("/wEPDwUK&LTE2+a/b==",
+                fields.get(HiddenFieldExtractor.VIEWSTATE));
+        assertEquals("38ABEAAB",
+                fields.get(HiddenFieldExtractor.VIEWSTATEGENERATOR));
+        assertEquals("/wEdAAK",
+                fields.get(HiddenFieldExtractor.EVENTVALIDATION));
+    }
+
+    @Test
+    public void testQuotedGreaterThan() {
+        Map<String, String> fields = HiddenFieldExtractor.extract(PAGE,
+                "userName");
+        assertEquals("a > b", fields.get("userName"));
+    }
+
+    @Test
+    public void testMissingField() {
+        Map<String, String> fields = HiddenFieldExtractor.extract(PAGE,
+                "__EVENTTARGET");
+        assertFalse(fields.containsKey("__EVENTTARGET"));
+        assertEquals("", MyGCCDataCollection.parseViewState("<html></html>"));
+    }
+
+    @Test
+    public void testStopsReadingOnceFound() throws IOException {
+        StringBuilder page = new StringBuilder(PAGE);
+        page.append("<p>unterminated");
+        for (int i = 0; i < 100000; i++) {
+            page.append("<div>filler</div>");
+        }
+        CountingReader in = new CountingReader(page.toString());
+        HiddenFieldExtractor.extract(in, HiddenFieldExtractor.VIEWSTATE);
+        assert in.read < page.length();
+    }
+
+    @Test
+    public void testMatchesJsoup() {
+        StringBuilder page = new StringBuilder("<html><body>");
+        for (int i = 0; i < 1000; i++) {
+            page.append("<div class=\"row\"><input type=\"text\" name=\"f")
+                    .append(i).append("\" value=\"").append(i)
+                    .append("\"></div>");
+        }
+        page.append(PAGE.substring(PAGE.indexOf("<form")));
+        String html = page.toString();
+        Document doc = Jsoup.parse(html);
+        Map<String, String> fields = HiddenFieldExtractor.extract(html,
+                HiddenFieldExtractor.POSTBACK_FIELDS);
+        for (String name : HiddenFieldExtractor.POSTBACK_FIELDS) {
+            assertEquals(doc.select("input[name=" + name + "]").attr("value"),
+                    fields.get(name));
+        }
+    }
+
+    private static final class CountingReader extends StringReader {
+        private int read;
+
+        CountingReader(final String s) {
+            super(s);
+        }
+
+        @Override
+        public int read(final char[] cbuf, final int off, final int len)
+                throws IOException {
+            int n = super.read(cbuf, off, len);
+            if (n > 0) {
+                read += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.mygcc.datacollection;
+
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.Application;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class HttpTransportTest extends JerseyTest {
+    private static final int SMALL = 1024;
+    private static final int LARGE = 1024 * 1024;
+
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(HttpTransport.class);
+    }
+
+    /**
+     * Local server with a small, a large and a slow page.
+     */
+    private static final class Pages extends AbstractHandler {
+        @Override
+        public void handle(final String target, final Request base,
+                           final HttpServletRequest request,
+                           final HttpServletResponse response)
+                throws IOException {
+            base.setHandled(true);
+            if (target.equals("/slow")) {
+                // Begin the body, then stall
+                response.getOutputStream().write('a');
+                response.flushBuffer();
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return;
+            }
+            int size = SMALL;
+            if (target.equals("/large")) {
+                size = LARGE;
+            }
+            byte[] body = new byte[size];
+            Arrays.fill(body, (byte) 'a');
+            response.setContentLength(size);
+            response.getOutputStream().write(body);
+        }
+    }
+
+    private Server server;
+    private String base;
+    private UpstreamMetrics metrics;
+    private HttpTransport transport;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new Server(0);
+        server.setHandler(new Pages());
+        server.start();
+        base = "http://localhost:"
+                + ((ServerConnector) server.getConnectors()[0])
+                .getLocalPort();
+        metrics = new UpstreamMetrics();
+        transport = new HttpTransport(4, 30000, metrics);
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        server.stop();
+    }
+
+    private UpstreamRequest skipping(final String path) {
+        UpstreamRequest request = new UpstreamRequest("GET", base + path);
+        request.setReadBody(false);
+        return request;
+    }
+
+    @Test
+    public void testSmallBodyDrained() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            UpstreamResponse response = transport.execute(skipping("/small"));
+            assertEquals(200, response.getStatus());
+        }
+        // The connection was kept for the second request
+        assertEquals(1, metrics.getConnectionsOpened());
+    }
+
+    @Test
+    public void testLargeBodySkipped() throws IOException {
+        UpstreamResponse response = transport.execute(skipping("/large"));
+        assertEquals(200, response.getStatus());
+        assertEquals("", response.getBody());
+
+        // Skipping the body closed the connection
+        transport.execute(skipping("/small"));
+        assertEquals(2, metrics.getConnectionsOpened());
+    }
+
+    @Test
+    public void testLargeBodyRead() throws IOException {
+        UpstreamResponse response = transport.execute(
+                new UpstreamRequest("GET", base + "/large"));
+        assertEquals(LARGE, response.getBody().length());
+    }
+
+    @Test
+    public void testBodyReadWhenHeadersAskForIt() throws IOException {
+        UpstreamRequest request = skipping("/large");
+        request.setReadBodyIf(headers -> headers.getStatus() == 200);
+        assertEquals(LARGE, transport.execute(request).getBody().length());
+    }
+
+    @Test
+    public void testSlowBodySkipped() throws Exception {
+        long start = System.nanoTime();
+        UpstreamResponse response = transport.executeAsync(skipping("/slow"))
+                .get(4, TimeUnit.SECONDS);
+        assertEquals("", response.getBody());
+        assertTrue(System.nanoTime() - start
+                < TimeUnit.SECONDS.toNanos(3));
+    }
+
+    @Test
+    public void testCancelClosesConnection() throws Exception {
+        CompletableFuture<UpstreamResponse> response = transport.executeAsync(
+                new UpstreamRequest("GET", base + "/slow"));
+        Thread.sleep(200);
+        assertEquals(1, metrics.getConnectionsOpen());
+        response.cancel(true);
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (metrics.getConnectionsOpen() > 0 && System.nanoTime() < end) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, metrics.getConnectionsOpen());
+    }
+
+    @Test
+    public void testDeadlineExceeded() throws Exception {
+        UpstreamRequest request = new UpstreamRequest("GET", base + "/slow");
+        request.setDeadline(Deadline.after(300));
+        try {
+            transport.executeAsync(request).get(4, TimeUnit.SECONDS);
+            fail("request should time out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof DeadlineExceededException);
+        }
+    }
+}
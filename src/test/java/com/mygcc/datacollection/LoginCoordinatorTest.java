@@ -0,0 +1,110 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class LoginCoordinatorTest extends JerseyTest {
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(LoginCoordinator.class);
+    }
+
+    @Test
+    public void testConcurrentLoginsShared() {
+        LoginCoordinator coordinator = new LoginCoordinator();
+        Session ses = new Session(new Token("un", "pw"));
+        AtomicInteger logins = new AtomicInteger();
+        CompletableFuture<Session> login = new CompletableFuture<>();
+
+        List<CompletableFuture<Session>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(coordinator.loginAsync("key", () -> {
+                logins.incrementAndGet();
+                return login;
+            }));
+        }
+        assertEquals(1, coordinator.inFlight());
+        for (CompletableFuture<Session> result : results) {
+            assertFalse(result.isDone());
+        }
+        login.complete(ses);
+
+        for (CompletableFuture<Session> result : results) {
+            assertSame(ses, result.join());
+        }
+        assertEquals(1, logins.get());
+        assertEquals(0, coordinator.inFlight());
+    }
+
+    @Test
+    public void testConcurrentLoginsShareFailure() {
+        LoginCoordinator coordinator = new LoginCoordinator();
+        AtomicInteger logins = new AtomicInteger();
+        CompletableFuture<Session> login = new CompletableFuture<>();
+
+        List<CompletableFuture<Session>> results = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            results.add(coordinator.loginAsync("key", () -> {
+                logins.incrementAndGet();
+                return login;
+            }));
+        }
+        InvalidCredentialsException failure =
+                new InvalidCredentialsException("bad password");
+        login.completeExceptionally(failure);
+
+        for (CompletableFuture<Session> result : results) {
+            try {
+                result.join();
+                fail("Login should have failed");
+            } catch (CompletionException e) {
+                assertSame(failure, e.getCause());
+            }
+        }
+        assertEquals(1, logins.get());
+        assertEquals(0, coordinator.inFlight());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testThrowingLoginFails() throws Throwable {
+        LoginCoordinator coordinator = new LoginCoordinator();
+        try {
+            coordinator.loginAsync("key", () -> {
+                throw new IllegalStateException("no login page");
+            }).join();
+        } catch (CompletionException e) {
+            assertEquals(0, coordinator.inFlight());
+            throw e.getCause();
+        }
+    }
+
+    @Test
+    public void testLoginAfterFailure() {
+        LoginCoordinator coordinator = new LoginCoordinator();
+        Session ses = new Session(new Token("un", "pw"));
+        CompletableFuture<Session> failed = coordinator.loginAsync("key",
+                () -> Futures.failed(new NetworkException()));
+        assertTrue(failed.isCompletedExceptionally());
+        assertEquals(0, coordinator.inFlight());
+        assertSame(ses, coordinator.loginAsync("key",
+                () -> CompletableFuture.completedFuture(ses)).join());
+    }
+}
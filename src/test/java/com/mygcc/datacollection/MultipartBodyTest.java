@@ -0,0 +1,89 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class MultipartBodyTest extends JerseyTest {
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(MultipartBody.class);
+    }
+
+    @Test
+    public void testCrlfLayout() {
+        MultipartBody body = new MultipartBody("b")
+                .field("userName", "smithjd1")
+                .field("password", null);
+        assertEquals("--b\r\n"
+                + "Content-Disposition: form-data; name=\"userName\"\r\n"
+                + "\r\n"
+                + "smithjd1\r\n"
+                + "--b\r\n"
+                + "Content-Disposition: form-data; name=\"password\"\r\n"
+                + "\r\n"
+                + "\r\n"
+                + "--b--\r\n", body.toString());
+        assertEquals("multipart/form-data; boundary=b",
+                body.getContentType());
+    }
+
+    @Test
+    public void testExactLengthForNonAscii() {
+        // Two, three and four byte characters and an unpaired surrogate
+        String password = "p\u00e4ssw\u00f6rd\u20ac\uD83D\uDE00\uD800x";
+        MultipartBody body = new MultipartBody(MultipartBody.newBoundary())
+                .field("password", password);
+        byte[] encoded = body.toByteArray();
+        assertEquals(body.getContentLength(), encoded.length);
+        assertTrue(new String(encoded, StandardCharsets.UTF_8)
+                .contains("\r\n\r\n" + password.replace('\uD800', '?')
+                        + "\r\n"));
+        assertEquals(password.getBytes(StandardCharsets.UTF_8).length,
+                MultipartBody.utf8Length(password));
+    }
+
+    @Test
+    public void testManyFields() throws IOException {
+        MultipartBody body = new MultipartBody("b");
+        for (int i = 0; i < 40; i++) {
+            body.field("f" + i, "v" + i);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        assertArrayEquals(body.toByteArray(), out.toByteArray());
+        assertTrue(body.toString().contains("name=\"f39\"\r\n\r\nv39\r\n"));
+    }
+
+    @Test
+    public void testNewBoundary() {
+        String boundary = MultipartBody.newBoundary();
+        assertTrue(boundary.matches("-{27}[0-9]{25}"));
+        assertNotEquals(boundary, MultipartBody.newBoundary());
+    }
+
+    @Test
+    public void testRequestBody() {
+        UpstreamRequest request = MyGCCDataCollection.createPOST(
+                MyGCCDataCollection.BASEURL,
+                new MultipartBody("b").field("btnLogin", "Login"));
+        assertEquals("multipart/form-data; boundary=b",
+                request.getHeaders().get("Content-Type"));
+        assertEquals(new MultipartBody("b").field("btnLogin", "Login")
+                .getContentLength(), request.getBody().length);
+    }
+}
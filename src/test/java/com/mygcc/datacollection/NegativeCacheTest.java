@@ -0,0 +1,73 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import static org.junit.Assert.assertEquals;
+
+public final class NegativeCacheTest extends JerseyTest {
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(NegativeCache.class);
+    }
+
+    @Test(expected = InvalidCredentialsException.class)
+    public void testFailedLoginCached() throws Exception {
+        NegativeCache cache = new NegativeCache(10, 60000, 60000);
+        cache.loginFailed("key");
+        cache.checkLogin("key");
+    }
+
+    @Test
+    public void testOtherCredentialsNotCached() throws Exception {
+        NegativeCache cache = new NegativeCache(10, 60000, 60000);
+        cache.loginFailed(new Token("un", "wrong").hash());
+        cache.checkLogin(new Token("un", "right").hash());
+    }
+
+    @Test
+    public void testFailedLoginExpires() throws Exception {
+        NegativeCache cache = new NegativeCache(10, 1, 60000);
+        cache.loginFailed("key");
+        Thread.sleep(10);
+        cache.checkLogin("key");
+        assertEquals(0, cache.size());
+    }
+
+    @Test(expected = ClassDoesNotExistException.class)
+    public void testMissingClassCached() throws Exception {
+        NegativeCache cache = new NegativeCache(10, 60000, 60000);
+        cache.classDoesNotExist("key", "COMP141A");
+        cache.checkCourse("key", "comp141a");
+    }
+
+    @Test(expected = StudentNotInClassException.class)
+    public void testNotInClassCached() throws Exception {
+        NegativeCache cache = new NegativeCache(10, 60000, 60000);
+        cache.studentNotInClass("key", "COMP141A");
+        cache.checkCourse("key", "COMP141A");
+    }
+
+    @Test
+    public void testClassCachedPerUser() throws Exception {
+        NegativeCache cache = new NegativeCache(10, 60000, 60000);
+        cache.studentNotInClass("key", "COMP141A");
+        cache.checkCourse("other", "COMP141A");
+        cache.checkCourse("key", "COMP141B");
+    }
+
+    @Test
+    public void testSizeBounded() {
+        NegativeCache cache = new NegativeCache(2, 60000, 60000);
+        cache.loginFailed("first");
+        cache.loginFailed("second");
+        cache.loginFailed("third");
+        assertEquals(2, cache.size());
+    }
+}
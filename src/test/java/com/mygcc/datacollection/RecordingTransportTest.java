@@ -0,0 +1,163 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class RecordingTransportTest extends JerseyTest {
+    private static final String CONTACT_URL = "https://my.gcc.edu/html5/apps"
+            + "/stulife/models/JSON.ashx?method=getContactInfo&id_num=";
+
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(RecordingTransport.class);
+    }
+
+    private static UpstreamResponse page(final String body) {
+        UpstreamResponse response = new UpstreamResponse(200,
+                body.getBytes(StandardCharsets.UTF_8));
+        response.addHeader("Content-Type", "text/html");
+        response.addHeader("Set-Cookie", ".ASPXAUTH=A1B2C3; path=/");
+        return response;
+    }
+
+    @Test
+    public void testReplayRecordedResponse() throws IOException {
+        Path dir = Files.createTempDirectory("recordings");
+        Transport recorder = new RecordingTransport(
+                req -> page("<html>\"quoted\"\n</html>"), dir);
+        recorder.execute(new UpstreamRequest("GET",
+                "https://my.gcc.edu/ics/"));
+
+        ReplayTransport replay = new ReplayTransport(dir, 0);
+        assertEquals(1, replay.size());
+        UpstreamResponse response = replay.execute(new UpstreamRequest("GET",
+                "https://my.gcc.edu/ics/"));
+        assertEquals(200, response.getStatus());
+        assertEquals("<html>\"quoted\"\n</html>", response.getBody());
+        assertEquals("text/html", response.getHeader("content-type"));
+    }
+
+    @Test
+    public void testCookiesRedacted() throws IOException {
+        Path dir = Files.createTempDirectory("recordings");
+        Transport recorder = new RecordingTransport(req -> page(""), dir);
+        recorder.execute(new UpstreamRequest("GET",
+                "https://my.gcc.edu/ics/"));
+
+        UpstreamResponse response = new ReplayTransport(dir, 0)
+                .execute(new UpstreamRequest("GET",
+                        "https://my.gcc.edu/ics/"));
+        assertEquals(".ASPXAUTH=REDACTED; path=/",
+                response.getHeader("Set-Cookie"));
+    }
+
+    @Test
+    public void testUsernameRedacted() throws IOException {
+        Path dir = Files.createTempDirectory("recordings");
+        Transport recorder = new RecordingTransport(req -> page("{}"), dir);
+        recorder.execute(new UpstreamRequest("GET", CONTACT_URL + "smithjd1"));
+
+        for (Path file : Files.newDirectoryStream(dir)) {
+            String saved = new String(Files.readAllBytes(file),
+                    StandardCharsets.UTF_8);
+            assertFalse(saved.contains("smithjd1"));
+            assertFalse(saved.contains("A1B2C3"));
+        }
+
+        // Any username replays the same recording
+        UpstreamResponse response = new ReplayTransport(dir, 0)
+                .execute(new UpstreamRequest("GET", CONTACT_URL + "doejm2"));
+        assertEquals("{}", response.getBody());
+    }
+
+    @Test
+    public void testPersonalDataRedactedFromBody() throws IOException {
+        Path dir = Files.createTempDirectory("recordings");
+        Transport recorder = new RecordingTransport(req -> page(
+                "{\"Email\": \"smithjd1@gcc.edu\", \"City\": \"Grove "
+                        + "\\\"City\\\"\", \"Major\": \"Physics\"}"), dir);
+        recorder.execute(new UpstreamRequest("GET", CONTACT_URL + "smithjd1"));
+
+        UpstreamRequest login = new UpstreamRequest("POST",
+                "https://my.gcc.edu/ics/");
+        login.setBody(new MultipartBody("b").field("userName", "doejm2")
+                .field("password", "pw"));
+        new RecordingTransport(req -> page("<p>Welcome doejm2</p>"), dir)
+                .execute(login);
+
+        for (Path file : Files.newDirectoryStream(dir)) {
+            String saved = new String(Files.readAllBytes(file),
+                    StandardCharsets.UTF_8);
+            assertFalse(saved.contains("smithjd1"));
+            assertFalse(saved.contains("Grove"));
+            assertFalse(saved.contains("doejm2"));
+        }
+
+        ReplayTransport replay = new ReplayTransport(dir, 0);
+        JSONObject contact = new JSONObject(replay.execute(
+                new UpstreamRequest("GET", CONTACT_URL + "x")).getBody());
+        assertEquals("REDACTED", contact.getString("Email"));
+        assertEquals("REDACTED", contact.getString("City"));
+        assertEquals("Physics", contact.getString("Major"));
+        assertEquals("<p>Welcome REDACTED</p>",
+                replay.execute(login).getBody());
+    }
+
+    @Test
+    public void testRepeatedRequestsReplayedInOrder() throws IOException {
+        Path dir = Files.createTempDirectory("recordings");
+        int[] n = {0};
+        Transport recorder = new RecordingTransport(
+                req -> page("page " + n[0]++), dir);
+        UpstreamRequest login = new UpstreamRequest("POST",
+                "https://my.gcc.edu/ics/");
+        recorder.execute(login);
+        recorder.execute(login);
+
+        ReplayTransport replay = new ReplayTransport(dir, 0);
+        assertEquals("page 0", replay.execute(login).getBody());
+        assertEquals("page 1", replay.execute(login).getBody());
+        assertEquals("page 0", replay.execute(login).getBody());
+    }
+
+    @Test
+    public void testReplayDelayDoesNotBlock() throws Exception {
+        Path dir = Files.createTempDirectory("recordings");
+        new RecordingTransport(req -> page("ok"), dir).execute(
+                new UpstreamRequest("GET", "https://my.gcc.edu/ics/"));
+
+        ReplayTransport replay = new ReplayTransport(dir, 200);
+        long start = System.nanoTime();
+        CompletableFuture<UpstreamResponse> response = replay.executeAsync(
+                new UpstreamRequest("GET", "https://my.gcc.edu/ics/"));
+        assertFalse(response.isDone());
+        assertTrue(System.nanoTime() - start
+                < TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals("ok", response.get(5, TimeUnit.SECONDS).getBody());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingRecording() throws IOException {
+        Path dir = Files.createTempDirectory("recordings");
+        new ReplayTransport(dir, 0).execute(new UpstreamRequest("GET",
+                "https://my.gcc.edu/ics/"));
+    }
+}
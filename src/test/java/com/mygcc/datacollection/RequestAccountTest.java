@@ -0,0 +1,68 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public final class RequestAccountTest extends JerseyTest {
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(RequestAccount.class);
+    }
+
+    @Test
+    public void testTemplateHidesCoursesAndQuery() {
+        assertEquals("my.gcc.edu/ICS/Academics/COMP/*/*/Coursework.jnz",
+                RequestAccount.template("https://my.gcc.edu/ICS/Academics"
+                        + "/COMP/COMP_141/2017_30-COMP_141-A/Coursework.jnz"));
+        assertEquals("my.gcc.edu/ICS/Portlets/Chapel.aspx",
+                RequestAccount.template("https://my.gcc.edu/ICS/Portlets"
+                        + "/Chapel.aspx?token=abc123"));
+    }
+
+    @Test
+    public void testNoneRecordsNothing() {
+        RequestAccount.none().record(new RequestAccount.Hop("GET",
+                "https://my.gcc.edu/ics/", 200, 0, 10, 5, 8));
+        assertTrue(RequestAccount.none().getHops().isEmpty());
+        assertFalse(RequestAccount.none().isSet());
+    }
+
+    @Test
+    public void testHopRecorded() {
+        RequestAccount account = new RequestAccount();
+        account.record(new RequestAccount.Hop("POST",
+                "https://my.gcc.edu/ics/", 302, 4096, 120, 40, 55));
+        RequestAccount.Hop hop = account.getHops().get(0);
+        assertEquals("my.gcc.edu/ics/", hop.getUrl());
+        assertEquals(302, hop.getStatus());
+        assertEquals(4096, hop.getBytesOut());
+        assertEquals(120, hop.getBytesIn());
+        assertEquals(40, hop.getFirstByteMillis());
+        assertEquals(55, hop.getTotalMillis());
+    }
+
+    @Test
+    public void testSessionGivesAccountToRequests() {
+        RequestAccount account = new RequestAccount();
+        RequestAccount.setCurrent(account);
+        try {
+            Session session = new Session(new Token("user", "pass"));
+            assertSame(account, session.newRequest("GET",
+                    "https://my.gcc.edu/ics/").getAccount());
+        } finally {
+            RequestAccount.setCurrent(null);
+        }
+        assertSame(RequestAccount.none(), RequestAccount.current());
+    }
+}
@@ -0,0 +1,181 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class RetryingTransportTest extends JerseyTest {
+    private static final String PAGE = "https://my.gcc.edu/ICS/page";
+
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(RetryingTransport.class);
+    }
+
+    /**
+     * Transport answering with a fixed sequence of statuses and failures.
+     */
+    private static final class Scripted implements Transport {
+        private final Deque<Object> answers = new ArrayDeque<>();
+        private final AtomicInteger sent = new AtomicInteger();
+
+        Scripted(final Object... script) {
+            for (Object answer : script) {
+                answers.add(answer);
+            }
+        }
+
+        @Override
+        public UpstreamResponse execute(final UpstreamRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public synchronized CompletableFuture<UpstreamResponse> executeAsync(
+                final UpstreamRequest request) {
+            sent.incrementAndGet();
+            Object answer = answers.poll();
+            if (answer instanceof Throwable) {
+                return Futures.failed((Throwable) answer);
+            }
+            return CompletableFuture.completedFuture(new UpstreamResponse(
+                    (Integer) answer, "page".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static RetryingTransport retrying(final Transport delegate,
+                                              final UpstreamMetrics metrics) {
+        return new RetryingTransport(delegate, new RetryPolicy(3, 1, 5),
+                metrics);
+    }
+
+    @Test
+    public void testResetConnectionRetried() {
+        Scripted delegate = new Scripted(
+                new SocketException("Connection reset"), 200);
+        UpstreamMetrics metrics = new UpstreamMetrics();
+        UpstreamResponse response = retrying(delegate, metrics)
+                .executeAsync(new UpstreamRequest("GET", PAGE)).join();
+        assertEquals(200, response.getStatus());
+        assertEquals(2, delegate.sent.get());
+        assertEquals(1, metrics.getRetries());
+        assertEquals(0, metrics.getRetriesExhausted());
+    }
+
+    @Test
+    public void testServerErrorRetriedThenPassedOn() {
+        Scripted delegate = new Scripted(503, 502, 500);
+        UpstreamMetrics metrics = new UpstreamMetrics();
+        UpstreamResponse response = retrying(delegate, metrics)
+                .executeAsync(new UpstreamRequest("GET", PAGE)).join();
+        assertEquals(500, response.getStatus());
+        assertEquals(3, delegate.sent.get());
+        assertEquals(2, metrics.getRetries());
+        assertEquals(1, metrics.getRetriesExhausted());
+    }
+
+    @Test
+    public void testPostNotRetried() {
+        Scripted delegate = new Scripted(new ConnectException(), 200);
+        try {
+            retrying(delegate, new UpstreamMetrics())
+                    .executeAsync(new UpstreamRequest("POST", PAGE)).join();
+            fail("POST was retried");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof ConnectException);
+        }
+        assertEquals(1, delegate.sent.get());
+    }
+
+    @Test
+    public void testClientErrorNotRetried() {
+        Scripted delegate = new Scripted(404, 200);
+        UpstreamResponse response = retrying(delegate, new UpstreamMetrics())
+                .executeAsync(new UpstreamRequest("GET", PAGE)).join();
+        assertEquals(404, response.getStatus());
+        assertEquals(1, delegate.sent.get());
+    }
+
+    @Test
+    public void testBudgetSharedByRequests() {
+        Scripted delegate = new Scripted(503, 503, 503, 200);
+        RetryingTransport transport = retrying(delegate,
+                new UpstreamMetrics());
+        RetryBudget budget = new RetryBudget(1);
+
+        UpstreamRequest first = new UpstreamRequest("GET", PAGE);
+        first.setRetryBudget(budget);
+        assertEquals(503, transport.executeAsync(first).join().getStatus());
+        assertEquals(2, delegate.sent.get());
+
+        UpstreamRequest second = new UpstreamRequest("GET", PAGE);
+        second.setRetryBudget(budget);
+        assertEquals(503, transport.executeAsync(second).join().getStatus());
+        assertEquals(3, delegate.sent.get());
+        assertEquals(0, budget.getRemaining());
+    }
+
+    @Test
+    public void testNoRetryPastDeadline() {
+        Scripted delegate = new Scripted(503, 200);
+        UpstreamRequest request = new UpstreamRequest("GET", PAGE);
+        request.setDeadline(Deadline.after(0));
+        assertEquals(503, retrying(delegate, new UpstreamMetrics())
+                .executeAsync(request).join().getStatus());
+        assertEquals(1, delegate.sent.get());
+    }
+
+    @Test
+    public void testClassification() {
+        assertTrue(RetryPolicy.isTransient(503));
+        assertTrue(RetryPolicy.isTransient(500));
+        assertFalse(RetryPolicy.isTransient(501));
+        assertFalse(RetryPolicy.isTransient(404));
+        assertTrue(RetryPolicy.isTransient(new SocketException("reset")));
+        assertTrue(RetryPolicy.isTransient(
+                new CompletionException(new ConnectException())));
+        assertFalse(RetryPolicy.isTransient(new InterruptedIOException()));
+        assertFalse(RetryPolicy.isTransient(
+                new UnexpectedResponseException("parse")));
+        assertFalse(RetryPolicy.isTransient(new IllegalStateException()));
+    }
+
+    @Test
+    public void testBackoffBounded() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 2000);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(policy.backoff(0) <= 100);
+            assertTrue(policy.backoff(3) <= 800);
+            assertTrue(policy.backoff(60) <= 2000);
+            assertTrue(policy.backoff(60) >= 0);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testExecuteThrowsLastFailure() throws IOException {
+        retrying(new Scripted(new ConnectException(), new ConnectException(),
+                new ConnectException()), new UpstreamMetrics())
+                .execute(new UpstreamRequest("GET", PAGE));
+    }
+}
@@ -0,0 +1,374 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class SessionAsyncTest extends JerseyTest {
+    private static final String LOGIN = "https://my.gcc.edu/ics/";
+    private static final String PAGE = "https://my.gcc.edu/ICS/page";
+    private static final String OTHER = "https://my.gcc.edu/ICS/other";
+
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(Session.class);
+    }
+
+    /**
+     * Login page sent back for a wrong password, larger than the
+     * HttpTransport reads when it skips a body.
+     */
+    private static final String LOGIN_PAGE = "<input name=\"userName\">"
+            + new String(new char[100 * 1024]).replace('\0', ' ');
+
+    private static UpstreamResponse response(final int status,
+                                             final String body) {
+        return new UpstreamResponse(status,
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Fake myGCC that accepts any password except "bad-password" and
+     * redirects the page once. Each login gets a new auth cookie.
+     */
+    private static Transport fakeMyGCC(final AtomicInteger logins) {
+        return req -> {
+            UpstreamResponse resp;
+            if (req.getMethod().equals("GET") && req.getUrl().equals(LOGIN)) {
+                resp = response(200, "<html></html>");
+                resp.addHeader("Set-Cookie", "ASP.NET_SessionId=s1; path=/");
+            } else if (req.getMethod().equals("POST")) {
+                int n = logins.incrementAndGet();
+                String body = new String(req.getBody(),
+                        StandardCharsets.UTF_8);
+                if (body.contains("bad-password")) {
+                    resp = response(200, LOGIN_PAGE);
+                } else {
+                    resp = response(302, "");
+                    resp.addHeader("Set-Cookie", ".ASPXAUTH=a" + n + "; path=/");
+                }
+            } else if (req.getUrl().equals(PAGE)) {
+                resp = response(302, "");
+                resp.addHeader("Location", "/ICS/page2");
+            } else {
+                resp = response(200, "<html>ok</html>");
+            }
+            return resp;
+        };
+    }
+
+    /**
+     * Leave out the bodies a request does not read, as the HttpTransport
+     * does for large pages.
+     */
+    private static Transport skipBodies(final Transport myGCC) {
+        return req -> {
+            UpstreamResponse resp = myGCC.execute(req);
+            UpstreamResponse headers = new UpstreamResponse(resp.getStatus(),
+                    new byte[0]);
+            for (Map.Entry<String, List<String>> h
+                    : resp.getHeaders().entrySet()) {
+                for (String value : h.getValue()) {
+                    headers.addHeader(h.getKey(), value);
+                }
+            }
+            if (req.isReadBody(headers)) {
+                return resp;
+            }
+            return headers;
+        };
+    }
+
+    @Test
+    public void testFetchAsync() {
+        AtomicInteger logins = new AtomicInteger();
+        Transports.setDefault(fakeMyGCC(logins));
+        try {
+            Session ses = new Session(new Token("async"
+                    + System.nanoTime(), "pw"));
+            String html = ses.createSessionAsync(false)
+                    .thenCompose(v -> ses.fetchAsync(PAGE))
+                    .join();
+            assertEquals("<html>ok</html>", html);
+            assertEquals("a1", ses.getASPXAuth());
+            assertEquals(1, logins.get());
+        } finally {
+            Transports.setDefault(null);
+        }
+    }
+
+    @Test
+    public void testPooledSessionSkipsLogin() throws Exception {
+        AtomicInteger logins = new AtomicInteger();
+        Transports.setDefault(fakeMyGCC(logins));
+        try {
+            Token token = new Token("async" + System.nanoTime(), "pw");
+            new Session(token).createSession();
+            Session ses = new Session(token);
+            ses.createSessionAsync(false).join();
+            assertEquals("a1", ses.getASPXAuth());
+            assertEquals(1, logins.get());
+        } finally {
+            Transports.setDefault(null);
+        }
+    }
+
+    @Test
+    public void testRotatedCookieReachesPool() throws Exception {
+        AtomicInteger logins = new AtomicInteger();
+        Transport myGCC = fakeMyGCC(logins);
+        List<String> sent = new CopyOnWriteArrayList<>();
+        Transports.setDefault(req -> {
+            if (!req.getUrl().equals(OTHER)) {
+                return myGCC.execute(req);
+            }
+            sent.add(req.getHeaders().get("Cookie"));
+            UpstreamResponse resp = response(200, "<html>ok</html>");
+            resp.addHeader("Set-Cookie", ".ASPXAUTH=a2; path=/");
+            return resp;
+        });
+        try {
+            Token token = new Token("async" + System.nanoTime(), "pw");
+            new Session(token).createSession();
+            Session first = new Session(token);
+            first.createSession();
+            first.fetch(OTHER);
+            Session second = new Session(token);
+            second.createSession();
+            assertEquals("a2", second.getASPXAuth());
+            second.fetch(OTHER);
+            assertTrue(sent.get(1).contains(".ASPXAUTH=a2"));
+            assertEquals(1, logins.get());
+        } finally {
+            Transports.setDefault(null);
+        }
+    }
+
+    /**
+     * Fetch a page that myGCC rejects the given number of times before
+     * serving it, and return the cookies of each request for it.
+     */
+    private static List<String> fetchRejected(final UpstreamResponse rejection,
+                                              final int rejections,
+                                              final AtomicInteger logins)
+            throws Exception {
+        Transport myGCC = fakeMyGCC(logins);
+        List<String> sent = new CopyOnWriteArrayList<>();
+        Transports.setDefault(req -> {
+            if (!req.getUrl().equals(OTHER)) {
+                return myGCC.execute(req);
+            }
+            sent.add(req.getHeaders().get("Cookie"));
+            if (sent.size() <= rejections) {
+                return rejection;
+            }
+            return response(200, "<html>ok</html>");
+        });
+        try {
+            Session ses = new Session(new Token("async"
+                    + System.nanoTime(), "pw"));
+            ses.createSession();
+            assertEquals("<html>ok</html>", ses.fetch(OTHER));
+        } finally {
+            Transports.setDefault(null);
+        }
+        return sent;
+    }
+
+    private static void assertLoggedInAgain(final UpstreamResponse rejection)
+            throws Exception {
+        AtomicInteger logins = new AtomicInteger();
+        List<String> sent = fetchRejected(rejection, 1, logins);
+        assertEquals(2, logins.get());
+        assertEquals(2, sent.size());
+        assertTrue(sent.get(0).contains(".ASPXAUTH=a1"));
+        // The old cookies were dropped with the session
+        assertTrue(sent.get(1).contains(".ASPXAUTH=a2"));
+        assertFalse(sent.get(1).contains(".ASPXAUTH=a1"));
+    }
+
+    @Test
+    public void testUnauthorizedLogsInAgain() throws Exception {
+        assertLoggedInAgain(response(401, ""));
+    }
+
+    @Test
+    public void testForbiddenLogsInAgain() throws Exception {
+        assertLoggedInAgain(response(403, ""));
+    }
+
+    @Test
+    public void testLoginRedirectLogsInAgain() throws Exception {
+        UpstreamResponse redirect = response(302, "");
+        redirect.addHeader("Location", "/ICS/?ReturnUrl=%2fICS%2fother");
+        assertLoggedInAgain(redirect);
+    }
+
+    @Test
+    public void testLoginPageLogsInAgain() throws Exception {
+        assertLoggedInAgain(response(200,
+                "<html><input name=\"userName\"></html>"));
+    }
+
+    @Test
+    public void testSecondRejectionExpires() throws Exception {
+        AtomicInteger logins = new AtomicInteger();
+        try {
+            fetchRejected(response(401, ""), 2, logins);
+            fail("fetch should fail");
+        } catch (ExpiredSessionException e) {
+            assertEquals(2, logins.get());
+        }
+    }
+
+    @Test
+    public void testLoginFormOnlyLookedForAtStart() throws Exception {
+        StringBuilder html = new StringBuilder("<html>");
+        for (int i = 0; i < 70 * 1024; i++) {
+            html.append(' ');
+        }
+        html.append("<input name=\"userName\"></html>");
+        AtomicInteger logins = new AtomicInteger();
+        Transport myGCC = fakeMyGCC(logins);
+        Transports.setDefault(req -> {
+            if (req.getUrl().equals(OTHER)) {
+                return response(200, html.toString());
+            }
+            return myGCC.execute(req);
+        });
+        try {
+            Session ses = new Session(new Token("async"
+                    + System.nanoTime(), "pw"));
+            ses.createSession();
+            assertEquals(html.toString(), ses.fetch(OTHER));
+            assertEquals(1, logins.get());
+        } finally {
+            Transports.setDefault(null);
+        }
+    }
+
+    @Test
+    public void testInvalidCredentialsAsync() {
+        Transports.setDefault(fakeMyGCC(new AtomicInteger()));
+        try {
+            Session ses = new Session(new Token("async"
+                    + System.nanoTime(), "bad-password"));
+            CompletableFuture<Void> created = ses.createSessionAsync(false);
+            try {
+                created.join();
+            } catch (CompletionException e) {
+                assertTrue(Futures.unwrap(e)
+                        instanceof InvalidCredentialsException);
+                return;
+            }
+            throw new AssertionError("login should fail");
+        } finally {
+            Transports.setDefault(null);
+        }
+    }
+
+    @Test
+    public void testServerErrorNotInvalidCredentials() {
+        AtomicInteger logins = new AtomicInteger();
+        Transport myGCC = fakeMyGCC(logins);
+        AtomicBoolean down = new AtomicBoolean(true);
+        Transports.setDefault(req -> {
+            if (down.get() && req.getMethod().equals("POST")) {
+                return response(503, "");
+            }
+            return myGCC.execute(req);
+        });
+        try {
+            Token token = new Token("async" + System.nanoTime(), "pw");
+            try {
+                new Session(token).createSessionAsync(false).join();
+                throw new AssertionError("login should fail");
+            } catch (CompletionException e) {
+                assertTrue(Futures.unwrap(e) instanceof NetworkException);
+            }
+            // Not remembered as rejected credentials
+            down.set(false);
+            new Session(token).createSessionAsync(false).join();
+            assertEquals(1, logins.get());
+        } finally {
+            Transports.setDefault(null);
+        }
+    }
+
+    @Test
+    public void testSkippedLoginBodyReadOnRejection() {
+        AtomicInteger logins = new AtomicInteger();
+        Transports.setDefault(skipBodies(fakeMyGCC(logins)));
+        try {
+            Session ses = new Session(new Token("async"
+                    + System.nanoTime(), "bad-password"));
+            try {
+                ses.createSessionAsync(false).join();
+                fail("login should fail");
+            } catch (CompletionException e) {
+                assertTrue(Futures.unwrap(e)
+                        instanceof InvalidCredentialsException);
+            }
+            // Accepted logins still skip the page
+            Session good = new Session(new Token("async"
+                    + System.nanoTime(), "pw"));
+            good.createSessionAsync(false).join();
+            assertEquals("a2", good.getASPXAuth());
+        } finally {
+            Transports.setDefault(null);
+        }
+    }
+
+    @Test
+    public void testSkippedRejectionCached() {
+        AtomicInteger logins = new AtomicInteger();
+        Transports.setDefault(skipBodies(fakeMyGCC(logins)));
+        try {
+            Token token = new Token("async" + System.nanoTime(),
+                    "bad-password");
+            for (int i = 0; i < 2; i++) {
+                try {
+                    new Session(token).createSessionAsync(false).join();
+                    fail("login should fail");
+                } catch (CompletionException e) {
+                    assertTrue(Futures.unwrap(e)
+                            instanceof InvalidCredentialsException);
+                }
+            }
+            // The second attempt was answered by the negative cache
+            assertEquals(1, logins.get());
+        } finally {
+            Transports.setDefault(null);
+        }
+    }
+
+    @Test(expected = InvalidCredentialsException.class)
+    public void testInvalidCredentialsBlocking() throws Exception {
+        Transports.setDefault(fakeMyGCC(new AtomicInteger()));
+        try {
+            new Session(new Token("async" + System.nanoTime(),
+                    "bad-password")).createSession();
+        } finally {
+            Transports.setDefault(null);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class SessionKeepAliveTest extends JerseyTest {
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(SessionKeepAlive.class);
+    }
+
+    private final AtomicInteger heartbeats = new AtomicInteger();
+    private SessionKeepAlive keepAlive;
+
+    @After
+    public void stop() {
+        if (keepAlive != null) {
+            keepAlive.stop();
+        }
+        Transports.setDefault(null);
+    }
+
+    /**
+     * Fake myGCC that sends sessions with the auth cookie "expired" to the
+     * login page, forbids those with "forbidden" and accepts the rest. The
+     * portal page is shown to anyone, as on myGCC.
+     */
+    private void fakeMyGCC() {
+        Transports.setDefault(req -> {
+            heartbeats.incrementAndGet();
+            String cookies = req.getHeaders().get("Cookie");
+            UpstreamResponse resp;
+            if (req.getUrl().equalsIgnoreCase("https://my.gcc.edu/ics/")) {
+                resp = new UpstreamResponse(200, new byte[0]);
+            } else if (cookies.contains(".ASPXAUTH=expired")) {
+                resp = new UpstreamResponse(302, new byte[0]);
+                resp.addHeader("Location",
+                        "/ICS/?ReturnUrl=%2fICS%2fStudent%2f");
+            } else if (cookies.contains(".ASPXAUTH=forbidden")) {
+                resp = new UpstreamResponse(403, new byte[0]);
+            } else {
+                resp = new UpstreamResponse(200, new byte[0]);
+            }
+            return resp;
+        });
+    }
+
+    private static Session session(final String auth) {
+        Session ses = new Session(new Token("un", "pw"));
+        ses.setASPXAuth(auth);
+        return ses;
+    }
+
+    private static void await(final BooleanSupplier condition)
+            throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < end) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    @Test
+    public void testActiveSessionRefreshed() throws Exception {
+        fakeMyGCC();
+        SessionPool pool = new SessionPool(10, 60000);
+        pool.put("key", session("valid"));
+        Thread.sleep(100);
+        assertEquals(1, pool.due(50, 60000).size());
+
+        keepAlive = new SessionKeepAlive(pool, 50, 60000);
+        keepAlive.start();
+        keepAlive.refreshDue();
+        await(() -> pool.due(50, 60000).isEmpty());
+        assertEquals(1, heartbeats.get());
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testRejectedSessionsDropped() throws Exception {
+        fakeMyGCC();
+        SessionPool pool = new SessionPool(10, 60000);
+        pool.put("expired", session("expired"));
+        pool.put("forbidden", session("forbidden"));
+        pool.put("valid", session("valid"));
+        Thread.sleep(20);
+
+        keepAlive = new SessionKeepAlive(pool, 0, 60000);
+        keepAlive.start();
+        keepAlive.refreshDue();
+        await(() -> pool.size() == 1);
+        await(() -> heartbeats.get() == 3);
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testIdleUserSkipped() throws Exception {
+        fakeMyGCC();
+        SessionPool pool = new SessionPool(10, 60000);
+        pool.put("key", session("valid"));
+        Thread.sleep(20);
+
+        keepAlive = new SessionKeepAlive(pool, 0, 1);
+        keepAlive.start();
+        keepAlive.refreshDue();
+        Thread.sleep(100);
+        assertEquals(0, heartbeats.get());
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void testHeartbeatsCapped() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger most = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Transports.setDefault(req -> {
+            most.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            heartbeats.incrementAndGet();
+            return new UpstreamResponse(200, new byte[0]);
+        });
+        SessionPool pool = new SessionPool(20, 60000);
+        for (int i = 0; i < 10; i++) {
+            pool.put("key" + i, session("valid"));
+        }
+        Thread.sleep(20);
+
+        keepAlive = new SessionKeepAlive(pool, 0, 60000);
+        keepAlive.start();
+        keepAlive.refreshDue();
+        await(() -> running.get() == 4);
+        Thread.sleep(100);
+        assertEquals(4, most.get());
+
+        release.countDown();
+        await(() -> heartbeats.get() == 10);
+        assertEquals(4, most.get());
+    }
+}
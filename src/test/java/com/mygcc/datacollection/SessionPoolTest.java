@@ -0,0 +1,89 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public final class SessionPoolTest extends JerseyTest {
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(SessionPool.class);
+    }
+
+    @Test
+    public void testGetPooledSession() {
+        SessionPool pool = new SessionPool(10, 60000);
+        Session ses = new Session(new Token("un", "pw"));
+        pool.put("key", ses);
+        assertSame(ses, pool.get("key"));
+    }
+
+    @Test
+    public void testGetMissingSession() {
+        SessionPool pool = new SessionPool(10, 60000);
+        assertNull(pool.get("key"));
+    }
+
+    @Test
+    public void testIdleSessionEvicted() throws InterruptedException {
+        SessionPool pool = new SessionPool(10, 1);
+        pool.put("key", new Session(new Token("un", "pw")));
+        Thread.sleep(10);
+        assertNull(pool.get("key"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws InterruptedException {
+        SessionPool pool = new SessionPool(2, 60000);
+        pool.put("first", new Session(new Token("un1", "pw")));
+        Thread.sleep(5);
+        pool.put("second", new Session(new Token("un2", "pw")));
+        Thread.sleep(5);
+        pool.get("first");
+        pool.put("third", new Session(new Token("un3", "pw")));
+        assertEquals(2, pool.size());
+        assertNull(pool.get("second"));
+    }
+
+    @Test
+    public void testDueSkipsRecentlyRefreshed() {
+        SessionPool pool = new SessionPool(10, 60000);
+        pool.put("key", new Session(new Token("un", "pw")));
+        assertEquals(0, pool.due(60000, 60000).size());
+    }
+
+    @Test
+    public void testDueIncludesActiveSessions() throws InterruptedException {
+        SessionPool pool = new SessionPool(10, 60000);
+        pool.put("key", new Session(new Token("un", "pw")));
+        Thread.sleep(10);
+        assertEquals(1, pool.due(1, 60000).size());
+        pool.refreshed("key");
+        assertEquals(0, pool.due(1000, 60000).size());
+    }
+
+    @Test
+    public void testDueSkipsIdleUsers() throws InterruptedException {
+        SessionPool pool = new SessionPool(10, 60000);
+        pool.put("key", new Session(new Token("un", "pw")));
+        Thread.sleep(10);
+        assertEquals(0, pool.due(1, 1).size());
+    }
+
+    @Test
+    public void testTokenHashDiffersByPassword() {
+        String first = new Token("un", "pw1").hash();
+        String second = new Token("un", "pw2").hash();
+        assert !first.equals(second);
+        assertEquals(first, new Token("un", "pw1").hash());
+    }
+}
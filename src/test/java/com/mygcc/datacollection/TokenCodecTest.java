@@ -0,0 +1,119 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public final class TokenCodecTest extends JerseyTest {
+    private static final String KEY = "0123456789abcdef";
+
+    private static final String IV = "fedcba9876543210";
+
+    private static final long DAY = 86400000;
+
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(TokenCodec.class);
+    }
+
+    @Test
+    public void testRoundTrip() throws InvalidCredentialsException {
+        TokenCodec codec = new TokenCodec(KEY, IV, 10, DAY);
+        String token = codec.encode("un", "p&#124;w");
+        assertArrayEquals(new String[] {"un", "p&#124;w"},
+                codec.decode(token));
+    }
+
+    @Test
+    public void testDecodedTokenCached() throws InvalidCredentialsException {
+        TokenCodec codec = new TokenCodec(KEY, IV, 10, DAY);
+        String token = codec.encode("un", "pw");
+        codec.decode(token);
+        codec.decode(token);
+        assertEquals(1, codec.cacheSize());
+
+        // Changing a returned array must not change the cached credentials
+        codec.decode(token)[1] = "changed";
+        assertEquals("pw", codec.decode(token)[1]);
+    }
+
+    @Test
+    public void testCacheBounded() throws InvalidCredentialsException {
+        TokenCodec codec = new TokenCodec(KEY, IV, 2, DAY);
+        for (int i = 0; i < 5; i++) {
+            codec.decode(codec.encode("un" + i, "pw"));
+        }
+        assertEquals(2, codec.cacheSize());
+    }
+
+    @Test(expected = InvalidCredentialsException.class)
+    public void testWrongKeyRejected() throws InvalidCredentialsException {
+        String token = new TokenCodec(KEY, IV, 10, DAY).encode("un", "pw");
+        new TokenCodec("abcdef0123456789", IV, 10, DAY).decode(token);
+    }
+
+    @Test(expected = InvalidCredentialsException.class)
+    public void testNotBase64Rejected() throws InvalidCredentialsException {
+        new TokenCodec(KEY, IV, 10, DAY).decode("not a token!");
+    }
+
+    @Test
+    public void testVersion2Issued() throws InvalidCredentialsException {
+        TokenCodec codec = new TokenCodec(KEY, IV, 10, DAY);
+        String first = codec.encode("un", "pw");
+        String second = codec.encode("un", "pw");
+        assert first.startsWith("v2.");
+        assert !first.equals(second);
+        assertArrayEquals(new String[] {"un", "pw"}, codec.decode(second));
+    }
+
+    @Test
+    public void testVersion1Accepted() throws InvalidCredentialsException {
+        TokenCodec codec = new TokenCodec(KEY, IV, 10, DAY);
+        String token = codec.encodeV1("un", "pw");
+        assertArrayEquals(new String[] {"un", "pw"}, codec.decode(token));
+    }
+
+    @Test(expected = InvalidCredentialsException.class)
+    public void testTamperedTokenRejected()
+            throws InvalidCredentialsException {
+        TokenCodec codec = new TokenCodec(KEY, IV, 10, DAY);
+        char[] token = codec.encode("un", "pw").toCharArray();
+        int mid = token.length / 2;
+        token[mid] = token[mid] == 'A' ? 'B' : 'A';
+        codec.decode(new String(token));
+    }
+
+    @Test(expected = InvalidCredentialsException.class)
+    public void testExpiredTokenRejected() throws Exception {
+        TokenCodec codec = new TokenCodec(KEY, IV, 10, 1);
+        String token = codec.encode("un", "pw");
+        Thread.sleep(10);
+        codec.decode(token);
+    }
+
+    @Test
+    public void testRevokedTokenRejected() throws InvalidCredentialsException {
+        TokenCodec codec = new TokenCodec(KEY, IV, 10, DAY);
+        String revoked = codec.encode("un", "pw");
+        String other = codec.encode("un", "pw");
+        codec.decode(revoked);
+        codec.revoke(revoked);
+        try {
+            codec.decode(revoked);
+            fail("revoked token accepted");
+        } catch (InvalidCredentialsException e) {
+            assertEquals("Token revoked", e.getMessage());
+        }
+        codec.decode(other);
+    }
+}
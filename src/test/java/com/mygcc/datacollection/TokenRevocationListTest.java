@@ -0,0 +1,56 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class TokenRevocationListTest extends JerseyTest {
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(TokenRevocationList.class);
+    }
+
+    private static byte[] hash(final String token) throws Exception {
+        return MessageDigest.getInstance("SHA-256")
+                .digest(token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRevoked() throws Exception {
+        TokenRevocationList list = new TokenRevocationList();
+        list.revoke(hash("token"));
+        assertTrue(list.isRevoked(hash("token")));
+        assertFalse(list.isRevoked(hash("other")));
+        assertEquals(1, list.size());
+    }
+
+    @Test
+    public void testFalsePositivesChecked() throws Exception {
+        // A tiny filter has every bit set after a few revocations
+        TokenRevocationList list = new TokenRevocationList(64);
+        for (int i = 0; i < 200; i++) {
+            list.revoke(hash("revoked" + i));
+        }
+        for (int i = 0; i < 200; i++) {
+            assertTrue(list.isRevoked(hash("revoked" + i)));
+            assertFalse(list.isRevoked(hash("valid" + i)));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFilterSizePowerOfTwo() {
+        new TokenRevocationList(100);
+    }
+}
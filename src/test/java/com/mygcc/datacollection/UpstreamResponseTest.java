@@ -0,0 +1,115 @@
+package com.mygcc.datacollection;
+
+import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.test.JerseyTest;
+import org.glassfish.jersey.test.TestProperties;
+import org.junit.Test;
+
+import javax.ws.rs.core.Application;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class UpstreamResponseTest extends JerseyTest {
+    private static final String PAGE = "<html><input type=\"hidden\" "
+            + "name=\"__VIEWSTATE\" value=\"abc\" /><p>myGCC</p></html>";
+
+    @Override
+    protected Application configure() {
+        enable(TestProperties.LOG_TRAFFIC);
+        enable(TestProperties.DUMP_ENTITY);
+        return new ResourceConfig(UpstreamResponse.class);
+    }
+
+    private static byte[] gzip(final String text) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(final String text, final boolean raw)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream df = new DeflaterOutputStream(out,
+                new Deflater(Deflater.DEFAULT_COMPRESSION, raw))) {
+            df.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    private static UpstreamResponse encoded(final byte[] body,
+                                            final String encoding) {
+        UpstreamResponse response = new UpstreamResponse(200, body);
+        response.addHeader("Content-Encoding", encoding);
+        return response;
+    }
+
+    @Test
+    public void testIdentity() {
+        UpstreamResponse response = new UpstreamResponse(200,
+                PAGE.getBytes(StandardCharsets.UTF_8));
+        assertEquals(PAGE, response.getBody());
+        assertEquals(PAGE.length(), response.getWireLength());
+    }
+
+    @Test
+    public void testGzip() throws IOException {
+        byte[] body = gzip(PAGE);
+        UpstreamResponse response = encoded(body, "gzip");
+        assertEquals(PAGE, response.getBody());
+        assertEquals(body.length, response.getWireLength());
+    }
+
+    @Test
+    public void testZlibDeflate() throws IOException {
+        assertEquals(PAGE, encoded(deflate(PAGE, false), "deflate")
+                .getBody());
+    }
+
+    @Test
+    public void testRawDeflate() throws IOException {
+        assertEquals(PAGE, encoded(deflate(PAGE, true), "Deflate")
+                .getBody());
+    }
+
+    @Test
+    public void testStreamIntoExtractor() throws Exception {
+        Map<String, String> fields = HiddenFieldExtractor.extract(
+                encoded(gzip(PAGE), "gzip"), HiddenFieldExtractor.VIEWSTATE);
+        assertEquals("abc", fields.get(HiddenFieldExtractor.VIEWSTATE));
+    }
+
+    @Test
+    public void testDecodedSizeReportedOnce() throws IOException {
+        AtomicLong decoded = new AtomicLong();
+        UpstreamResponse response = encoded(gzip(PAGE), "gzip");
+        response.setDecodedListener(decoded::addAndGet);
+        response.getBody();
+        response.getBodyBytes();
+        assertEquals(PAGE.length(), decoded.get());
+        assertTrue(response.getWireLength() != PAGE.length());
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnsupportedEncoding() throws IOException {
+        encoded(new byte[] {1, 2, 3}, "br").getBodyStream();
+    }
+
+    @Test(expected = UnexpectedResponseException.class)
+    public void testCorruptBodyInExtractor() throws Exception {
+        HiddenFieldExtractor.extract(encoded(new byte[] {1, 2, 3}, "gzip"),
+                HiddenFieldExtractor.VIEWSTATE);
+    }
+}